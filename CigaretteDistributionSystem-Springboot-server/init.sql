@@ -456,3 +456,25 @@ CREATE TABLE `region_clientNum_4_2` (
   `TOTAL` decimal(18,2) DEFAULT NULL COMMENT '总计',
   PRIMARY KEY (`id`)
 ) ENGINE=InnoDB AUTO_INCREMENT=49 DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
+
+# 分配方案运行性能报告表（首次写入时也会自动创建）
+CREATE TABLE IF NOT EXISTS `distribution_run_report` (
+  `id` bigint NOT NULL AUTO_INCREMENT COMMENT '主键ID',
+  `YEAR` int NOT NULL COMMENT '年份',
+  `MONTH` tinyint NOT NULL COMMENT '月份',
+  `WEEK_SEQ` tinyint NOT NULL COMMENT '周序号',
+  `START_TIME` bigint NOT NULL COMMENT '开始时间戳(ms)',
+  `TOTAL_MS` bigint DEFAULT NULL COMMENT '总耗时(ms)',
+  `DELETE_MS` decimal(14,3) DEFAULT NULL COMMENT '删除旧数据耗时(ms)',
+  `COMPUTE_MS` decimal(14,3) DEFAULT NULL COMMENT '算法计算耗时(ms)',
+  `WRITE_BACK_MS` decimal(14,3) DEFAULT NULL COMMENT '写回耗时(ms)',
+  `ENCODE_MS` decimal(14,3) DEFAULT NULL COMMENT '编码耗时(ms)',
+  `DB_ROUND_TRIPS` int DEFAULT NULL COMMENT '数据库往返次数',
+  `CIGARETTE_COUNT` int DEFAULT NULL COMMENT '卷烟种数',
+  `SUCCESS_COUNT` int DEFAULT NULL COMMENT '成功分配卷烟种数',
+  `SUCCESS` tinyint(1) DEFAULT NULL COMMENT '是否成功',
+  `REPORT_JSON` mediumtext COMMENT '完整报告(JSON)',
+  `CREATED_AT` timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+  PRIMARY KEY (`id`),
+  KEY `idx_run_week` (`YEAR`,`MONTH`,`WEEK_SEQ`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci COMMENT='分配方案运行性能报告表';
@@ -0,0 +1,171 @@
+package org.example.benchmark;
+
+import org.example.service.algorithm.AllocationFrontierCache;
+import org.example.service.algorithm.BussinessFormatDistributionAlgorithm;
+import org.example.service.algorithm.CityCigaretteDistributionAlgorithm;
+import org.example.service.algorithm.MarketProportionalCigaretteDistributionAlgorithm;
+import org.example.service.algorithm.UrbanRuralClassificationCodeDistributionAlgorithm;
+import org.example.service.algorithm.countyCigaretteDistributionAlgorithm;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 五种分配算法的JMH基准测试
+ *
+ * 【核心功能】
+ * 在合成客户数矩阵上测量各分配算法的吞吐量，配合 -prof gc 观察单次分配的内存分配量，
+ * 并在每组参数结束时将分配结果相对目标量的绝对误差记录到日志，便于同时评估速度与精度
+ *
+ * 【覆盖场景】
+ * - 全市：1行（CityCigaretteDistributionAlgorithm）
+ * - 市场类型：2行 城网/农网，比例0.4/0.6（MarketProportionalCigaretteDistributionAlgorithm）
+ * - 区县：7行（countyCigaretteDistributionAlgorithm）
+ * - 城乡分类代码：7行（UrbanRuralClassificationCodeDistributionAlgorithm）
+ * - 业态：6行（BussinessFormatDistributionAlgorithm）
+ *
+ * 【求解引擎】
+ * - legacy：逐轮迭代实现（不注入分配前沿缓存）
+ * - frontier：注入AllocationFrontierCache，全市/区县/城乡分类代码/业态走分配前沿求解（市场类型不受影响）
+ *
+ * 【运行方式】
+ * mvn -Pbenchmark test-compile exec:exec -Djmh.includes=AllocationAlgorithmBenchmark
+ *
+ * @author Robin
+ * @version 1.0
+ * @since 2025-10-20
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AllocationAlgorithmBenchmark {
+
+    private static final Logger log = LoggerFactory.getLogger(AllocationAlgorithmBenchmark.class);
+
+    /**
+     * 预投放量，覆盖测试数据中ADV的常见量级
+     */
+    @Param({"1000", "5000", "20000", "80000"})
+    public int adv;
+
+    /**
+     * 求解引擎：legacy 或 frontier
+     */
+    @Param({"legacy", "frontier"})
+    public String engine;
+
+    private static final BigDecimal URBAN_RATIO = new BigDecimal("0.4");
+    private static final BigDecimal RURAL_RATIO = new BigDecimal("0.6");
+
+    private final CityCigaretteDistributionAlgorithm cityAlgorithm = new CityCigaretteDistributionAlgorithm();
+    private final MarketProportionalCigaretteDistributionAlgorithm marketAlgorithm = new MarketProportionalCigaretteDistributionAlgorithm();
+    private final countyCigaretteDistributionAlgorithm countyAlgorithm = new countyCigaretteDistributionAlgorithm();
+    private final UrbanRuralClassificationCodeDistributionAlgorithm urbanRuralAlgorithm = new UrbanRuralClassificationCodeDistributionAlgorithm();
+    private final BussinessFormatDistributionAlgorithm businessFormatAlgorithm = new BussinessFormatDistributionAlgorithm();
+
+    private BigDecimal target;
+
+    private BigDecimal[][] cityMatrix;
+    private BigDecimal[][] marketMatrix;
+    private BigDecimal[][] countyMatrix;
+    private BigDecimal[][] urbanRuralMatrix;
+    private BigDecimal[][] businessFormatMatrix;
+
+    private List<String> cityRegions;
+    private List<String> marketRegions;
+    private List<String> countyRegions;
+    private List<String> urbanRuralRegions;
+    private List<String> businessFormats;
+
+    /**
+     * 最近一次调用的输入与结果，用于试验结束后计算误差
+     */
+    private BigDecimal[][] lastMatrix;
+    private BigDecimal[][] lastResult;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        target = BigDecimal.valueOf(adv);
+
+        if ("frontier".equals(engine)) {
+            AllocationFrontierCache frontierCache = new AllocationFrontierCache();
+            ReflectionTestUtils.setField(cityAlgorithm, "frontierCache", frontierCache);
+            ReflectionTestUtils.setField(countyAlgorithm, "frontierCache", frontierCache);
+            ReflectionTestUtils.setField(urbanRuralAlgorithm, "frontierCache", frontierCache);
+            ReflectionTestUtils.setField(businessFormatAlgorithm, "frontierCache", frontierCache);
+        }
+
+        cityMatrix = SyntheticCustomerMatrix.generate(SyntheticCustomerMatrix.CITY_REGIONS, 15000, 25000);
+        marketMatrix = SyntheticCustomerMatrix.generate(SyntheticCustomerMatrix.MARKET_REGIONS, 6000, 14000);
+        countyMatrix = SyntheticCustomerMatrix.generate(SyntheticCustomerMatrix.COUNTY_REGIONS, 1500, 4500);
+        urbanRuralMatrix = SyntheticCustomerMatrix.generate(SyntheticCustomerMatrix.URBAN_RURAL_REGIONS, 300, 5000);
+        businessFormatMatrix = SyntheticCustomerMatrix.generate(SyntheticCustomerMatrix.BUSINESS_FORMATS, 200, 8000);
+
+        cityRegions = SyntheticCustomerMatrix.copyOf(SyntheticCustomerMatrix.CITY_REGIONS);
+        marketRegions = SyntheticCustomerMatrix.copyOf(SyntheticCustomerMatrix.MARKET_REGIONS);
+        countyRegions = SyntheticCustomerMatrix.copyOf(SyntheticCustomerMatrix.COUNTY_REGIONS);
+        urbanRuralRegions = SyntheticCustomerMatrix.copyOf(SyntheticCustomerMatrix.URBAN_RURAL_REGIONS);
+        businessFormats = SyntheticCustomerMatrix.copyOf(SyntheticCustomerMatrix.BUSINESS_FORMATS);
+    }
+
+    @TearDown(Level.Trial)
+    public void reportError(BenchmarkParams params) {
+        if (lastMatrix == null) {
+            return;
+        }
+        BigDecimal error = SyntheticCustomerMatrix.absoluteError(lastResult, lastMatrix, target);
+        log.info("[allocation-error] {} engine={} adv={} absError={}",
+                params.getBenchmark(), engine, adv, error.toPlainString());
+    }
+
+    @Benchmark
+    public BigDecimal[][] city() {
+        lastMatrix = cityMatrix;
+        return lastResult = cityAlgorithm.calculateDistribution(cityRegions, cityMatrix, target);
+    }
+
+    @Benchmark
+    public BigDecimal[][] market() {
+        lastMatrix = marketMatrix;
+        return lastResult = marketAlgorithm.calculateDistribution(marketRegions, marketMatrix, target, URBAN_RATIO, RURAL_RATIO);
+    }
+
+    @Benchmark
+    public BigDecimal[][] county() {
+        lastMatrix = countyMatrix;
+        return lastResult = countyAlgorithm.calculateDistribution(countyRegions, countyMatrix, target);
+    }
+
+    @Benchmark
+    public BigDecimal[][] urbanRural() {
+        lastMatrix = urbanRuralMatrix;
+        return lastResult = urbanRuralAlgorithm.calculateDistribution(urbanRuralRegions, urbanRuralMatrix, target);
+    }
+
+    @Benchmark
+    public BigDecimal[][] businessFormat() {
+        lastMatrix = businessFormatMatrix;
+        return lastResult = businessFormatAlgorithm.calculateDistribution(businessFormats, businessFormatMatrix, target);
+    }
+}
@@ -0,0 +1,139 @@
+package org.example.benchmark;
+
+import org.example.controller.DataManageController;
+import org.example.dto.QueryRequestDto;
+import org.example.entity.CigaretteDistributionPredictionData;
+import org.example.service.DataManagementService;
+import org.example.service.DistributionCalculateService;
+import org.example.service.impl.EncodeDecodeServiceImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * /api/data/query 行映射循环的JMH基准测试
+ *
+ * 【核心功能】
+ * 直接调用DataManageController.queryCigaretteDistribution，使用内存数据集替代数据库，
+ * 测量控制器对每行记录执行的分组、预投放量查找、逐区域编码、解码和30个档位字段组装的总耗时
+ *
+ * 【数据库替身】
+ * - DataManagementService：queryTestDataByTime返回内存数据集，getAdvDataInfo从内存Map查找
+ * - DistributionCalculateService：calculateTotalActualDeliveryByTobacco返回预先计算的结果
+ * 两者均为动态代理，不包含真实的数据库往返耗时，基准只反映行映射与编码路径本身的开销
+ *
+ * 【运行方式】
+ * mvn -Pbenchmark test-compile exec:exec -Djmh.includes=DataQueryMappingBenchmark
+ *
+ * @author Robin
+ * @version 1.0
+ * @since 2025-10-20
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DataQueryMappingBenchmark {
+
+    /**
+     * 一周的卷烟数量（混合五种投放类型）
+     */
+    @Param({"50", "200", "500"})
+    public int cigaretteCount;
+
+    /**
+     * 每种卷烟的档位设置组数
+     */
+    @Param({"1", "3"})
+    public int gradeGroups;
+
+    private DataManageController controller;
+    private QueryRequestDto request;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<CigaretteDistributionPredictionData> dataset = SyntheticPredictionData.weekDataset(cigaretteCount, gradeGroups);
+
+        Map<String, Map<String, Object>> advInfoByCigarette = new HashMap<>();
+        Map<String, BigDecimal> actualDeliveryByCigarette = new HashMap<>();
+        for (CigaretteDistributionPredictionData data : dataset) {
+            String key = data.getCigCode() + "_" + data.getCigName();
+            advInfoByCigarette.computeIfAbsent(key, k -> {
+                Map<String, Object> advInfo = new HashMap<>();
+                advInfo.put("advAmount", BigDecimal.valueOf(10000));
+                advInfo.put("deliveryMethod", data.getDeliveryMethod());
+                advInfo.put("deliveryEtype", data.getDeliveryEtype());
+                return advInfo;
+            });
+            actualDeliveryByCigarette.putIfAbsent(key, BigDecimal.valueOf(9950));
+        }
+
+        DataManagementService dataManagementService = stub(DataManagementService.class, (method, args) -> {
+            switch (method) {
+                case "queryTestDataByTime":
+                    return dataset;
+                case "getAdvDataInfo":
+                    return advInfoByCigarette.get(args[0] + "_" + args[1]);
+                default:
+                    throw new UnsupportedOperationException(method);
+            }
+        });
+        DistributionCalculateService distributionCalculateService = stub(DistributionCalculateService.class, (method, args) -> {
+            if ("calculateTotalActualDeliveryByTobacco".equals(method)) {
+                return actualDeliveryByCigarette;
+            }
+            throw new UnsupportedOperationException(method);
+        });
+
+        controller = new DataManageController();
+        ReflectionTestUtils.setField(controller, "dataManagementService", dataManagementService);
+        ReflectionTestUtils.setField(controller, "distributionCalculateService", distributionCalculateService);
+        ReflectionTestUtils.setField(controller, "encodeDecodeService", new EncodeDecodeServiceImpl());
+
+        request = new QueryRequestDto();
+        request.setYear(2099);
+        request.setMonth(1);
+        request.setWeekSeq(1);
+
+        Map<String, Object> body = controller.queryCigaretteDistribution(request).getBody();
+        if (body == null || !Boolean.TRUE.equals(body.get("success"))) {
+            throw new IllegalStateException("查询接口执行失败: " + body);
+        }
+    }
+
+    @Benchmark
+    public ResponseEntity<Map<String, Object>> queryRowMapping() {
+        return controller.queryCigaretteDistribution(request);
+    }
+
+    @FunctionalInterface
+    private interface StubHandler {
+        Object handle(String method, Object[] args);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T stub(Class<T> type, StubHandler handler) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> handler.handle(method.getName(), args));
+    }
+}
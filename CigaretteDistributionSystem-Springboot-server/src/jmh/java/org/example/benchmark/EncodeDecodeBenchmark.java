@@ -0,0 +1,105 @@
+package org.example.benchmark;
+
+import org.example.entity.CigaretteDistributionPredictionData;
+import org.example.service.EncodeDecodeService;
+import org.example.service.impl.EncodeDecodeServiceImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 编码/解码服务的JMH基准测试
+ *
+ * 【核心功能】
+ * 测量EncodeDecodeServiceImpl中按卷烟调用的四个入口在不同投放类型、不同档位设置组数下的耗时：
+ * - encode：整卷烟编码，返回每个档位设置组一个表达式
+ * - encodeForSpecificArea：逐区域编码（查询接口每行调用一次，基准中对卷烟的所有区域各调用一次）
+ * - decode：编码表达式转自然语言描述
+ * - parseEncodedExpression：编码表达式解析为投放类型、区域列表和档位数组（批量更新使用）
+ *
+ * 【参数】
+ * - deliveryEtype：扩展投放类型，决定区域数（区县7、市场类型2、城乡分类代码7、业态6）
+ * - gradeGroups：档位设置组数，决定生成的编码表达式个数（超过区域数时按区域数计）
+ *
+ * 【运行方式】
+ * mvn -Pbenchmark test-compile exec:exec -Djmh.includes=EncodeDecodeBenchmark
+ *
+ * @author Robin
+ * @version 1.0
+ * @since 2025-10-20
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EncodeDecodeBenchmark {
+
+    @Param({SyntheticPredictionData.ETYPE_COUNTY, SyntheticPredictionData.ETYPE_MARKET,
+            SyntheticPredictionData.ETYPE_URBAN_RURAL, SyntheticPredictionData.ETYPE_BUSINESS_FORMAT})
+    public String deliveryEtype;
+
+    @Param({"1", "3", "7"})
+    public int gradeGroups;
+
+    private final EncodeDecodeService encodeDecodeService = new EncodeDecodeServiceImpl();
+
+    private List<CigaretteDistributionPredictionData> records;
+    private String cigCode;
+    private String cigName;
+    private List<String> encodedExpressions;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        records = SyntheticPredictionData.cigarette(0, deliveryEtype, gradeGroups, new Random(20251020L));
+        cigCode = records.get(0).getCigCode();
+        cigName = records.get(0).getCigName();
+        encodedExpressions = encodeDecodeService.encode(cigCode, cigName,
+                SyntheticPredictionData.METHOD_EXTENDED, deliveryEtype, records);
+        if (encodedExpressions.isEmpty()) {
+            throw new IllegalStateException("编码结果为空，请检查合成数据: " + deliveryEtype);
+        }
+    }
+
+    @Benchmark
+    public List<String> encode() {
+        return encodeDecodeService.encode(cigCode, cigName, SyntheticPredictionData.METHOD_EXTENDED, deliveryEtype, records);
+    }
+
+    @Benchmark
+    public void encodeForSpecificArea(Blackhole blackhole) {
+        for (CigaretteDistributionPredictionData record : records) {
+            blackhole.consume(encodeDecodeService.encodeForSpecificArea(cigCode, cigName,
+                    SyntheticPredictionData.METHOD_EXTENDED, deliveryEtype, record.getDeliveryArea(), records));
+        }
+    }
+
+    @Benchmark
+    public void decode(Blackhole blackhole) {
+        for (String expression : encodedExpressions) {
+            blackhole.consume(encodeDecodeService.decode(expression));
+        }
+    }
+
+    @Benchmark
+    public void parseEncodedExpression(Blackhole blackhole) {
+        for (String expression : encodedExpressions) {
+            blackhole.consume(encodeDecodeService.parseEncodedExpression(expression));
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package org.example.benchmark;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 基准测试用的合成区域客户数矩阵
+ *
+ * 【核心功能】
+ * 按固定随机种子生成与region_clientNum表结构一致的客户数矩阵（每行30列，对应D30-D1），
+ * 保证不同JVM、不同轮次之间的输入完全一致，基准结果可直接对比。
+ *
+ * 【数据形态】
+ * - 每个区域的总客户数在给定区间内随机
+ * - 档位分布呈中间档位多、两端档位少的钟形，并叠加随机扰动，贴近实际客户档位分布
+ * - 少量档位客户数为0，覆盖算法中的空档位分支
+ *
+ * @author Robin
+ * @version 1.0
+ * @since 2025-10-20
+ */
+public final class SyntheticCustomerMatrix {
+
+    /**
+     * 档位数量（D30-D1）
+     */
+    public static final int GRADE_COUNT = 30;
+
+    /**
+     * 全市
+     */
+    public static final List<String> CITY_REGIONS = Collections.singletonList("全市");
+
+    /**
+     * 市场类型（城网/农网）
+     */
+    public static final List<String> MARKET_REGIONS = Arrays.asList("城网", "农网");
+
+    /**
+     * 区县
+     */
+    public static final List<String> COUNTY_REGIONS = Arrays.asList("丹江", "房县", "郧西", "郧阳", "竹山", "竹溪", "城区");
+
+    /**
+     * 城乡分类代码
+     */
+    public static final List<String> URBAN_RURAL_REGIONS = Arrays.asList(
+            "主城区", "城乡结合区", "镇中心区", "镇乡结合区", "特殊区域", "乡中心区", "村庄");
+
+    /**
+     * 业态
+     */
+    public static final List<String> BUSINESS_FORMATS = Arrays.asList(
+            "便利店", "超市", "商场", "烟草专业店", "娱乐服务类", "其他");
+
+    private static final long SEED = 20251020L;
+
+    private SyntheticCustomerMatrix() {
+    }
+
+    /**
+     * 生成客户数矩阵
+     *
+     * @param regions 区域列表（决定行数）
+     * @param minCustomers 单区域最少客户数
+     * @param maxCustomers 单区域最多客户数
+     * @return regions.size() x 30 的客户数矩阵
+     */
+    public static BigDecimal[][] generate(List<String> regions, int minCustomers, int maxCustomers) {
+        Random random = new Random(SEED + regions.size());
+        BigDecimal[][] matrix = new BigDecimal[regions.size()][GRADE_COUNT];
+        for (int r = 0; r < regions.size(); r++) {
+            int total = minCustomers + random.nextInt(Math.max(1, maxCustomers - minCustomers));
+            double[] weights = new double[GRADE_COUNT];
+            double weightSum = 0;
+            for (int g = 0; g < GRADE_COUNT; g++) {
+                // 以D15附近为峰值的钟形分布，叠加±30%扰动
+                double distance = (g - 14.5) / 7.0;
+                double weight = Math.exp(-distance * distance / 2) * (0.7 + 0.6 * random.nextDouble());
+                // 约5%的档位没有客户
+                if (random.nextInt(20) == 0) {
+                    weight = 0;
+                }
+                weights[g] = weight;
+                weightSum += weight;
+            }
+            for (int g = 0; g < GRADE_COUNT; g++) {
+                long count = weightSum == 0 ? 0 : Math.round(total * weights[g] / weightSum);
+                matrix[r][g] = BigDecimal.valueOf(count);
+            }
+        }
+        return matrix;
+    }
+
+    /**
+     * 计算分配结果与目标量的绝对误差
+     *
+     * @param allocation 分配矩阵
+     * @param customerMatrix 客户数矩阵
+     * @param target 目标预投放量
+     * @return |实际投放量 - 目标量|，分配结果为空时返回目标量
+     */
+    public static BigDecimal absoluteError(BigDecimal[][] allocation, BigDecimal[][] customerMatrix, BigDecimal target) {
+        if (allocation == null || allocation.length == 0) {
+            return target;
+        }
+        BigDecimal actual = BigDecimal.ZERO;
+        for (int r = 0; r < allocation.length && r < customerMatrix.length; r++) {
+            for (int g = 0; g < GRADE_COUNT && g < allocation[r].length; g++) {
+                if (allocation[r][g] != null && customerMatrix[r][g] != null) {
+                    actual = actual.add(allocation[r][g].multiply(customerMatrix[r][g]));
+                }
+            }
+        }
+        return actual.subtract(target).abs();
+    }
+
+    /**
+     * 复制区域列表，避免算法内部修改共享的常量列表
+     */
+    public static List<String> copyOf(List<String> regions) {
+        return new ArrayList<>(regions);
+    }
+}
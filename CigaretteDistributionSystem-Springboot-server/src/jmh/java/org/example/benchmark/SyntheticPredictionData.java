@@ -0,0 +1,150 @@
+package org.example.benchmark;
+
+import org.example.entity.CigaretteDistributionPredictionData;
+import org.example.util.GradeMatrixUtils;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 基准测试用的合成分配结果记录
+ *
+ * 【核心功能】
+ * 按固定随机种子生成与cigarette_distribution_prediction表结构一致的记录，
+ * 可控制每种卷烟的投放区域数和档位设置组数（相同档位设置的区域会被编码为同一个表达式），
+ * 用于编码、解码及查询行映射的基准测试
+ *
+ * 【数据形态】
+ * - 每组档位均满足非递增约束，高档位取值较大，尾部若干档位为0
+ * - 区域名称与编码规则表一致，保证编码/解码走正常路径
+ *
+ * @author Robin
+ * @version 1.0
+ * @since 2025-10-20
+ */
+public final class SyntheticPredictionData {
+
+    public static final String METHOD_UNIFIED = "按档位统一投放";
+    public static final String METHOD_EXTENDED = "按档位扩展投放";
+
+    public static final String ETYPE_COUNTY = "档位+区县";
+    public static final String ETYPE_MARKET = "档位+市场类型";
+    public static final String ETYPE_URBAN_RURAL = "档位+城乡分类代码";
+    public static final String ETYPE_BUSINESS_FORMAT = "档位+业态";
+
+    /**
+     * 城乡分类代码区域（与编码规则表一致）
+     */
+    private static final List<String> URBAN_RURAL_AREAS = Arrays.asList(
+            "主城区", "城乡结合区", "镇中心区", "镇乡接合区", "特殊区域", "乡中心区", "村庄");
+
+    private static final int YEAR = 2099;
+    private static final int MONTH = 1;
+    private static final int WEEK_SEQ = 1;
+
+    private SyntheticPredictionData() {
+    }
+
+    /**
+     * 获取投放类型对应的全部区域
+     *
+     * @param deliveryEtype 扩展投放类型，null表示按档位统一投放（全市）
+     */
+    public static List<String> areasOf(String deliveryEtype) {
+        if (deliveryEtype == null) {
+            return SyntheticCustomerMatrix.CITY_REGIONS;
+        }
+        switch (deliveryEtype) {
+            case ETYPE_COUNTY:
+                return SyntheticCustomerMatrix.COUNTY_REGIONS;
+            case ETYPE_MARKET:
+                return SyntheticCustomerMatrix.MARKET_REGIONS;
+            case ETYPE_URBAN_RURAL:
+                return URBAN_RURAL_AREAS;
+            case ETYPE_BUSINESS_FORMAT:
+                return SyntheticCustomerMatrix.BUSINESS_FORMATS;
+            default:
+                throw new IllegalArgumentException("不支持的扩展投放类型: " + deliveryEtype);
+        }
+    }
+
+    /**
+     * 生成一种卷烟在所有区域上的分配记录
+     *
+     * @param index 卷烟序号，用于生成卷烟代码和名称
+     * @param deliveryEtype 扩展投放类型，null表示按档位统一投放（全市）
+     * @param gradeGroups 档位设置组数（超过区域数时按区域数计）
+     * @param random 随机数源
+     * @return 该卷烟的分配记录列表
+     */
+    public static List<CigaretteDistributionPredictionData> cigarette(int index, String deliveryEtype,
+                                                                      int gradeGroups, Random random) {
+        List<String> areas = areasOf(deliveryEtype);
+        int groups = Math.max(1, Math.min(gradeGroups, areas.size()));
+
+        List<BigDecimal[]> groupGrades = new ArrayList<>();
+        for (int g = 0; g < groups; g++) {
+            groupGrades.add(randomNonIncreasingGrades(random));
+        }
+
+        String cigCode = String.valueOf(42010000 + index);
+        String cigName = "基准卷烟" + index;
+        String method = deliveryEtype == null ? METHOD_UNIFIED : METHOD_EXTENDED;
+
+        List<CigaretteDistributionPredictionData> records = new ArrayList<>();
+        for (int a = 0; a < areas.size(); a++) {
+            CigaretteDistributionPredictionData data = new CigaretteDistributionPredictionData();
+            data.setId(index * 100 + a);
+            data.setCigCode(cigCode);
+            data.setCigName(cigName);
+            data.setYear(YEAR);
+            data.setMonth(MONTH);
+            data.setWeekSeq(WEEK_SEQ);
+            data.setDeliveryArea(areas.get(a));
+            data.setDeliveryMethod(method);
+            data.setDeliveryEtype(deliveryEtype);
+            // 前groups个区域各占一组，其余区域随机归入已有组
+            int group = a < groups ? a : random.nextInt(groups);
+            GradeMatrixUtils.setGradesToEntity(data, GradeMatrixUtils.copyGradeArray(groupGrades.get(group)));
+            records.add(data);
+        }
+        return records;
+    }
+
+    /**
+     * 生成混合投放类型的一周数据集，按卷烟顺序排列（与按时间查询的返回顺序一致）
+     *
+     * @param cigaretteCount 卷烟数量
+     * @param gradeGroups 每种卷烟的档位设置组数
+     * @return 全部分配记录
+     */
+    public static List<CigaretteDistributionPredictionData> weekDataset(int cigaretteCount, int gradeGroups) {
+        Random random = new Random(20251020L + cigaretteCount * 31L + gradeGroups);
+        List<String> etypes = Arrays.asList(null, ETYPE_COUNTY, ETYPE_MARKET, ETYPE_URBAN_RURAL, ETYPE_BUSINESS_FORMAT);
+        List<CigaretteDistributionPredictionData> records = new ArrayList<>();
+        for (int i = 0; i < cigaretteCount; i++) {
+            records.addAll(cigarette(i, etypes.get(i % etypes.size()), gradeGroups, random));
+        }
+        return Collections.unmodifiableList(records);
+    }
+
+    /**
+     * 生成满足非递增约束的随机档位数组（D30-D1）
+     */
+    private static BigDecimal[] randomNonIncreasingGrades(Random random) {
+        BigDecimal[] grades = GradeMatrixUtils.createZeroGradeArray();
+        int value = 2 + random.nextInt(8);
+        int lastNonZero = 10 + random.nextInt(GradeMatrixUtils.GRADE_COUNT - 10);
+        for (int i = 0; i <= lastNonZero; i++) {
+            grades[i] = BigDecimal.valueOf(value);
+            if (value > 1 && random.nextInt(4) == 0) {
+                value--;
+            }
+        }
+        return grades;
+    }
+}
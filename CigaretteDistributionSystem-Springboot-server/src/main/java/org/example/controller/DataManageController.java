@@ -9,7 +9,11 @@ import org.example.entity.CigaretteDistributionPredictionData;
 import org.example.service.DataManagementService;
 import org.example.service.DistributionCalculateService;
 import org.example.service.EncodeDecodeService;
+import org.example.service.PredictionStorageService;
+import org.example.service.RegionCodeService;
+import org.example.service.TableIndexService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
@@ -42,8 +46,22 @@ public class DataManageController {
     @Autowired
     private EncodeDecodeService encodeDecodeService;
 
+    @Autowired
+    private RegionCodeService regionCodeService;
+
+    @Autowired
+    private PredictionStorageService predictionStorageService;
+
+    @Autowired
+    private TableIndexService tableIndexService;
+
+    @Value("${distribution.query.use-stored-code:true}")
+    private boolean useStoredCodeByDefault = true;
+
     /**
      * 查询卷烟分配数据 - 返回原始数据并添加预投放量和实际投放量
+     * 编码表达默认直接使用写回/编辑时存储的DEPLOYINFO_CODE，仅对缺失或过期的记录按整支卷烟重新编码；
+     * 请求参数useStoredCode=false时全部重新编码
      */
     @PostMapping("/query")
     public ResponseEntity<Map<String, Object>> queryCigaretteDistribution(@Valid @RequestBody QueryRequestDto request) {
@@ -61,6 +79,12 @@ public class DataManageController {
             Map<String, List<CigaretteDistributionPredictionData>> cigaretteGroupMap = rawDataList.stream()
                 .collect(java.util.stream.Collectors.groupingBy(data -> data.getCigCode() + "_" + data.getCigName()));
             
+            // 需要重新编码的卷烟只做一次整体分组编码
+            boolean useStoredCode = request.getUseStoredCode() != null ? request.getUseStoredCode() : useStoredCodeByDefault;
+            Map<String, Map<String, String>> reencodedByTobacco = new HashMap<>();
+            int storedCodeCount = 0;
+            int reencodedCount = 0;
+            
             // 返回原始数据，添加预投放量、实际投放量、编码表达和解码表达
             List<Map<String, Object>> result = new ArrayList<>();
             for (CigaretteDistributionPredictionData data : rawDataList) {
@@ -86,27 +110,22 @@ public class DataManageController {
                 BigDecimal totalActualDelivery = totalActualDeliveryMap.getOrDefault(tobaccoKey, BigDecimal.ZERO);
                 record.put("actualDelivery", totalActualDelivery);
 
-                // 为当前记录生成对应的编码表达和解码表达
-                List<CigaretteDistributionPredictionData> cigaretteRecords = cigaretteGroupMap.get(tobaccoKey);
-                
-                String encodedExpression = "";
-                String decodedExpression = "";
-                
-                if (cigaretteRecords != null && !cigaretteRecords.isEmpty()) {
-                    // 为该特定区域生成编码表达式
-                    encodedExpression = encodeDecodeService.encodeForSpecificArea(
-                        data.getCigCode(),
-                        data.getCigName(),
-                        data.getDeliveryMethod(),
-                        data.getDeliveryEtype(),
-                        data.getDeliveryArea(),
-                        cigaretteRecords
-                    );
-                    
-                    // 生成解码表达
-                    decodedExpression = encodeDecodeService.decode(encodedExpression);
+                // 当前记录的编码表达：优先使用存储的编码，缺失或过期时按整支卷烟重新编码
+                String encodedExpression;
+                if (useStoredCode && encodeDecodeService.isStoredCodeCurrent(data, cigaretteGroupMap.get(tobaccoKey))) {
+                    encodedExpression = data.getDeployinfoCode();
+                    storedCodeCount++;
+                } else {
+                    Map<String, String> reencoded = reencodedByTobacco.computeIfAbsent(tobaccoKey,
+                        key -> encodeDecodeService.encodeByArea(data.getCigCode(), data.getCigName(),
+                            data.getDeliveryMethod(), data.getDeliveryEtype(), cigaretteGroupMap.get(key)));
+                    encodedExpression = reencoded.getOrDefault(data.getDeliveryArea(), "");
+                    reencodedCount++;
                 }
                 
+                // 解码表达（按编码表达式缓存）
+                String decodedExpression = encodeDecodeService.decode(encodedExpression);
+                
                 record.put("encodedExpression", encodedExpression);
                 record.put("decodedExpression", decodedExpression);
 
@@ -150,8 +169,10 @@ public class DataManageController {
             response.put("message", "查询成功");
             response.put("data", result);
             response.put("total", result.size());
+            response.put("storedCodeCount", storedCodeCount);
+            response.put("reencodedCount", reencodedCount);
             
-            log.info("查询成功，返回{}条原始记录", result.size());
+            log.info("查询成功，返回{}条原始记录，使用存储编码{}条，重新编码{}条", result.size(), storedCodeCount, reencodedCount);
             return ResponseEntity.ok(response);
             
         } catch (Exception e) {
@@ -343,4 +364,64 @@ public class DataManageController {
             return ResponseEntity.internalServerError().body(response);
         }
     }
+
+    /**
+     * 重新加载区域编码字典（region_code_dict），修改字典表后无需等待定时加载即可生效
+     */
+    @PostMapping("/region-codes/reload")
+    public ResponseEntity<Map<String, Object>> reloadRegionCodes() {
+        log.info("接收区域编码字典重新加载请求");
+        Map<String, Object> result = regionCodeService.reload();
+        log.info("区域编码字典重新加载完成: {}", result.get("message"));
+        return ResponseEntity.ok(result);
+    }
+
+    /**
+     * 将现有预测周表迁移到统一分区预测表（需配置distribution.storage.layout=partitioned）
+     * 迁移后周表名改为该周分区上的视图，原表保留为{周表名}_bak，确认无误后可手动删除
+     */
+    @PostMapping("/storage/migrate-weekly-tables")
+    public ResponseEntity<Map<String, Object>> migrateWeeklyTables() {
+        log.info("接收预测周表迁移请求");
+        try {
+            Map<String, Object> result = predictionStorageService.migrateWeeklyTables();
+            log.info("预测周表迁移结束: {}", result.get("message"));
+            return ResponseEntity.ok(result);
+        } catch (Exception e) {
+            log.error("预测周表迁移过程中发生系统错误", e);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", "系统内部错误: " + e.getMessage());
+            response.put("error", e.getClass().getSimpleName());
+            return ResponseEntity.internalServerError().body(response);
+        }
+    }
+
+    /**
+     * 为缺少二级索引的存量动态表（投放基本信息表、预测表、区域客户数表）补建索引，返回补建报告
+     */
+    @PostMapping("/table-indexes/retrofit")
+    public ResponseEntity<Map<String, Object>> retrofitTableIndexes() {
+        log.info("接收动态表索引补建请求");
+        try {
+            Map<String, Object> result = tableIndexService.retrofitIndexes();
+            log.info("动态表索引补建结束: {}", result.get("message"));
+            return ResponseEntity.ok(result);
+        } catch (Exception e) {
+            log.error("动态表索引补建过程中发生系统错误", e);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", "系统内部错误: " + e.getMessage());
+            response.put("error", e.getClass().getSimpleName());
+            return ResponseEntity.internalServerError().body(response);
+        }
+    }
+
+    /**
+     * 查看最近一次动态表索引补建报告（含启动时的补建）
+     */
+    @GetMapping("/table-indexes/report")
+    public ResponseEntity<Map<String, Object>> getTableIndexReport() {
+        return ResponseEntity.ok(tableIndexService.getLastReport());
+    }
 }
@@ -1,14 +1,22 @@
 package org.example.controller;
 
 import lombok.extern.slf4j.Slf4j;
+import org.example.dto.SimulationRequestDto;
 import org.example.entity.CigaretteDistributionPredictionData;
 import org.example.service.DataManagementService;
 import org.example.service.DistributionCalculateService;
+import org.example.service.DistributionJobService;
+import org.example.service.DistributionRunReportService;
+import org.example.service.MarketRatioSweepService;
+import org.example.service.strategy.DistributionExecutor;
+import org.example.util.DistributionRunReport;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.bind.annotation.*;
 
+import javax.validation.Valid;
+
 import java.math.BigDecimal;
 import java.util.HashMap;
 import java.util.List;
@@ -30,6 +38,21 @@ public class DistributionCalculateController {
     @Autowired
     private DataManagementService dataManagementService;
     
+    @Autowired
+    private DistributionRunReportService runReportService;
+    
+    @Autowired
+    private MarketRatioSweepService marketRatioSweepService;
+    
+    @Autowired
+    private DistributionExecutor distributionExecutor;
+    
+    @Autowired
+    private DistributionJobService distributionJobService;
+    
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    
     /**
      * 获取算法输出的分配矩阵并写回数据库
      * 
@@ -85,29 +108,52 @@ public class DistributionCalculateController {
      * 一键生成分配方案
      * 前端调用接口：generate-distribution-plan
      * 功能：删除指定日期的所有分配数据，重新执行各投放类型的算法分配并写回数据库
+     * 同时采集本次运行的性能报告（runReport），随响应返回并保存到distribution_run_report表
      * 
      * @param year 年份
      * @param month 月份
      * @param weekSeq 周序号
      * @param urbanRatio 城网比例（可选，仅用于档位+市场类型）
      * @param ruralRatio 农网比例（可选，仅用于档位+市场类型）
+     * @param slowestN 运行报告中返回的最慢卷烟数量（可选，默认10）
+     * @param warmStart 是否以上一周分配方案热启动（可选，默认使用配置项distribution.allocation.warm-start-enabled；分配前沿启用时不生效）
+     * @param incremental 是否增量重新生成（可选，默认false）：不删除整周数据，只重新计算输入发生变化的卷烟
      */
     @PostMapping("/generate-distribution-plan")
-    @Transactional
     public ResponseEntity<Map<String, Object>> generateDistributionPlan(
             @RequestParam Integer year,
             @RequestParam Integer month,
             @RequestParam Integer weekSeq,
             @RequestParam(required = false) BigDecimal urbanRatio,
-            @RequestParam(required = false) BigDecimal ruralRatio) {
+            @RequestParam(required = false) BigDecimal ruralRatio,
+            @RequestParam(required = false) Integer slowestN,
+            @RequestParam(required = false) Boolean warmStart,
+            @RequestParam(required = false) Boolean incremental) {
         
+        // 并行/分布式执行模式下各卷烟在其他线程或实例上写回，看不到调用线程未提交的整周删除，因此不开启外层事务
+        if (distributionExecutor.isParallel() || distributionExecutor.isDistributed()) {
+            return doGenerateDistributionPlan(year, month, weekSeq, urbanRatio, ruralRatio, slowestN, warmStart, incremental);
+        }
+        return transactionTemplate.execute(status -> doGenerateDistributionPlan(
+                year, month, weekSeq, urbanRatio, ruralRatio, slowestN, warmStart, incremental));
+    }
+    
+    private ResponseEntity<Map<String, Object>> doGenerateDistributionPlan(Integer year, Integer month, Integer weekSeq,
+                                                                           BigDecimal urbanRatio, BigDecimal ruralRatio,
+                                                                           Integer slowestN, Boolean warmStart,
+                                                                           Boolean incremental) {
         log.info("接收一键生成分配方案请求，年份: {}, 月份: {}, 周序号: {}", year, month, weekSeq);
         if (urbanRatio != null && ruralRatio != null) {
             log.info("接收市场类型比例参数 - 城网: {}, 农网: {}", urbanRatio, ruralRatio);
         }
         
+        // 开始采集本次运行的性能报告
+        DistributionRunReport runReport = DistributionRunReport.begin(year, month, weekSeq);
+        int reportTopN = slowestN != null ? slowestN : DistributionRunReport.DEFAULT_SLOWEST_N;
+        
         try {
             // 1. 检查指定日期是否存在分配数据（通过DataManagementService）
+            long deleteStart = System.nanoTime();
             List<CigaretteDistributionPredictionData> existingData = dataManagementService.queryTestDataByTime(year, month, weekSeq);
             
             Map<String, Object> response = new HashMap<>();
@@ -116,7 +162,14 @@ public class DistributionCalculateController {
             response.put("weekSeq", weekSeq);
             response.put("startTime", System.currentTimeMillis());
             
-            if (!existingData.isEmpty()) {
+            response.put("incremental", Boolean.TRUE.equals(incremental));
+            
+            if (Boolean.TRUE.equals(incremental)) {
+                // 增量模式：保留现有分配数据，由分配服务按卷烟输入摘要决定重新计算哪些卷烟
+                log.info("增量重新生成，保留指定日期已有的{}条分配数据", existingData.size());
+                response.put("deletedExistingData", false);
+                response.put("deletedRecords", 0);
+            } else if (!existingData.isEmpty()) {
                 log.info("发现指定日期已存在{}条分配数据，将先删除后重新分配", existingData.size());
                 
                 // 2. 删除现有分配数据（通过DataManagementService）
@@ -140,6 +193,7 @@ public class DistributionCalculateController {
                 response.put("deletedExistingData", false);
                 response.put("deletedRecords", 0);
             }
+            DistributionRunReport.recordDeleteTime(System.nanoTime() - deleteStart);
             
             // 3. 执行算法分配并写回数据库
             log.info("开始执行各投放类型的算法分配...");
@@ -152,14 +206,24 @@ public class DistributionCalculateController {
                 marketRatios.put("ruralRatio", ruralRatio);
             }
             
-            Map<String, Object> allocationResult = distributionService.getAndwriteBackAllocationMatrix(
-                year, month, weekSeq, marketRatios);
+            // 分布式模式：拆分为卷烟任务项由各实例领取处理（热启动和增量生成仍在本实例执行）
+            boolean distributed = distributionExecutor.isDistributed()
+                    && !Boolean.TRUE.equals(warmStart) && !Boolean.TRUE.equals(incremental);
+            Map<String, Object> allocationResult = distributed
+                    ? distributionJobService.runJob(year, month, weekSeq, marketRatios)
+                    : distributionService.getAndwriteBackAllocationMatrix(year, month, weekSeq, marketRatios, warmStart, incremental);
             
             if ((Boolean) allocationResult.get("success")) {
                 // 4. 分配成功，查询生成的分配记录数（通过DataManagementService）
                 List<CigaretteDistributionPredictionData> generatedData = dataManagementService.queryTestDataByTime(year, month, weekSeq);
                 int processedCount = generatedData.size();
                 
+                // 运行报告：结束采集并保存
+                DistributionRunReport.end();
+                Map<String, Object> reportMap = runReport.toMap(reportTopN);
+                Long runReportId = runReportService.saveRunReport(runReport, reportMap, 
+                        (Integer) allocationResult.get("successCount"), true);
+                
                 // 5. 合并结果
                 response.put("success", true);
                 response.put("message", "一键分配方案生成成功");
@@ -173,6 +237,8 @@ public class DistributionCalculateController {
                 response.put("successfulAllocations", allocationResult.get("successCount"));
                 response.put("processedCount", processedCount);  // 新增：生成的分配记录数
                 response.put("allocationDetails", allocationResult.get("results"));
+                response.put("runReport", reportMap);
+                response.put("runReportId", runReportId);
                 
                 log.info("一键分配方案生成完成，成功分配: {}/{} 种卷烟，生成 {} 条分配记录", 
                         allocationResult.get("successCount"), allocationResult.get("totalCount"), processedCount);
@@ -184,11 +250,19 @@ public class DistributionCalculateController {
                 List<CigaretteDistributionPredictionData> partialData = dataManagementService.queryTestDataByTime(year, month, weekSeq);
                 int processedCount = partialData.size();
                 
+                // 运行报告：失败的运行同样保存，便于排查
+                DistributionRunReport.end();
+                Map<String, Object> reportMap = runReport.toMap(reportTopN);
+                Long runReportId = runReportService.saveRunReport(runReport, reportMap, 
+                        (Integer) allocationResult.get("successCount"), false);
+                
                 response.put("success", false);
                 response.put("message", "算法分配失败: " + allocationResult.get("message"));
                 response.put("error", "ALLOCATION_FAILED");
                 response.put("processedCount", processedCount);  // 已生成的分配记录数（可能部分成功）
                 response.put("allocationResult", allocationResult);
+                response.put("runReport", reportMap);
+                response.put("runReportId", runReportId);
                 
                 log.error("一键分配方案生成失败: {}，已生成 {} 条分配记录", allocationResult.get("message"), processedCount);
                 return ResponseEntity.internalServerError().body(response);
@@ -217,6 +291,192 @@ public class DistributionCalculateController {
             errorResponse.put("exception", e.getClass().getSimpleName());
             
             return ResponseEntity.internalServerError().body(errorResponse);
+        } finally {
+            DistributionRunReport.end();
+        }
+    }
+    
+    /**
+     * 查询一键生成分配方案的历史运行报告
+     * 用于逐周对比各阶段耗时、数据库往返次数和迭代次数，发现性能回归
+     * 
+     * @param year 年份（可选，与month、weekSeq同时提供时按周过滤）
+     * @param month 月份（可选）
+     * @param weekSeq 周序号（可选）
+     * @param limit 返回条数（可选，默认20）
+     */
+    @GetMapping("/run-reports")
+    public ResponseEntity<Map<String, Object>> listRunReports(
+            @RequestParam(required = false) Integer year,
+            @RequestParam(required = false) Integer month,
+            @RequestParam(required = false) Integer weekSeq,
+            @RequestParam(defaultValue = "20") Integer limit) {
+        
+        log.info("查询运行报告，年份: {}, 月份: {}, 周序号: {}, 条数: {}", year, month, weekSeq, limit);
+        
+        try {
+            List<Map<String, Object>> reports = runReportService.listRunReports(year, month, weekSeq, limit);
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("message", "查询成功");
+            response.put("data", reports);
+            response.put("total", reports.size());
+            return ResponseEntity.ok(response);
+            
+        } catch (Exception e) {
+            log.error("查询运行报告失败", e);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", "查询运行报告失败: " + e.getMessage());
+            return ResponseEntity.internalServerError().body(response);
+        }
+    }
+
+    /**
+     * 查询分布式分配任务进度
+     * 分布式执行模式（distribution.execution.mode=distributed）下一键生成创建的任务，jobId见一键生成响应的allocationResult.jobId
+     * 
+     * @param jobId 任务ID
+     */
+    @GetMapping("/distribution-job")
+    public ResponseEntity<Map<String, Object>> getDistributionJob(@RequestParam Long jobId) {
+        log.info("查询分布式分配任务，任务ID: {}", jobId);
+        
+        try {
+            Map<String, Object> result = distributionJobService.getJobStatus(jobId);
+            if (Boolean.TRUE.equals(result.get("success"))) {
+                return ResponseEntity.ok(result);
+            }
+            return ResponseEntity.badRequest().body(result);
+            
+        } catch (Exception e) {
+            log.error("查询分布式分配任务失败", e);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", "查询分布式分配任务失败: " + e.getMessage());
+            return ResponseEntity.internalServerError().body(response);
+        }
+    }
+    
+    /**
+     * 重新计算单个卷烟的分配方案
+     * 前端在修改某种卷烟后调用，只重新计算并覆盖写回该卷烟的记录，返回新的分配矩阵、实际投放量和误差
+     * 
+     * @param year 年份
+     * @param month 月份
+     * @param weekSeq 周序号
+     * @param cigCode 卷烟代码
+     * @param cigName 卷烟名称
+     * @param urbanRatio 城网比例（可选，仅用于档位+市场类型）
+     * @param ruralRatio 农网比例（可选，仅用于档位+市场类型）
+     */
+    @PostMapping("/cigarette")
+    public ResponseEntity<Map<String, Object>> recalculateCigarette(
+            @RequestParam Integer year,
+            @RequestParam Integer month,
+            @RequestParam Integer weekSeq,
+            @RequestParam String cigCode,
+            @RequestParam String cigName,
+            @RequestParam(required = false) BigDecimal urbanRatio,
+            @RequestParam(required = false) BigDecimal ruralRatio) {
+        
+        log.info("接收单卷烟重新计算请求，卷烟: {} - {}, 年份: {}, 月份: {}, 周序号: {}", cigCode, cigName, year, month, weekSeq);
+        
+        try {
+            Map<String, BigDecimal> marketRatios = null;
+            if (urbanRatio != null && ruralRatio != null) {
+                marketRatios = new HashMap<>();
+                marketRatios.put("urbanRatio", urbanRatio);
+                marketRatios.put("ruralRatio", ruralRatio);
+            }
+            
+            Map<String, Object> result = distributionService.recalculateCigarette(
+                year, month, weekSeq, cigCode, cigName, marketRatios);
+            
+            if ((Boolean) result.get("success")) {
+                return ResponseEntity.ok(result);
+            } else {
+                log.warn("单卷烟重新计算失败: {}", result.get("message"));
+                return ResponseEntity.badRequest().body(result);
+            }
+            
+        } catch (Exception e) {
+            log.error("单卷烟重新计算失败，卷烟: {} - {}", cigCode, cigName, e);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", "单卷烟重新计算失败: " + e.getMessage());
+            return ResponseEntity.internalServerError().body(response);
+        }
+    }
+
+    /**
+     * 模拟分配（试算），只计算不写入数据库
+     * 
+     * @param request 指定周或上传的卷烟列表，可选比例和区域客户数表替换
+     */
+    @PostMapping("/simulate")
+    public ResponseEntity<Map<String, Object>> simulateAllocation(@Valid @RequestBody SimulationRequestDto request) {
+        log.info("接收模拟分配请求，年份: {}, 月份: {}, 周序号: {}, 上传卷烟数: {}", request.getYear(), request.getMonth(),
+                request.getWeekSeq(), request.getItems() != null ? request.getItems().size() : 0);
+        
+        try {
+            Map<String, Object> result = distributionService.simulateAllocation(request);
+            
+            if ((Boolean) result.get("success")) {
+                return ResponseEntity.ok(result);
+            } else {
+                log.warn("模拟分配失败: {}", result.get("message"));
+                return ResponseEntity.badRequest().body(result);
+            }
+            
+        } catch (Exception e) {
+            log.error("模拟分配失败", e);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", "模拟分配失败: " + e.getMessage());
+            return ResponseEntity.internalServerError().body(response);
+        }
+    }
+
+    /**
+     * 扫描档位+市场类型的城网/农网比例，返回各比例下的总误差和城网/农网实际投放量（不写入数据库）
+     * 
+     * @param year 年份
+     * @param month 月份
+     * @param weekSeq 周序号
+     * @param fromRatio 起始城网比例（默认0）
+     * @param toRatio 结束城网比例（默认1）
+     * @param step 比例步长（默认0.05）
+     */
+    @PostMapping("/market-ratio-sweep")
+    public ResponseEntity<Map<String, Object>> sweepMarketRatios(
+            @RequestParam Integer year,
+            @RequestParam Integer month,
+            @RequestParam Integer weekSeq,
+            @RequestParam(defaultValue = "0") BigDecimal fromRatio,
+            @RequestParam(defaultValue = "1") BigDecimal toRatio,
+            @RequestParam(defaultValue = "0.05") BigDecimal step) {
+        
+        log.info("接收比例扫描请求，年份: {}, 月份: {}, 周序号: {}, 城网比例: {} - {}，步长: {}", 
+                year, month, weekSeq, fromRatio, toRatio, step);
+        
+        try {
+            Map<String, Object> result = marketRatioSweepService.sweepMarketRatios(year, month, weekSeq, fromRatio, toRatio, step);
+            
+            if ((Boolean) result.get("success")) {
+                return ResponseEntity.ok(result);
+            } else {
+                log.warn("比例扫描失败: {}", result.get("message"));
+                return ResponseEntity.badRequest().body(result);
+            }
+            
+        } catch (Exception e) {
+            log.error("比例扫描失败", e);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", "比例扫描失败: " + e.getMessage());
+            return ResponseEntity.internalServerError().body(response);
         }
     }
 
@@ -13,4 +13,7 @@ public class QueryRequestDto {
     
     @NotNull(message = "周序号不能为空")
     private Integer weekSeq;
+    
+    // 是否直接使用存储的编码表达（为空时取distribution.query.use-stored-code配置）
+    private Boolean useStoredCode;
 }
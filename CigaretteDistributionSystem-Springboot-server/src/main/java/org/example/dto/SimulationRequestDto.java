@@ -0,0 +1,71 @@
+package org.example.dto;
+
+import lombok.Data;
+import javax.validation.Valid;
+import javax.validation.constraints.DecimalMin;
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 分配模拟（试算）请求DTO
+ * 指定年月周时读取该周的卷烟投放基本信息；提供items时按items计算（不读取投放基本信息表）
+ */
+@Data
+public class SimulationRequestDto {
+
+    private Integer year;
+
+    private Integer month;
+
+    private Integer weekSeq;
+
+    /**
+     * 上传的卷烟列表（可选，提供时代替指定周的卷烟投放基本信息）
+     */
+    @Valid
+    private List<SimulationItem> items;
+
+    /**
+     * 城网比例（可选，仅用于档位+市场类型）
+     */
+    private BigDecimal urbanRatio;
+
+    /**
+     * 农网比例（可选，仅用于档位+市场类型）
+     */
+    private BigDecimal ruralRatio;
+
+    /**
+     * 区域客户数表替换（可选）：标准表名 -> 替换表名，如 {"region_clientNum_1_1": "region_clientNum_1_1_draft"}
+     */
+    private Map<String, String> regionClientTables;
+
+    /**
+     * 模拟的单个卷烟
+     */
+    @Data
+    public static class SimulationItem {
+
+        @NotBlank(message = "卷烟代码不能为空")
+        private String cigCode;
+
+        @NotBlank(message = "卷烟名称不能为空")
+        private String cigName;
+
+        @NotNull(message = "预投放量不能为空")
+        @DecimalMin(value = "0", message = "预投放量不能为负数")
+        private BigDecimal adv;
+
+        @NotBlank(message = "投放方法不能为空")
+        private String deliveryMethod;
+
+        private String deliveryEtype;
+
+        private String deliveryArea;
+
+        private String remark;
+    }
+}
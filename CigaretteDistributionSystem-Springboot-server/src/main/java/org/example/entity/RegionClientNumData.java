@@ -1,6 +1,11 @@
 package org.example.entity;
 
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.Getter;
+import lombok.Setter;
+import org.example.util.GradeVector;
+
 import javax.persistence.*;
 import java.math.BigDecimal;
 
@@ -38,97 +43,165 @@ public class RegionClientNumData {
     @Column(name = "region")
     private String region;
     
-    // 30个档位字段 - 从D30到D1
+    /**
+     * 30个档位（D30-D1）：以一个定点数向量存储，每行只有一个档位对象；
+     * 客户数是实际投放量计算的输入，超过两位小数时拒绝（IllegalArgumentException），不做舍入。
+     * 数据库列仍为D30-D1，通过下方的getDxx/setDxx在边界处转换
+     */
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private GradeVector grades = GradeVector.EMPTY;
     
+    @Access(AccessType.PROPERTY)
     @Column(name = "D30")
-    private BigDecimal d30;
+    public BigDecimal getD30() { return grades.getOrNull(0); }
+    public void setD30(BigDecimal d30) { grades = grades.with(0, d30); }
     
+    @Access(AccessType.PROPERTY)
     @Column(name = "D29")
-    private BigDecimal d29;
+    public BigDecimal getD29() { return grades.getOrNull(1); }
+    public void setD29(BigDecimal d29) { grades = grades.with(1, d29); }
     
+    @Access(AccessType.PROPERTY)
     @Column(name = "D28")
-    private BigDecimal d28;
+    public BigDecimal getD28() { return grades.getOrNull(2); }
+    public void setD28(BigDecimal d28) { grades = grades.with(2, d28); }
     
+    @Access(AccessType.PROPERTY)
     @Column(name = "D27")
-    private BigDecimal d27;
+    public BigDecimal getD27() { return grades.getOrNull(3); }
+    public void setD27(BigDecimal d27) { grades = grades.with(3, d27); }
     
+    @Access(AccessType.PROPERTY)
     @Column(name = "D26")
-    private BigDecimal d26;
+    public BigDecimal getD26() { return grades.getOrNull(4); }
+    public void setD26(BigDecimal d26) { grades = grades.with(4, d26); }
     
+    @Access(AccessType.PROPERTY)
     @Column(name = "D25")
-    private BigDecimal d25;
+    public BigDecimal getD25() { return grades.getOrNull(5); }
+    public void setD25(BigDecimal d25) { grades = grades.with(5, d25); }
     
+    @Access(AccessType.PROPERTY)
     @Column(name = "D24")
-    private BigDecimal d24;
+    public BigDecimal getD24() { return grades.getOrNull(6); }
+    public void setD24(BigDecimal d24) { grades = grades.with(6, d24); }
     
+    @Access(AccessType.PROPERTY)
     @Column(name = "D23")
-    private BigDecimal d23;
+    public BigDecimal getD23() { return grades.getOrNull(7); }
+    public void setD23(BigDecimal d23) { grades = grades.with(7, d23); }
     
+    @Access(AccessType.PROPERTY)
     @Column(name = "D22")
-    private BigDecimal d22;
+    public BigDecimal getD22() { return grades.getOrNull(8); }
+    public void setD22(BigDecimal d22) { grades = grades.with(8, d22); }
     
+    @Access(AccessType.PROPERTY)
     @Column(name = "D21")
-    private BigDecimal d21;
+    public BigDecimal getD21() { return grades.getOrNull(9); }
+    public void setD21(BigDecimal d21) { grades = grades.with(9, d21); }
     
+    @Access(AccessType.PROPERTY)
     @Column(name = "D20")
-    private BigDecimal d20;
+    public BigDecimal getD20() { return grades.getOrNull(10); }
+    public void setD20(BigDecimal d20) { grades = grades.with(10, d20); }
     
+    @Access(AccessType.PROPERTY)
     @Column(name = "D19")
-    private BigDecimal d19;
+    public BigDecimal getD19() { return grades.getOrNull(11); }
+    public void setD19(BigDecimal d19) { grades = grades.with(11, d19); }
     
+    @Access(AccessType.PROPERTY)
     @Column(name = "D18")
-    private BigDecimal d18;
+    public BigDecimal getD18() { return grades.getOrNull(12); }
+    public void setD18(BigDecimal d18) { grades = grades.with(12, d18); }
     
+    @Access(AccessType.PROPERTY)
     @Column(name = "D17")
-    private BigDecimal d17;
+    public BigDecimal getD17() { return grades.getOrNull(13); }
+    public void setD17(BigDecimal d17) { grades = grades.with(13, d17); }
     
+    @Access(AccessType.PROPERTY)
     @Column(name = "D16")
-    private BigDecimal d16;
+    public BigDecimal getD16() { return grades.getOrNull(14); }
+    public void setD16(BigDecimal d16) { grades = grades.with(14, d16); }
     
+    @Access(AccessType.PROPERTY)
     @Column(name = "D15")
-    private BigDecimal d15;
+    public BigDecimal getD15() { return grades.getOrNull(15); }
+    public void setD15(BigDecimal d15) { grades = grades.with(15, d15); }
     
+    @Access(AccessType.PROPERTY)
     @Column(name = "D14")
-    private BigDecimal d14;
+    public BigDecimal getD14() { return grades.getOrNull(16); }
+    public void setD14(BigDecimal d14) { grades = grades.with(16, d14); }
     
+    @Access(AccessType.PROPERTY)
     @Column(name = "D13")
-    private BigDecimal d13;
+    public BigDecimal getD13() { return grades.getOrNull(17); }
+    public void setD13(BigDecimal d13) { grades = grades.with(17, d13); }
     
+    @Access(AccessType.PROPERTY)
     @Column(name = "D12")
-    private BigDecimal d12;
+    public BigDecimal getD12() { return grades.getOrNull(18); }
+    public void setD12(BigDecimal d12) { grades = grades.with(18, d12); }
     
+    @Access(AccessType.PROPERTY)
     @Column(name = "D11")
-    private BigDecimal d11;
+    public BigDecimal getD11() { return grades.getOrNull(19); }
+    public void setD11(BigDecimal d11) { grades = grades.with(19, d11); }
     
+    @Access(AccessType.PROPERTY)
     @Column(name = "D10")
-    private BigDecimal d10;
+    public BigDecimal getD10() { return grades.getOrNull(20); }
+    public void setD10(BigDecimal d10) { grades = grades.with(20, d10); }
     
+    @Access(AccessType.PROPERTY)
     @Column(name = "D9")
-    private BigDecimal d9;
+    public BigDecimal getD9() { return grades.getOrNull(21); }
+    public void setD9(BigDecimal d9) { grades = grades.with(21, d9); }
     
+    @Access(AccessType.PROPERTY)
     @Column(name = "D8")
-    private BigDecimal d8;
+    public BigDecimal getD8() { return grades.getOrNull(22); }
+    public void setD8(BigDecimal d8) { grades = grades.with(22, d8); }
     
+    @Access(AccessType.PROPERTY)
     @Column(name = "D7")
-    private BigDecimal d7;
+    public BigDecimal getD7() { return grades.getOrNull(23); }
+    public void setD7(BigDecimal d7) { grades = grades.with(23, d7); }
     
+    @Access(AccessType.PROPERTY)
     @Column(name = "D6")
-    private BigDecimal d6;
+    public BigDecimal getD6() { return grades.getOrNull(24); }
+    public void setD6(BigDecimal d6) { grades = grades.with(24, d6); }
     
+    @Access(AccessType.PROPERTY)
     @Column(name = "D5")
-    private BigDecimal d5;
+    public BigDecimal getD5() { return grades.getOrNull(25); }
+    public void setD5(BigDecimal d5) { grades = grades.with(25, d5); }
     
+    @Access(AccessType.PROPERTY)
     @Column(name = "D4")
-    private BigDecimal d4;
+    public BigDecimal getD4() { return grades.getOrNull(26); }
+    public void setD4(BigDecimal d4) { grades = grades.with(26, d4); }
     
+    @Access(AccessType.PROPERTY)
     @Column(name = "D3")
-    private BigDecimal d3;
+    public BigDecimal getD3() { return grades.getOrNull(27); }
+    public void setD3(BigDecimal d3) { grades = grades.with(27, d3); }
     
+    @Access(AccessType.PROPERTY)
     @Column(name = "D2")
-    private BigDecimal d2;
+    public BigDecimal getD2() { return grades.getOrNull(28); }
+    public void setD2(BigDecimal d2) { grades = grades.with(28, d2); }
     
+    @Access(AccessType.PROPERTY)
     @Column(name = "D1")
-    private BigDecimal d1;
+    public BigDecimal getD1() { return grades.getOrNull(29); }
+    public void setD1(BigDecimal d1) { grades = grades.with(29, d1); }
     
     /**
      * 总计字段
@@ -141,29 +214,25 @@ public class RegionClientNumData {
      * @return 档位数据数组，从D30到D1的顺序
      */
     public BigDecimal[] getGradeArray() {
-        return new BigDecimal[]{
-            d30, d29, d28, d27, d26, d25, d24, d23, d22, d21,
-            d20, d19, d18, d17, d16, d15, d14, d13, d12, d11,
-            d10, d9, d8, d7, d6, d5, d4, d3, d2, d1
-        };
+        return grades.toBigDecimalArray();
+    }
+    
+    /**
+     * 获取档位数据的定点数向量形式（服务层计算使用，避免逐档位的BigDecimal运算）
+     * @return 档位向量，从D30到D1的顺序，null档位按0参与计算
+     */
+    public GradeVector toGradeVector() {
+        return grades;
     }
     
     /**
      * 设置所有档位数据
      * @param gradeArray 档位数据数组，从D30到D1的顺序
+     * @throws IllegalArgumentException 当档位值超过两位小数时抛出异常
      */
     public void setGradeArray(BigDecimal[] gradeArray) {
         if (gradeArray != null && gradeArray.length == 30) {
-            this.d30 = gradeArray[0]; this.d29 = gradeArray[1]; this.d28 = gradeArray[2];
-            this.d27 = gradeArray[3]; this.d26 = gradeArray[4]; this.d25 = gradeArray[5];
-            this.d24 = gradeArray[6]; this.d23 = gradeArray[7]; this.d22 = gradeArray[8];
-            this.d21 = gradeArray[9]; this.d20 = gradeArray[10]; this.d19 = gradeArray[11];
-            this.d18 = gradeArray[12]; this.d17 = gradeArray[13]; this.d16 = gradeArray[14];
-            this.d15 = gradeArray[15]; this.d14 = gradeArray[16]; this.d13 = gradeArray[17];
-            this.d12 = gradeArray[18]; this.d11 = gradeArray[19]; this.d10 = gradeArray[20];
-            this.d9 = gradeArray[21]; this.d8 = gradeArray[22]; this.d7 = gradeArray[23];
-            this.d6 = gradeArray[24]; this.d5 = gradeArray[25]; this.d4 = gradeArray[26];
-            this.d3 = gradeArray[27]; this.d2 = gradeArray[28]; this.d1 = gradeArray[29];
+            this.grades = GradeVector.of(gradeArray);
         }
     }
 }
@@ -1,10 +1,12 @@
 package org.example.service;
 
+import org.example.dto.SimulationRequestDto;
 import org.example.entity.CigaretteDistributionPredictionData;
 
 import java.math.BigDecimal;
 import java.util.List;
 import java.util.Map;
+import java.util.function.IntPredicate;
 
 /**
  * 分配计算服务接口
@@ -79,6 +81,8 @@ public interface DistributionCalculateService {
      *         - algorithmStats: 各算法的统计信息
      *         - detailedResults: 详细的分配结果列表
      *         - message: 操作结果描述
+     *         每个卷烟的结果中包含allocationPolicy（按投放类型配置的截止时间和误差预算）、
+     *         stopReason（完成/超时/误差达标）和achievedError（实际误差）
      * 
      * @example
      * Map<String, BigDecimal> ratios = new HashMap<>();
@@ -90,6 +94,117 @@ public interface DistributionCalculateService {
     Map<String, Object> getAndwriteBackAllocationMatrix(Integer year, Integer month, Integer weekSeq, 
                                                         java.util.Map<String, java.math.BigDecimal> marketRatios);
     
+    /**
+     * 一键生成分配方案（支持热启动）
+     * 
+     * 热启动时以上一周预测表中同一卷烟、同一投放区域组合的分配方案为初始解，
+     * 按本周预投放量缩放并投影到非递增约束后再由算法继续填充和微调，减少经常性卷烟的迭代次数。
+     * 上一周没有对应方案的卷烟仍从全零矩阵开始计算；档位+市场类型不使用热启动。
+     * 
+     * @param year 年份（必填，2020-2099）
+     * @param month 月份（必填，1-12）
+     * @param weekSeq 周序号（必填，1-5）
+     * @param marketRatios 市场类型比例参数（可选，仅用于档位+市场类型）
+     * @param warmStart 是否热启动（为null时使用配置项distribution.allocation.warm-start-enabled）
+     * @return 写回结果Map，在上述字段基础上增加warmStartTable（作为初始解的预测表，未热启动时为null）
+     * 
+     * @example
+     * getAndwriteBackAllocationMatrix(2025, 9, 3, null, true)
+     * -> 以 cigarette_distribution_prediction_2025_9_2 中的方案作为初始解
+     */
+    Map<String, Object> getAndwriteBackAllocationMatrix(Integer year, Integer month, Integer weekSeq, 
+                                                        java.util.Map<String, java.math.BigDecimal> marketRatios,
+                                                        Boolean warmStart);
+    
+    /**
+     * 一键生成分配方案（支持增量重新生成）
+     * 
+     * 每种卷烟写回成功后保存其输入摘要（预投放量、投放方式、投放区域、备注、市场类型比例、所用区域客户数表内容）。
+     * 增量模式下调用方不删除整周数据，摘要未变化且预测表中已有数据的卷烟直接保留原结果，
+     * 只有摘要变化的卷烟重新计算并覆盖写回；投放基本信息表中已不存在的卷烟的预测数据被删除。
+     * 
+     * @param incremental 是否增量重新生成（为null或false时与整周重新生成相同）
+     * @return 写回结果Map，在上述字段基础上增加incremental、unchangedCount（保留原结果的卷烟数，计入successCount）、
+     *         removedCount（删除的已移除卷烟数）；未变更卷烟的writeBackStatus为"未变更"
+     * 
+     * @example
+     * getAndwriteBackAllocationMatrix(2025, 9, 3, null, null, true)
+     * -> 仅重新计算9月第3周中预投放量等输入发生变化的卷烟
+     */
+    Map<String, Object> getAndwriteBackAllocationMatrix(Integer year, Integer month, Integer weekSeq, 
+                                                        java.util.Map<String, java.math.BigDecimal> marketRatios,
+                                                        Boolean warmStart,
+                                                        Boolean incremental);
+    
+    /**
+     * 重新计算单个卷烟的分配方案并写回
+     * 
+     * 用于在前端修改某种卷烟后即时重新计算，不必重新生成整周方案。
+     * 只删除并重新写入该卷烟在预测表中的记录（同一事务内完成），同时更新其输入摘要。
+     * 
+     * @param year 年份
+     * @param month 月份
+     * @param weekSeq 周序号
+     * @param cigCode 卷烟代码
+     * @param cigName 卷烟名称
+     * @param marketRatios 市场类型比例参数（可选，仅用于档位+市场类型）
+     * @return 结果Map，包含success、message、allocations（各投放区域的档位分配和实际投放量）、
+     *         actualDelivery（总实际投放量）、error（与预投放量的误差）、algorithm、stopReason、elapsedMs等
+     * 
+     * @example
+     * recalculateCigarette(2025, 9, 3, "42010020", "黄鹤楼(硬金砂)", null)
+     * -> 重新计算该卷烟并覆盖写回 cigarette_distribution_prediction_2025_9_3 中的记录
+     */
+    Map<String, Object> recalculateCigarette(Integer year, Integer month, Integer weekSeq,
+                                             String cigCode, String cigName,
+                                             java.util.Map<String, java.math.BigDecimal> marketRatios);
+    
+    /**
+     * 模拟分配（试算）
+     * 
+     * 在不修改数据库的前提下评估分配方案：只读取投放基本信息和区域客户数数据，不删除、不写入预测表和输入摘要表，
+     * 规划人员可以在正式生成前反复比较不同预投放量、比例和客户数表下的结果。
+     * 
+     * @param request 模拟请求：指定周（year、month、weekSeq）或上传的卷烟列表（items），
+     *                可选的城网/农网比例和区域客户数表替换（regionClientTables）
+     * @return 结果Map，包含success、message、totalCount、successCount、totalAdv、totalActualDelivery、totalError、
+     *         results（每个卷烟的status、allocations、actualDelivery、error、algorithm、stopReason）
+     * 
+     * @example
+     * simulateAllocation({year: 2025, month: 9, weekSeq: 3, regionClientTables: {"region_clientNum_1_1": "region_clientNum_1_1_draft"}})
+     * -> 以region_clientNum_1_1_draft中的客户数计算9月第3周全部卷烟，返回分配矩阵和误差
+     */
+    Map<String, Object> simulateAllocation(SimulationRequestDto request);
+    
+    /**
+     * 处理指定周的一批卷烟并写回（分布式一键生成的任务项）
+     * 
+     * 与一键生成中的单卷烟处理流程一致（数据清洗、策略选择、记忆化、分配策略、写回、输入摘要），
+     * 同一批卷烟共享本次运行的分配记忆化。不删除整周数据，由调用方（分布式任务协调者）负责。
+     * 
+     * @param year 年份
+     * @param month 月份
+     * @param weekSeq 周序号
+     * @param cigarettes 卷烟列表，每项为[卷烟代码, 卷烟名称]
+     * @param marketRatios 市场类型比例参数（可选，仅用于档位+市场类型）
+     * @return 每种卷烟的处理结果（与getAndwriteBackAllocationMatrix返回的results元素一致），顺序与cigarettes一致；
+     *         投放基本信息表中已不存在的卷烟writeBackStatus为"跳过"
+     */
+    List<Map<String, Object>> allocateCigarettes(Integer year, Integer month, Integer weekSeq,
+                                                 List<String[]> cigarettes, Map<String, BigDecimal> marketRatios);
+    
+    /**
+     * 处理指定周的一批卷烟并写回，每种卷烟计算和写回前先经过检查（分布式任务项续租）
+     * 
+     * @param beforeCigarette 参数为卷烟在cigarettes中的下标；返回false时跳过该卷烟（不计算、不写回），
+     *                        其结果writeBackStatus为"跳过"
+     * @return 每种卷烟的处理结果，顺序与cigarettes一致
+     * @see #allocateCigarettes(Integer, Integer, Integer, List, Map)
+     */
+    List<Map<String, Object>> allocateCigarettes(Integer year, Integer month, Integer weekSeq,
+                                                 List<String[]> cigarettes, Map<String, BigDecimal> marketRatios,
+                                                 IntPredicate beforeCigarette);
+    
     /**
      * 区域实际投放量计算
      * 
@@ -0,0 +1,65 @@
+package org.example.service;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 卷烟分配输入摘要服务接口
+ *
+ * 【核心功能】
+ * 为增量重新生成分配方案提供变更检测：保存每种卷烟上次写回时的输入摘要，
+ * 重新生成时只有摘要发生变化的卷烟需要重新计算和写回，其余卷烟的预测数据保持不变
+ *
+ * 【摘要内容】
+ * - 卷烟投放基本信息行：预投放量、投放方法、扩展投放类型、投放区域、备注
+ * - 档位+市场类型卷烟的城网/农网比例
+ * - 该卷烟计算和写回时用到的区域客户数表（region_clientNum_*）的内容摘要
+ *
+ * 【存储表】
+ * - distribution_input_hash：每周每种卷烟一条记录，应用启动时自动创建
+ *
+ * @author Robin
+ * @version 1.0
+ * @since 2025-10-20
+ */
+public interface DistributionInputHashService {
+
+    /**
+     * 查询指定周所有卷烟的输入摘要
+     *
+     * @param year 年份
+     * @param month 月份
+     * @param weekSeq 周序号
+     * @return 卷烟代码|卷烟名称 -> 输入摘要
+     */
+    Map<String, String> loadInputHashes(Integer year, Integer month, Integer weekSeq);
+
+    /**
+     * 保存（覆盖）单个卷烟的输入摘要
+     */
+    void saveInputHash(Integer year, Integer month, Integer weekSeq, String cigCode, String cigName, String inputHash);
+
+    /**
+     * 删除单个卷烟的输入摘要（写回失败或卷烟已移除时调用，下次增量生成时重新计算）
+     */
+    void deleteInputHash(Integer year, Integer month, Integer weekSeq, String cigCode, String cigName);
+
+    /**
+     * 计算区域客户数表的内容摘要
+     *
+     * @param tableName 区域客户数表名
+     * @return 内容摘要；表不存在或读取失败时返回固定的缺失标记
+     */
+    String computeClientTableHash(String tableName);
+
+    /**
+     * 计算卷烟的输入摘要
+     *
+     * @param advData 卷烟投放基本信息行（cig_code、adv、delivery_method、delivery_etype、delivery_area、remark）
+     * @param marketRatios 市场类型比例参数（仅档位+市场类型参与摘要），可为null
+     * @param clientTableHashes 该卷烟用到的区域客户数表内容摘要
+     * @return 输入摘要（SHA-256十六进制）
+     */
+    String computeInputHash(Map<String, Object> advData, Map<String, BigDecimal> marketRatios, List<String> clientTableHashes);
+}
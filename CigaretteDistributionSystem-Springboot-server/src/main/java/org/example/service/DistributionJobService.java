@@ -0,0 +1,65 @@
+package org.example.service;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+/**
+ * 分布式分配任务服务接口
+ *
+ * 【核心功能】
+ * 将一周的一键生成拆分为按卷烟的任务项（distribution_job_item），连接同一数据库的任意数量应用实例
+ * 各自领取任务项、计算并写回、标记完成；接收请求的实例作为协调者，同时参与处理，全部任务项完成后汇总结果
+ *
+ * 【领取方式】
+ * - MySQL 8.0+：SELECT ... FOR UPDATE SKIP LOCKED，多个实例同时领取时跳过彼此锁定的行，互不等待
+ * - 不支持SKIP LOCKED的数据库（如本地测试使用的H2）：自动改为按状态条件更新领取（影响行数为1即领取成功）
+ * - 领取后超过租约时间仍未完成的任务项（实例宕机或重启）可被其他实例重新领取
+ *
+ * 【启用方式】
+ * distribution.execution.mode: distributed；各实例按distribution.job.poll-interval-ms轮询进行中的任务
+ *
+ * 【存储表】
+ * - distribution_job：每次分布式一键生成一条记录
+ * - distribution_job_item：每种卷烟一条记录，保存领取实例和处理结果
+ * - 表不存在时首次使用自动创建
+ *
+ * @author Robin
+ * @version 1.0
+ * @since 2025-10-20
+ */
+public interface DistributionJobService {
+
+    /**
+     * 创建分布式分配任务并协调执行（协调者）
+     * 为指定周的每种卷烟创建任务项，本实例与其他实例一起处理，全部完成或超时后汇总结果。
+     * 不删除整周数据，由调用方负责；不使用热启动和增量生成。
+     *
+     * @param year 年份
+     * @param month 月份
+     * @param weekSeq 周序号
+     * @param marketRatios 市场类型比例参数（可选，仅用于档位+市场类型）
+     * @return 结果Map，与DistributionCalculateService.getAndwriteBackAllocationMatrix一致
+     *         （success、message、totalCount、successCount、results），另含jobId、workers（各实例处理的卷烟数）、execution
+     *
+     * @example
+     * runJob(2025, 9, 3, null)
+     * -> 创建任务及各卷烟任务项，两个实例各处理约一半卷烟后返回汇总结果
+     */
+    Map<String, Object> runJob(Integer year, Integer month, Integer weekSeq, Map<String, BigDecimal> marketRatios);
+
+    /**
+     * 参与处理所有进行中的任务（工作者）
+     * 领取并处理可领取的任务项，直到没有可领取的任务项为止
+     *
+     * @return 本次处理的任务项数
+     */
+    int workOnRunningJobs();
+
+    /**
+     * 查询任务进度
+     *
+     * @param jobId 任务ID
+     * @return 结果Map，包含success、message、job（任务信息）、progress（各状态任务项数）、workers（各实例处理的卷烟数）
+     */
+    Map<String, Object> getJobStatus(Long jobId);
+}
@@ -0,0 +1,45 @@
+package org.example.service;
+
+import org.example.util.DistributionRunReport;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 分配方案运行报告服务接口
+ * 
+ * 【核心功能】
+ * 持久化和查询一键生成分配方案的运行性能报告，支持逐周对比性能回归
+ * 
+ * 【存储表】
+ * - distribution_run_report：每次运行一条记录，汇总字段独立成列，完整报告以JSON保存
+ * - 表不存在时首次写入自动创建
+ * 
+ * @author Robin
+ * @version 1.0
+ * @since 2025-10-20
+ */
+public interface DistributionRunReportService {
+    
+    /**
+     * 保存运行报告
+     * 
+     * @param report 运行报告
+     * @param reportMap 报告的Map形式（与接口返回一致）
+     * @param successCount 成功分配的卷烟种数
+     * @param success 本次运行是否成功
+     * @return 新记录的主键ID，保存失败时返回null（不影响分配流程）
+     */
+    Long saveRunReport(DistributionRunReport report, Map<String, Object> reportMap, Integer successCount, boolean success);
+    
+    /**
+     * 查询运行报告列表（按时间倒序）
+     * 
+     * @param year 年份（可选，与month、weekSeq同时提供时按周过滤）
+     * @param month 月份（可选）
+     * @param weekSeq 周序号（可选）
+     * @param limit 返回条数上限
+     * @return 运行报告列表，每条包含汇总字段和完整报告report
+     */
+    List<Map<String, Object>> listRunReports(Integer year, Integer month, Integer weekSeq, int limit);
+}
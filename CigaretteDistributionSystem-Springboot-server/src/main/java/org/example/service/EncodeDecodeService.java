@@ -4,6 +4,7 @@ import org.example.entity.CigaretteDistributionPredictionData;
 
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 语义编码解码服务接口
@@ -122,6 +123,45 @@ public interface EncodeDecodeService {
     String encodeForSpecificArea(String cigCode, String cigName, String deliveryMethod, String deliveryEtype, 
                                 String targetArea, List<CigaretteDistributionPredictionData> allCigaretteRecords);
 
+    /**
+     * 全部区域编码
+     * 
+     * 对卷烟的所有投放记录只做一次档位分组，返回每个区域所属分组的编码表达式，
+     * 结果与对每个区域调用encodeForSpecificArea相同，用于写回和编辑后整体刷新DEPLOYINFO_CODE。
+     * 
+     * @param cigCode 卷烟代码（必填）
+     * @param cigName 卷烟名称（必填）
+     * @param deliveryMethod 投放方法（必填）
+     * @param deliveryEtype 扩展投放类型（必填）
+     * @param cigaretteRecords 该卷烟的所有投放记录（必填）
+     * @return 投放区域 -> 所属分组的编码表达式（按记录顺序），无法编码时返回空Map
+     * 
+     * @example
+     * 房县、郧西档位设置相同（D30:5,D29:3），城区为（D30:2）
+     * -> 返回：{城区="B1（1）（1×2+29×0）", 房县="B1（3+4）（2×5+1×3+27×0）", 郧西="B1（3+4）（2×5+1×3+27×0）"}
+     */
+    Map<String, String> encodeByArea(String cigCode, String cigName, String deliveryMethod, String deliveryEtype, 
+                                    List<CigaretteDistributionPredictionData> cigaretteRecords);
+
+    /**
+     * 存储编码校验
+     * 
+     * 判断记录中存储的DEPLOYINFO_CODE能否直接用于查询展示：编码存在、可解析，投放类型与记录一致，
+     * 档位投放量与记录档位（取整后）一致，且区域编码恰好是该卷烟中档位相同的全部区域（与encodeByArea的分组一致）。
+     * 解析结果来自编码表达式缓存，不重新编码。
+     * 
+     * @param record 预测表记录（含DEPLOYINFO_CODE）
+     * @param cigaretteRecords 同一卷烟的全部区域记录（含record本身）
+     * @return 存储的编码可直接使用时返回true；编码缺失或与记录不一致（过期）时返回false，调用方应重新编码
+     * 
+     * @example
+     * 郧西、郧阳记录均为（D30:5,D29:5,D28:3），郧西存储"B1（1+4）（2×5+1×3+27×0）" -> true
+     * 郧西记录档位已改为（D30:2）但仍存储上述编码 -> false
+     * 郧阳档位已不同，郧西仍存储上述编码（同组区域过期），或只存储"B1（1）（2×5+1×3+27×0）" -> false
+     */
+    boolean isStoredCodeCurrent(CigaretteDistributionPredictionData record,
+                                List<CigaretteDistributionPredictionData> cigaretteRecords);
+
     /**
      * 编码表达式结构化解析
      * 
@@ -143,6 +183,15 @@ public interface EncodeDecodeService {
      */
     ParsedExpressionData parseEncodedExpression(String encodedExpression);
 
+    /**
+     * 编码表达式缓存统计
+     *
+     * 档位投放量编码、表达式解析结果和解码文本在写回与查询路径间缓存复用，本方法返回各类缓存的命中情况。
+     *
+     * @return 统计Map，包含enabled、maxEntries及gradeSequences、parsed、decoded（各含size、hits、misses、hitRate）
+     */
+    Map<String, Object> getCacheStats();
+
     /**
      * 解析后的表达式数据类
      * 
@@ -0,0 +1,45 @@
+package org.example.service;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+/**
+ * 市场类型比例扫描服务接口
+ *
+ * 【核心功能】
+ * 对指定周全部"档位+市场类型"卷烟，按一组城网比例（农网比例 = 1 - 城网比例）并行试算分配方案，
+ * 返回每个比例下的总误差和城网/农网实际投放量曲线，供规划人员依据数据选择比例，而不必反复调用写回接口试错
+ *
+ * 【计算方式】
+ * - 只读取投放基本信息和区域客户数数据，不写入任何表
+ * - 同时投放城网和农网的卷烟随比例变化，每个比例点作为一个任务并行计算；仅投放单一网络的卷烟与比例无关，只计算一次
+ * - 目标区域和预投放量相同的卷烟在每个比例点只计算一次分配矩阵
+ * - 按"档位+市场类型"的分配策略（截止时间、误差预算）计算，结果与写回时一致
+ *
+ * @author Robin
+ * @version 1.0
+ * @since 2025-10-20
+ */
+public interface MarketRatioSweepService {
+
+    /**
+     * 扫描城网比例
+     *
+     * @param year 年份
+     * @param month 月份
+     * @param weekSeq 周序号
+     * @param fromRatio 起始城网比例（0-1）
+     * @param toRatio 结束城网比例（0-1，不小于起始比例）
+     * @param step 比例步长（大于0）
+     * @return 结果Map，包含success、message、cigaretteCount、ratioSensitiveCount、
+     *         points（每个比例点的urbanRatio、ruralRatio、totalError、maxError、urbanActualDelivery、
+     *         ruralActualDelivery、totalActualDelivery，计算失败时另含error）、failedPoints、
+     *         bestPoint（计算成功的比例点中总误差最小的一个）、elapsedMs；全部比例点失败时success为false
+     *
+     * @example
+     * sweepMarketRatios(2025, 9, 3, 0, 1, 0.05)
+     * -> 21个比例点（0.00、0.05 ... 1.00）的总误差和城网/农网实际投放量
+     */
+    Map<String, Object> sweepMarketRatios(Integer year, Integer month, Integer weekSeq,
+                                          BigDecimal fromRatio, BigDecimal toRatio, BigDecimal step);
+}
@@ -0,0 +1,62 @@
+package org.example.service;
+
+import java.util.Map;
+
+/**
+ * 预测数据存储布局服务接口
+ *
+ * 【核心功能】
+ * 预测数据默认按周存放在独立的动态表中（cigarette_distribution_prediction_{年}_{月}_{周}），
+ * 可选改为一张按（年, 月, 周序号）LIST COLUMNS分区的统一预测表（cigarette_distribution_prediction）：
+ * - 每周一个分区，周表名保留为该周分区上的可更新视图，原有按周表名的读写SQL不变
+ * - 跨周查询直接查询统一预测表，无需UNION各周表
+ * - 删除整周数据为删除分区（元数据操作），不再逐行DELETE
+ *
+ * 【存储布局】
+ * - weekly：每周一张实体表（默认）
+ * - partitioned：统一分区表 + 周视图（需要MySQL 8）
+ *
+ * 【配置】
+ * distribution.storage.layout：weekly | partitioned（默认weekly）
+ *
+ * @author Robin
+ * @version 1.0
+ * @since 2025-10-20
+ */
+public interface PredictionStorageService {
+
+    /**
+     * 是否使用统一分区表存储预测数据
+     */
+    boolean isPartitioned();
+
+    /**
+     * 创建某周的预测数据存储
+     * weekly布局下创建周表；partitioned布局下确保统一预测表及该周分区存在，并创建周视图
+     *
+     * @param year 年份
+     * @param month 月份
+     * @param weekSeq 周序号
+     */
+    void createWeekStorage(Integer year, Integer month, Integer weekSeq);
+
+    /**
+     * 删除某周的分区及周视图（partitioned布局）
+     * 分区删除为DDL，会隐式提交当前事务，删除后无法随事务回滚
+     *
+     * @param year 年份
+     * @param month 月份
+     * @param weekSeq 周序号
+     * @return true表示已按分区删除（含分区不存在）；weekly布局返回false，由调用方按行删除
+     */
+    boolean dropWeekPartition(Integer year, Integer month, Integer weekSeq);
+
+    /**
+     * 将现有周表迁移到统一预测表
+     * 每张周表：添加分区、复制数据、核对记录数、将原表重命名为{周表名}_bak，再以周表名创建视图；
+     * 单张表失败时回退该表的分区并继续迁移其他表
+     *
+     * @return 结果Map，包含success、message、migratedTables、failedTables、tables（每张表的迁移明细）
+     */
+    Map<String, Object> migrateWeeklyTables();
+}
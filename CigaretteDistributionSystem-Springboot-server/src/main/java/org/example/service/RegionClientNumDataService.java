@@ -36,6 +36,7 @@ public interface RegionClientNumDataService {
      * 
      * 根据表名和区域标识查询匹配的区域客户数数据。
      * 用于计算实际投放量时获取特定区域的30个档位客户数。
+     * 查询结果按（表名，区域）缓存，区域客户数表通过Excel导入更新时失效。
      * 
      * @param tableName 表名（必填，如：region_clientNum_1_1）
      * @param region 区域标识（必填，支持完整区域名称）
@@ -0,0 +1,47 @@
+package org.example.service;
+
+import org.example.util.RegionCodeTable;
+
+import java.util.Map;
+
+/**
+ * 区域编码字典服务接口
+ *
+ * 【核心功能】
+ * 编码表达式中的区域编码（如区县 1-7、市场类型 C/N）由区域编码字典表（region_code_dict）维护，
+ * 启动时加载并编译为不可变的区域编码表（RegionCodeTable），字典表变更后定时重新加载，
+ * 新增区县或部署到其他城市时只需维护字典表，无需修改代码
+ *
+ * 【加载规则】
+ * - 字典表不存在时自动创建；为空时写入默认编码（十堰市）
+ * - 字典表内容无效（编码不是单个字符、同一类型下编码或区域重复）时保留当前编码表
+ * - 数据库不可用时使用默认编码
+ * - 编码表变化后清空编码表达式缓存
+ *
+ * 【配置】
+ * distribution.region-codes.refresh-interval-ms：重新加载间隔（默认60000）
+ *
+ * @author Robin
+ * @version 1.0
+ * @since 2025-10-20
+ */
+public interface RegionCodeService {
+
+    /**
+     * 获取当前区域编码表
+     * 编码表未变化时返回同一个实例，调用方可按实例判断是否需要重建派生结构
+     *
+     * @return 扩展投放类型 -> 区域编码表（不可修改）
+     *
+     * @example
+     * getRegionCodeTables().get("档位+区县").indexOf('3') -> 2（城区、丹江、房县中的房县）
+     */
+    Map<String, RegionCodeTable> getRegionCodeTables();
+
+    /**
+     * 立即从字典表重新加载区域编码
+     *
+     * @return 结果Map，包含success、message、changed（编码表是否变化）、regionCounts（各扩展投放类型的区域数）
+     */
+    Map<String, Object> reload();
+}
@@ -0,0 +1,38 @@
+package org.example.service;
+
+import java.util.Map;
+
+/**
+ * 动态表索引维护服务接口
+ *
+ * 【核心功能】
+ * 按周/按类型动态创建的表（投放基本信息表、预测表、区域客户数表）按卷烟或区域过滤查询，
+ * 建表语句按DynamicTableIndexes中的定义带上二级索引；本服务为建表语句加入索引之前创建的存量表补建索引：
+ * - 启动时扫描当前数据库所有实体表，为属于动态表族、缺少索引的表执行ALTER TABLE ... ADD INDEX
+ * - 已有索引（含唯一键）以所需列为最左前缀时视为已覆盖，不重复建索引
+ * - 生成补建报告（每张表新建的索引及失败原因），可通过接口查看或重新执行
+ *
+ * 【配置】
+ * distribution.table-indexes.retrofit-on-startup：启动时是否补建索引（默认true）
+ *
+ * @author Robin
+ * @version 1.0
+ * @since 2025-10-20
+ */
+public interface TableIndexService {
+
+    /**
+     * 为缺少索引的存量动态表补建索引
+     *
+     * @return 补建报告，包含success、message、scannedTables（动态表数）、createdIndexes（新建索引数）、
+     *         failedTables（失败表数）、changes（有新建索引或失败的表明细：table、created、error）
+     */
+    Map<String, Object> retrofitIndexes();
+
+    /**
+     * 获取最近一次补建报告
+     *
+     * @return 补建报告；尚未执行过时返回success=false的提示
+     */
+    Map<String, Object> getLastReport();
+}
@@ -0,0 +1,466 @@
+package org.example.service.algorithm;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.util.AllocationBudget;
+import org.example.util.DistributionRunReport;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+
+/**
+ * 分配前沿（预计算的可达投放量序列）
+ *
+ * 【核心功能】
+ * 针对一个固定的目标区域客户数矩阵，预先计算按标准填充顺序逐步增加档位时的累计投放量，
+ * 每种卷烟只需按预投放量在前沿上二分查找，再做一次短的局部修正即可得到分配矩阵，
+ * 不再从零开始逐轮迭代
+ *
+ * 【两种填充顺序】
+ * - 逐格填充（全市、区县算法）：每轮从D30到D1、每列内按区域顺序逐格+1。
+ *   一轮内的累计投放量序列 cellPrefix 与轮次无关，第k轮的累计量 = (k-1)×roundTotal + cellPrefix
+ * - 整列填充（城乡分类代码、业态算法）：每轮从D30开始整列+1。
+ *   每轮可增加的列数由累计列和 columnPrefix 二分查找确定
+ *
+ * 【结果一致性】
+ * 客户数按两位小数定点（×100）存为long，全部运算为精确整数运算；
+ * 二分查找定位的是原贪心算法第一次"放不下"的位置，之后的贪心续填、±1微调、候选方案选择
+ * 与原BigDecimal实现逐步一致，因此输出矩阵与原算法完全相同，只是每步误差改为增量计算。
+ * 配置了截止时间且在计算中途到达时例外：直接跳过的轮次不耗时，停止位置可能与原实现不同
+ *
+ * 【适用条件】
+ * 客户数非null、非负且不超过两位小数，预投放量大于0且不超过两位小数；
+ * 不满足时 build/solve 返回null，由调用方回退到原实现
+ *
+ * @author Robin
+ * @version 1.0
+ * @since 2025-10-20
+ */
+@Slf4j
+public final class AllocationFrontier {
+
+    private static final int GRADE_COUNT = 30;
+    private static final int SCALE = 2;
+
+    /**
+     * 逐格填充的微调最大迭代次数（与原算法一致）
+     */
+    private static final int MAX_REFINEMENT_ITERATIONS = 100;
+
+    /**
+     * 整列填充的粗调最大轮数（与原算法一致）
+     */
+    private static final int MAX_COARSE_ROUNDS = 100;
+
+    private final int regionCount;
+
+    /**
+     * 客户数（×100），[区域][档位]
+     */
+    private final long[][] customers;
+
+    /**
+     * 一轮逐格填充的累计投放量，cellPrefix[s] 为本轮前s步之和，长度 30×区域数+1
+     */
+    private final long[] cellPrefix;
+
+    /**
+     * 各档位整列客户数之和的累计值，columnPrefix[m] 为D30起前m列之和，长度31
+     */
+    private final long[] columnPrefix;
+
+    private AllocationFrontier(long[][] customers) {
+        this.regionCount = customers.length;
+        this.customers = customers;
+
+        int steps = GRADE_COUNT * regionCount;
+        this.cellPrefix = new long[steps + 1];
+        this.columnPrefix = new long[GRADE_COUNT + 1];
+        int s = 0;
+        for (int j = 0; j < GRADE_COUNT; j++) {
+            long columnSum = 0;
+            for (int i = 0; i < regionCount; i++) {
+                cellPrefix[s + 1] = cellPrefix[s] + customers[i][j];
+                columnSum += customers[i][j];
+                s++;
+            }
+            columnPrefix[j + 1] = columnPrefix[j] + columnSum;
+        }
+    }
+
+    /**
+     * 为客户数矩阵的前regionCount行构建分配前沿
+     *
+     * @param customerMatrix 客户数矩阵 [区域数][30]
+     * @param regionCount 目标区域数
+     * @return 分配前沿；矩阵不满足适用条件时返回null
+     */
+    public static AllocationFrontier build(BigDecimal[][] customerMatrix, int regionCount) {
+        if (customerMatrix == null || regionCount <= 0 || customerMatrix.length < regionCount) {
+            return null;
+        }
+        long[][] customers = new long[regionCount][GRADE_COUNT];
+        for (int i = 0; i < regionCount; i++) {
+            BigDecimal[] row = customerMatrix[i];
+            if (row == null || row.length < GRADE_COUNT) {
+                return null;
+            }
+            for (int j = 0; j < GRADE_COUNT; j++) {
+                Long scaled = toScaled(row[j]);
+                if (scaled == null || scaled < 0) {
+                    return null;
+                }
+                customers[i][j] = scaled;
+            }
+        }
+        return new AllocationFrontier(customers);
+    }
+
+    public int getRegionCount() {
+        return regionCount;
+    }
+
+    // ==================== 逐格填充（全市、区县） ====================
+
+    /**
+     * 逐格填充求解：贪心填充 + ±1迭代微调
+     *
+     * @param targetAmount 预投放量
+     * @param algorithmName 调用方算法名（用于运行报告中的迭代次数记录）
+     * @return 分配矩阵；预投放量不满足适用条件时返回null
+     */
+    public BigDecimal[][] solveCellwise(BigDecimal targetAmount, String algorithmName) {
+        Long target = toScaled(targetAmount);
+        if (target == null || target <= 0) {
+            return null;
+        }
+
+        int[][] allocation = new int[regionCount][GRADE_COUNT];
+        long current = greedyFillFromFrontier(allocation, target, algorithmName);
+        current = refine(allocation, current, target, algorithmName);
+        AllocationBudget.recordAchievedError(toDecimal(Math.abs(target - current)));
+
+        log.debug("分配前沿逐格求解完成，目标投放量: {}, 实际投放量: {}", targetAmount, toDecimal(current));
+        return toMatrix(allocation);
+    }
+
+    /**
+     * 定位贪心填充第一次"放不下"的位置，之前的状态直接由轮数和步数还原，之后按原规则续填
+     * 截止时间检查点与原实现一致（第2轮及之后每轮开始前）；由于直接跳过的轮次不耗时，
+     * 截止时间在计算中途到达时，停止位置可能比原实现更靠后，截止时间开始前已到达时两者输出相同
+     *
+     * @return 填充后的投放量（×100）
+     */
+    private long greedyFillFromFrontier(int[][] allocation, long target, String algorithmName) {
+        int steps = GRADE_COUNT * regionCount;
+        long roundTotal = cellPrefix[steps];
+
+        // 每轮均可完整填充的轮数
+        long fullRounds = roundTotal > 0 ? target / roundTotal : 0;
+        long remaining = target - fullRounds * roundTotal;
+        // 客户数全为0时原算法只执行一轮
+        int startStep = roundTotal > 0 ? upperBound(cellPrefix, remaining) : steps;
+        if (fullRounds > Integer.MAX_VALUE - 1) {
+            fullRounds = Integer.MAX_VALUE - 1;
+        }
+
+        // 与原实现相同的检查点（第2轮开始前）：超过截止时间时只保留完整的第1轮
+        if (fullRounds >= 1 && AllocationBudget.deadlineReached(algorithmName + ".greedyFill")) {
+            for (int i = 0; i < regionCount; i++) {
+                Arrays.fill(allocation[i], 1);
+            }
+            DistributionRunReport.recordIterations(algorithmName + ".frontierFill", 1);
+            return roundTotal;
+        }
+
+        for (int i = 0; i < regionCount; i++) {
+            Arrays.fill(allocation[i], (int) fullRounds);
+        }
+        for (int s = 0; s < startStep; s++) {
+            allocation[s % regionCount][s / regionCount]++;
+        }
+        long current = fullRounds * roundTotal + cellPrefix[startStep];
+
+        // 从第一次放不下的位置开始，按原规则完成当前轮及后续轮次
+        boolean roundAddedPositive = cellPrefix[startStep] > 0;
+        int position = startStep;
+        int fillRounds = (int) fullRounds + 1;
+        while (true) {
+            for (int s = position; s < steps; s++) {
+                int i = s % regionCount;
+                int j = s / regionCount;
+                if (j == 0 || allocation[i][j] + 1 <= allocation[i][j - 1]) {
+                    long customerCount = customers[i][j];
+                    if (current + customerCount <= target) {
+                        allocation[i][j]++;
+                        current += customerCount;
+                        if (customerCount > 0) {
+                            roundAddedPositive = true;
+                        }
+                    }
+                }
+            }
+            // 与原实现相同的检查点（每轮开始前）：超过截止时间时保留已填充的部分
+            if (!roundAddedPositive || AllocationBudget.deadlineReached(algorithmName + ".greedyFill")) {
+                break;
+            }
+            roundAddedPositive = false;
+            position = 0;
+            fillRounds++;
+        }
+        DistributionRunReport.recordIterations(algorithmName + ".frontierFill", fillRounds);
+        return current;
+    }
+
+    /**
+     * ±1迭代微调：每次选择使误差下降最多的单格调整，误差按增量计算
+     *
+     * @return 微调后的投放量（×100）
+     */
+    private long refine(int[][] allocation, long current, long target, String algorithmName) {
+        long currentError = Math.abs(target - current);
+        int iterations = 0;
+        for (int iter = 0; iter < MAX_REFINEMENT_ITERATIONS; iter++) {
+            // 与原实现相同的检查点：超过截止时间或误差已在预算内时保留当前结果
+            if (AllocationBudget.shouldStop(algorithmName + ".iterativeRefinement", toDecimal(currentError))) {
+                break;
+            }
+            iterations++;
+            long bestError = currentError;
+            int bestI = -1;
+            int bestJ = -1;
+            int bestChange = 0;
+
+            for (int i = 0; i < regionCount; i++) {
+                int[] row = allocation[i];
+                for (int j = 0; j < GRADE_COUNT; j++) {
+                    long customerCount = customers[i][j];
+                    // 尝试增加（行内已满足非递增，只需检查左侧档位）
+                    if (j == 0 || row[j] + 1 <= row[j - 1]) {
+                        long newError = Math.abs(target - (current + customerCount));
+                        if (newError < bestError) {
+                            bestError = newError;
+                            bestI = i;
+                            bestJ = j;
+                            bestChange = 1;
+                        }
+                    }
+                    // 尝试减少（只需检查右侧档位）
+                    if (row[j] > 0 && (j == GRADE_COUNT - 1 || row[j] - 1 >= row[j + 1])) {
+                        long newError = Math.abs(target - (current - customerCount));
+                        if (newError < bestError) {
+                            bestError = newError;
+                            bestI = i;
+                            bestJ = j;
+                            bestChange = -1;
+                        }
+                    }
+                }
+            }
+
+            if (bestI == -1) {
+                break;
+            }
+            allocation[bestI][bestJ] += bestChange;
+            current += bestChange * customers[bestI][bestJ];
+            currentError = bestError;
+        }
+        DistributionRunReport.recordIterations(algorithmName + ".frontierRefinement", iterations);
+        return current;
+    }
+
+    // ==================== 整列填充（城乡分类代码、业态） ====================
+
+    /**
+     * 整列填充求解：多轮整列粗调 + 候选方案选择 + 非递增约束修正
+     *
+     * @param targetAmount 预投放量
+     * @param algorithmName 调用方算法名（用于运行报告中的迭代次数记录）
+     * @return 分配矩阵；预投放量不满足适用条件时返回null
+     */
+    public BigDecimal[][] solveColumnwise(BigDecimal targetAmount, String algorithmName) {
+        Long target = toScaled(targetAmount);
+        if (target == null || target <= 0) {
+            return null;
+        }
+
+        // 1. 粗调：每轮按累计列和二分查找可整列+1的列数
+        int[] columnLevel = new int[GRADE_COUNT];
+        long current = 0;
+        int lastFullGrade = -1;
+        int roundCount = 0;
+        while (roundCount < MAX_COARSE_ROUNDS) {
+            roundCount++;
+            int columns = upperBound(columnPrefix, target - current);
+            if (columns == 0) {
+                break;
+            }
+            for (int j = 0; j < columns; j++) {
+                columnLevel[j]++;
+            }
+            current += columnPrefix[columns];
+            lastFullGrade = columns - 1;
+
+            // 剩余比例（四位小数HALF_UP）小于5%时停止：round(remaining/target, 4) < 0.05
+            long remaining = target - current;
+            if (remaining * 20000 < target * 999) {
+                break;
+            }
+            if (AllocationBudget.shouldStop(algorithmName + ".coarseRounds", toDecimal(Math.abs(remaining)))) {
+                break;
+            }
+        }
+        DistributionRunReport.recordIterations(algorithmName + ".frontierCoarseRounds", roundCount);
+
+        int[][] base = new int[regionCount][];
+        for (int i = 0; i < regionCount; i++) {
+            base[i] = columnLevel.clone();
+        }
+
+        // 2. 候选方案选择
+        int[][] best = base;
+        long bestError = Math.abs(target - current);
+
+        int[][] candidate2 = copy(base);
+        long amount2 = current;
+        for (int grade = lastFullGrade + 1; grade < GRADE_COUNT; grade++) {
+            for (int i = 0; i < regionCount; i++) {
+                if (isValidColumnwiseIncrement(candidate2, i, grade) && amount2 + customers[i][grade] <= target) {
+                    candidate2[i][grade]++;
+                    amount2 += customers[i][grade];
+                }
+            }
+        }
+        long error2 = Math.abs(target - amount2);
+        if (error2 < bestError) {
+            best = candidate2;
+            bestError = error2;
+        }
+
+        int[][] candidate3 = copy(base);
+        long amount3 = current;
+        for (int grade = 0; grade < GRADE_COUNT; grade++) {
+            long gradeAmount = columnPrefix[grade + 1] - columnPrefix[grade];
+            if (amount3 + gradeAmount > target) {
+                amount3 = adjustNearbyGrades(candidate3, target, amount3, grade);
+                break;
+            }
+            for (int i = 0; i < regionCount; i++) {
+                candidate3[i][grade]++;
+            }
+            amount3 += gradeAmount;
+        }
+        long error3 = Math.abs(target - amount3);
+        if (error3 < bestError) {
+            best = candidate3;
+        }
+
+        // 3. 非递增约束修正
+        for (int i = 0; i < regionCount; i++) {
+            for (int grade = 1; grade < GRADE_COUNT; grade++) {
+                if (best[i][grade] > best[i][grade - 1]) {
+                    best[i][grade] = best[i][grade - 1];
+                }
+            }
+        }
+
+        AllocationBudget.recordAchievedError(toDecimal(Math.abs(target - amountOf(best))));
+
+        log.debug("分配前沿整列求解完成，目标投放量: {}, 粗调轮数: {}", targetAmount, roundCount);
+        return toMatrix(best);
+    }
+
+    /**
+     * 整列算法的增量校验：高一档位的值不小于当前档位的值（与原实现一致，校验在+1之前进行）
+     */
+    private static boolean isValidColumnwiseIncrement(int[][] allocation, int region, int grade) {
+        return grade == 0 || allocation[region][grade - 1] >= allocation[region][grade];
+    }
+
+    /**
+     * 在放不下的列附近（±2档）逐格+1，使投放量接近目标
+     *
+     * @return 调整后的投放量（×100）
+     */
+    private long adjustNearbyGrades(int[][] allocation, long target, long current, int grade) {
+        for (int g = Math.max(0, grade - 2); g <= Math.min(GRADE_COUNT - 1, grade + 2); g++) {
+            for (int i = 0; i < regionCount; i++) {
+                if (isValidColumnwiseIncrement(allocation, i, g) && current + customers[i][g] <= target) {
+                    allocation[i][g]++;
+                    current += customers[i][g];
+                }
+            }
+        }
+        return current;
+    }
+
+    // ==================== 辅助方法 ====================
+
+    /**
+     * 返回满足 prefix[k] <= value 的最大k（prefix非递减）
+     */
+    private static int upperBound(long[] prefix, long value) {
+        int low = 0;
+        int high = prefix.length - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (prefix[mid] <= value) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    private long amountOf(int[][] allocation) {
+        long amount = 0;
+        for (int i = 0; i < regionCount; i++) {
+            for (int j = 0; j < GRADE_COUNT; j++) {
+                amount += allocation[i][j] * customers[i][j];
+            }
+        }
+        return amount;
+    }
+
+    private static int[][] copy(int[][] matrix) {
+        int[][] copy = new int[matrix.length][];
+        for (int i = 0; i < matrix.length; i++) {
+            copy[i] = matrix[i].clone();
+        }
+        return copy;
+    }
+
+    private static BigDecimal[][] toMatrix(int[][] allocation) {
+        BigDecimal[][] matrix = new BigDecimal[allocation.length][GRADE_COUNT];
+        for (int i = 0; i < allocation.length; i++) {
+            for (int j = 0; j < GRADE_COUNT; j++) {
+                matrix[i][j] = BigDecimal.valueOf(allocation[i][j]);
+            }
+        }
+        return matrix;
+    }
+
+    private static BigDecimal toDecimal(long scaled) {
+        return BigDecimal.valueOf(scaled, SCALE);
+    }
+
+    /**
+     * 转换为×100的定点数；null、超过两位小数或超出范围时返回null
+     */
+    private static Long toScaled(BigDecimal value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            BigDecimal scaled = value.setScale(SCALE, RoundingMode.UNNECESSARY);
+            // 预留乘法余量（粗调剩余比例判断中 ×20000）
+            if (scaled.abs().compareTo(BigDecimal.valueOf(Long.MAX_VALUE / 100000, SCALE)) > 0) {
+                return null;
+            }
+            return scaled.unscaledValue().longValueExact();
+        } catch (ArithmeticException e) {
+            return null;
+        }
+    }
+}
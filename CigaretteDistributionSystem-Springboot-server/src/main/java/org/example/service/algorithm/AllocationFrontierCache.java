@@ -0,0 +1,163 @@
+package org.example.service.algorithm;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 分配前沿缓存
+ *
+ * 【核心功能】
+ * 同一周内同一投放类型的所有卷烟都基于同一张 region_clientNum 表计算，只有预投放量和目标区域子集不同。
+ * 本缓存为每个（客户数表，目标区域子集）保存一份预计算的 AllocationFrontier，后续卷烟直接复用
+ *
+ * 【缓存键】
+ * 以目标区域子集各行的客户数内容为键：同一张表、同一区域子集必然得到相同内容从而命中；
+ * 客户数表重新导入或被外部修改后内容随之变化，旧条目自然不再命中，无需显式失效
+ *
+ * 【容量】
+ * 按最近访问顺序保留最多 MAX_ENTRIES 个子集（区县7个区域的全部子集为127个，其余类型更少）
+ *
+ * 【配置】
+ * distribution.allocation.frontier-enabled=false 时各算法回退到原始逐轮迭代实现
+ *
+ * @author Robin
+ * @version 1.0
+ * @since 2025-10-20
+ */
+@Slf4j
+@Component
+public class AllocationFrontierCache {
+
+    private static final int MAX_ENTRIES = 256;
+
+    @Value("${distribution.allocation.frontier-enabled:true}")
+    private boolean enabled = true;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    private final Map<MatrixKey, AllocationFrontier> frontiers = new LinkedHashMap<MatrixKey, AllocationFrontier>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<MatrixKey, AllocationFrontier> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * 获取客户数矩阵前regionCount行对应的分配前沿，不存在时构建并缓存
+     *
+     * @param customerMatrix 客户数矩阵 [区域数][30]
+     * @param regionCount 目标区域数
+     * @return 分配前沿；矩阵不满足前沿适用条件时返回null
+     */
+    public AllocationFrontier getFrontier(BigDecimal[][] customerMatrix, int regionCount) {
+        if (customerMatrix == null || regionCount <= 0 || customerMatrix.length < regionCount) {
+            return null;
+        }
+        MatrixKey lookupKey = new MatrixKey(customerMatrix, regionCount);
+        synchronized (frontiers) {
+            AllocationFrontier cached = frontiers.get(lookupKey);
+            if (cached != null) {
+                hits.incrementAndGet();
+                return cached;
+            }
+        }
+
+        misses.incrementAndGet();
+        AllocationFrontier frontier = AllocationFrontier.build(customerMatrix, regionCount);
+        if (frontier != null) {
+            synchronized (frontiers) {
+                frontiers.put(lookupKey.detach(), frontier);
+            }
+        }
+        return frontier;
+    }
+
+    /**
+     * 清空缓存
+     */
+    public void clear() {
+        synchronized (frontiers) {
+            frontiers.clear();
+        }
+        log.info("分配前沿缓存已清空");
+    }
+
+    /**
+     * 获取缓存统计信息
+     *
+     * @return 包含enabled、size、hits、misses、hitRate的统计Map
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        long hitCount = hits.get();
+        long missCount = misses.get();
+        synchronized (frontiers) {
+            stats.put("size", frontiers.size());
+        }
+        stats.put("enabled", enabled);
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("hitRate", hitCount + missCount == 0 ? 0.0 : (double) hitCount / (hitCount + missCount));
+        return stats;
+    }
+
+    /**
+     * 客户数子矩阵键：按内容比较前regionCount行
+     * 查找时直接引用调用方数组，写入缓存前通过detach()复制，避免调用方后续修改影响键
+     */
+    private static final class MatrixKey {
+        private final BigDecimal[][] rows;
+        private final int hash;
+
+        MatrixKey(BigDecimal[][] matrix, int regionCount) {
+            this(regionCount == matrix.length ? matrix : Arrays.copyOf(matrix, regionCount));
+        }
+
+        private MatrixKey(BigDecimal[][] rows) {
+            this.rows = rows;
+            this.hash = Arrays.deepHashCode(rows);
+        }
+
+        MatrixKey detach() {
+            BigDecimal[][] copy = new BigDecimal[rows.length][];
+            for (int i = 0; i < rows.length; i++) {
+                copy[i] = rows[i] == null ? null : rows[i].clone();
+            }
+            return new MatrixKey(copy);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof MatrixKey)) {
+                return false;
+            }
+            MatrixKey other = (MatrixKey) o;
+            return hash == other.hash && Arrays.deepEquals(rows, other.rows);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package org.example.service.algorithm;
 
 import lombok.extern.slf4j.Slf4j;
+import org.example.util.AllocationBudget;
+import org.example.util.DistributionRunReport;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
@@ -18,7 +20,7 @@ import java.util.stream.Collectors;
  * 2. 对每个网络单独执行核心分配算法（误差优先，平滑为辅）。
  * 3. 合并所有分配结果并强制平滑非递增约束。
  * 4. 【新约束】：支持仅有城网或仅有农网的非比例投放；比例不合法时抛出异常。
- * 5. 【优化目标】：误差控制在200以内 (<= 200)，尽可能接近目标值 (继续迭代优化即使已达标)。
+ * 5. 【优化目标】：误差控制在200以内 (<= 200)，尽可能接近目标值 (继续迭代优化即使已达标；可通过分配策略配置误差预算/截止时间提前结束)。
  */
 @Slf4j
 @Service
@@ -172,6 +174,8 @@ public class MarketProportionalCigaretteDistributionAlgorithm {
         // 5. 计算最终实际投放量并记录日志 (保持不变)
         BigDecimal finalAmount = calculateTotalAmount(finalMatrix, regionCustomerMatrix);
         BigDecimal finalError = totalAmountTarget.subtract(finalAmount).abs();
+        // 城网/农网分别微调，以合并后的总误差作为该卷烟的实际误差
+        AllocationBudget.recordAchievedError(finalError);
         log.info("市场分配算法完成，目标投放量: {}, 实际投放量: {}, 误差: {}",
                 totalAmountTarget, finalAmount, finalError);
         // 增加一个最终误差是否在200以内的日志
@@ -251,6 +255,10 @@ public class MarketProportionalCigaretteDistributionAlgorithm {
         int fillRound = 0;
 
         while (canStillAdd && fillRound < maxFillRounds) {
+            // 超过截止时间时停止填充，保留已填充的部分（每轮开始前检查，至少完成一轮）
+            if (fillRound > 0 && AllocationBudget.deadlineReached("MarketProportionalCigaretteDistributionAlgorithm.greedyFill")) {
+                break;
+            }
             canStillAdd = false;
             fillRound++;
             for (int j = 0; j < GRADE_COUNT; j++) {
@@ -276,6 +284,7 @@ public class MarketProportionalCigaretteDistributionAlgorithm {
             }
             if(!canStillAdd) break;
         }
+        DistributionRunReport.recordIterations("MarketProportionalCigaretteDistributionAlgorithm.greedyFill", fillRound);
         if(fillRound >= maxFillRounds) {
             log.warn("Greedy fill reached max rounds ({}), potentially stuck. Current amount: {}", maxFillRounds, currentAmount);
         }
@@ -292,12 +301,14 @@ public class MarketProportionalCigaretteDistributionAlgorithm {
         BigDecimal currentAbsoluteError = targetAmount.subtract(calculateTotalAmount(allocationMatrix, regionCustomerMatrix)).abs();
         log.info("开始微调，初始误差: {}", currentAbsoluteError);
 
+        int iterations = 0;
         for (int iter = 0; iter < MAX_ITERATIONS; iter++) {
-            // --- 移除了基于 ERROR_THRESHOLD 的提前退出逻辑 ---
-            // if (currentAbsoluteError.compareTo(ERROR_THRESHOLD) <= 0) {
-            //     log.info("微调提前退出，误差 {} 已小于等于阈值 {}", currentAbsoluteError, ERROR_THRESHOLD);
-            //     break;
-            // }
+            // 默认不因误差达标而提前退出；投放类型配置了误差预算或截止时间时，由AllocationBudget决定是否停止
+            if (AllocationBudget.shouldStop("MarketProportionalCigaretteDistributionAlgorithm.iterativeRefinement", currentAbsoluteError)) {
+                log.info("微调提前退出（{}），当前误差: {}", AllocationBudget.snapshot().get("stopReason"), currentAbsoluteError);
+                break;
+            }
+            iterations++;
 
             BigDecimal bestNewAbsoluteError = currentAbsoluteError; // 记录本轮能找到的最小误差
             int best_i = -1, best_j = -1;
@@ -352,6 +363,7 @@ public class MarketProportionalCigaretteDistributionAlgorithm {
                 break; // 如果本轮没有任何调整能减小误差，则提前退出
             }
         }
+        DistributionRunReport.recordIterations("MarketProportionalCigaretteDistributionAlgorithm.iterativeRefinement", iterations);
         // 增加最终日志，无论是否达到阈值
         if (currentAbsoluteError.compareTo(ERROR_THRESHOLD) > 0) {
             log.warn("微调完成，但最终误差 {} 仍大于阈值 {}", currentAbsoluteError, ERROR_THRESHOLD);
@@ -1,6 +1,9 @@
 package org.example.service.algorithm;
 
 import lombok.extern.slf4j.Slf4j;
+import org.example.util.AllocationBudget;
+import org.example.util.DistributionRunReport;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import java.math.BigDecimal;
 import java.util.List;
@@ -14,6 +17,12 @@ import java.util.List;
 public class UrbanRuralClassificationCodeDistributionAlgorithm {
     
     private static final int GRADE_COUNT = 30; // 档位数（D30到D1）
+
+    /**
+     * 分配前沿缓存（未注入时，如直接new出的实例，使用下方逐轮迭代实现）
+     */
+    @Autowired
+    private AllocationFrontierCache frontierCache;
     
     /**
      * 卷烟分配算法 - 根据需求描述优化版本
@@ -32,6 +41,16 @@ public class UrbanRuralClassificationCodeDistributionAlgorithm {
         }
         
         int regionCount = targetRegions.size();
+
+        // 优先使用分配前沿求解（结果与逐轮迭代实现一致），不满足适用条件时回退
+        if (frontierCache != null && frontierCache.isEnabled()) {
+            AllocationFrontier frontier = frontierCache.getFrontier(regionCustomerMatrix, regionCount);
+            BigDecimal[][] frontierMatrix = frontier != null ? frontier.solveColumnwise(targetAmount, "UrbanRuralClassificationCodeDistributionAlgorithm") : null;
+            if (frontierMatrix != null) {
+                return frontierMatrix;
+            }
+        }
+
         BigDecimal[][] allocationMatrix = new BigDecimal[regionCount][GRADE_COUNT];
         
         // 1. 初始化分配矩阵：将所有 x_{ij} 初始化为 0
@@ -93,8 +112,14 @@ public class UrbanRuralClassificationCodeDistributionAlgorithm {
                         roundCount, remainingRate.multiply(new BigDecimal("100")));
                     break;
                 }
+
+                // 超过截止时间或剩余误差已在预算内时，以当前粗调结果进入候选方案选择
+                if (AllocationBudget.shouldStop("UrbanRuralClassificationCodeDistributionAlgorithm.coarseRounds", remaining.abs())) {
+                    break;
+                }
             }
             
+            DistributionRunReport.recordIterations("UrbanRuralClassificationCodeDistributionAlgorithm.coarseRounds", roundCount);
             log.info("城乡分类代码算法粗调完成，经过{}轮迭代，当前投放量: {}, 目标投放量: {}, 最后完整档位: {}", 
                     roundCount, currentAmount, targetAmount, lastFullGrade);
             
@@ -106,6 +131,7 @@ public class UrbanRuralClassificationCodeDistributionAlgorithm {
             bestMatrix = enforceMonotonicConstraint(bestMatrix);
             
             BigDecimal finalAmount = calculateTotalAmount(bestMatrix, regionCustomerMatrix);
+            AllocationBudget.recordAchievedError(targetAmount.subtract(finalAmount).abs());
             log.info("城乡分类代码分配算法完成，目标投放量: {}, 实际投放量: {}, 误差: {}", 
                     targetAmount, finalAmount, targetAmount.subtract(finalAmount).abs());
             
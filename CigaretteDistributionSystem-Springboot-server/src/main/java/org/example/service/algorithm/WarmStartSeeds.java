@@ -0,0 +1,90 @@
+package org.example.service.algorithm;
+
+import org.example.util.DistributionRunReport;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * 分配算法热启动初始解
+ *
+ * 【核心功能】
+ * 大多数卷烟逐周的预投放量变化不大。热启动以上周同一卷烟、同一投放区域的分配方案为初始解，
+ * 按本周预投放量缩放后交给各算法继续贪心填充和微调，代替从全零矩阵逐轮爬升
+ *
+ * 【初始解处理】
+ * 1. 缩放系数 = 本周预投放量 ÷ 上周方案在当前客户数下的投放量
+ * 2. 各档位按系数缩放后向下取整（结果非负整数，总投放量不超过预投放量）
+ * 3. 逐行投影到非递增约束：每个档位不超过其前一档位（只减不增，仍不超过预投放量）
+ *
+ * 【适用范围】
+ * 区县和全市统一投放算法在分配前沿（AllocationFrontierCache）可用时直接由前沿求解，一次查找即得到与冷启动一致的结果，
+ * 不使用初始解；初始解只在前沿关闭（frontier-enabled=false）或客户数矩阵不满足前沿适用条件时生效
+ *
+ * 【不可用情形】
+ * 上周方案缺行、缺档位、投放量为0，或客户数矩阵含null时返回null，算法从全零矩阵开始
+ *
+ * @author Robin
+ * @version 1.0
+ * @since 2025-10-20
+ */
+public final class WarmStartSeeds {
+
+    /**
+     * 策略额外参数中传递热启动初始解的键（值为BigDecimal[目标数][30]，行顺序与目标列表一致）
+     */
+    public static final String EXTRA_PARAM_KEY = "warmStartSeed";
+
+    private static final int GRADE_COUNT = 30;
+
+    private WarmStartSeeds() {
+    }
+
+    /**
+     * 将上周分配矩阵缩放并投影为本周的初始解
+     *
+     * @param previous 上周分配矩阵 [区域数][30]
+     * @param customerMatrix 本周客户数矩阵 [区域数][30]
+     * @param regionCount 目标区域数
+     * @param targetAmount 本周预投放量
+     * @param algorithmName 算法名称（用于运行报告）
+     * @return 初始解；不可用时返回null
+     */
+    public static BigDecimal[][] prepare(BigDecimal[][] previous, BigDecimal[][] customerMatrix,
+                                         int regionCount, BigDecimal targetAmount, String algorithmName) {
+        if (previous == null || previous.length != regionCount || customerMatrix == null
+                || customerMatrix.length < regionCount || targetAmount == null || targetAmount.signum() <= 0) {
+            return null;
+        }
+
+        BigDecimal previousAmount = BigDecimal.ZERO;
+        for (int i = 0; i < regionCount; i++) {
+            if (previous[i] == null || previous[i].length != GRADE_COUNT
+                    || customerMatrix[i] == null || customerMatrix[i].length < GRADE_COUNT) {
+                return null;
+            }
+            for (int j = 0; j < GRADE_COUNT; j++) {
+                if (previous[i][j] == null || previous[i][j].signum() < 0 || customerMatrix[i][j] == null) {
+                    return null;
+                }
+                previousAmount = previousAmount.add(previous[i][j].multiply(customerMatrix[i][j]));
+            }
+        }
+        if (previousAmount.signum() <= 0) {
+            return null;
+        }
+
+        BigDecimal[][] seed = new BigDecimal[regionCount][GRADE_COUNT];
+        for (int i = 0; i < regionCount; i++) {
+            for (int j = 0; j < GRADE_COUNT; j++) {
+                // 先乘后除，向下取整保证缩放后的总投放量不超过预投放量
+                BigDecimal scaled = previous[i][j].multiply(targetAmount)
+                        .divide(previousAmount, 0, RoundingMode.FLOOR);
+                seed[i][j] = j > 0 && scaled.compareTo(seed[i][j - 1]) > 0 ? seed[i][j - 1] : scaled;
+            }
+        }
+
+        DistributionRunReport.recordIterations(algorithmName + ".warmStart", 1);
+        return seed;
+    }
+}
@@ -1,6 +1,9 @@
 package org.example.service.algorithm;
 
 import lombok.extern.slf4j.Slf4j;
+import org.example.util.AllocationBudget;
+import org.example.util.DistributionRunReport;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
@@ -14,19 +17,52 @@ public class countyCigaretteDistributionAlgorithm {
     private static final int MAX_ITERATIONS = 100; // 微调迭代次数
     private static final BigDecimal INCREMENT = BigDecimal.ONE; // 每次调整的步长
 
+    /**
+     * 分配前沿缓存（未注入时，如直接new出的实例，使用下方逐轮迭代实现）
+     */
+    @Autowired
+    private AllocationFrontierCache frontierCache;
+
     public BigDecimal[][] calculateDistribution(List<String> targetRegions,
                                                 BigDecimal[][] regionCustomerMatrix,
                                                 BigDecimal targetAmount) {
+        return calculateDistribution(targetRegions, regionCustomerMatrix, targetAmount, null);
+    }
+
+    /**
+     * 以上周分配方案为初始解计算分配矩阵（热启动）
+     * 分配前沿可用时直接由前沿求解并忽略初始解；前沿不可用时，初始解经WarmStartSeeds缩放并投影到非递增约束后继续原有流程，
+     * 初始解不可用时与冷启动相同
+     *
+     * @param warmStartSeed 上周分配矩阵（行顺序与目标列表一致），为null时从全零矩阵开始
+     */
+    public BigDecimal[][] calculateDistribution(List<String> targetRegions,
+                                                BigDecimal[][] regionCustomerMatrix,
+                                                BigDecimal targetAmount,
+                                                BigDecimal[][] warmStartSeed) {
         if (targetRegions == null || targetRegions.isEmpty() || regionCustomerMatrix == null || targetAmount == null) {
             log.error("输入参数无效");
             return new BigDecimal[0][0];
         }
 
         int regionCount = targetRegions.size();
+
+        // 优先使用分配前沿求解（结果与冷启动逐轮迭代一致，一次查找即可得到结果，不需要初始解），不满足适用条件时回退
+        if (frontierCache != null && frontierCache.isEnabled()) {
+            AllocationFrontier frontier = frontierCache.getFrontier(regionCustomerMatrix, regionCount);
+            BigDecimal[][] frontierMatrix = frontier != null ? frontier.solveCellwise(targetAmount, "countyCigaretteDistributionAlgorithm") : null;
+            if (frontierMatrix != null) {
+                return frontierMatrix;
+            }
+        }
+
+        // 前沿不可用时才使用热启动初始解，从初始解开始逐轮迭代
+        BigDecimal[][] seed = WarmStartSeeds.prepare(warmStartSeed, regionCustomerMatrix, regionCount, targetAmount, "countyCigaretteDistributionAlgorithm");
+
         BigDecimal[][] allocationMatrix = new BigDecimal[regionCount][GRADE_COUNT];
         for (int i = 0; i < regionCount; i++) {
             for (int j = 0; j < GRADE_COUNT; j++) {
-                allocationMatrix[i][j] = BigDecimal.ZERO;
+                allocationMatrix[i][j] = seed != null ? seed[i][j] : BigDecimal.ZERO;
             }
         }
 
@@ -41,6 +77,7 @@ public class countyCigaretteDistributionAlgorithm {
             enforceMonotonicConstraint(allocationMatrix);
 
             BigDecimal finalAmount = calculateTotalAmount(allocationMatrix, regionCustomerMatrix);
+            AllocationBudget.recordAchievedError(targetAmount.subtract(finalAmount).abs());
             log.info("分配算法完成，目标投放量: {}, 实际投放量: {}, 误差: {}",
                     targetAmount, finalAmount, targetAmount.subtract(finalAmount).abs());
 
@@ -58,11 +95,18 @@ public class countyCigaretteDistributionAlgorithm {
     private void greedyFill(BigDecimal[][] allocationMatrix,
                             BigDecimal[][] regionCustomerMatrix,
                             BigDecimal targetAmount) {
-        BigDecimal currentAmount = BigDecimal.ZERO;
+        // 热启动时从初始解的投放量继续填充
+        BigDecimal currentAmount = calculateTotalAmount(allocationMatrix, regionCustomerMatrix);
         boolean canStillAdd = true;
+        int fillRound = 0;
 
         while (canStillAdd) {
+            // 超过截止时间时停止填充，保留已填充的部分（每轮开始前检查，至少完成一轮）
+            if (fillRound > 0 && AllocationBudget.deadlineReached("countyCigaretteDistributionAlgorithm.greedyFill")) {
+                break;
+            }
             canStillAdd = false;
+            fillRound++;
             for (int j = 0; j < GRADE_COUNT; j++) {
                 for (int i = 0; i < allocationMatrix.length; i++) {
                     if (isValidIncrement(allocationMatrix, i, j)) {
@@ -70,12 +114,16 @@ public class countyCigaretteDistributionAlgorithm {
                         if (customerCount != null && currentAmount.add(customerCount).compareTo(targetAmount) <= 0) {
                             allocationMatrix[i][j] = allocationMatrix[i][j].add(INCREMENT);
                             currentAmount = currentAmount.add(customerCount);
-                            canStillAdd = true;
+                            // 仅在投放量实际增加时继续下一轮，避免D30客户数为0时无限循环
+                            if (customerCount.signum() > 0) {
+                                canStillAdd = true;
+                            }
                         }
                     }
                 }
             }
         }
+        DistributionRunReport.recordIterations("countyCigaretteDistributionAlgorithm.greedyFill", fillRound);
         log.info("贪心填充完成，当前投放量: {}", currentAmount);
     }
 
@@ -87,7 +135,13 @@ public class countyCigaretteDistributionAlgorithm {
                                      BigDecimal targetAmount) {
         BigDecimal currentError = targetAmount.subtract(calculateTotalAmount(allocationMatrix, regionCustomerMatrix)).abs();
 
+        int iterations = 0;
         for (int iter = 0; iter < MAX_ITERATIONS; iter++) {
+            // 超过截止时间或误差已在预算内时保留当前结果
+            if (AllocationBudget.shouldStop("countyCigaretteDistributionAlgorithm.iterativeRefinement", currentError)) {
+                break;
+            }
+            iterations++;
             BigDecimal bestError = currentError;
             int best_i = -1, best_j = -1;
             BigDecimal best_change = BigDecimal.ZERO;
@@ -132,6 +186,7 @@ public class countyCigaretteDistributionAlgorithm {
                 break; // 如果没有更好的移动，则停止
             }
         }
+        DistributionRunReport.recordIterations("countyCigaretteDistributionAlgorithm.iterativeRefinement", iterations);
         log.info("微调完成，误差: {}", currentError);
     }
 
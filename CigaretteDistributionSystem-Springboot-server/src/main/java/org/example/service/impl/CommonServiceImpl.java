@@ -8,6 +8,7 @@ import org.example.util.CigaretteDistributionRowMapper;
 import org.example.util.CigaretteDistributionSqlBuilder;
 import org.example.util.TableNameGeneratorUtil;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -33,6 +34,11 @@ import java.util.*;
  * - 卷烟投放预测数据表：cigarette_distribution_prediction_{year}_{month}_{weekSeq}
  * - 区域客户数表：region_clientNum_{主序号}_{子序号}
  * 
+ * 【缓存】
+ * 投放区域列表和区域客户数矩阵按投放类型缓存（Spring Cache，BoundedCacheManager限制条目数），
+ * 缓存键带区域客户数表的内容版本（RegionClientTableVersions），表内容变化（含直接修改数据库）后按新版本重新加载；
+ * 模拟计算替换区域客户数表（RegionClientTableOverride）时，缓存键带上替换关系，与正式表的缓存互不干扰
+ * 
  * @author Robin
  * @version 3.0 - 动态表名版本
  * @since 2025-10-10
@@ -60,6 +66,8 @@ public class CommonServiceImpl implements CommonService {
      * -> 返回 ["丹江", "房县", "郧西", "郧阳", "竹山", "竹溪", "城区"]
      */
     @Override
+    @Cacheable(value = "regionListByType",
+            key = "@regionClientTableVersions.typeCacheKey(#deliveryMethod, #deliveryEtype)", unless = "#result.isEmpty()")
     public List<String> getAllRegionList(String deliveryMethod, String deliveryEtype) {
         log.info("获取投放区域列表，投放方法: {}, 扩展投放类型: {}", deliveryMethod, deliveryEtype);
         
@@ -119,6 +127,8 @@ public class CommonServiceImpl implements CommonService {
      * -> 返回 RegionCustomerMatrix{regionNames: [...], customerMatrix: [[D30值, D29值, ...], ...]}
      */
     @Override
+    @Cacheable(value = "regionCustomerMatrixByType",
+            key = "@regionClientTableVersions.typeCacheKey(#deliveryMethod, #deliveryEtype)", unless = "#result.isEmpty()")
     public RegionCustomerMatrix buildRegionCustomerMatrix(String deliveryMethod, String deliveryEtype) {
         log.info("构建区域客户数矩阵，投放方法: {}, 扩展投放类型: {}", deliveryMethod, deliveryEtype);
         
@@ -8,13 +8,21 @@ import org.example.entity.CigaretteDistributionPredictionData;
 import org.example.service.DataManagementService;
 import org.example.service.DistributionCalculateService;
 import org.example.service.EncodeDecodeService;
+import org.example.service.PredictionStorageService;
+import org.example.util.CigaretteDistributionSqlBuilder;
+import org.example.util.GradeMatrixUtils;
+import org.example.util.GradeVector;
+import org.example.util.SchemaCatalog;
 import org.example.util.TableNameGeneratorUtil;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.math.BigDecimal;
+import java.sql.Statement;
 import java.util.*;
 
 /**
@@ -25,6 +33,15 @@ import java.util.*;
 @Service
 public class DataManagementServiceImpl implements DataManagementService {
     
+    /**
+     * 区域记录定位列数（卷烟代码、名称、投放区域、年、月、周序号）
+     */
+    private static final int AREA_RECORD_KEY_COUNT = 6;
+    
+    /**
+     * 区域记录写入值个数（投放方法、扩展投放类型、30个档位、备注、实际投放量、编码表达式）
+     */
+    private static final int AREA_RECORD_VALUE_COUNT = 35;
     
     @Autowired
     private JdbcTemplate jdbcTemplate;
@@ -35,6 +52,12 @@ public class DataManagementServiceImpl implements DataManagementService {
     @Autowired
     private EncodeDecodeService encodeDecodeService;
 
+    @Autowired
+    private PredictionStorageService predictionStorageService;
+
+    @Autowired
+    private SchemaCatalog schemaCatalog;
+
     // ==================== 更新档位投放设置和新增区域投放档位记录已经删除卷烟指定区域投放记录的服务 ====================
     
     /**
@@ -85,10 +108,7 @@ public class DataManagementServiceImpl implements DataManagementService {
             log.debug("查询卷烟基础信息，表名: {}", infoTableName);
             
             // 检查表是否存在
-            String checkTableSql = "SELECT COUNT(*) FROM information_schema.tables WHERE table_schema = DATABASE() AND table_name = ?";
-            Integer tableExists = jdbcTemplate.queryForObject(checkTableSql, Integer.class, infoTableName);
-            
-            if (tableExists == null || tableExists == 0) {
+            if (!schemaCatalog.tableExists(infoTableName)) {
                 result.put("success", false);
                 result.put("message", "基础信息表不存在: " + infoTableName);
                 return result;
@@ -157,10 +177,7 @@ public class DataManagementServiceImpl implements DataManagementService {
             log.debug("查询卷烟基础信息，表名: {}", infoTableName);
             
             // 检查表是否存在
-            String checkTableSql = "SELECT COUNT(*) FROM information_schema.tables WHERE table_schema = DATABASE() AND table_name = ?";
-            Integer tableExists = jdbcTemplate.queryForObject(checkTableSql, Integer.class, infoTableName);
-            
-            if (tableExists == null || tableExists == 0) {
+            if (!schemaCatalog.tableExists(infoTableName)) {
                 result.put("success", false);
                 result.put("message", "基础信息表不存在: " + infoTableName);
                 return result;
@@ -261,18 +278,18 @@ public class DataManagementServiceImpl implements DataManagementService {
             log.info("开始删除投放区域，卷烟: {}-{}, 删除区域: {}", 
                     request.getCigName(), request.getCigCode(), request.getAreasToDelete());
             
-            int totalDeleted = 0;
+            // 一条语句删除指定区域的投放记录
+            int totalDeleted = deleteAreaRecords(tableName, request.getCigCode(), request.getCigName(),
+                    new LinkedHashSet<>(request.getAreasToDelete()));
+            log.info("删除区域 {} 的{}条记录", request.getAreasToDelete(), totalDeleted);
             
-            // 删除指定区域的投放记录
-            for (String areaToDelete : request.getAreasToDelete()) {
-                String deleteSql = String.format("DELETE FROM `%s` WHERE cig_code = ? AND cig_name = ? AND delivery_area = ?", tableName);
-                int deletedCount = jdbcTemplate.update(deleteSql, request.getCigCode(), request.getCigName(), areaToDelete);
-                totalDeleted += deletedCount;
-                log.info("删除区域 {} 的{}条记录", areaToDelete, deletedCount);
-            }
+            // 剩余区域的分组可能变化，重新编码整支卷烟
+            int refreshedCodes = totalDeleted > 0 ? refreshDeployinfoCodes(request.getCigCode(), request.getCigName(),
+                    request.getYear(), request.getMonth(), request.getWeekSeq()) : 0;
             
             result.put("success", true);
             result.put("deletedCount", totalDeleted);
+            result.put("refreshedCodes", refreshedCodes);
             result.put("message", String.format("成功删除%d条记录", totalDeleted));
             
         } catch (Exception e) {
@@ -310,10 +327,13 @@ public class DataManagementServiceImpl implements DataManagementService {
             log.info("已重建投放记录，新投放类型: [{}, {}]", request.getDeliveryMethod(), request.getDeliveryEtype());
             
             if (rebuildSuccess) {
+                int refreshedCodes = refreshDeployinfoCodes(request.getCigCode(), request.getCigName(),
+                        request.getYear(), request.getMonth(), request.getWeekSeq());
                 result.put("success", true);
                 result.put("message", "投放类型变更完成，已重建投放记录");
                 result.put("operation", "投放类型变更");
                 result.put("deletedRecords", deletedCount);
+                result.put("refreshedCodes", refreshedCodes);
             } else {
                 result.put("success", false);
                 result.put("message", "重建投放记录失败");
@@ -387,11 +407,16 @@ public class DataManagementServiceImpl implements DataManagementService {
                 }
             }
             
+            // 4. 重新编码整支卷烟，同组的其他区域编码表达随之更新
+            int refreshedCodes = refreshDeployinfoCodes(request.getCigCode(), request.getCigName(),
+                    request.getYear(), request.getMonth(), request.getWeekSeq());
+            
             result.put("success", true);
             result.put("message", String.format("增量更新完成，新增 %d 个区域，更新 %d 个区域", newCount, updateCount));
             result.put("operation", "增量更新");
             result.put("newAreas", newCount);
             result.put("updatedAreas", updateCount);
+            result.put("refreshedCodes", refreshedCodes);
             
         } catch (Exception e) {
             log.error("处理增量更新时发生错误", e);
@@ -435,8 +460,8 @@ public class DataManagementServiceImpl implements DataManagementService {
             BigDecimal actualDelivery = distributionCalculateService.calculateActualDeliveryForRegion(area, 
                 request.getDistribution().toArray(new BigDecimal[0]), request.getDeliveryMethod(), request.getDeliveryEtype(), null);
             
-            // 生成编码表达 - 基于当前区域的数据生成简化编码  
-            String encodedExpression = generateSingleAreaEncodedExpression(request, area);
+            // 编码表达由写入后的整体刷新生成（refreshDeployinfoCodes）
+            String encodedExpression = null;
             
             // 生成动态表名并更新记录
             String tableName = TableNameGeneratorUtil.generatePredictionTableName(request.getYear(), request.getMonth(), request.getWeekSeq());
@@ -489,8 +514,8 @@ public class DataManagementServiceImpl implements DataManagementService {
             BigDecimal actualDelivery = distributionCalculateService.calculateActualDeliveryForRegion(area, 
                 request.getDistribution().toArray(new BigDecimal[0]), request.getDeliveryMethod(), request.getDeliveryEtype(), null);
             
-            // 生成编码表达 - 基于当前区域的数据生成简化编码
-            String encodedExpression = generateSingleAreaEncodedExpression(request, area);
+            // 编码表达由写入后的整体刷新生成（refreshDeployinfoCodes）
+            String encodedExpression = null;
             
             // 生成动态表名并插入新记录
             String tableName = TableNameGeneratorUtil.generatePredictionTableName(request.getYear(), request.getMonth(), request.getWeekSeq());
@@ -557,76 +582,6 @@ public class DataManagementServiceImpl implements DataManagementService {
         return gradeData;
     }
     
-    /**
-     * 为单个区域生成编码表达
-     * 注意：这是简化版本，仅基于当前区域的数据，完整的编码应该考虑所有区域
-     */
-    private String generateSingleAreaEncodedExpression(UpdateCigaretteRequestDto request, String area) {
-        try {
-            // 构建单个区域的CigaretteDistributionPredictionData对象
-            CigaretteDistributionPredictionData record = new CigaretteDistributionPredictionData();
-            record.setCigCode(request.getCigCode());
-            record.setCigName(request.getCigName());
-            record.setDeliveryArea(area);
-            record.setDeliveryMethod(request.getDeliveryMethod());
-            record.setDeliveryEtype(request.getDeliveryEtype());
-            
-            // 设置30个档位的分配值
-            List<BigDecimal> distribution = request.getDistribution();
-            if (distribution != null && distribution.size() >= 30) {
-                record.setD30(distribution.get(0));
-                record.setD29(distribution.get(1));
-                record.setD28(distribution.get(2));
-                record.setD27(distribution.get(3));
-                record.setD26(distribution.get(4));
-                record.setD25(distribution.get(5));
-                record.setD24(distribution.get(6));
-                record.setD23(distribution.get(7));
-                record.setD22(distribution.get(8));
-                record.setD21(distribution.get(9));
-                record.setD20(distribution.get(10));
-                record.setD19(distribution.get(11));
-                record.setD18(distribution.get(12));
-                record.setD17(distribution.get(13));
-                record.setD16(distribution.get(14));
-                record.setD15(distribution.get(15));
-                record.setD14(distribution.get(16));
-                record.setD13(distribution.get(17));
-                record.setD12(distribution.get(18));
-                record.setD11(distribution.get(19));
-                record.setD10(distribution.get(20));
-                record.setD9(distribution.get(21));
-                record.setD8(distribution.get(22));
-                record.setD7(distribution.get(23));
-                record.setD6(distribution.get(24));
-                record.setD5(distribution.get(25));
-                record.setD4(distribution.get(26));
-                record.setD3(distribution.get(27));
-                record.setD2(distribution.get(28));
-                record.setD1(distribution.get(29));
-            }
-            
-            // 调用EncodeDecodeService生成编码表达（单区域版本）
-            List<CigaretteDistributionPredictionData> cigaretteRecords = Arrays.asList(record);
-            String encodedExpression = encodeDecodeService.encodeToString(
-                request.getCigCode(), 
-                request.getCigName(),
-                request.getDeliveryMethod(),
-                request.getDeliveryEtype(),
-                cigaretteRecords
-            );
-            
-            log.debug("单区域编码生成：{} - {} - {} -> {}", request.getCigCode(), request.getCigName(), area, encodedExpression);
-            
-            return encodedExpression;
-            
-        } catch (Exception e) {
-            log.error("生成单区域编码表达失败，卷烟: {} - {}, 区域: {}", 
-                     request.getCigCode(), request.getCigName(), area, e);
-            return ""; // 编码失败时返回空字符串
-        }
-    }
-    
     // ==================== 批量更新辅助方法 ====================
     
     /**
@@ -655,6 +610,7 @@ public class DataManagementServiceImpl implements DataManagementService {
     
     /**
      * 处理投放类型改变的批量更新：删除旧记录，重建新记录
+     * 先计算全部区域的新记录，最后执行一次删除和一次批量插入，预测表只在写入阶段加锁
      */
     private Map<String, Object> handleBatchDeliveryTypeChange(String cigCode, String cigName, 
                                                              Integer year, Integer month, Integer weekSeq,
@@ -665,29 +621,36 @@ public class DataManagementServiceImpl implements DataManagementService {
         try {
             log.info("投放类型发生变更，执行批量删除重建操作");
             
-            // 1. 删除动态预测表中该卷烟该日期的所有投放记录
-            String tableName = TableNameGeneratorUtil.generatePredictionTableName(year, month, weekSeq);
-            String deleteSql = String.format("DELETE FROM `%s` WHERE cig_code = ? AND cig_name = ?", tableName);
-            int deletedCount = jdbcTemplate.update(deleteSql, cigCode, cigName);
-            
-            log.info("已删除 {} 条旧投放记录", deletedCount);
-            
-            // 2. 根据新的编码表达式重建投放记录
-            int totalCreatedRecords = 0;
-            for (EncodeDecodeService.ParsedExpressionData parsedData : allParsedData) {
-                for (String deliveryArea : parsedData.getDeliveryAreas()) {
-                    boolean success = createNewRecordFromParsedData(cigCode, cigName, year, month, weekSeq,
-                                                                   parsedData, deliveryArea, remark);
-                    if (success) {
-                        totalCreatedRecords++;
-                    } else {
-                        log.error("重建区域 {} 的记录失败", deliveryArea);
-                    }
+            // 1. 根据新的编码表达式计算各区域的投放记录
+            Map<String, EncodeDecodeService.ParsedExpressionData> areaToDataMap = collectAreaData(allParsedData);
+            Map<String, Object[]> valuesByArea = new LinkedHashMap<>();
+            for (Map.Entry<String, EncodeDecodeService.ParsedExpressionData> entry : areaToDataMap.entrySet()) {
+                Object[] values = buildAreaRecordValues(cigCode, cigName, entry.getValue(), entry.getKey(), remark);
+                if (values == null) {
+                    // 任一区域计算失败时不写入任何区域
+                    markRollbackOnly();
+                    result.put("success", false);
+                    result.put("message", "投放类型变更失败: 区域 " + entry.getKey() + " 的记录计算失败");
+                    return result;
                 }
+                valuesByArea.put(entry.getKey(), values);
             }
             
-            log.info("已重建 {} 条投放记录，新投放类型: [{}, {}]", 
-                    totalCreatedRecords, allParsedData.get(0).getDeliveryMethod(), allParsedData.get(0).getDeliveryEtype());
+            // 编码表达按写入后的全部区域整体分组生成
+            fillEncodedExpressions(cigCode, cigName, areaToDataMap, valuesByArea);
+            List<Object[]> insertRows = new ArrayList<>();
+            for (Map.Entry<String, Object[]> entry : valuesByArea.entrySet()) {
+                insertRows.add(buildAreaInsertRow(cigCode, cigName, entry.getKey(), year, month, weekSeq, entry.getValue()));
+            }
+            
+            // 2. 删除该卷烟该日期的所有投放记录，批量插入新记录
+            String tableName = TableNameGeneratorUtil.generatePredictionTableName(year, month, weekSeq);
+            int deletedCount = jdbcTemplate.update(
+                    CigaretteDistributionSqlBuilder.buildDeleteCigaretteAllRecordsSql(tableName), cigCode, cigName);
+            int totalCreatedRecords = applyBatch(CigaretteDistributionSqlBuilder.buildAreaRecordInsertSql(tableName), insertRows);
+            
+            log.info("已删除 {} 条旧投放记录，已重建 {} 条投放记录，新投放类型: [{}, {}]", 
+                    deletedCount, totalCreatedRecords, allParsedData.get(0).getDeliveryMethod(), allParsedData.get(0).getDeliveryEtype());
             
             result.put("success", true);
             result.put("message", "投放类型变更完成，已重建投放记录");
@@ -697,6 +660,7 @@ public class DataManagementServiceImpl implements DataManagementService {
             
         } catch (Exception e) {
             log.error("处理投放类型变更时发生错误", e);
+            markRollbackOnly();
             result.put("success", false);
             result.put("message", "投放类型变更失败: " + e.getMessage());
         }
@@ -706,6 +670,7 @@ public class DataManagementServiceImpl implements DataManagementService {
     
     /**
      * 处理投放类型不变的批量增量更新：新增、更新、删除区域记录
+     * 先计算全部新增、更新和删除，最后以批量插入、批量更新和一条按区域列表删除写入
      */
     private Map<String, Object> handleBatchIncrementalUpdate(String cigCode, String cigName, 
                                                            Integer year, Integer month, Integer weekSeq,
@@ -718,56 +683,50 @@ public class DataManagementServiceImpl implements DataManagementService {
             
             // 1. 获取当前该卷烟该日期的所有投放区域
             List<String> currentAreas = getCurrentDeliveryAreas(cigCode, cigName, year, month, weekSeq);
-            
-            // 2. 收集所有编码表达式中的区域
-            Set<String> newAreasSet = new HashSet<>();
-            Map<String, EncodeDecodeService.ParsedExpressionData> areaToDataMap = new HashMap<>();
-            
-            for (EncodeDecodeService.ParsedExpressionData parsedData : allParsedData) {
-                for (String deliveryArea : parsedData.getDeliveryAreas()) {
-                    newAreasSet.add(deliveryArea);
-                    areaToDataMap.put(deliveryArea, parsedData);
+            Set<String> currentAreaSet = new HashSet<>(currentAreas);
+            
+            // 2. 收集所有编码表达式中的区域，计算新增和更新的记录
+            Map<String, EncodeDecodeService.ParsedExpressionData> areaToDataMap = collectAreaData(allParsedData);
+            Map<String, Object[]> valuesByArea = new LinkedHashMap<>();
+            
+            for (Map.Entry<String, EncodeDecodeService.ParsedExpressionData> entry : areaToDataMap.entrySet()) {
+                String area = entry.getKey();
+                Object[] values = buildAreaRecordValues(cigCode, cigName, entry.getValue(), area, remark);
+                if (values == null) {
+                    // 任一区域计算失败时不写入任何区域，避免该区域保留旧记录而其他区域已更新
+                    markRollbackOnly();
+                    result.put("success", false);
+                    result.put("message", "增量更新失败: 区域 " + area + " 的记录计算失败");
+                    return result;
                 }
+                valuesByArea.put(area, values);
             }
             
-            List<String> newAreas = new ArrayList<>(newAreasSet);
-            
-            // 3. 分别处理新增、更新和删除
-            int newCount = 0;
-            int updateCount = 0;
-            int deleteCount = 0;
-            
-            // 3.1 处理新增和更新
-            for (String area : newAreas) {
-                EncodeDecodeService.ParsedExpressionData parsedData = areaToDataMap.get(area);
-                
-                if (currentAreas.contains(area)) {
-                    // 更新已存在的区域
-                    boolean updateSuccess = updateExistingRecordFromParsedData(cigCode, cigName, year, month, weekSeq,
-                                                                              parsedData, area, remark);
-                    if (updateSuccess) updateCount++;
+            // 更新后卷烟的区域恰为写入的区域，编码表达按这些区域整体分组生成
+            fillEncodedExpressions(cigCode, cigName, areaToDataMap, valuesByArea);
+            List<Object[]> insertRows = new ArrayList<>();
+            List<Object[]> updateRows = new ArrayList<>();
+            for (Map.Entry<String, Object[]> entry : valuesByArea.entrySet()) {
+                String area = entry.getKey();
+                if (currentAreaSet.contains(area)) {
+                    updateRows.add(buildAreaUpdateRow(cigCode, cigName, area, year, month, weekSeq, entry.getValue()));
                 } else {
-                    // 新增区域记录
-                    boolean addSuccess = createNewRecordFromParsedData(cigCode, cigName, year, month, weekSeq,
-                                                                      parsedData, area, remark);
-                    if (addSuccess) newCount++;
+                    insertRows.add(buildAreaInsertRow(cigCode, cigName, area, year, month, weekSeq, entry.getValue()));
                 }
             }
             
-            // 3.2 删除表达式不存在而数据库存在的旧区域记录
+            // 3. 表达式不存在而数据库存在的旧区域
             List<String> areasToDelete = currentAreas.stream()
-                    .filter(area -> !newAreas.contains(area))
+                    .filter(area -> !areaToDataMap.containsKey(area))
                     .collect(java.util.stream.Collectors.toList());
             
-            // 生成动态表名
+            // 4. 批量写入新增、更新和删除
             String predictionTableName = TableNameGeneratorUtil.generatePredictionTableName(year, month, weekSeq);
-            
-            for (String areaToDelete : areasToDelete) {
-                // 使用动态表名删除区域记录
-                String deleteSql = String.format("DELETE FROM `%s` WHERE cig_code = ? AND cig_name = ? AND delivery_area = ?", predictionTableName);
-                int deletedCount = jdbcTemplate.update(deleteSql, cigCode, cigName, areaToDelete);
-                deleteCount += deletedCount;
-                log.info("删除旧区域 {} 的{}条记录", areaToDelete, deletedCount);
+            int newCount = applyBatch(CigaretteDistributionSqlBuilder.buildAreaRecordInsertSql(predictionTableName), insertRows);
+            int updateCount = applyBatch(CigaretteDistributionSqlBuilder.buildAreaRecordUpdateSql(predictionTableName), updateRows);
+            int deleteCount = deleteAreaRecords(predictionTableName, cigCode, cigName, areasToDelete);
+            if (!areasToDelete.isEmpty()) {
+                log.info("删除旧区域 {} 的{}条记录", areasToDelete, deleteCount);
             }
             
             result.put("success", true);
@@ -779,6 +738,7 @@ public class DataManagementServiceImpl implements DataManagementService {
             
         } catch (Exception e) {
             log.error("处理增量更新时发生错误", e);
+            markRollbackOnly();
             result.put("success", false);
             result.put("message", "增量更新失败: " + e.getMessage());
         }
@@ -787,73 +747,53 @@ public class DataManagementServiceImpl implements DataManagementService {
     }
     
     /**
-     * 根据解析的表达式数据创建新的投放记录
+     * 按区域收集解析数据，同一区域出现在多条表达式中时以后出现的为准
      */
-    private boolean createNewRecordFromParsedData(String cigCode, String cigName, 
-                                                 Integer year, Integer month, Integer weekSeq,
-                                                 EncodeDecodeService.ParsedExpressionData parsedData, 
-                                                 String deliveryArea, String remark) {
-        try {
-            // 构建档位数据
-            Map<String, BigDecimal> gradeData = buildGradeDataFromArray(parsedData.getGradeAllocations());
-            
-            // 计算该区域的实际投放量
-            BigDecimal actualDelivery = distributionCalculateService.calculateActualDeliveryForRegion(deliveryArea, 
-                parsedData.getGradeAllocations(), parsedData.getDeliveryMethod(), parsedData.getDeliveryEtype(), remark);
-            
-            // 生成编码表达
-            String encodedExpression = generateEncodedExpressionFromParsedData(cigCode, cigName, parsedData, deliveryArea);
-            
-            // 生成动态表名并插入新记录
-            String tableName = TableNameGeneratorUtil.generatePredictionTableName(year, month, weekSeq);
-            String insertSql = String.format("INSERT INTO `%s` (" +
-                "cig_code, cig_name, delivery_area, delivery_method, delivery_etype, year, month, week_seq, " +
-                "d30, d29, d28, d27, d26, d25, d24, d23, d22, d21, " +
-                "d20, d19, d18, d17, d16, d15, d14, d13, d12, d11, " +
-                "d10, d9, d8, d7, d6, d5, d4, d3, d2, d1, " +
-                "bz, actual_delivery, deployinfo_code) VALUES (" +
-                "?, ?, ?, ?, ?, ?, ?, ?, " +
-                "?, ?, ?, ?, ?, ?, ?, ?, ?, ?, " +
-                "?, ?, ?, ?, ?, ?, ?, ?, ?, ?, " +
-                "?, ?, ?, ?, ?, ?, ?, ?, ?, ?, " +
-                "?, ?, ?)", tableName);
-            
-            List<Object> params = new ArrayList<>();
-            params.add(cigCode);
-            params.add(cigName);
-            params.add(deliveryArea);
-            params.add(parsedData.getDeliveryMethod());
-            params.add(parsedData.getDeliveryEtype());
-            params.add(year);
-            params.add(month);
-            params.add(weekSeq);
-            
-            // 添加30个档位参数
-            for (int i = 30; i >= 1; i--) {
-                params.add(gradeData.get("d" + i));
+    private Map<String, EncodeDecodeService.ParsedExpressionData> collectAreaData(
+            List<EncodeDecodeService.ParsedExpressionData> allParsedData) {
+        Map<String, EncodeDecodeService.ParsedExpressionData> areaToDataMap = new LinkedHashMap<>();
+        for (EncodeDecodeService.ParsedExpressionData parsedData : allParsedData) {
+            for (String deliveryArea : parsedData.getDeliveryAreas()) {
+                areaToDataMap.put(deliveryArea, parsedData);
             }
-            params.add(remark);
-            params.add(actualDelivery);
-            params.add(encodedExpression);
-            
-            int insertedRows = jdbcTemplate.update(insertSql, params.toArray());
-            
-            log.debug("新增区域 {} 记录，影响行数: {}", deliveryArea, insertedRows);
-            return insertedRows > 0;
-            
-        } catch (Exception e) {
-            log.error("新增区域 {} 记录时发生错误", deliveryArea, e);
-            return false;
         }
+        return areaToDataMap;
     }
     
     /**
-     * 根据解析的表达式数据更新已存在的投放记录
+     * 按实际写入的全部区域生成各区域的编码表达（一次分组），填入各区域写入值的最后一项
+     * 只对valuesByArea中的区域分组，编码表达中的区域集合与写入后的记录一致
      */
-    private boolean updateExistingRecordFromParsedData(String cigCode, String cigName, 
-                                                      Integer year, Integer month, Integer weekSeq,
-                                                      EncodeDecodeService.ParsedExpressionData parsedData, 
-                                                      String deliveryArea, String remark) {
+    private void fillEncodedExpressions(String cigCode, String cigName,
+                                        Map<String, EncodeDecodeService.ParsedExpressionData> areaToDataMap,
+                                        Map<String, Object[]> valuesByArea) {
+        if (valuesByArea.isEmpty()) {
+            return;
+        }
+        List<CigaretteDistributionPredictionData> records = new ArrayList<>(valuesByArea.size());
+        for (String area : valuesByArea.keySet()) {
+            CigaretteDistributionPredictionData record = new CigaretteDistributionPredictionData();
+            record.setDeliveryArea(area);
+            GradeMatrixUtils.setGradesToEntity(record, areaToDataMap.get(area).getGradeAllocations());
+            records.add(record);
+        }
+        EncodeDecodeService.ParsedExpressionData first = areaToDataMap.get(valuesByArea.keySet().iterator().next());
+        Map<String, String> encodedByArea = encodeDecodeService.encodeByArea(
+                cigCode, cigName, first.getDeliveryMethod(), first.getDeliveryEtype(), records);
+        for (Map.Entry<String, Object[]> entry : valuesByArea.entrySet()) {
+            entry.getValue()[AREA_RECORD_VALUE_COUNT - 1] = encodedByArea.get(entry.getKey());
+        }
+    }
+    
+    /**
+     * 计算单个区域记录的写入值：投放方法、扩展投放类型、D30到D1、备注、实际投放量、编码表达式
+     * 编码表达式依赖同一卷烟的全部写入区域，此处留空，由fillEncodedExpressions统一填入
+     * 
+     * @return 写入值数组，计算失败时返回null
+     */
+    private Object[] buildAreaRecordValues(String cigCode, String cigName, 
+                                           EncodeDecodeService.ParsedExpressionData parsedData, 
+                                           String deliveryArea, String remark) {
         try {
             // 构建档位数据
             Map<String, BigDecimal> gradeData = buildGradeDataFromArray(parsedData.getGradeAllocations());
@@ -862,48 +802,137 @@ public class DataManagementServiceImpl implements DataManagementService {
             BigDecimal actualDelivery = distributionCalculateService.calculateActualDeliveryForRegion(deliveryArea, 
                 parsedData.getGradeAllocations(), parsedData.getDeliveryMethod(), parsedData.getDeliveryEtype(), remark);
             
-            // 生成编码表达
-            String encodedExpression = generateEncodedExpressionFromParsedData(cigCode, cigName, parsedData, deliveryArea);
-            
-            // 生成动态表名并更新记录
-            String tableName = TableNameGeneratorUtil.generatePredictionTableName(year, month, weekSeq);
-            String updateSql = String.format("UPDATE `%s` SET " +
-                "delivery_method=?, delivery_etype=?, " +
-                "d30=?, d29=?, d28=?, d27=?, d26=?, d25=?, d24=?, d23=?, d22=?, d21=?, " +
-                "d20=?, d19=?, d18=?, d17=?, d16=?, d15=?, d14=?, d13=?, d12=?, d11=?, " +
-                "d10=?, d9=?, d8=?, d7=?, d6=?, d5=?, d4=?, d3=?, d2=?, d1=?, " +
-                "bz=?, actual_delivery=?, deployinfo_code=? " +
-                "WHERE cig_code=? AND cig_name=? AND delivery_area=? AND year=? AND month=? AND week_seq=?", tableName);
-            
-            List<Object> params = new ArrayList<>();
-            // 添加投放类型参数
-            params.add(parsedData.getDeliveryMethod());
-            params.add(parsedData.getDeliveryEtype());
-            // 添加30个档位参数
+            Object[] values = new Object[AREA_RECORD_VALUE_COUNT];
+            int index = 0;
+            values[index++] = parsedData.getDeliveryMethod();
+            values[index++] = parsedData.getDeliveryEtype();
             for (int i = 30; i >= 1; i--) {
-                params.add(gradeData.get("d" + i));
+                values[index++] = gradeData.get("d" + i);
             }
-            params.add(remark);
-            params.add(actualDelivery);
-            params.add(encodedExpression);
-            params.add(cigCode);
-            params.add(cigName);
-            params.add(deliveryArea);
-            params.add(year);
-            params.add(month);
-            params.add(weekSeq);
-            
-            int updatedRows = jdbcTemplate.update(updateSql, params.toArray());
-            
-            log.debug("更新区域 {} 记录，影响行数: {}", deliveryArea, updatedRows);
-            return updatedRows > 0;
+            values[index++] = remark;
+            values[index] = actualDelivery;
+            return values;
             
         } catch (Exception e) {
-            log.error("更新区域 {} 记录时发生错误", deliveryArea, e);
-            return false;
+            log.error("计算区域 {} 记录时发生错误", deliveryArea, e);
+            return null;
+        }
+    }
+    
+    /**
+     * 插入参数：卷烟代码、名称、投放区域、年、月、周序号在前，写入值在后
+     */
+    private Object[] buildAreaInsertRow(String cigCode, String cigName, String deliveryArea,
+                                        Integer year, Integer month, Integer weekSeq, Object[] values) {
+        Object[] row = new Object[AREA_RECORD_KEY_COUNT + values.length];
+        fillAreaKey(row, 0, cigCode, cigName, deliveryArea, year, month, weekSeq);
+        System.arraycopy(values, 0, row, AREA_RECORD_KEY_COUNT, values.length);
+        return row;
+    }
+    
+    /**
+     * 更新参数：写入值在前，卷烟代码、名称、投放区域、年、月、周序号在后
+     */
+    private Object[] buildAreaUpdateRow(String cigCode, String cigName, String deliveryArea,
+                                        Integer year, Integer month, Integer weekSeq, Object[] values) {
+        Object[] row = new Object[values.length + AREA_RECORD_KEY_COUNT];
+        System.arraycopy(values, 0, row, 0, values.length);
+        fillAreaKey(row, values.length, cigCode, cigName, deliveryArea, year, month, weekSeq);
+        return row;
+    }
+    
+    private void fillAreaKey(Object[] row, int offset, String cigCode, String cigName, String deliveryArea,
+                             Integer year, Integer month, Integer weekSeq) {
+        row[offset] = cigCode;
+        row[offset + 1] = cigName;
+        row[offset + 2] = deliveryArea;
+        row[offset + 3] = year;
+        row[offset + 4] = month;
+        row[offset + 5] = weekSeq;
+    }
+    
+    /**
+     * 批量执行区域记录的插入或更新
+     * 
+     * @return 写入成功的区域数
+     */
+    private int applyBatch(String sql, List<Object[]> rows) {
+        if (rows.isEmpty()) {
+            return 0;
+        }
+        int applied = 0;
+        for (int affected : jdbcTemplate.batchUpdate(sql, rows)) {
+            if (affected > 0 || affected == Statement.SUCCESS_NO_INFO) {
+                applied++;
+            }
+        }
+        return applied;
+    }
+    
+    /**
+     * 以一条语句删除卷烟的多个投放区域记录
+     * 
+     * @return 删除的记录数
+     */
+    private int deleteAreaRecords(String tableName, String cigCode, String cigName, Collection<String> areas) {
+        if (areas.isEmpty()) {
+            return 0;
+        }
+        Object[] params = new Object[2 + areas.size()];
+        params[0] = cigCode;
+        params[1] = cigName;
+        int index = 2;
+        for (String area : areas) {
+            params[index++] = area;
+        }
+        return jdbcTemplate.update(CigaretteDistributionSqlBuilder.buildDeleteAreasSql(tableName, areas.size()), params);
+    }
+    
+    /**
+     * 按卷烟当前的全部区域记录重新分组编码，批量更新编码表达有变化的记录
+     * 区域档位或区域集合变化后，同组其他区域的DEPLOYINFO_CODE随之变化，查询时可直接使用存储的编码表达
+     * 
+     * @return 更新了编码表达的记录数
+     */
+    private int refreshDeployinfoCodes(String cigCode, String cigName, Integer year, Integer month, Integer weekSeq) {
+        String tableName = TableNameGeneratorUtil.generatePredictionTableName(year, month, weekSeq);
+        List<CigaretteDistributionPredictionData> records = new ArrayList<>();
+        for (Map<String, Object> row : jdbcTemplate.queryForList(
+                CigaretteDistributionSqlBuilder.buildCigaretteRecordsQuerySql(tableName), cigCode, cigName)) {
+            records.add(mapRowToEntity(row));
+        }
+        if (records.isEmpty()) {
+            return 0;
+        }
+        
+        CigaretteDistributionPredictionData first = records.get(0);
+        Map<String, String> encodedByArea = encodeDecodeService.encodeByArea(
+                cigCode, cigName, first.getDeliveryMethod(), first.getDeliveryEtype(), records);
+        List<Object[]> changedRows = new ArrayList<>();
+        for (CigaretteDistributionPredictionData record : records) {
+            String encodedExpression = encodedByArea.get(record.getDeliveryArea());
+            if (encodedExpression != null && !encodedExpression.equals(record.getDeployinfoCode())) {
+                changedRows.add(new Object[]{encodedExpression, cigCode, cigName, record.getDeliveryArea()});
+            }
+        }
+        if (changedRows.isEmpty()) {
+            return 0;
+        }
+        jdbcTemplate.batchUpdate(CigaretteDistributionSqlBuilder.buildUpdateDeployinfoCodeSql(tableName), changedRows);
+        log.debug("卷烟 {} - {} 重新编码，更新 {} 条编码表达", cigCode, cigName, changedRows.size());
+        return changedRows.size();
+    }
+    
+    /**
+     * 写入失败时回滚整个事务，避免只写入部分区域
+     */
+    private void markRollbackOnly() {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
         }
     }
     
+
     /**
      * 根据档位分配数组构建档位数据Map
      */
@@ -924,76 +953,6 @@ public class DataManagementServiceImpl implements DataManagementService {
         return gradeData;
     }
     
-    /**
-     * 根据解析数据生成编码表达
-     */
-    private String generateEncodedExpressionFromParsedData(String cigCode, String cigName, 
-                                                          EncodeDecodeService.ParsedExpressionData parsedData, 
-                                                          String deliveryArea) {
-        try {
-            // 构建单个区域的CigaretteDistributionPredictionData对象
-            CigaretteDistributionPredictionData record = new CigaretteDistributionPredictionData();
-            record.setCigCode(cigCode);
-            record.setCigName(cigName);
-            record.setDeliveryArea(deliveryArea);
-            record.setDeliveryMethod(parsedData.getDeliveryMethod());
-            record.setDeliveryEtype(parsedData.getDeliveryEtype());
-            
-            // 设置30个档位的分配值
-            BigDecimal[] gradeAllocations = parsedData.getGradeAllocations();
-            if (gradeAllocations != null && gradeAllocations.length >= 30) {
-                record.setD30(gradeAllocations[0]);
-                record.setD29(gradeAllocations[1]);
-                record.setD28(gradeAllocations[2]);
-                record.setD27(gradeAllocations[3]);
-                record.setD26(gradeAllocations[4]);
-                record.setD25(gradeAllocations[5]);
-                record.setD24(gradeAllocations[6]);
-                record.setD23(gradeAllocations[7]);
-                record.setD22(gradeAllocations[8]);
-                record.setD21(gradeAllocations[9]);
-                record.setD20(gradeAllocations[10]);
-                record.setD19(gradeAllocations[11]);
-                record.setD18(gradeAllocations[12]);
-                record.setD17(gradeAllocations[13]);
-                record.setD16(gradeAllocations[14]);
-                record.setD15(gradeAllocations[15]);
-                record.setD14(gradeAllocations[16]);
-                record.setD13(gradeAllocations[17]);
-                record.setD12(gradeAllocations[18]);
-                record.setD11(gradeAllocations[19]);
-                record.setD10(gradeAllocations[20]);
-                record.setD9(gradeAllocations[21]);
-                record.setD8(gradeAllocations[22]);
-                record.setD7(gradeAllocations[23]);
-                record.setD6(gradeAllocations[24]);
-                record.setD5(gradeAllocations[25]);
-                record.setD4(gradeAllocations[26]);
-                record.setD3(gradeAllocations[27]);
-                record.setD2(gradeAllocations[28]);
-                record.setD1(gradeAllocations[29]);
-            }
-            
-            // 调用EncodeDecodeService生成编码表达
-            List<CigaretteDistributionPredictionData> cigaretteRecords = Arrays.asList(record);
-            String encodedExpression = encodeDecodeService.encodeToString(
-                cigCode, 
-                cigName,
-                parsedData.getDeliveryMethod(),
-                parsedData.getDeliveryEtype(),
-                cigaretteRecords
-            );
-            
-            log.debug("生成编码表达：{} - {} - {} -> {}", cigCode, cigName, deliveryArea, encodedExpression);
-            
-            return encodedExpression;
-            
-        } catch (Exception e) {
-            log.error("生成编码表达失败，卷烟: {} - {}, 区域: {}", cigCode, cigName, deliveryArea, e);
-            return ""; // 编码失败时返回空字符串
-        }
-    }
-    
     // ==================== 查询服务方法实现 ====================
     
     /**
@@ -1008,10 +967,7 @@ public class DataManagementServiceImpl implements DataManagementService {
             log.debug("查询卷烟预测数据表: {}", tableName);
             
             // 检查表是否存在
-            String checkTableSql = "SELECT COUNT(*) FROM information_schema.tables WHERE table_schema = DATABASE() AND table_name = ?";
-            Integer tableExists = jdbcTemplate.queryForObject(checkTableSql, Integer.class, tableName);
-            
-            if (tableExists == null || tableExists == 0) {
+            if (!schemaCatalog.tableExists(tableName)) {
                 log.warn("表 {} 不存在，返回空列表", tableName);
                 return new ArrayList<>();
             }
@@ -1050,37 +1006,12 @@ public class DataManagementServiceImpl implements DataManagementService {
         data.setDeliveryMethod((String) row.get("DELIVERY_METHOD"));
         data.setDeliveryEtype((String) row.get("DELIVERY_ETYPE"));
         
-        // 映射30个档位
-        data.setD30(getBigDecimalFromMap(row, "D30"));
-        data.setD29(getBigDecimalFromMap(row, "D29"));
-        data.setD28(getBigDecimalFromMap(row, "D28"));
-        data.setD27(getBigDecimalFromMap(row, "D27"));
-        data.setD26(getBigDecimalFromMap(row, "D26"));
-        data.setD25(getBigDecimalFromMap(row, "D25"));
-        data.setD24(getBigDecimalFromMap(row, "D24"));
-        data.setD23(getBigDecimalFromMap(row, "D23"));
-        data.setD22(getBigDecimalFromMap(row, "D22"));
-        data.setD21(getBigDecimalFromMap(row, "D21"));
-        data.setD20(getBigDecimalFromMap(row, "D20"));
-        data.setD19(getBigDecimalFromMap(row, "D19"));
-        data.setD18(getBigDecimalFromMap(row, "D18"));
-        data.setD17(getBigDecimalFromMap(row, "D17"));
-        data.setD16(getBigDecimalFromMap(row, "D16"));
-        data.setD15(getBigDecimalFromMap(row, "D15"));
-        data.setD14(getBigDecimalFromMap(row, "D14"));
-        data.setD13(getBigDecimalFromMap(row, "D13"));
-        data.setD12(getBigDecimalFromMap(row, "D12"));
-        data.setD11(getBigDecimalFromMap(row, "D11"));
-        data.setD10(getBigDecimalFromMap(row, "D10"));
-        data.setD9(getBigDecimalFromMap(row, "D9"));
-        data.setD8(getBigDecimalFromMap(row, "D8"));
-        data.setD7(getBigDecimalFromMap(row, "D7"));
-        data.setD6(getBigDecimalFromMap(row, "D6"));
-        data.setD5(getBigDecimalFromMap(row, "D5"));
-        data.setD4(getBigDecimalFromMap(row, "D4"));
-        data.setD3(getBigDecimalFromMap(row, "D3"));
-        data.setD2(getBigDecimalFromMap(row, "D2"));
-        data.setD1(getBigDecimalFromMap(row, "D1"));
+        // 映射30个档位（一次构建档位向量）
+        BigDecimal[] grades = new BigDecimal[GradeMatrixUtils.GRADE_COUNT];
+        for (int i = 0; i < GradeMatrixUtils.GRADE_COUNT; i++) {
+            grades[i] = getBigDecimalFromMap(row, GradeMatrixUtils.GRADE_NAMES[i]);
+        }
+        data.setGrades(GradeVector.ofColumnValues(grades));
         
         data.setBz((String) row.get("bz"));
         data.setActualDelivery(getBigDecimalFromMap(row, "ACTUAL_DELIVERY"));
@@ -1149,10 +1080,7 @@ public class DataManagementServiceImpl implements DataManagementService {
             log.debug("查询卷烟投放基本信息，表名: {}, 卷烟: {} - {}", tableName, cigCode, cigName);
             
             // 检查表是否存在
-            String checkTableSql = "SELECT COUNT(*) FROM information_schema.tables WHERE table_schema = DATABASE() AND table_name = ?";
-            Integer tableExists = jdbcTemplate.queryForObject(checkTableSql, Integer.class, tableName);
-            
-            if (tableExists == null || tableExists == 0) {
+            if (!schemaCatalog.tableExists(tableName)) {
                 log.warn("表 {} 不存在，返回默认值", tableName);
                 result.put("advAmount", BigDecimal.ZERO);
                 result.put("deliveryMethod", "");
@@ -1204,10 +1132,7 @@ public class DataManagementServiceImpl implements DataManagementService {
             String tableName = TableNameGeneratorUtil.generatePredictionTableName(year, month, weekSeq);
             
             // 检查表是否存在和是否有数据需要删除
-            String checkTableSql = "SELECT COUNT(*) FROM information_schema.tables WHERE table_schema = DATABASE() AND table_name = ?";
-            Integer tableExists = jdbcTemplate.queryForObject(checkTableSql, Integer.class, tableName);
-            
-            if (tableExists == null || tableExists == 0) {
+            if (!schemaCatalog.tableExists(tableName)) {
                 log.info("表不存在: {}", tableName);
                 result.put("success", true);
                 result.put("message", "表不存在，无需删除");
@@ -1226,9 +1151,11 @@ public class DataManagementServiceImpl implements DataManagementService {
                 return result;
             }
             
-            // 执行删除操作
-            String deleteSql = String.format("DELETE FROM `%s`", tableName);
-            jdbcTemplate.update(deleteSql);
+            // 执行删除操作：统一分区表布局下删除该周分区，否则按行删除
+            if (predictionStorageService == null || !predictionStorageService.dropWeekPartition(year, month, weekSeq)) {
+                String deleteSql = String.format("DELETE FROM `%s`", tableName);
+                jdbcTemplate.update(deleteSql);
+            }
             
             log.info("成功删除{}年{}月第{}周的{}条分配数据", year, month, weekSeq, recordCount);
             
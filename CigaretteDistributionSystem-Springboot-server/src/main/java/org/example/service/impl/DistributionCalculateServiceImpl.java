@@ -1,21 +1,37 @@
 package org.example.service.impl;
 
 import lombok.extern.slf4j.Slf4j;
+import org.example.dto.SimulationRequestDto;
 import org.example.entity.CigaretteDistributionPredictionData;
+import org.example.service.CommonService;
 import org.example.service.DistributionCalculateService;
+import org.example.service.DistributionInputHashService;
 import org.example.service.EncodeDecodeService;
+import org.example.service.PredictionStorageService;
 import org.example.service.RegionClientNumDataService;
+import org.example.service.algorithm.AllocationFrontierCache;
+import org.example.service.algorithm.WarmStartSeeds;
+import org.example.service.strategy.AllocationMemoCache;
+import org.example.service.strategy.AllocationPolicyProperties;
+import org.example.service.strategy.DistributionExecutor;
 import org.example.service.strategy.DistributionStrategy;
 import org.example.service.strategy.DistributionStrategyManager;
 import org.example.util.*;
 
 import java.util.List;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
 
 import java.math.BigDecimal;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntPredicate;
 
 /**
  * 分配计算服务实现类
@@ -37,6 +53,45 @@ public class DistributionCalculateServiceImpl implements DistributionCalculateSe
     
     @Autowired
     private RegionClientNumDataService regionClientNumDataService;
+    
+    @Autowired
+    private AllocationMemoCache allocationMemoCache;
+    
+    @Autowired
+    private AllocationPolicyProperties allocationPolicyProperties;
+    
+    @Autowired
+    private DistributionInputHashService inputHashService;
+    
+    @Autowired
+    private RegionClientTableVersions regionClientTableVersions;
+    
+    @Autowired
+    private CommonService commonService;
+    
+    @Autowired
+    private DistributionExecutor distributionExecutor;
+
+    @Autowired
+    private PredictionStorageService predictionStorageService;
+
+    @Autowired
+    private SchemaCatalog schemaCatalog;
+    
+    @Autowired
+    private AllocationFrontierCache allocationFrontierCache;
+    
+    /**
+     * 未显式指定时是否以上一周分配方案热启动
+     */
+    @Value("${distribution.allocation.warm-start-enabled:false}")
+    private boolean warmStartEnabled;
+    
+    /**
+     * 不支持热启动的投放类型：市场类型按比例拆分后各自求解；城乡分类代码和业态算法的粗调过程假定从全零矩阵开始
+     */
+    private static final Set<String> WARM_START_UNSUPPORTED_ETYPES = new HashSet<>(Arrays.asList(
+            "档位+市场类型", "档位+城乡分类代码", "档位+业态"));
 
     
     // ==================== 一键生成分配方案并写回数据库服务 ====================
@@ -59,6 +114,21 @@ public class DistributionCalculateServiceImpl implements DistributionCalculateSe
     @Override
     public Map<String, Object> getAndwriteBackAllocationMatrix(Integer year, Integer month, Integer weekSeq, 
                                                               Map<String, BigDecimal> marketRatios) {
+        return getAndwriteBackAllocationMatrix(year, month, weekSeq, marketRatios, null);
+    }
+    
+    @Override
+    public Map<String, Object> getAndwriteBackAllocationMatrix(Integer year, Integer month, Integer weekSeq, 
+                                                              Map<String, BigDecimal> marketRatios,
+                                                              Boolean warmStart) {
+        return getAndwriteBackAllocationMatrix(year, month, weekSeq, marketRatios, warmStart, false);
+    }
+    
+    @Override
+    public Map<String, Object> getAndwriteBackAllocationMatrix(Integer year, Integer month, Integer weekSeq, 
+                                                              Map<String, BigDecimal> marketRatios,
+                                                              Boolean warmStart,
+                                                              Boolean incremental) {
         log.info("协调器：开始将分配矩阵写回数据库，年份: {}, 月份: {}, 周序号: {}", year, month, weekSeq);
         if (marketRatios != null && !marketRatios.isEmpty()) {
             log.info("接收市场类型比例参数 - 城网: {}, 农网: {}", 
@@ -74,10 +144,7 @@ public class DistributionCalculateServiceImpl implements DistributionCalculateSe
             log.debug("查询卷烟投放基本信息表: {}", tableName);
             
             // 检查表是否存在
-            String checkTableSql = CigaretteDistributionSqlBuilder.buildCheckTableExistsSql();
-            Integer tableExists = jdbcTemplate.queryForObject(checkTableSql, Integer.class, tableName);
-            
-            if (tableExists == null || tableExists == 0) {
+            if (!schemaCatalog.tableExists(tableName)) {
                 log.warn("表 {} 不存在，无法获取预投放量数据", tableName);
                 result.put("success", false);
                 result.put("message", "指定时间的卷烟投放基本信息表不存在: " + tableName);
@@ -103,153 +170,100 @@ public class DistributionCalculateServiceImpl implements DistributionCalculateSe
                 log.debug("  所有字段: {}", firstRecord.keySet());
             }
             
-            int successCount = 0;
-            int totalCount = 0;
+            // 相同分配问题（策略、目标区域、客户数矩阵版本、预投放量、比例均相同）在本次运行内只计算一次
+            RunContext ctx = new RunContext(year, month, weekSeq, marketRatios);
+            // 一键生成重新检查各区域客户数表的内容版本，不沿用间隔内的检查结果
+            regionClientTableVersions.invalidateAll();
+            ctx.allocationMemo = allocationMemoCache.beginRun();
             
-            // 处理每个卷烟
-            for (Map<String, Object> advData : advDataList) {
-                totalCount++;
-                // 初始化结果对象
-                Map<String, Object> cigResult = new HashMap<>();
-                
-                // 清洗和验证卷烟代码，处理格式不规范的数据
-                String rawCigCode = (String) advData.get("cig_code");
-                String cigName = (String) advData.get("cig_name");
-                String cigCode;
-                
-                // 设置基本信息到结果中（先用原始数据）
-                cigResult.put("cigCode", rawCigCode);
-                cigResult.put("cigName", cigName);
-                
-                try {
-                    cigCode = DistributionValidationUtils.sanitizeAndValidateCigaretteCode(rawCigCode, cigName);
-                    // 更新清洗后的代码到原数据中，确保后续使用的都是清洗后的代码
-                    advData.put("cig_code", cigCode);
-                    // 更新结果中的代码为清洗后的代码
-                    cigResult.put("cigCode", cigCode);
-                } catch (IllegalArgumentException e) {
-                    log.error("卷烟数据验证失败: 代码[{}] 名称[{}], 错误: {}", rawCigCode, cigName, e.getMessage());
-                    cigResult.put("writeBackStatus", "跳过");
-                    cigResult.put("writeBackMessage", "卷烟数据格式错误: " + e.getMessage());
-                    writeBackResults.add(cigResult);
-                    continue;
+            // 热启动：加载上一周预测表中的分配方案，按 卷烟代码|卷烟名称 -> 投放区域 -> 档位 组织
+            String warmStartTable = null;
+            if ((warmStart != null ? warmStart : warmStartEnabled) && isFrontierEnabled()) {
+                // 支持热启动的区县和全市统一投放算法在分配前沿可用时直接由前沿求解，初始解不会被使用
+                log.info("热启动：分配前沿已启用，区县和全市统一投放由前沿直接求解，不加载上周分配方案");
+            } else if (warmStart != null ? warmStart : warmStartEnabled) {
+                warmStartTable = findPreviousPredictionTable(year, month, weekSeq);
+                if (warmStartTable != null) {
+                    ctx.previousPlans = loadPreviousPlans(warmStartTable);
+                    log.info("热启动：从表 {} 加载{}种卷烟的上周分配方案", warmStartTable, ctx.previousPlans.size());
+                } else {
+                    log.info("热启动：未找到{}年{}月第{}周之前的预测表，全部卷烟从零开始计算", year, month, weekSeq);
                 }
-                BigDecimal adv = (BigDecimal) advData.get("adv");
-                String deliveryArea = (String) advData.get("delivery_area");
-                String deliveryEtype = (String) advData.get("delivery_etype");
-                
-                // 调试日志：检查从cigarette_distribution_info表读取的关键字段值
-                log.debug("处理卷烟: {} - {}, delivery_etype: {}", cigCode, cigName, deliveryEtype);
-                // 从cigarette_distribution_info表中获取对应的日期信息
-                // 处理year字段可能是Date类型的情况
-                // 使用RowMapper工具类提取数据，避免重复的类型转换代码
-                Integer cigYear = CigaretteDistributionRowMapper.extractYear(advData, "year");
-                Integer cigMonth = CigaretteDistributionRowMapper.extractInteger(advData, "month");
-                Integer cigWeekSeq = CigaretteDistributionRowMapper.extractInteger(advData, "week_seq");
-                
-                // 设置其他信息到结果中
-                cigResult.put("adv", adv);
-                cigResult.put("deliveryArea", deliveryArea);
-                cigResult.put("deliveryEtype", deliveryEtype);
-                cigResult.put("advYear", cigYear);
-                cigResult.put("advMonth", cigMonth);
-                cigResult.put("advWeekSeq", cigWeekSeq);
-                    
-                try {
-                    if (deliveryArea != null && !deliveryArea.trim().isEmpty()) {
-                        // 根据投放方式和扩展投放类型委托给对应的服务处理
-                        List<String> targetList;
-                        BigDecimal[][] allocationMatrix;
-                        String deliveryMethod = (String) advData.get("delivery_method");
-                        String remark = (String) advData.get("remark");  // 获取备注字段
-                        
-                        // 调试日志：检查关键字段值
-                        log.debug("卷烟: {} - {}, deliveryMethod: {}, deliveryEtype: {}, remark: {}", 
-                                 cigCode, cigName, deliveryMethod, deliveryEtype, remark);
-                        
-                        // 使用策略模式处理不同的投放类型
-                        try {
-                            DistributionStrategy strategy = strategyManager.getStrategy(deliveryMethod, deliveryEtype);
-                            
-                            // 获取目标列表
-                            targetList = strategy.getTargetList(deliveryArea);
-                            
-                            // 构建额外参数（用于档位+市场类型的比例参数）
-                            java.util.Map<String, Object> extraParams = new java.util.HashMap<>();
-                            if ("档位+市场类型".equals(deliveryEtype) && marketRatios != null) {
-                                // 从方法参数中读取城网和农网比例（前端传入）
-                                BigDecimal urbanRatioParam = marketRatios.get("urbanRatio");
-                                BigDecimal ruralRatioParam = marketRatios.get("ruralRatio");
-                                
-                                if (urbanRatioParam != null && ruralRatioParam != null) {
-                                    extraParams.put("urbanRatio", urbanRatioParam);
-                                    extraParams.put("ruralRatio", ruralRatioParam);
-                                    log.debug("卷烟: {} - {}, 使用前端传入的市场类型比例 - 城网: {}, 农网: {}", 
-                                             cigCode, cigName, urbanRatioParam, ruralRatioParam);
-                                }
-                            }
-                            
-                            // 计算分配矩阵（传递额外参数）
-                            allocationMatrix = strategy.calculateMatrix(targetList, adv, extraParams);
-                            
-                            // 设置结果信息
-                            cigResult.put("targetType", strategy.getTargetTypeDescription());
-                            cigResult.put("algorithm", strategy.getAlgorithmName());
-                            
-                        } catch (IllegalArgumentException e) {
-                            log.warn("不支持的投放类型组合: 投放方法={}, 投放类型={}, 错误: {}", 
-                                   deliveryMethod, deliveryEtype, e.getMessage());
-                            targetList = new ArrayList<>();
-                            allocationMatrix = null;
-                            cigResult.put("targetType", "不支持的类型");
-                            cigResult.put("algorithm", "无");
-                        } catch (RuntimeException e) {
-                            log.error("算法计算失败: 投放方法={}, 投放类型={}, 错误: {}", 
-                                    deliveryMethod, deliveryEtype, e.getMessage(), e);
-                            targetList = new ArrayList<>();
-                            allocationMatrix = null;
-                            cigResult.put("targetType", "算法错误");
-                            cigResult.put("algorithm", "N/A");
-                        }
-                        
-                        if (!targetList.isEmpty() && allocationMatrix != null) {
-                            // 写回数据库，使用cigarette_distribution_info表中的日期信息
-                            boolean writeBackSuccess = writeBackToDatabase(allocationMatrix, targetList, 
-                                cigCode, cigName, cigYear, cigMonth, cigWeekSeq, deliveryMethod, deliveryEtype, remark);
-                            
-                            if (writeBackSuccess) {
-                                successCount++;
-                                cigResult.put("writeBackStatus", "成功");
-                                cigResult.put("writeBackMessage", "分配矩阵已成功写回数据库");
-                            } else {
-                                cigResult.put("writeBackStatus", "失败");
-                                cigResult.put("writeBackMessage", "分配矩阵写回数据库失败");
-                            }
-                        } else {
-                            cigResult.put("writeBackStatus", "跳过");
-                            cigResult.put("writeBackMessage", "未找到匹配的投放目标");
-                        }
-                    } else {
-                        cigResult.put("writeBackStatus", "跳过");
-                        cigResult.put("writeBackMessage", "投放区域为空");
+            }
+            
+            // 增量生成：输入摘要与上次写回时一致、且预测表中仍有数据的卷烟保留原结果，不重新计算
+            ctx.incrementalMode = Boolean.TRUE.equals(incremental);
+            ctx.predictionTableName = TableNameGeneratorUtil.generatePredictionTableName(year, month, weekSeq);
+            if (ctx.incrementalMode) {
+                ctx.storedInputHashes = inputHashService.loadInputHashes(year, month, weekSeq);
+                ctx.existingCigarettes = loadExistingCigarettes(ctx.predictionTableName);
+            }
+            
+            // 并行模式下各卷烟任务同时写回，预先建好预测表，避免并发建表；
+            // 预先加载用到的区域列表和客户数矩阵，算法线程池中不再因缓存未命中而绕过数据库并发许可读表
+            if (distributionExecutor.isParallel()) {
+                ensurePredictionTableExists(ctx.predictionTableName);
+                Set<String> warmedTypes = new HashSet<>();
+                for (Map<String, Object> advData : advDataList) {
+                    if (warmedTypes.add(advData.get("delivery_method") + "|" + advData.get("delivery_etype"))) {
+                        distributionExecutor.withDatabase(() -> warmRegionCaches(advData));
                     }
-                    
-                } catch (Exception e) {
-                    log.error("处理卷烟 {} 时发生错误", cigCode, e);
-                    cigResult.put("writeBackStatus", "错误");
-                    cigResult.put("writeBackMessage", "处理过程中发生错误: " + e.getMessage());
                 }
-                
-                writeBackResults.add(cigResult);
             }
             
+            // 处理每个卷烟（并行模式下每种卷烟一个任务，结果按投放基本信息表顺序返回）
+            List<Callable<Map<String, Object>>> tasks = new ArrayList<>(advDataList.size());
+            for (Map<String, Object> advData : advDataList) {
+                tasks.add(() -> processCigarette(advData, ctx));
+            }
+            writeBackResults.addAll(distributionExecutor.invokeAll(tasks));
+            
+            int totalCount = writeBackResults.size();
+            int successCount = 0;
+            int unchangedCount = 0;
+            int warmStartCount = 0;
+            for (Map<String, Object> cigResult : writeBackResults) {
+                Object status = cigResult.get("writeBackStatus");
+                if ("成功".equals(status) || "未变更".equals(status)) {
+                    successCount++;
+                }
+                if ("未变更".equals(status)) {
+                    unchangedCount++;
+                }
+                if (Boolean.TRUE.equals(cigResult.get("warmStart"))) {
+                    warmStartCount++;
+                }
+            }
+            
+            // 增量生成：删除投放基本信息表中已不存在的卷烟
+            int removedCount = 0;
+            for (Map.Entry<String, String[]> existing : ctx.existingCigarettes.entrySet()) {
+                if (!ctx.currentCigarettes.contains(existing.getKey())) {
+                    deleteExistingCigaretteRecords(ctx.predictionTableName, existing.getValue()[0], existing.getValue()[1]);
+                    updateInputHash(year, month, weekSeq, existing.getValue()[0], existing.getValue()[1], null);
+                    removedCount++;
+                }
+            }
+            
+            AllocationMemoCache.RunMemo allocationMemo = ctx.allocationMemo;
             result.put("success", true);
             result.put("message", String.format("分配矩阵写回完成，成功: %d/%d", successCount, totalCount));
             result.put("totalCount", totalCount);
             result.put("successCount", successCount);
             result.put("results", writeBackResults);
+            result.put("allocationMemo", allocationMemo.getStats());
+            result.put("warmStartTable", warmStartTable);
+            result.put("warmStartCount", warmStartCount);
+            result.put("incremental", ctx.incrementalMode);
+            result.put("unchangedCount", unchangedCount);
+            result.put("removedCount", removedCount);
+            result.put("execution", distributionExecutor.getStats());
+            result.put("encodingCache", encodeDecodeService.getCacheStats());
+            DistributionRunReport.recordAllocationMemo(allocationMemo.getStats());
+            DistributionRunReport.recordExecution(distributionExecutor.getStats());
             
-            log.info("分配矩阵写回完成，成功: {}/{}", successCount, totalCount);
+            log.info("分配矩阵写回完成，成功: {}/{}（未变更: {}，移除: {}），分配记忆化: {}", 
+                    successCount, totalCount, unchangedCount, removedCount, allocationMemo.getStats());
             
         } catch (Exception e) {
             log.error("分配矩阵写回过程中发生错误", e);
@@ -260,10 +274,550 @@ public class DistributionCalculateServiceImpl implements DistributionCalculateSe
         return result;
     }
     
+    /**
+     * 一键生成中单个卷烟的处理：数据清洗、增量判断、算法计算、写回和输入摘要
+     * 并行模式下在I/O任务线程上运行，数据库步骤受并发许可限制，算法计算在算法线程池中执行
+     * 
+     * @return 该卷烟的处理结果（writeBackStatus为成功/失败/跳过/错误/未变更）
+     */
+    private Map<String, Object> processCigarette(Map<String, Object> advData, RunContext ctx) {
+        // 初始化结果对象
+        Map<String, Object> cigResult = new HashMap<>();
+        
+        // 清洗和验证卷烟代码，处理格式不规范的数据
+        String rawCigCode = (String) advData.get("cig_code");
+        String cigName = (String) advData.get("cig_name");
+        String cigCode;
+        
+        // 设置基本信息到结果中（先用原始数据）
+        cigResult.put("cigCode", rawCigCode);
+        cigResult.put("cigName", cigName);
+        
+        try {
+            cigCode = DistributionValidationUtils.sanitizeAndValidateCigaretteCode(rawCigCode, cigName);
+            // 更新清洗后的代码到原数据中，确保后续使用的都是清洗后的代码
+            advData.put("cig_code", cigCode);
+            // 更新结果中的代码为清洗后的代码
+            cigResult.put("cigCode", cigCode);
+        } catch (IllegalArgumentException e) {
+            log.error("卷烟数据验证失败: 代码[{}] 名称[{}], 错误: {}", rawCigCode, cigName, e.getMessage());
+            cigResult.put("writeBackStatus", "跳过");
+            cigResult.put("writeBackMessage", "卷烟数据格式错误: " + e.getMessage());
+            return cigResult;
+        }
+        BigDecimal adv = (BigDecimal) advData.get("adv");
+        String deliveryArea = (String) advData.get("delivery_area");
+        String deliveryEtype = (String) advData.get("delivery_etype");
+        
+        // 调试日志：检查从cigarette_distribution_info表读取的关键字段值
+        log.debug("处理卷烟: {} - {}, delivery_etype: {}", cigCode, cigName, deliveryEtype);
+        // 从cigarette_distribution_info表中获取对应的日期信息
+        // 处理year字段可能是Date类型的情况
+        // 使用RowMapper工具类提取数据，避免重复的类型转换代码
+        Integer cigYear = CigaretteDistributionRowMapper.extractYear(advData, "year");
+        Integer cigMonth = CigaretteDistributionRowMapper.extractInteger(advData, "month");
+        Integer cigWeekSeq = CigaretteDistributionRowMapper.extractInteger(advData, "week_seq");
+        
+        // 设置其他信息到结果中
+        cigResult.put("adv", adv);
+        cigResult.put("deliveryArea", deliveryArea);
+        cigResult.put("deliveryEtype", deliveryEtype);
+        cigResult.put("advYear", cigYear);
+        cigResult.put("advMonth", cigMonth);
+        cigResult.put("advWeekSeq", cigWeekSeq);
+        
+        String cigaretteKey = cigCode + "|" + cigName;
+        ctx.currentCigarettes.add(cigaretteKey);
+        String inputHash = distributionExecutor.withDatabase(() -> {
+            // 客户数表版本超过检查间隔时在此重新读表，算法计算时区域列表和客户数矩阵均命中缓存
+            warmRegionCaches(advData);
+            return computeInputHash(advData, ctx.marketRatios, ctx.clientTableHashes);
+        });
+        if (ctx.incrementalMode && inputHash != null && inputHash.equals(ctx.storedInputHashes.get(cigaretteKey))
+                && ctx.existingCigarettes.containsKey(cigaretteKey)) {
+            cigResult.put("writeBackStatus", "未变更");
+            cigResult.put("writeBackMessage", "输入数据未变化，保留已有分配结果");
+            return cigResult;
+        }
+        
+        // 运行报告：开始记录该卷烟的耗时
+        DistributionRunReport.startCigarette(cigCode, cigName, (String) advData.get("delivery_method"), deliveryEtype);
+            
+        try {
+            if (deliveryArea != null && !deliveryArea.trim().isEmpty()) {
+                // 根据投放方式和扩展投放类型委托给对应的服务处理
+                List<String> targetList;
+                BigDecimal[][] allocationMatrix;
+                String deliveryMethod = (String) advData.get("delivery_method");
+                String remark = (String) advData.get("remark");  // 获取备注字段
+                
+                // 调试日志：检查关键字段值
+                log.debug("卷烟: {} - {}, deliveryMethod: {}, deliveryEtype: {}, remark: {}", 
+                         cigCode, cigName, deliveryMethod, deliveryEtype, remark);
+                
+                // 使用策略模式处理不同的投放类型
+                long computeStart = System.nanoTime();
+                try {
+                    DistributionStrategy strategy = strategyManager.getStrategy(deliveryMethod, deliveryEtype);
+                    
+                    // 获取目标列表
+                    targetList = strategy.getTargetList(deliveryArea);
+                    
+                    // 构建额外参数（用于档位+市场类型的比例参数）
+                    Map<String, Object> extraParams = buildMarketRatioParams(deliveryEtype, ctx.marketRatios);
+                    
+                    // 热启动：上周同一卷烟投放区域组合一致时，以其分配方案作为初始解
+                    BigDecimal[][] warmStartSeed = WARM_START_UNSUPPORTED_ETYPES.contains(deliveryEtype) ? null
+                            : buildWarmStartSeed(ctx.previousPlans.get(cigaretteKey), targetList);
+                    if (warmStartSeed != null) {
+                        extraParams.put(WarmStartSeeds.EXTRA_PARAM_KEY, warmStartSeed);
+                        cigResult.put("warmStart", true);
+                    }
+                    
+                    // 计算分配矩阵（传递额外参数，相同问题复用已有结果），按投放类型的截止时间和误差预算停止迭代
+                    List<String> targets = targetList;
+                    ComputedAllocation computed = distributionExecutor.compute(() -> {
+                        ComputedAllocation allocation = new ComputedAllocation();
+                        AllocationBudget.begin(allocationPolicyProperties.resolve(strategy.getDeliveryType()));
+                        try {
+                            allocation.matrix = ctx.allocationMemo.calculate(strategy, targets, adv, extraParams);
+                            allocation.source = ctx.allocationMemo.getLastSource();
+                        } finally {
+                            allocation.outcome = AllocationBudget.end();
+                        }
+                        return allocation;
+                    });
+                    allocationMatrix = computed.matrix;
+                    Map<String, Object> allocationOutcome = computed.outcome;
+                    
+                    // 设置结果信息
+                    cigResult.put("targetType", strategy.getTargetTypeDescription());
+                    cigResult.put("algorithm", strategy.getAlgorithmName());
+                    cigResult.put("allocationSource", computed.source);
+                    cigResult.put("allocationPolicy", allocationOutcome.get("policy"));
+                    cigResult.put("stopReason", allocationOutcome.get("stopReason"));
+                    cigResult.put("achievedError", allocationOutcome.get("achievedError"));
+                    if (AllocationBudget.STOP_DEADLINE.equals(allocationOutcome.get("stopReason"))) {
+                        log.warn("卷烟: {} - {} 分配计算超过截止时间，在 {} 阶段返回当前最优结果，误差: {}",
+                                cigCode, cigName, allocationOutcome.get("stopPhase"), allocationOutcome.get("achievedError"));
+                    }
+                    
+                } catch (IllegalArgumentException e) {
+                    log.warn("不支持的投放类型组合: 投放方法={}, 投放类型={}, 错误: {}", 
+                           deliveryMethod, deliveryEtype, e.getMessage());
+                    targetList = new ArrayList<>();
+                    allocationMatrix = null;
+                    cigResult.put("targetType", "不支持的类型");
+                    cigResult.put("algorithm", "无");
+                } catch (RuntimeException e) {
+                    log.error("算法计算失败: 投放方法={}, 投放类型={}, 错误: {}", 
+                            deliveryMethod, deliveryEtype, e.getMessage(), e);
+                    targetList = new ArrayList<>();
+                    allocationMatrix = null;
+                    cigResult.put("targetType", "算法错误");
+                    cigResult.put("algorithm", "N/A");
+                }
+                DistributionRunReport.recordComputeTime(System.nanoTime() - computeStart, targetList.size());
+                
+                if (!targetList.isEmpty() && allocationMatrix != null) {
+                    // 写回数据库，使用cigarette_distribution_info表中的日期信息
+                    long writeBackStart = System.nanoTime();
+                    List<String> targets = targetList;
+                    BigDecimal[][] matrix = allocationMatrix;
+                    boolean writeBackSuccess = distributionExecutor.withDatabase(() -> writeBackToDatabase(matrix, targets,
+                        cigCode, cigName, cigYear, cigMonth, cigWeekSeq, deliveryMethod, deliveryEtype, remark));
+                    DistributionRunReport.recordWriteBackTime(System.nanoTime() - writeBackStart);
+                    
+                    if (writeBackSuccess) {
+                        cigResult.put("writeBackStatus", "成功");
+                        cigResult.put("writeBackMessage", "分配矩阵已成功写回数据库");
+                    } else {
+                        cigResult.put("writeBackStatus", "失败");
+                        cigResult.put("writeBackMessage", "分配矩阵写回数据库失败");
+                    }
+                } else {
+                    cigResult.put("writeBackStatus", "跳过");
+                    cigResult.put("writeBackMessage", "未找到匹配的投放目标");
+                }
+            } else {
+                cigResult.put("writeBackStatus", "跳过");
+                cigResult.put("writeBackMessage", "投放区域为空");
+            }
+            
+        } catch (Exception e) {
+            log.error("处理卷烟 {} 时发生错误", cigCode, e);
+            cigResult.put("writeBackStatus", "错误");
+            cigResult.put("writeBackMessage", "处理过程中发生错误: " + e.getMessage());
+        }
+        
+        // 记录输入摘要：写回成功的卷烟保存摘要，其余清除（下次增量生成时重新计算）
+        boolean written = "成功".equals(cigResult.get("writeBackStatus"));
+        distributionExecutor.withDatabase(() -> {
+            updateInputHash(ctx.year, ctx.month, ctx.weekSeq, cigCode, cigName, written ? inputHash : null);
+            if (ctx.incrementalMode && !written && ctx.existingCigarettes.containsKey(cigaretteKey)) {
+                // 与整周重新生成保持一致：本次未能写回的卷烟不保留旧结果
+                deleteExistingCigaretteRecords(ctx.predictionTableName, cigCode, cigName);
+            }
+            return null;
+        });
+        
+        DistributionRunReport.finishCigarette((String) cigResult.get("writeBackStatus"));
+        return cigResult;
+    }
+    
+    /**
+     * 一键生成的运行上下文（各卷烟任务共享，并行模式下可变集合为并发安全的实现）
+     */
+    private static final class RunContext {
+        private final Integer year;
+        private final Integer month;
+        private final Integer weekSeq;
+        private final Map<String, BigDecimal> marketRatios;
+        private AllocationMemoCache.RunMemo allocationMemo;
+        private Map<String, Map<String, BigDecimal[]>> previousPlans = Collections.emptyMap();
+        private boolean incrementalMode;
+        private String predictionTableName;
+        private Map<String, String> storedInputHashes = Collections.emptyMap();
+        private Map<String, String[]> existingCigarettes = Collections.emptyMap();
+        private final Map<String, String> clientTableHashes = new ConcurrentHashMap<>();
+        private final Set<String> currentCigarettes = ConcurrentHashMap.newKeySet();
+        
+        private RunContext(Integer year, Integer month, Integer weekSeq, Map<String, BigDecimal> marketRatios) {
+            this.year = year;
+            this.month = month;
+            this.weekSeq = weekSeq;
+            this.marketRatios = marketRatios;
+        }
+    }
+    
+    
+    /**
+     * 算法计算结果（分配矩阵、来源、分配策略执行情况），由算法线程返回给卷烟任务
+     */
+    private static final class ComputedAllocation {
+        private BigDecimal[][] matrix;
+        private String source;
+        private Map<String, Object> outcome;
+    }
+    
+    // ==================== 分布式任务项处理 ====================
+    
+    @Override
+    public List<Map<String, Object>> allocateCigarettes(Integer year, Integer month, Integer weekSeq,
+                                                        List<String[]> cigarettes, Map<String, BigDecimal> marketRatios) {
+        return allocateCigarettes(year, month, weekSeq, cigarettes, marketRatios, index -> true);
+    }
+    
+    @Override
+    public List<Map<String, Object>> allocateCigarettes(Integer year, Integer month, Integer weekSeq,
+                                                        List<String[]> cigarettes, Map<String, BigDecimal> marketRatios,
+                                                        IntPredicate beforeCigarette) {
+        String infoTableName = TableNameGeneratorUtil.generateDistributionInfoTableName(year, month, weekSeq);
+        CigaretteDistributionSqlBuilder.validateSqlComponents(infoTableName, null);
+        String advDataSql = CigaretteDistributionSqlBuilder.buildSingleAdvDataQuerySql(infoTableName, year, month, weekSeq);
+        
+        RunContext ctx = new RunContext(year, month, weekSeq, marketRatios);
+        ctx.allocationMemo = allocationMemoCache.beginRun();
+        ctx.predictionTableName = TableNameGeneratorUtil.generatePredictionTableName(year, month, weekSeq);
+        ensurePredictionTableExists(ctx.predictionTableName);
+        
+        List<Map<String, Object>> results = new ArrayList<>(cigarettes.size());
+        for (int index = 0; index < cigarettes.size(); index++) {
+            String[] cigarette = cigarettes.get(index);
+            if (!beforeCigarette.test(index)) {
+                Map<String, Object> cigResult = new HashMap<>();
+                cigResult.put("cigCode", cigarette[0]);
+                cigResult.put("cigName", cigarette[1]);
+                cigResult.put("writeBackStatus", "跳过");
+                cigResult.put("writeBackMessage", "调用方取消了该卷烟的处理");
+                results.add(cigResult);
+                continue;
+            }
+            List<Map<String, Object>> advDataList = jdbcTemplate.queryForList(advDataSql, cigarette[0], cigarette[1]);
+            if (advDataList.isEmpty()) {
+                Map<String, Object> cigResult = new HashMap<>();
+                cigResult.put("cigCode", cigarette[0]);
+                cigResult.put("cigName", cigarette[1]);
+                cigResult.put("writeBackStatus", "跳过");
+                cigResult.put("writeBackMessage", "投放基本信息表中未找到该卷烟");
+                results.add(cigResult);
+                continue;
+            }
+            results.add(processCigarette(advDataList.get(0), ctx));
+        }
+        return results;
+    }
+    
+    // ==================== 单卷烟重新计算服务 ====================
+    
+    /**
+     * 重新计算单个卷烟的分配方案并写回
+     * 与一键生成中的单卷烟处理流程一致（策略选择、记忆化、分配策略、写回、输入摘要），
+     * 区域列表和客户数矩阵使用缓存，写回在一个事务内完成，失败时回滚该卷烟的删除和插入
+     */
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public Map<String, Object> recalculateCigarette(Integer year, Integer month, Integer weekSeq,
+                                                    String cigCode, String cigName,
+                                                    Map<String, BigDecimal> marketRatios) {
+        long start = System.nanoTime();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("cigCode", cigCode);
+        result.put("cigName", cigName);
+        
+        // 1. 读取该卷烟的预投放量数据
+        String infoTableName = TableNameGeneratorUtil.generateDistributionInfoTableName(year, month, weekSeq);
+        CigaretteDistributionSqlBuilder.validateSqlComponents(infoTableName, null);
+        List<Map<String, Object>> advDataList;
+        try {
+            advDataList = jdbcTemplate.queryForList(
+                    CigaretteDistributionSqlBuilder.buildSingleAdvDataQuerySql(infoTableName, year, month, weekSeq), cigCode, cigName);
+        } catch (DataAccessException e) {
+            log.warn("查询卷烟投放基本信息失败，表: {}, 错误: {}", infoTableName, e.getMessage());
+            advDataList = Collections.emptyList();
+        }
+        if (advDataList.isEmpty()) {
+            result.put("success", false);
+            result.put("message", String.format("表 %s 中未找到卷烟: %s - %s", infoTableName, cigCode, cigName));
+            return result;
+        }
+        Map<String, Object> advData = advDataList.get(0);
+        
+        // 与一键生成相同，摘要和写回使用清洗后的卷烟代码
+        try {
+            cigCode = DistributionValidationUtils.sanitizeAndValidateCigaretteCode(cigCode, cigName);
+        } catch (IllegalArgumentException e) {
+            log.error("卷烟数据验证失败: 代码[{}] 名称[{}], 错误: {}", cigCode, cigName, e.getMessage());
+            result.put("success", false);
+            result.put("message", "卷烟数据格式错误: " + e.getMessage());
+            return result;
+        }
+        advData.put("cig_code", cigCode);
+        result.put("cigCode", cigCode);
+        
+        BigDecimal adv = (BigDecimal) advData.get("adv");
+        String deliveryMethod = (String) advData.get("delivery_method");
+        String deliveryEtype = (String) advData.get("delivery_etype");
+        String deliveryArea = (String) advData.get("delivery_area");
+        String remark = (String) advData.get("remark");
+        result.put("adv", adv);
+        result.put("deliveryArea", deliveryArea);
+        result.put("deliveryEtype", deliveryEtype);
+        if (deliveryArea == null || deliveryArea.trim().isEmpty()) {
+            result.put("success", false);
+            result.put("message", "投放区域为空");
+            return result;
+        }
+        
+        // 2. 计算分配矩阵（相同问题复用跨运行缓存中的结果）
+        DistributionStrategy strategy = strategyManager.getStrategy(deliveryMethod, deliveryEtype);
+        List<String> targetList = strategy.getTargetList(deliveryArea);
+        Map<String, Object> extraParams = buildMarketRatioParams(deliveryEtype, marketRatios);
+        // 输入摘要在计算前取得：客户数表版本不会晚于计算所用的客户数矩阵
+        String inputHash = computeInputHash(advData, marketRatios, new HashMap<>());
+        AllocationMemoCache.RunMemo allocationMemo = allocationMemoCache.beginRun();
+        BigDecimal[][] allocationMatrix;
+        Map<String, Object> allocationOutcome;
+        AllocationBudget.begin(allocationPolicyProperties.resolve(strategy.getDeliveryType()));
+        try {
+            allocationMatrix = allocationMemo.calculate(strategy, targetList, adv, extraParams);
+        } finally {
+            allocationOutcome = AllocationBudget.end();
+        }
+        long computeNanos = System.nanoTime() - start;
+        
+        // 3. 写回该卷烟的全部区域记录
+        boolean writeBackSuccess = allocationMatrix != null && writeBackToDatabase(allocationMatrix, targetList,
+                cigCode, cigName, year, month, weekSeq, deliveryMethod, deliveryEtype, remark);
+        if (!writeBackSuccess) {
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            updateInputHash(year, month, weekSeq, cigCode, cigName, null);
+            result.put("success", false);
+            result.put("message", "分配矩阵写回数据库失败");
+            return result;
+        }
+        updateInputHash(year, month, weekSeq, cigCode, cigName, inputHash);
+        
+        // 4. 返回分配矩阵、各区域实际投放量及误差
+        result.put("success", true);
+        result.put("message", "卷烟分配方案已重新计算并写回");
+        result.put("targetType", strategy.getTargetTypeDescription());
+        result.put("algorithm", strategy.getAlgorithmName());
+        result.put("allocationSource", allocationMemo.getLastSource());
+        result.put("allocationPolicy", allocationOutcome.get("policy"));
+        result.put("stopReason", allocationOutcome.get("stopReason"));
+        BigDecimal totalActualDelivery = putAllocationSummary(result, allocationMatrix, targetList, adv,
+                deliveryMethod, deliveryEtype, remark);
+        result.put("computeMs", Math.round(computeNanos / 1_000.0) / 1_000.0);
+        result.put("elapsedMs", Math.round((System.nanoTime() - start) / 1_000.0) / 1_000.0);
+        log.info("卷烟 {} - {} 重新计算完成，预投放量: {}, 实际投放量: {}, 耗时: {}ms", 
+                cigCode, cigName, adv, totalActualDelivery, result.get("elapsedMs"));
+        return result;
+    }
+    
+    // ==================== 分配模拟（试算）服务 ====================
+    
+    /**
+     * 模拟分配：只读取投放基本信息和客户数数据，全部在内存中计算，不删除、不写入任何表
+     * 区域列表和客户数矩阵使用缓存，相同分配问题复用分配记忆化结果；指定替换表时在本线程内生效
+     */
+    @Override
+    public Map<String, Object> simulateAllocation(SimulationRequestDto request) {
+        long start = System.nanoTime();
+        Map<String, Object> result = new LinkedHashMap<>();
+        Map<String, BigDecimal> marketRatios = null;
+        if (request.getUrbanRatio() != null && request.getRuralRatio() != null) {
+            marketRatios = new HashMap<>();
+            marketRatios.put("urbanRatio", request.getUrbanRatio());
+            marketRatios.put("ruralRatio", request.getRuralRatio());
+        }
+        
+        // 1. 确定模拟的卷烟：上传的列表优先，否则读取指定周的投放基本信息
+        boolean uploaded = request.getItems() != null && !request.getItems().isEmpty();
+        List<Map<String, Object>> advDataList;
+        if (uploaded) {
+            advDataList = new ArrayList<>();
+            for (SimulationRequestDto.SimulationItem item : request.getItems()) {
+                Map<String, Object> advData = new HashMap<>();
+                advData.put("cig_code", item.getCigCode());
+                advData.put("cig_name", item.getCigName());
+                advData.put("adv", item.getAdv());
+                advData.put("delivery_method", item.getDeliveryMethod());
+                advData.put("delivery_etype", item.getDeliveryEtype());
+                advData.put("delivery_area", item.getDeliveryArea());
+                advData.put("remark", item.getRemark());
+                advDataList.add(advData);
+            }
+        } else {
+            if (request.getYear() == null || request.getMonth() == null || request.getWeekSeq() == null) {
+                result.put("success", false);
+                result.put("message", "未上传卷烟列表时必须指定年份、月份和周序号");
+                return result;
+            }
+            String tableName = TableNameGeneratorUtil.generateDistributionInfoTableName(
+                    request.getYear(), request.getMonth(), request.getWeekSeq());
+            if (!schemaCatalog.tableExists(tableName)) {
+                result.put("success", false);
+                result.put("message", "指定时间的卷烟投放基本信息表不存在: " + tableName);
+                return result;
+            }
+            advDataList = jdbcTemplate.queryForList(CigaretteDistributionSqlBuilder.buildAdvDataQuerySql(
+                    tableName, request.getYear(), request.getMonth(), request.getWeekSeq()));
+        }
+        
+        // 2. 逐个卷烟计算（替换区域客户数表时，策略、实际投放量计算和缓存键均使用替换表）
+        try {
+            RegionClientTableOverride.begin(request.getRegionClientTables());
+        } catch (IllegalArgumentException e) {
+            result.put("success", false);
+            result.put("message", e.getMessage());
+            return result;
+        }
+        List<Map<String, Object>> simulationResults = new ArrayList<>();
+        AllocationMemoCache.RunMemo allocationMemo = allocationMemoCache.beginRun();
+        int successCount = 0;
+        BigDecimal totalAdv = BigDecimal.ZERO;
+        BigDecimal totalActualDelivery = BigDecimal.ZERO;
+        BigDecimal totalError = BigDecimal.ZERO;
+        try {
+            for (Map<String, Object> advData : advDataList) {
+                Map<String, Object> cigResult = simulateCigarette(advData, marketRatios, allocationMemo);
+                simulationResults.add(cigResult);
+                if ("成功".equals(cigResult.get("status"))) {
+                    successCount++;
+                    totalAdv = totalAdv.add((BigDecimal) cigResult.get("adv"));
+                    totalActualDelivery = totalActualDelivery.add((BigDecimal) cigResult.get("actualDelivery"));
+                    totalError = totalError.add((BigDecimal) cigResult.get("error"));
+                }
+            }
+        } finally {
+            RegionClientTableOverride.end();
+        }
+        
+        result.put("success", true);
+        result.put("message", String.format("模拟分配完成（未写入数据库），成功: %d/%d", successCount, advDataList.size()));
+        result.put("source", uploaded ? "上传列表" : "投放基本信息表");
+        result.put("regionClientTables", request.getRegionClientTables() != null 
+                ? request.getRegionClientTables() : Collections.emptyMap());
+        result.put("totalCount", advDataList.size());
+        result.put("successCount", successCount);
+        result.put("totalAdv", totalAdv);
+        result.put("totalActualDelivery", totalActualDelivery);
+        result.put("totalError", totalError);
+        result.put("allocationMemo", allocationMemo.getStats());
+        result.put("elapsedMs", Math.round((System.nanoTime() - start) / 1_000.0) / 1_000.0);
+        result.put("results", simulationResults);
+        log.info("模拟分配完成，成功: {}/{}，总误差: {}，耗时: {}ms", 
+                successCount, advDataList.size(), totalError, result.get("elapsedMs"));
+        return result;
+    }
+    
+    /**
+     * 模拟单个卷烟的分配（只计算，不写回）
+     * 
+     * @return 卷烟模拟结果，status为成功/跳过/错误
+     */
+    private Map<String, Object> simulateCigarette(Map<String, Object> advData, Map<String, BigDecimal> marketRatios,
+                                                  AllocationMemoCache.RunMemo allocationMemo) {
+        Map<String, Object> cigResult = new LinkedHashMap<>();
+        String cigName = (String) advData.get("cig_name");
+        BigDecimal adv = (BigDecimal) advData.get("adv");
+        String deliveryMethod = (String) advData.get("delivery_method");
+        String deliveryEtype = (String) advData.get("delivery_etype");
+        String deliveryArea = (String) advData.get("delivery_area");
+        String remark = (String) advData.get("remark");
+        cigResult.put("cigCode", advData.get("cig_code"));
+        cigResult.put("cigName", cigName);
+        cigResult.put("adv", adv);
+        cigResult.put("deliveryArea", deliveryArea);
+        cigResult.put("deliveryEtype", deliveryEtype);
+        
+        try {
+            cigResult.put("cigCode", DistributionValidationUtils.sanitizeAndValidateCigaretteCode(
+                    (String) advData.get("cig_code"), cigName));
+        } catch (IllegalArgumentException e) {
+            cigResult.put("status", "跳过");
+            cigResult.put("message", "卷烟数据格式错误: " + e.getMessage());
+            return cigResult;
+        }
+        if (deliveryArea == null || deliveryArea.trim().isEmpty()) {
+            cigResult.put("status", "跳过");
+            cigResult.put("message", "投放区域为空");
+            return cigResult;
+        }
+        
+        try {
+            DistributionStrategy strategy = strategyManager.getStrategy(deliveryMethod, deliveryEtype);
+            List<String> targetList = strategy.getTargetList(deliveryArea);
+            BigDecimal[][] allocationMatrix;
+            Map<String, Object> allocationOutcome;
+            AllocationBudget.begin(allocationPolicyProperties.resolve(strategy.getDeliveryType()));
+            try {
+                allocationMatrix = allocationMemo.calculate(strategy, targetList, adv,
+                        buildMarketRatioParams(deliveryEtype, marketRatios));
+            } finally {
+                allocationOutcome = AllocationBudget.end();
+            }
+            
+            cigResult.put("status", "成功");
+            cigResult.put("targetType", strategy.getTargetTypeDescription());
+            cigResult.put("algorithm", strategy.getAlgorithmName());
+            cigResult.put("allocationSource", allocationMemo.getLastSource());
+            cigResult.put("stopReason", allocationOutcome.get("stopReason"));
+            putAllocationSummary(cigResult, allocationMatrix, targetList, adv, deliveryMethod, deliveryEtype, remark);
+        } catch (Exception e) {
+            log.warn("模拟卷烟 {} - {} 的分配失败: {}", cigResult.get("cigCode"), cigName, e.getMessage());
+            cigResult.put("status", "错误");
+            cigResult.put("message", e.getMessage());
+        }
+        return cigResult;
+    }
+    
     /**
      * 方法2：计算卷烟在指定区域的实际投放量
      * 严格遵循公式：实际投放量 = ∑（档位分配值 × 对应区域客户数档位值）
      * 不允许使用其他计算规则，违反时抛出异常
+     * 客户数档位值按两位小数定点计算，超过两位小数时抛出IllegalArgumentException而不做舍入；档位分配值不限小数位
      * 
      * @param target 目标区域名称
      * @param allocationRow 档位分配数组，包含30个档位的分配值
@@ -289,33 +843,24 @@ public class DistributionCalculateServiceImpl implements DistributionCalculateSe
         
         try {
             // 获取目标区域的客户数档位值，使用备注判断是否双周上浮
-            BigDecimal[] customerCounts = getCustomerCountsForTarget(target, deliveryMethod, deliveryEtype, remark);
-            
-            if (customerCounts == null || customerCounts.length != 30) {
-                throw new RuntimeException(String.format("无法获取区域 '%s' 的客户数档位数据", target));
-            }
-            
-            BigDecimal actualDelivery = BigDecimal.ZERO;
-            StringBuilder calculationDetails = new StringBuilder();
-            calculationDetails.append(String.format("区域 '%s' 实际投放量计算: ", target));
+            GradeVector customerCounts = getCustomerCountsForTarget(target, deliveryMethod, deliveryEtype, remark);
             
             // 严格按照公式计算：∑（档位分配值 × 对应区域客户数档位值）
-            for (int i = 0; i < 30; i++) {
-                BigDecimal allocation = allocationRow[i] != null ? allocationRow[i] : BigDecimal.ZERO;
-                BigDecimal customerCount = customerCounts[i] != null ? customerCounts[i] : BigDecimal.ZERO;
-                
-                BigDecimal gradeContribution = allocation.multiply(customerCount);
-                actualDelivery = actualDelivery.add(gradeContribution);
-                
-                // 记录非零贡献的档位计算详情
-                if (gradeContribution.compareTo(BigDecimal.ZERO) > 0) {
-                    calculationDetails.append(String.format("D%d(%s×%s=%.4f) ", 
-                        30-i, allocation, customerCount, gradeContribution));
+            BigDecimal actualDelivery = customerCounts.dot(allocationRow);
+            
+            if (log.isDebugEnabled()) {
+                StringBuilder calculationDetails = new StringBuilder();
+                calculationDetails.append(String.format("区域 '%s' 实际投放量计算: ", target));
+                for (int i = 0; i < GradeVector.GRADE_COUNT; i++) {
+                    // 记录非零贡献的档位计算详情
+                    if (allocationRow[i] != null && allocationRow[i].signum() > 0 && customerCounts.getScaled(i) > 0) {
+                        calculationDetails.append(String.format("D%d(%s×%s=%.4f) ", 
+                            30-i, allocationRow[i], customerCounts.get(i), allocationRow[i].multiply(customerCounts.get(i))));
+                    }
                 }
+                log.debug("{} = {}", calculationDetails.toString(), actualDelivery);
             }
             
-            log.debug("{} = {}", calculationDetails.toString(), actualDelivery);
-            
             // 验证计算结果的合理性
             if (actualDelivery.compareTo(BigDecimal.ZERO) < 0) {
                 throw new RuntimeException(String.format("区域 '%s' 的实际投放量计算结果为负数: %s", target, actualDelivery));
@@ -339,6 +884,199 @@ public class DistributionCalculateServiceImpl implements DistributionCalculateSe
     }
 
     // ==================== 私有辅助方法 ====================
+    
+    /**
+     * 构建档位+市场类型的比例参数（其他投放类型或比例不完整时为空Map）
+     */
+    private Map<String, Object> buildMarketRatioParams(String deliveryEtype, Map<String, BigDecimal> marketRatios) {
+        Map<String, Object> extraParams = new HashMap<>();
+        if ("档位+市场类型".equals(deliveryEtype) && marketRatios != null
+                && marketRatios.get("urbanRatio") != null && marketRatios.get("ruralRatio") != null) {
+            extraParams.put("urbanRatio", marketRatios.get("urbanRatio"));
+            extraParams.put("ruralRatio", marketRatios.get("ruralRatio"));
+        }
+        return extraParams;
+    }
+    
+    /**
+     * 计算各区域实际投放量，将分配矩阵（allocations）、总实际投放量（actualDelivery）和误差（error）放入结果
+     * 
+     * @return 总实际投放量
+     */
+    private BigDecimal putAllocationSummary(Map<String, Object> result, BigDecimal[][] allocationMatrix, List<String> targetList,
+                                            BigDecimal adv, String deliveryMethod, String deliveryEtype, String remark) {
+        List<Map<String, Object>> allocations = new ArrayList<>();
+        BigDecimal totalActualDelivery = BigDecimal.ZERO;
+        for (int i = 0; i < targetList.size(); i++) {
+            BigDecimal actualDelivery = calculateActualDeliveryForRegion(targetList.get(i),
+                    allocationMatrix[i], deliveryMethod, deliveryEtype, remark);
+            totalActualDelivery = totalActualDelivery.add(actualDelivery);
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("deliveryArea", targetList.get(i));
+            row.put("grades", Arrays.asList(allocationMatrix[i]));
+            row.put("actualDelivery", actualDelivery);
+            allocations.add(row);
+        }
+        result.put("allocations", allocations);
+        result.put("actualDelivery", totalActualDelivery);
+        result.put("error", adv.subtract(totalActualDelivery).abs());
+        return totalActualDelivery;
+    }
+    
+    /**
+     * 加载卷烟所用策略的区域列表和客户数矩阵（已缓存且版本未变时直接命中）
+     * 并行模式下在数据库并发许可内调用，使算法线程池中的计算不再读表
+     * 
+     * @return 始终返回null（供DistributionExecutor.withDatabase调用）
+     */
+    private Void warmRegionCaches(Map<String, Object> advData) {
+        String deliveryMethod = (String) advData.get("delivery_method");
+        String deliveryEtype = (String) advData.get("delivery_etype");
+        if (!strategyManager.isSupported(deliveryMethod, deliveryEtype)) {
+            return null; // 不支持的投放类型组合在卷烟处理时记录
+        }
+        DistributionStrategy strategy = strategyManager.getStrategy(deliveryMethod, deliveryEtype);
+        String[] regionClientType = DistributionStrategyManager.regionClientTypeOf(strategy.getDeliveryType());
+        commonService.getAllRegionList(regionClientType[0], regionClientType[1]);
+        commonService.buildRegionCustomerMatrix(regionClientType[0], regionClientType[1]);
+        return null;
+    }
+    
+    /**
+     * 计算卷烟的输入摘要，区域客户数表摘要取自RegionClientTableVersions（与客户数矩阵缓存键同一版本），并在本次运行内按表名固定
+     * 摘要涵盖算法使用的客户数表和写回时按备注选择的客户数表（双周上浮时两者不同）
+     * 
+     * @return 输入摘要；计算失败时返回null（该卷烟按有变化处理，且不保存摘要）
+     */
+    private String computeInputHash(Map<String, Object> advData, Map<String, BigDecimal> marketRatios, 
+                                    Map<String, String> clientTableHashes) {
+        String deliveryMethod = (String) advData.get("delivery_method");
+        String deliveryEtype = (String) advData.get("delivery_etype");
+        String remark = (String) advData.get("remark");
+        try {
+            List<String> tableHashes = new ArrayList<>();
+            if (TableNameGeneratorUtil.isValidDeliveryTypeCombination(deliveryMethod, deliveryEtype)) {
+                Set<String> tableNames = new LinkedHashSet<>(Arrays.asList(
+                        TableNameGeneratorUtil.generateRegionClientTableName(deliveryMethod, deliveryEtype, (String) null),
+                        TableNameGeneratorUtil.generateRegionClientTableName(deliveryMethod, deliveryEtype, remark)));
+                for (String clientTable : tableNames) {
+                    tableHashes.add(clientTableHashes.computeIfAbsent(clientTable, regionClientTableVersions::version));
+                }
+            }
+            return inputHashService.computeInputHash(advData, marketRatios, tableHashes);
+        } catch (Exception e) {
+            log.warn("计算卷烟 {} - {} 的输入摘要失败，按有变化处理: {}", 
+                    advData.get("cig_code"), advData.get("cig_name"), e.getMessage());
+            return null;
+        }
+    }
+    
+    /**
+     * 保存或清除卷烟的输入摘要（摘要为null时清除），失败不影响分配流程
+     */
+    private void updateInputHash(Integer year, Integer month, Integer weekSeq, String cigCode, String cigName, String inputHash) {
+        try {
+            if (inputHash != null) {
+                inputHashService.saveInputHash(year, month, weekSeq, cigCode, cigName, inputHash);
+            } else {
+                inputHashService.deleteInputHash(year, month, weekSeq, cigCode, cigName);
+            }
+        } catch (Exception e) {
+            log.warn("更新卷烟 {} - {} 的输入摘要失败: {}", cigCode, cigName, e.getMessage());
+        }
+    }
+    
+    /**
+     * 查询预测表中已有分配数据的卷烟
+     * 
+     * @return 卷烟代码|卷烟名称 -> [卷烟代码, 卷烟名称]；预测表不存在时返回空Map
+     */
+    private Map<String, String[]> loadExistingCigarettes(String tableName) {
+        if (!schemaCatalog.tableExists(tableName)) {
+            return Collections.emptyMap();
+        }
+        
+        Map<String, String[]> cigarettes = new LinkedHashMap<>();
+        for (Map<String, Object> row : jdbcTemplate.queryForList(
+                CigaretteDistributionSqlBuilder.buildDistinctCigaretteQuerySql(tableName))) {
+            String cigCode = (String) row.get("CIG_CODE");
+            String cigName = (String) row.get("CIG_NAME");
+            cigarettes.put(cigCode + "|" + cigName, new String[]{cigCode, cigName});
+        }
+        return cigarettes;
+    }
+    
+    /**
+     * 查找指定周之前最近一个存在的预测表
+     * 枚举表目录中全部按周预测表（不假设每月周数），按年、月、周序号取早于指定周的最近一张
+     * 
+     * @return 预测表名；不存在时返回null
+     */
+    private String findPreviousPredictionTable(int year, int month, int weekSeq) {
+        long current = weekOrdinal(year, month, weekSeq);
+        int[] best = null;
+        for (String tableName : schemaCatalog.tableNames()) {
+            int[] parsed = TableNameGeneratorUtil.parsePredictionTableName(tableName);
+            if (parsed == null) {
+                continue;
+            }
+            long ordinal = weekOrdinal(parsed[0], parsed[1], parsed[2]);
+            if (ordinal < current && (best == null || ordinal > weekOrdinal(best[0], best[1], best[2]))) {
+                best = parsed;
+            }
+        }
+        return best != null ? TableNameGeneratorUtil.generatePredictionTableName(best[0], best[1], best[2]) : null;
+    }
+    
+    private static long weekOrdinal(int year, int month, int weekSeq) {
+        return (year * 100L + month) * 100L + weekSeq;
+    }
+    
+    /**
+     * 加载预测表中全部卷烟的分配方案
+     * 
+     * @return 卷烟代码|卷烟名称 -> 投放区域 -> 30个档位值（D30到D1）
+     */
+    private Map<String, Map<String, BigDecimal[]>> loadPreviousPlans(String tableName) {
+        CigaretteDistributionSqlBuilder.validateSqlComponents(tableName, null);
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(CigaretteDistributionSqlBuilder.buildWarmStartSeedQuerySql(tableName));
+        
+        Map<String, Map<String, BigDecimal[]>> plans = new HashMap<>();
+        for (Map<String, Object> row : rows) {
+            Object area = row.get("DELIVERY_AREA");
+            if (area == null) {
+                continue;
+            }
+            String key = row.get("CIG_CODE") + "|" + row.get("CIG_NAME");
+            plans.computeIfAbsent(key, k -> new HashMap<>())
+                    .put(area.toString(), CigaretteDistributionRowMapper.extractCustomerCounts(row));
+        }
+        return plans;
+    }
+    
+    private boolean isFrontierEnabled() {
+        return allocationFrontierCache != null && allocationFrontierCache.isEnabled();
+    }
+    
+    /**
+     * 按目标区域顺序组装热启动初始解
+     * 仅当上周方案的投放区域与本周目标区域完全一致时可用
+     * 
+     * @return 初始解矩阵 [目标数][30]；不可用时返回null
+     */
+    private BigDecimal[][] buildWarmStartSeed(Map<String, BigDecimal[]> previousPlan, List<String> targetList) {
+        if (previousPlan == null || targetList == null || previousPlan.size() != targetList.size()) {
+            return null;
+        }
+        BigDecimal[][] seed = new BigDecimal[targetList.size()][];
+        for (int i = 0; i < targetList.size(); i++) {
+            seed[i] = previousPlan.get(targetList.get(i));
+            if (seed[i] == null) {
+                return null;
+            }
+        }
+        return seed;
+    }
     /**
      * 将分配矩阵写回数据库（按卷烟覆盖逻辑）
      * 新逻辑：如果表存在，先删除该卷烟的所有记录再插入新数据；如果表不存在，先创建表再插入数据
@@ -376,11 +1114,17 @@ public class DistributionCalculateServiceImpl implements DistributionCalculateSe
             // 第2步：删除该卷烟的所有现有记录（按卷烟覆盖逻辑）
             deleteExistingCigaretteRecords(tableName, cigCode, cigName);
             
-            // 第3步：使用GradeMatrixUtils构建所有区域的预测数据记录，用于编码表达式生成
+            // 第3步：直接复用分配矩阵中的档位值，构建所有区域的预测数据记录（用于编码表达式生成及写库）
             List<CigaretteDistributionPredictionData> allCigaretteRecords = GradeMatrixUtils.buildPredictionRecords(
                 cigCode, cigName, deliveryMethod, deliveryEtype, allocationMatrix, targetList);
             
-            // 第4步：使用简单插入SQL语句（不使用ON DUPLICATE KEY UPDATE）
+            // 第4步：对全部区域做一次档位分组，得到各区域的编码表达式
+            long encodeStart = System.nanoTime();
+            Map<String, String> encodedByArea = encodeDecodeService.encodeByArea(
+                cigCode, cigName, deliveryMethod, deliveryEtype, allCigaretteRecords);
+            DistributionRunReport.recordEncodeTime(System.nanoTime() - encodeStart);
+            
+            // 使用简单插入SQL语句（不使用ON DUPLICATE KEY UPDATE）
             String insertSql = CigaretteDistributionSqlBuilder.buildSimpleInsertSql(tableName);
             
             // 第5步：为每个目标（区域或业态类型）执行插入
@@ -398,17 +1142,11 @@ public class DistributionCalculateServiceImpl implements DistributionCalculateSe
                     throw new RuntimeException(errorMessage, e);
                 }
                 
-                // 为当前区域生成对应的编码表达式
-                String currentAreaEncodedExpression = encodeDecodeService.encodeForSpecificArea(
-                    cigCode, cigName, deliveryMethod, deliveryEtype, target, allCigaretteRecords);
+                // 当前区域对应的编码表达式
+                String currentAreaEncodedExpression = encodedByArea.getOrDefault(target, "");
                 
-                // 构建预测数据对象并使用RowMapper生成参数
-                CigaretteDistributionPredictionData predictionData = new CigaretteDistributionPredictionData();
-                predictionData.setCigCode(cigCode);
-                predictionData.setCigName(cigName);
-                predictionData.setDeliveryArea(target);
-                predictionData.setDeliveryMethod(deliveryMethod);
-                predictionData.setDeliveryEtype(deliveryEtype);
+                // 复用第3步构建的记录（档位已设置），补充其余字段后使用RowMapper生成参数
+                CigaretteDistributionPredictionData predictionData = allCigaretteRecords.get(i);
                 predictionData.setYear(year);
                 predictionData.setMonth(month);
                 predictionData.setWeekSeq(weekSeq);
@@ -422,9 +1160,6 @@ public class DistributionCalculateServiceImpl implements DistributionCalculateSe
                     predictionData.setBz("算法自动生成");  // 默认备注
                 }
                 
-                // 使用GradeMatrixUtils设置30个档位值
-                GradeMatrixUtils.setGradesToEntity(predictionData, allocationMatrix[i]);
-                
                 // 使用RowMapper构建参数数组
                 Object[] params = CigaretteDistributionRowMapper.buildInsertParams(predictionData);
                 
@@ -457,7 +1192,7 @@ public class DistributionCalculateServiceImpl implements DistributionCalculateSe
      * @param deliveryEtype 扩展投放类型
      * @param remark 备注字段（用于判断是否双周上浮）
      */
-    private BigDecimal[] getCustomerCountsForTarget(String target, String deliveryMethod, String deliveryEtype, String remark) {
+    private GradeVector getCustomerCountsForTarget(String target, String deliveryMethod, String deliveryEtype, String remark) {
         if (target == null || target.trim().isEmpty()) {
             throw new IllegalArgumentException("目标区域不能为空");
         }
@@ -491,12 +1226,8 @@ public class DistributionCalculateServiceImpl implements DistributionCalculateSe
                         target, deliveryMethod, deliveryEtype, tableName);
             }
             
-            // 获取第一条记录的档位数据
-            org.example.entity.RegionClientNumData regionData = dataList.get(0);
-            BigDecimal[] customerCounts = regionData.getGradeArray();
-            
-            // 使用GradeMatrixUtils验证客户数数据的完整性
-            GradeMatrixUtils.validateGradeArray(customerCounts, "获取目标区域客户数");
+            // 获取第一条记录的档位向量（随缓存的实体复用，不逐次构建）
+            GradeVector customerCounts = dataList.get(0).toGradeVector();
             
             log.debug("成功获取目标区域 '{}' (投放方法: {}, 投放类型: {}) 的客户数数据", target, deliveryMethod, deliveryEtype);
             return customerCounts;
@@ -517,7 +1248,7 @@ public class DistributionCalculateServiceImpl implements DistributionCalculateSe
     
     
     // 已使用GradeMatrixUtils.buildPredictionRecords代替原有的buildAllCigaretteRecords方法
-    // 已使用RegionClientNumDataService和RegionClientNumData.getGradeArray()代替原有的硬编码表查询
+    // 已使用RegionClientNumDataService查询区域客户数，代替原有的硬编码表查询
     
     /**
      * 确保预测数据表存在，如果不存在则创建
@@ -528,14 +1259,24 @@ public class DistributionCalculateServiceImpl implements DistributionCalculateSe
     private void ensurePredictionTableExists(String tableName) {
         try {
             // 检查表是否存在
-            String checkTableSql = CigaretteDistributionSqlBuilder.buildCheckTableExistsSql();
-            Integer tableExists = jdbcTemplate.queryForObject(checkTableSql, Integer.class, tableName);
-            
-            if (tableExists == null || tableExists == 0) {
-                // 表不存在，创建新表
-                String createTableSql = CigaretteDistributionSqlBuilder.buildCreatePredictionTableSql(tableName);
-                jdbcTemplate.execute(createTableSql);
-                log.info("成功创建预测数据表: {}", tableName);
+            if (!schemaCatalog.tableExists(tableName)) {
+                // 表不存在，按存储布局创建周表或统一预测表的周分区及视图
+                int[] week = TableNameGeneratorUtil.parsePredictionTableName(tableName);
+                try {
+                    if (predictionStorageService != null && week != null) {
+                        predictionStorageService.createWeekStorage(week[0], week[1], week[2]);
+                    } else {
+                        jdbcTemplate.execute(CigaretteDistributionSqlBuilder.buildCreatePredictionTableSql(tableName));
+                        schemaCatalog.markCreated(tableName);
+                        log.info("成功创建预测数据表: {}", tableName);
+                    }
+                } catch (DataAccessException e) {
+                    // 并行任务或其他实例可能同时建表：复查表已存在时视为成功
+                    if (!schemaCatalog.recheckTableExists(tableName)) {
+                        throw e;
+                    }
+                    log.debug("预测数据表 {} 已由其他任务创建", tableName);
+                }
             } else {
                 log.debug("预测数据表已存在: {}", tableName);
             }
@@ -0,0 +1,199 @@
+package org.example.service.impl;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.service.DistributionInputHashService;
+import org.example.util.CigaretteDistributionSqlBuilder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 卷烟分配输入摘要服务实现类
+ * 负责distribution_input_hash表的建表、读写，以及输入行和区域客户数表的摘要计算
+ */
+@Slf4j
+@Service
+public class DistributionInputHashServiceImpl implements DistributionInputHashService {
+
+    /**
+     * 区域客户数表不存在或读取失败时的摘要标记（表恢复后摘要变化，卷烟会被重新计算）
+     */
+    private static final String MISSING_TABLE_HASH = "missing";
+
+    private static final char FIELD_SEPARATOR = '\u0001';
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private volatile boolean tableReady = false;
+
+    /**
+     * 启动时创建输入摘要表：读写摘要通常处于一键生成的事务中，MySQL的建表语句会隐式提交该事务
+     */
+    @PostConstruct
+    public void init() {
+        try {
+            ensureInputHashTableExists();
+        } catch (DataAccessException e) {
+            log.warn("输入摘要表创建失败，将在首次非事务内访问时重试: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public Map<String, String> loadInputHashes(Integer year, Integer month, Integer weekSeq) {
+        if (!inputHashTableUsable()) {
+            return new HashMap<>(); // 无历史摘要，所有卷烟按已变更重新计算
+        }
+
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+                CigaretteDistributionSqlBuilder.buildInputHashQuerySql(), year, month, weekSeq);
+
+        Map<String, String> hashes = new HashMap<>();
+        for (Map<String, Object> row : rows) {
+            hashes.put(row.get("CIG_CODE") + "|" + row.get("CIG_NAME"), (String) row.get("INPUT_HASH"));
+        }
+        log.debug("加载{}年{}月第{}周的卷烟输入摘要{}条", year, month, weekSeq, hashes.size());
+        return hashes;
+    }
+
+    @Override
+    public void saveInputHash(Integer year, Integer month, Integer weekSeq, String cigCode, String cigName, String inputHash) {
+        if (!inputHashTableUsable()) {
+            return; // 未保存摘要的卷烟下次增量生成时重新计算
+        }
+
+        jdbcTemplate.update(CigaretteDistributionSqlBuilder.buildDeleteInputHashSql(), year, month, weekSeq, cigCode, cigName);
+        jdbcTemplate.update(CigaretteDistributionSqlBuilder.buildInsertInputHashSql(), year, month, weekSeq, cigCode, cigName, inputHash);
+    }
+
+    @Override
+    public void deleteInputHash(Integer year, Integer month, Integer weekSeq, String cigCode, String cigName) {
+        if (!inputHashTableUsable()) {
+            return;
+        }
+
+        jdbcTemplate.update(CigaretteDistributionSqlBuilder.buildDeleteInputHashSql(), year, month, weekSeq, cigCode, cigName);
+    }
+
+    @Override
+    public String computeClientTableHash(String tableName) {
+        List<Map<String, Object>> rows;
+        try {
+            CigaretteDistributionSqlBuilder.validateSqlComponents(tableName, null);
+            rows = jdbcTemplate.queryForList(CigaretteDistributionSqlBuilder.buildRegionClientTableContentSql(tableName));
+        } catch (Exception e) {
+            log.warn("读取区域客户数表 {} 失败，按缺失处理: {}", tableName, e.getMessage());
+            return MISSING_TABLE_HASH;
+        }
+
+        // 行顺序与主键无关：逐行序列化后排序再摘要（不含自增id列）
+        List<String> serializedRows = new ArrayList<>(rows.size());
+        for (Map<String, Object> row : rows) {
+            StringBuilder text = new StringBuilder();
+            for (Map.Entry<String, Object> column : row.entrySet()) {
+                if ("id".equalsIgnoreCase(column.getKey())) {
+                    continue;
+                }
+                text.append(column.getKey()).append('=').append(normalize(column.getValue())).append(FIELD_SEPARATOR);
+            }
+            serializedRows.add(text.toString());
+        }
+        Collections.sort(serializedRows);
+
+        List<Object> parts = new ArrayList<>(serializedRows.size() + 1);
+        parts.add(tableName);
+        parts.addAll(serializedRows);
+        return sha256(parts);
+    }
+
+    @Override
+    public String computeInputHash(Map<String, Object> advData, Map<String, BigDecimal> marketRatios, List<String> clientTableHashes) {
+        List<Object> parts = new ArrayList<>();
+        parts.add(advData.get("cig_code"));
+        parts.add(advData.get("cig_name"));
+        parts.add(advData.get("adv"));
+        parts.add(advData.get("delivery_method"));
+        parts.add(advData.get("delivery_etype"));
+        parts.add(advData.get("delivery_area"));
+        parts.add(advData.get("remark"));
+        if ("档位+市场类型".equals(advData.get("delivery_etype")) && marketRatios != null) {
+            parts.add(marketRatios.get("urbanRatio"));
+            parts.add(marketRatios.get("ruralRatio"));
+        }
+        parts.addAll(clientTableHashes);
+        return sha256(parts);
+    }
+
+    // ==================== 私有辅助方法 ====================
+
+    /**
+     * 输入摘要表是否可用：表未就绪且处于事务中时不执行建表（避免隐式提交），返回false
+     */
+    private boolean inputHashTableUsable() {
+        if (!tableReady && TransactionSynchronizationManager.isActualTransactionActive()) {
+            log.warn("输入摘要表未就绪，事务内不执行建表，跳过输入摘要读写");
+            return false;
+        }
+        ensureInputHashTableExists();
+        return true;
+    }
+
+    /**
+     * 确保输入摘要表存在（每个实例只执行一次建表语句）
+     */
+    private void ensureInputHashTableExists() {
+        if (tableReady) {
+            return;
+        }
+        synchronized (this) {
+            if (!tableReady) {
+                jdbcTemplate.execute(CigaretteDistributionSqlBuilder.buildCreateInputHashTableSql());
+                tableReady = true;
+            }
+        }
+    }
+
+    /**
+     * 数值去掉末尾的0，避免同一数值因精度不同（如100与100.00）产生不同摘要
+     */
+    private static String normalize(Object value) {
+        if (value == null) {
+            return "null";
+        }
+        if (value instanceof BigDecimal) {
+            BigDecimal decimal = (BigDecimal) value;
+            return decimal.signum() == 0 ? "0" : decimal.stripTrailingZeros().toPlainString();
+        }
+        return value.toString();
+    }
+
+    private static String sha256(List<Object> parts) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (Object part : parts) {
+                digest.update(normalize(part).getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+            }
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest.digest()) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256不可用", e);
+        }
+    }
+}
@@ -0,0 +1,514 @@
+package org.example.service.impl;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.example.service.DistributionCalculateService;
+import org.example.service.DistributionJobService;
+import org.example.service.strategy.DistributionExecutor;
+import org.example.util.CigaretteDistributionSqlBuilder;
+import org.example.util.DistributionRunReport;
+import org.example.util.SchemaCatalog;
+import org.example.util.TableNameGeneratorUtil;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.BadSqlGrammarException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * 分布式分配任务服务实现类
+ * 负责distribution_job / distribution_job_item表的建表、任务创建、任务项领取与完成、结果汇总
+ */
+@Slf4j
+@Service
+public class DistributionJobServiceImpl implements DistributionJobService {
+
+    private static final String JOB_RUNNING = "RUNNING";
+    private static final String JOB_COMPLETED = "COMPLETED";
+    private static final String JOB_FAILED = "FAILED";
+    private static final String ITEM_PENDING = "PENDING";
+    private static final String ITEM_CLAIMED = "CLAIMED";
+    private static final String ITEM_DONE = "DONE";
+    private static final String ITEM_FAILED = "FAILED";
+
+    /**
+     * 按状态条件更新领取时，每次查询的候选任务项数为领取数量的倍数
+     */
+    private static final int CANDIDATE_FACTOR = 4;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private DistributionCalculateService distributionService;
+
+    @Autowired
+    private DistributionExecutor distributionExecutor;
+
+    @Autowired
+    private SchemaCatalog schemaCatalog;
+
+    /**
+     * 每次领取的任务项数（同一批卷烟共享分配记忆化）
+     */
+    @Value("${distribution.job.batch-size:5}")
+    private int batchSize;
+
+    /**
+     * 任务项租约（毫秒）：领取后超过该时间仍未完成的任务项可被其他实例重新领取；
+     * 处理每种卷烟前续租，因此只需覆盖单个卷烟的计算和写回耗时
+     */
+    @Value("${distribution.job.lease-ms:300000}")
+    private long leaseMs;
+
+    /**
+     * 协调者等待其他实例、工作者轮询进行中任务的间隔（毫秒）
+     */
+    @Value("${distribution.job.poll-interval-ms:1000}")
+    private long pollIntervalMs;
+
+    /**
+     * 协调者等待全部任务项完成的最长时间（毫秒）；轮询的实例将创建时间超过该时间的进行中任务标记为失败
+     */
+    @Value("${distribution.job.timeout-ms:1800000}")
+    private long timeoutMs;
+
+    /**
+     * 实例标识，未配置时使用 进程号@主机名-随机后缀
+     */
+    @Value("${distribution.job.worker-id:}")
+    private String workerId;
+
+    private volatile boolean tablesReady = false;
+
+    /**
+     * 数据库是否支持 FOR UPDATE SKIP LOCKED（null表示尚未检测）
+     */
+    private volatile Boolean skipLockedSupported;
+
+    @PostConstruct
+    public void init() {
+        if (workerId == null || workerId.trim().isEmpty()) {
+            workerId = ManagementFactory.getRuntimeMXBean().getName() + "-" + UUID.randomUUID().toString().substring(0, 8);
+        }
+    }
+
+    @Override
+    public Map<String, Object> runJob(Integer year, Integer month, Integer weekSeq, Map<String, BigDecimal> marketRatios) {
+        long start = System.currentTimeMillis();
+        Map<String, Object> result = new HashMap<>();
+        ensureJobTablesExist();
+
+        // 1. 读取指定周的卷烟列表
+        String infoTableName = TableNameGeneratorUtil.generateDistributionInfoTableName(year, month, weekSeq);
+        if (!schemaCatalog.tableExists(infoTableName)) {
+            result.put("success", false);
+            result.put("message", "指定时间的卷烟投放基本信息表不存在: " + infoTableName);
+            result.put("totalCount", 0);
+            result.put("successCount", 0);
+            result.put("results", new ArrayList<>());
+            return result;
+        }
+        List<Map<String, Object>> advDataList = jdbcTemplate.queryForList(
+                CigaretteDistributionSqlBuilder.buildAdvDataQuerySql(infoTableName, year, month, weekSeq));
+
+        // 2. 创建任务和任务项
+        BigDecimal urbanRatio = marketRatios != null ? marketRatios.get("urbanRatio") : null;
+        BigDecimal ruralRatio = marketRatios != null ? marketRatios.get("ruralRatio") : null;
+        Long jobId = insertJob(year, month, weekSeq, urbanRatio, ruralRatio, advDataList.size(), start);
+        List<Object[]> itemParams = advDataList.stream()
+                .map(advData -> new Object[]{jobId, advData.get("cig_code"), advData.get("cig_name")})
+                .collect(Collectors.toList());
+        jdbcTemplate.batchUpdate(CigaretteDistributionSqlBuilder.buildInsertJobItemSql(), itemParams);
+        log.info("创建分布式分配任务 {}：{}年{}月第{}周，{}个卷烟任务项，协调者: {}",
+                jobId, year, month, weekSeq, advDataList.size(), workerId);
+
+        // 3. 协调者同时参与处理，处理完可领取的任务项后等待其他实例完成
+        JobInfo job = new JobInfo(jobId, year, month, weekSeq, marketRatios);
+        long deadline = start + timeoutMs;
+        Map<String, Integer> progress;
+        while (true) {
+            processAvailableItems(job);
+            progress = loadProgress(jobId);
+            int unfinished = progress.getOrDefault(ITEM_PENDING, 0) + progress.getOrDefault(ITEM_CLAIMED, 0);
+            if (unfinished == 0) {
+                break;
+            }
+            if (System.currentTimeMillis() > deadline) {
+                finishJob(jobId, JOB_FAILED);
+                log.error("分布式分配任务 {} 超时，未完成任务项: {}", jobId, unfinished);
+                result.put("success", false);
+                result.put("message", String.format("分布式分配任务超时，未完成任务项: %d/%d", unfinished, advDataList.size()));
+                result.put("jobId", jobId);
+                result.put("progress", progress);
+                return result;
+            }
+            try {
+                Thread.sleep(pollIntervalMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                finishJob(jobId, JOB_FAILED);
+                throw new IllegalStateException("等待分布式分配任务完成时被中断", e);
+            }
+        }
+
+        // 4. 汇总各任务项结果（顺序与投放基本信息表一致）
+        List<Map<String, Object>> results = new ArrayList<>(advDataList.size());
+        Map<String, Integer> workers = new TreeMap<>();
+        int successCount = 0;
+        for (Map<String, Object> row : jdbcTemplate.queryForList(CigaretteDistributionSqlBuilder.buildJobItemResultsSql(), jobId)) {
+            Map<String, Object> cigResult = parseResult((String) row.get("RESULT_JSON"));
+            cigResult.putIfAbsent("cigCode", row.get("CIG_CODE"));
+            cigResult.putIfAbsent("cigName", row.get("CIG_NAME"));
+            cigResult.put("workerId", row.get("WORKER_ID"));
+            Object status = cigResult.get("writeBackStatus");
+            if ("成功".equals(status) || "未变更".equals(status)) {
+                successCount++;
+            }
+            workers.merge(String.valueOf(row.get("WORKER_ID")), 1, Integer::sum);
+            results.add(cigResult);
+        }
+        if (finishJob(jobId, JOB_COMPLETED) == 0) {
+            // 其他实例已按创建时间将任务判定为超时失败
+            log.error("分布式分配任务 {} 已被标记为超时失败", jobId);
+            result.put("success", false);
+            result.put("message", "分布式分配任务已超时，被标记为失败");
+            result.put("jobId", jobId);
+            result.put("progress", progress);
+            return result;
+        }
+
+        Map<String, Object> execution = new LinkedHashMap<>(distributionExecutor.getStats());
+        execution.put("jobId", jobId);
+        execution.put("claimMode", Boolean.TRUE.equals(skipLockedSupported) ? "skip-locked" : "conditional-update");
+        execution.put("workers", workers);
+        DistributionRunReport.recordExecution(execution);
+
+        result.put("success", true);
+        result.put("message", String.format("分配矩阵写回完成，成功: %d/%d", successCount, results.size()));
+        result.put("totalCount", results.size());
+        result.put("successCount", successCount);
+        result.put("results", results);
+        result.put("jobId", jobId);
+        result.put("workers", workers);
+        result.put("execution", execution);
+        log.info("分布式分配任务 {} 完成，成功: {}/{}，各实例处理数: {}，耗时: {}ms",
+                jobId, successCount, results.size(), workers, System.currentTimeMillis() - start);
+        return result;
+    }
+
+    @Override
+    public int workOnRunningJobs() {
+        ensureJobTablesExist();
+        // 协调者宕机时任务不会被结束：创建时间超过timeout-ms的任务直接标记为失败，不再领取其任务项
+        long now = System.currentTimeMillis();
+        int expired = jdbcTemplate.update(CigaretteDistributionSqlBuilder.buildFailExpiredJobsSql(), now, now - timeoutMs);
+        if (expired > 0) {
+            log.warn("{}个分布式分配任务超过{}ms未完成，已标记为失败", expired, timeoutMs);
+        }
+        int processed = 0;
+        for (Map<String, Object> row : jdbcTemplate.queryForList(CigaretteDistributionSqlBuilder.buildRunningJobsQuerySql())) {
+            Map<String, BigDecimal> marketRatios = null;
+            if (row.get("URBAN_RATIO") != null && row.get("RURAL_RATIO") != null) {
+                marketRatios = new HashMap<>();
+                marketRatios.put("urbanRatio", (BigDecimal) row.get("URBAN_RATIO"));
+                marketRatios.put("ruralRatio", (BigDecimal) row.get("RURAL_RATIO"));
+            }
+            JobInfo job = new JobInfo(((Number) row.get("id")).longValue(), ((Number) row.get("YEAR")).intValue(),
+                    ((Number) row.get("MONTH")).intValue(), ((Number) row.get("WEEK_SEQ")).intValue(), marketRatios);
+            processed += processAvailableItems(job);
+        }
+        return processed;
+    }
+
+    /**
+     * 分布式模式下定时参与处理其他实例创建的任务
+     */
+    @Scheduled(fixedDelayString = "${distribution.job.poll-interval-ms:1000}")
+    public void pollRunningJobs() {
+        if (!distributionExecutor.isDistributed()) {
+            return;
+        }
+        try {
+            int processed = workOnRunningJobs();
+            if (processed > 0) {
+                log.info("实例 {} 处理分布式任务项 {} 个", workerId, processed);
+            }
+        } catch (Exception e) {
+            log.warn("轮询分布式分配任务失败: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public Map<String, Object> getJobStatus(Long jobId) {
+        ensureJobTablesExist();
+        Map<String, Object> result = new LinkedHashMap<>();
+        List<Map<String, Object>> jobs = jdbcTemplate.queryForList(CigaretteDistributionSqlBuilder.buildJobQuerySql(), jobId);
+        if (jobs.isEmpty()) {
+            result.put("success", false);
+            result.put("message", "分布式分配任务不存在: " + jobId);
+            return result;
+        }
+        Map<String, Integer> workers = new TreeMap<>();
+        for (Map<String, Object> row : jdbcTemplate.queryForList(CigaretteDistributionSqlBuilder.buildJobItemResultsSql(), jobId)) {
+            if (row.get("WORKER_ID") != null) {
+                workers.merge((String) row.get("WORKER_ID"), 1, Integer::sum);
+            }
+        }
+        result.put("success", true);
+        result.put("message", "查询成功");
+        result.put("job", jobs.get(0));
+        result.put("progress", loadProgress(jobId));
+        result.put("workers", workers);
+        return result;
+    }
+
+    // ==================== 任务项领取与处理 ====================
+
+    /**
+     * 领取并处理任务的可领取任务项，直到没有可领取的任务项为止
+     *
+     * @return 处理的任务项数
+     */
+    private int processAvailableItems(JobInfo job) {
+        int processed = 0;
+        List<ClaimedItem> claimed;
+        while ((claimed = claimItems(job.id)) != null) {
+            if (claimed.isEmpty()) {
+                // 候选任务项均已被其他实例先领取，重新查询
+                continue;
+            }
+            List<String[]> cigarettes = claimed.stream()
+                    .map(item -> new String[]{item.cigCode, item.cigName})
+                    .collect(Collectors.toList());
+            // 每种卷烟计算和写回前续租：批内靠后的卷烟不会因前面的卷烟耗时而过期，
+            // 续租失败（租约已过期并被其他实例重新领取）的卷烟不再计算和写回
+            List<ClaimedItem> batch = claimed;
+            boolean[] leaseHeld = new boolean[batch.size()];
+            try {
+                List<Map<String, Object>> results = distributionService.allocateCigarettes(
+                        job.year, job.month, job.weekSeq, cigarettes, job.marketRatios,
+                        index -> leaseHeld[index] = renewLease(batch.get(index)));
+                for (int i = 0; i < claimed.size(); i++) {
+                    if (leaseHeld[i]) {
+                        finishItem(claimed.get(i), ITEM_DONE, results.get(i));
+                    }
+                }
+            } catch (Exception e) {
+                log.error("处理分布式任务 {} 的任务项失败: {}", job.id, e.getMessage(), e);
+                for (ClaimedItem item : claimed) {
+                    Map<String, Object> cigResult = new HashMap<>();
+                    cigResult.put("cigCode", item.cigCode);
+                    cigResult.put("cigName", item.cigName);
+                    cigResult.put("writeBackStatus", "错误");
+                    cigResult.put("writeBackMessage", "处理过程中发生错误: " + e.getMessage());
+                    finishItem(item, ITEM_FAILED, cigResult);
+                }
+            }
+            processed += claimed.size();
+        }
+        return processed;
+    }
+
+    /**
+     * 领取一批任务项
+     * 优先使用 FOR UPDATE SKIP LOCKED（在一个事务内锁定并标记领取），数据库不支持时改为按状态条件更新领取
+     *
+     * @return 本实例领取到的任务项；候选任务项均被其他实例抢先领取时返回空列表；没有可领取的任务项时返回null
+     */
+    private List<ClaimedItem> claimItems(Long jobId) {
+        long now = System.currentTimeMillis();
+        long leaseExpiredBefore = now - leaseMs;
+        if (!Boolean.FALSE.equals(skipLockedSupported)) {
+            try {
+                List<ClaimedItem> claimed = transactionTemplate.execute(status -> markClaimed(jdbcTemplate.queryForList(
+                        CigaretteDistributionSqlBuilder.buildClaimableJobItemsSql(true), jobId, leaseExpiredBefore, batchSize),
+                        now, leaseExpiredBefore));
+                skipLockedSupported = true;
+                return claimed;
+            } catch (BadSqlGrammarException e) {
+                skipLockedSupported = false;
+                log.warn("数据库不支持 SELECT ... FOR UPDATE SKIP LOCKED，改为按状态条件更新领取任务项: {}", e.getMessage());
+            }
+        }
+        // 不加锁时各实例查询到的候选相同：多取若干候选并打乱顺序，减少实例间的领取冲突
+        List<Map<String, Object>> candidates = new ArrayList<>(jdbcTemplate.queryForList(
+                CigaretteDistributionSqlBuilder.buildClaimableJobItemsSql(false),
+                jobId, leaseExpiredBefore, batchSize * CANDIDATE_FACTOR));
+        Collections.shuffle(candidates);
+        return markClaimed(candidates, now, leaseExpiredBefore);
+    }
+
+    /**
+     * 标记任务项为已领取（最多batchSize个），只返回本实例领取成功的任务项（其他实例已先领取的被跳过）
+     *
+     * @return 领取成功的任务项；候选为空时返回null
+     */
+    private List<ClaimedItem> markClaimed(List<Map<String, Object>> candidates, long now, long leaseExpiredBefore) {
+        if (candidates.isEmpty()) {
+            return null;
+        }
+        List<ClaimedItem> claimed = new ArrayList<>(batchSize);
+        for (Map<String, Object> row : candidates) {
+            if (claimed.size() >= batchSize) {
+                break;
+            }
+            long itemId = ((Number) row.get("id")).longValue();
+            int updated = jdbcTemplate.update(CigaretteDistributionSqlBuilder.buildClaimJobItemSql(),
+                    workerId, now, itemId, leaseExpiredBefore);
+            if (updated == 1) {
+                claimed.add(new ClaimedItem(itemId, (String) row.get("CIG_CODE"), (String) row.get("CIG_NAME")));
+            }
+        }
+        return claimed;
+    }
+
+    /**
+     * 续租任务项
+     *
+     * @return 本实例仍持有该任务项时返回true；租约已过期并被其他实例重新领取时返回false
+     */
+    private boolean renewLease(ClaimedItem item) {
+        int updated = jdbcTemplate.update(CigaretteDistributionSqlBuilder.buildRenewJobItemLeaseSql(),
+                System.currentTimeMillis(), item.id, workerId);
+        if (updated == 0) {
+            log.warn("任务项 {}（卷烟 {} - {}）租约已过期并被其他实例重新领取，本实例跳过该卷烟", item.id, item.cigCode, item.cigName);
+            return false;
+        }
+        return true;
+    }
+
+    private void finishItem(ClaimedItem item, String status, Map<String, Object> cigResult) {
+        String resultJson;
+        try {
+            resultJson = objectMapper.writeValueAsString(cigResult);
+        } catch (Exception e) {
+            resultJson = null;
+            log.warn("序列化卷烟 {} - {} 的处理结果失败: {}", item.cigCode, item.cigName, e.getMessage());
+        }
+        int updated = jdbcTemplate.update(CigaretteDistributionSqlBuilder.buildFinishJobItemSql(),
+                status, resultJson, System.currentTimeMillis(), item.id, workerId);
+        if (updated == 0) {
+            log.warn("任务项 {}（卷烟 {} - {}）租约已过期并被其他实例重新领取，本实例结果不记录", item.id, item.cigCode, item.cigName);
+        }
+    }
+
+    // ==================== 辅助方法 ====================
+
+    private Long insertJob(Integer year, Integer month, Integer weekSeq, BigDecimal urbanRatio, BigDecimal ruralRatio,
+                           int totalItems, long createdAt) {
+        Object[] params = new Object[]{year, month, weekSeq, urbanRatio, ruralRatio, JOB_RUNNING, workerId, totalItems, createdAt};
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        String insertSql = CigaretteDistributionSqlBuilder.buildInsertJobSql();
+        jdbcTemplate.update(connection -> {
+            PreparedStatement ps = connection.prepareStatement(insertSql, new String[]{"id"});
+            for (int i = 0; i < params.length; i++) {
+                ps.setObject(i + 1, params[i]);
+            }
+            return ps;
+        }, keyHolder);
+        if (keyHolder.getKey() == null) {
+            throw new IllegalStateException("创建分布式分配任务失败：未返回任务ID");
+        }
+        return keyHolder.getKey().longValue();
+    }
+
+    /**
+     * @return 影响行数；任务已不在进行中（如已被其他实例判定为超时失败）时为0
+     */
+    private int finishJob(Long jobId, String status) {
+        return jdbcTemplate.update(CigaretteDistributionSqlBuilder.buildFinishJobSql(), status, System.currentTimeMillis(), jobId);
+    }
+
+    private Map<String, Integer> loadProgress(Long jobId) {
+        Map<String, Integer> progress = new TreeMap<>();
+        for (Map<String, Object> row : jdbcTemplate.queryForList(CigaretteDistributionSqlBuilder.buildJobItemProgressSql(), jobId)) {
+            progress.put((String) row.get("STATUS"), ((Number) row.get("ITEM_COUNT")).intValue());
+        }
+        return progress;
+    }
+
+    private Map<String, Object> parseResult(String resultJson) {
+        if (resultJson == null || resultJson.isEmpty()) {
+            return new HashMap<>();
+        }
+        try {
+            return objectMapper.readerFor(new TypeReference<Map<String, Object>>() {})
+                    .with(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS)
+                    .readValue(resultJson);
+        } catch (Exception e) {
+            log.warn("解析任务项结果失败: {}", e.getMessage());
+            return new HashMap<>();
+        }
+    }
+
+    /**
+     * 确保任务表存在（每个实例只执行一次建表语句）
+     */
+    private void ensureJobTablesExist() {
+        if (tablesReady) {
+            return;
+        }
+        synchronized (this) {
+            if (!tablesReady) {
+                jdbcTemplate.execute(CigaretteDistributionSqlBuilder.buildCreateJobTableSql());
+                jdbcTemplate.execute(CigaretteDistributionSqlBuilder.buildCreateJobItemTableSql());
+                tablesReady = true;
+            }
+        }
+    }
+
+    private static final class JobInfo {
+        private final Long id;
+        private final Integer year;
+        private final Integer month;
+        private final Integer weekSeq;
+        private final Map<String, BigDecimal> marketRatios;
+
+        private JobInfo(Long id, Integer year, Integer month, Integer weekSeq, Map<String, BigDecimal> marketRatios) {
+            this.id = id;
+            this.year = year;
+            this.month = month;
+            this.weekSeq = weekSeq;
+            this.marketRatios = marketRatios;
+        }
+    }
+
+    private static final class ClaimedItem {
+        private final long id;
+        private final String cigCode;
+        private final String cigName;
+
+        private ClaimedItem(long id, String cigCode, String cigName) {
+            this.id = id;
+            this.cigCode = cigCode;
+            this.cigName = cigName;
+        }
+    }
+}
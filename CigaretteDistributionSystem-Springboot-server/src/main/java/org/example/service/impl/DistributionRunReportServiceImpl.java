@@ -0,0 +1,158 @@
+package org.example.service.impl;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.example.service.DistributionRunReportService;
+import org.example.util.CigaretteDistributionSqlBuilder;
+import org.example.util.DistributionRunReport;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 分配方案运行报告服务实现类
+ * 负责distribution_run_report表的建表、写入和查询
+ */
+@Slf4j
+@Service
+public class DistributionRunReportServiceImpl implements DistributionRunReportService {
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    private volatile boolean tableReady = false;
+    
+    /**
+     * 启动时创建运行报告表：保存报告时通常处于一键生成的事务中，MySQL的建表语句会隐式提交该事务
+     */
+    @PostConstruct
+    public void init() {
+        try {
+            ensureRunReportTableExists();
+        } catch (DataAccessException e) {
+            log.warn("运行报告表创建失败，将在首次非事务内访问时重试: {}", e.getMessage());
+        }
+    }
+    
+    @Override
+    public Long saveRunReport(DistributionRunReport report, Map<String, Object> reportMap, Integer successCount, boolean success) {
+        try {
+            if (!tableReady && TransactionSynchronizationManager.isActualTransactionActive()) {
+                log.warn("运行报告表未就绪，事务内不执行建表，跳过保存运行报告: {}-{}-{}",
+                        report.getYear(), report.getMonth(), report.getWeekSeq());
+                return null;
+            }
+            ensureRunReportTableExists();
+            
+            String reportJson = objectMapper.writeValueAsString(reportMap);
+            Object[] params = new Object[] {
+                report.getYear(), report.getMonth(), report.getWeekSeq(),
+                report.getStartTime(), report.getTotalMs(),
+                BigDecimal.valueOf(report.getDeleteMs()), BigDecimal.valueOf(report.getComputeMs()),
+                BigDecimal.valueOf(report.getWriteBackMs()), BigDecimal.valueOf(report.getEncodeMs()),
+                report.getDbRoundTrips(), report.getCigaretteCount(), successCount,
+                success, reportJson
+            };
+            
+            KeyHolder keyHolder = new GeneratedKeyHolder();
+            String insertSql = CigaretteDistributionSqlBuilder.buildInsertRunReportSql();
+            jdbcTemplate.update(connection -> {
+                // 仅返回主键列，避免部分驱动同时返回CREATED_AT等默认值列
+                PreparedStatement ps = connection.prepareStatement(insertSql, new String[]{"id"});
+                for (int i = 0; i < params.length; i++) {
+                    ps.setObject(i + 1, params[i]);
+                }
+                return ps;
+            }, keyHolder);
+            
+            Long reportId = keyHolder.getKey() != null ? keyHolder.getKey().longValue() : null;
+            log.info("运行报告已保存，ID: {}, 时间: {}-{}-{}, 总耗时: {}ms, 数据库往返: {}次", 
+                    reportId, report.getYear(), report.getMonth(), report.getWeekSeq(), 
+                    report.getTotalMs(), report.getDbRoundTrips());
+            return reportId;
+            
+        } catch (Exception e) {
+            log.error("保存运行报告失败，时间: {}-{}-{}, 错误: {}", 
+                    report.getYear(), report.getMonth(), report.getWeekSeq(), e.getMessage(), e);
+            return null;
+        }
+    }
+    
+    @Override
+    public List<Map<String, Object>> listRunReports(Integer year, Integer month, Integer weekSeq, int limit) {
+        ensureRunReportTableExists();
+        
+        boolean filterByWeek = year != null && month != null && weekSeq != null;
+        String sql = CigaretteDistributionSqlBuilder.buildRunReportQuerySql(filterByWeek);
+        List<Map<String, Object>> rows = filterByWeek
+                ? jdbcTemplate.queryForList(sql, year, month, weekSeq, limit)
+                : jdbcTemplate.queryForList(sql, limit);
+        
+        List<Map<String, Object>> reports = new ArrayList<>();
+        for (Map<String, Object> row : rows) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("id", row.get("id"));
+            item.put("year", row.get("YEAR"));
+            item.put("month", row.get("MONTH"));
+            item.put("weekSeq", row.get("WEEK_SEQ"));
+            item.put("startTime", row.get("START_TIME"));
+            item.put("totalMs", row.get("TOTAL_MS"));
+            item.put("deleteMs", row.get("DELETE_MS"));
+            item.put("computeMs", row.get("COMPUTE_MS"));
+            item.put("writeBackMs", row.get("WRITE_BACK_MS"));
+            item.put("encodeMs", row.get("ENCODE_MS"));
+            item.put("dbRoundTrips", row.get("DB_ROUND_TRIPS"));
+            item.put("cigaretteCount", row.get("CIGARETTE_COUNT"));
+            item.put("successCount", row.get("SUCCESS_COUNT"));
+            item.put("success", row.get("SUCCESS"));
+            item.put("createdAt", row.get("CREATED_AT"));
+            item.put("report", parseReportJson((String) row.get("REPORT_JSON")));
+            reports.add(item);
+        }
+        return reports;
+    }
+    
+    /**
+     * 确保运行报告表存在（每个实例只执行一次建表语句）
+     */
+    private void ensureRunReportTableExists() {
+        if (tableReady) {
+            return;
+        }
+        synchronized (this) {
+            if (!tableReady) {
+                jdbcTemplate.execute(CigaretteDistributionSqlBuilder.buildCreateRunReportTableSql());
+                tableReady = true;
+                log.debug("运行报告表已就绪: distribution_run_report");
+            }
+        }
+    }
+    
+    private Map<String, Object> parseReportJson(String reportJson) {
+        if (reportJson == null || reportJson.isEmpty()) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(reportJson, new TypeReference<Map<String, Object>>() {});
+        } catch (Exception e) {
+            log.warn("解析运行报告JSON失败: {}", e.getMessage());
+            return null;
+        }
+    }
+}
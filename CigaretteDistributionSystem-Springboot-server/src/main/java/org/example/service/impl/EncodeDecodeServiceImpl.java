@@ -3,11 +3,15 @@ package org.example.service.impl;
 import lombok.extern.slf4j.Slf4j;
 import org.example.entity.CigaretteDistributionPredictionData;
 import org.example.service.EncodeDecodeService;
+import org.example.service.RegionCodeService;
+import org.example.util.EncodedExpressionCache;
+import org.example.util.EncodedExpressionParser;
+import org.example.util.RegionCodeTable;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.util.*;
-import java.util.stream.Collectors;
 
 /**
  * 语义编码解码服务实现
@@ -34,51 +38,23 @@ public class EncodeDecodeServiceImpl implements EncodeDecodeService {
         put("档位+业态", "5");
     }};
 
-    // 区域编码映射 - 档位+区县
-    private static final Map<String, String> COUNTY_CODES = new HashMap<String, String>() {{
-        put("城区", "1");
-        put("丹江", "2");
-        put("房县", "3");
-        put("郧西", "4");
-        put("郧阳", "5");
-        put("竹山", "6");
-        put("竹溪", "7");
-    }};
+    // 反向映射 - 用于解码
+    private static final Map<String, String> REVERSE_DELIVERY_METHOD_CODES = reverseMap(DELIVERY_METHOD_CODES);
+    private static final Map<String, String> REVERSE_DELIVERY_ETYPE_CODES = reverseMap(DELIVERY_ETYPE_CODES);
 
-    // 区域编码映射 - 档位+市场类型
-    private static final Map<String, String> MARKET_CODES = new HashMap<String, String>() {{
-        put("城网", "C");
-        put("农网", "N");
-    }};
+    // 按单字符代码查找的投放方法/扩展投放类型名称 - 用于解析时避免为每个代码字符创建字符串
+    private static final Map<Character, String> DELIVERY_METHOD_NAMES = charKeyMap(REVERSE_DELIVERY_METHOD_CODES);
+    private static final Map<Character, String> DELIVERY_ETYPE_NAMES = charKeyMap(REVERSE_DELIVERY_ETYPE_CODES);
 
-    // 区域编码映射 - 档位+城乡分类代码
-    private static final Map<String, String> URBAN_RURAL_CODES = new HashMap<String, String>() {{
-        put("主城区", "①");
-        put("城乡结合区", "②");
-        put("镇中心区", "③");
-        put("镇乡接合区", "④");
-        put("特殊区域", "⑤");
-        put("乡中心区", "⑥");
-        put("村庄", "⑦");
-    }};
+    @Autowired
+    private EncodedExpressionCache expressionCache;
 
-    // 区域编码映射 - 档位+业态
-    private static final Map<String, String> BUSINESS_FORMAT_CODES = new HashMap<String, String>() {{
-        put("便利店", "a");
-        put("超市", "b");
-        put("商场", "c");
-        put("烟草专业店", "d");
-        put("娱乐服务类", "e");
-        put("其他", "f");
-    }};
+    // 区域编码表来源（区域编码字典表，支持热加载）；未注入时使用默认编码
+    @Autowired
+    private RegionCodeService regionCodeService;
 
-    // 反向映射 - 用于解码
-    private static final Map<String, String> REVERSE_DELIVERY_METHOD_CODES = reverseMap(DELIVERY_METHOD_CODES);
-    private static final Map<String, String> REVERSE_DELIVERY_ETYPE_CODES = reverseMap(DELIVERY_ETYPE_CODES);
-    private static final Map<String, String> REVERSE_COUNTY_CODES = reverseMap(COUNTY_CODES);
-    private static final Map<String, String> REVERSE_MARKET_CODES = reverseMap(MARKET_CODES);
-    private static final Map<String, String> REVERSE_URBAN_RURAL_CODES = reverseMap(URBAN_RURAL_CODES);
-    private static final Map<String, String> REVERSE_BUSINESS_FORMAT_CODES = reverseMap(BUSINESS_FORMAT_CODES);
+    // 当前区域编码表编译出的解析器（区域编码表重新加载后按需重建）
+    private volatile CompiledRegionCodes compiledRegionCodes;
 
     /**
      * 为指定卷烟的所有投放记录生成编码化表达
@@ -167,59 +143,45 @@ public class EncodeDecodeServiceImpl implements EncodeDecodeService {
         if (encodedExpression == null || encodedExpression.trim().isEmpty()) {
             return "";
         }
+        if (expressionCache == null) {
+            return decodeExpression(encodedExpression);
+        }
+        return expressionCache.decoded(encodedExpression, this::decodeExpression);
+    }
 
+    /**
+     * 解码编码化表达（不经过缓存）
+     */
+    private String decodeExpression(String encodedExpression) {
         try {
             StringBuilder decodedResult = new StringBuilder();
-            
-            // 解析编码字符串
-            String expression = encodedExpression.trim();
-            int currentPos = 0;
+            EncodedExpressionParser.ParsedExpression parsed = parseExpression(encodedExpression);
 
             // 第一步：解码投放类型
-            if (currentPos < expression.length()) {
-                String deliveryMethodCode = expression.substring(currentPos, currentPos + 1);
-                String deliveryMethod = REVERSE_DELIVERY_METHOD_CODES.get(deliveryMethodCode);
-                if (deliveryMethod != null) {
-                    decodedResult.append(deliveryMethod);
-                    currentPos++;
-                } else {
-                    log.warn("无法解码投放方法代码: {}", deliveryMethodCode);
-                    return "解码失败：未知的投放方法代码";
-                }
+            String deliveryMethod = DELIVERY_METHOD_NAMES.get(parsed.getMethod());
+            if (deliveryMethod == null) {
+                log.warn("无法解码投放方法代码: {}", parsed.getMethod());
+                return "解码失败：未知的投放方法代码";
             }
+            decodedResult.append(deliveryMethod);
 
             // 第二步：解码扩展投放类型（如果是B类型）
-            String etypeCode = null;
-            if (currentPos < expression.length() && "B".equals(expression.substring(0, 1))) {
-                etypeCode = expression.substring(currentPos, currentPos + 1);
-                String deliveryEtype = REVERSE_DELIVERY_ETYPE_CODES.get(etypeCode);
-                if (deliveryEtype != null) {
-                    decodedResult.append("、").append(deliveryEtype);
-                    currentPos++;
-                } else {
-                    log.warn("无法解码扩展投放类型代码: {}", etypeCode);
+            if (parsed.hasEtype()) {
+                String deliveryEtype = DELIVERY_ETYPE_NAMES.get(parsed.getEtype());
+                if (deliveryEtype == null) {
+                    log.warn("无法解码扩展投放类型代码: {}", parsed.getEtype());
                     return "解码失败：未知的扩展投放类型代码";
                 }
+                decodedResult.append("、").append(deliveryEtype);
             }
 
-            // 第三步和第四步：解码区域和档位投放量（在括号中）
-            String remainingExpression = expression.substring(currentPos);
-            
-            // 确定扩展投放类型用于区域解码
-            String deliveryEtypeForDecode = null;
-            if (etypeCode != null) {
-                deliveryEtypeForDecode = REVERSE_DELIVERY_ETYPE_CODES.get(etypeCode);
-            }
-            
-            String regionDecoded = decodeRegionsFromExpressionWithEtype(remainingExpression, deliveryEtypeForDecode);
-            String allocationDecoded = decodeAllocationsFromExpression(remainingExpression);
-
+            // 第三步和第四步：解码区域（第一个括号）和档位投放量（第二个括号，无需解码）
+            String regionDecoded = decodeRegions(parsed);
             if (!regionDecoded.isEmpty()) {
                 decodedResult.append("、").append(regionDecoded);
             }
-            
-            if (!allocationDecoded.isEmpty()) {
-                decodedResult.append("、").append(allocationDecoded);
+            if (parsed.isGroupClosed(1)) {
+                decodedResult.append("、（").append(parsed.getGroupText(1)).append("）");
             }
 
             String result = decodedResult.toString();
@@ -232,6 +194,17 @@ public class EncodeDecodeServiceImpl implements EncodeDecodeService {
         }
     }
 
+    /**
+     * 编码表达式缓存统计
+     */
+    @Override
+    public Map<String, Object> getCacheStats() {
+        if (expressionCache == null) {
+            return Collections.singletonMap("enabled", false);
+        }
+        return expressionCache.getStats();
+    }
+
     /**
      * 为特定区域的记录生成编码表达式
      * 根据该区域所属的档位设置组，返回该组的聚合编码表达式
@@ -260,40 +233,132 @@ public class EncodeDecodeServiceImpl implements EncodeDecodeService {
             }
         }
         
-        // 第三步：按档位设置分组，找到目标区域所属的组
-        Map<String, List<CigaretteDistributionPredictionData>> gradeGroups = groupRecordsByGradeSettings(allCigaretteRecords);
+        // 第三步：找到目标区域的档位设置，聚合档位设置相同的区域生成该组的编码表达式
+        CigaretteDistributionPredictionData targetRecord = null;
+        for (CigaretteDistributionPredictionData record : allCigaretteRecords) {
+            if (targetArea.equals(record.getDeliveryArea())) {
+                targetRecord = record;
+                break;
+            }
+        }
+        if (targetRecord == null) {
+            log.warn("未找到区域 {} 在卷烟 {} - {} 的档位设置组中", targetArea, cigCode, cigName);
+            return "";
+        }
+
+        RegionCodeTable regionTable = getRegionCodeTable(deliveryEtype);
+        GradeGroup targetGroup = new GradeGroup(EncodedExpressionCache.GradeKey.of(targetRecord.getGrades()));
+        for (CigaretteDistributionPredictionData record : allCigaretteRecords) {
+            if (record == targetRecord || targetGroup.key.matches(record.getGrades())) {
+                targetGroup.addRegion(regionTable, record.getDeliveryArea());
+            }
+        }
+        return buildGroupExpression(deliveryMethodCode, etypeCode, regionTable, targetGroup);
+    }
+
+    /**
+     * 对卷烟的全部区域做一次档位分组，返回各区域所属分组的编码表达式
+     * 同一分组的区域共用同一个编码表达式实例
+     */
+    @Override
+    public Map<String, String> encodeByArea(String cigCode, String cigName, String deliveryMethod, String deliveryEtype, 
+                                           List<CigaretteDistributionPredictionData> cigaretteRecords) {
+        if (cigaretteRecords == null || cigaretteRecords.isEmpty()) {
+            return Collections.emptyMap();
+        }
         
-        for (Map.Entry<String, List<CigaretteDistributionPredictionData>> entry : gradeGroups.entrySet()) {
-            List<CigaretteDistributionPredictionData> groupRecords = entry.getValue();
-            
-            // 检查目标区域是否在这个组中
-            boolean targetAreaInThisGroup = groupRecords.stream()
-                .anyMatch(record -> targetArea.equals(record.getDeliveryArea()));
-                
-            if (targetAreaInThisGroup) {
-                // 找到了目标区域所属的组，生成该组的编码表达式
-                StringBuilder encodedResult = new StringBuilder();
-                encodedResult.append(deliveryMethodCode).append(etypeCode);
-                
-                // 编码该组的区域信息
-                String regionCodes = encodeRegionsForGroup(deliveryEtype, groupRecords);
-                if (!regionCodes.isEmpty()) {
-                    encodedResult.append("（").append(regionCodes).append("）");
+        String deliveryMethodCode = DELIVERY_METHOD_CODES.get(deliveryMethod);
+        if (deliveryMethodCode == null) {
+            log.warn("无法编码投放类型: {}", deliveryMethod);
+            return Collections.emptyMap();
+        }
+        String etypeCode = "";
+        if ("B".equals(deliveryMethodCode)) {
+            etypeCode = DELIVERY_ETYPE_CODES.get(deliveryEtype);
+            if (etypeCode == null) {
+                log.warn("无法编码扩展投放类型: {}", deliveryEtype);
+                return Collections.emptyMap();
+            }
+        }
+        
+        RegionCodeTable regionTable = getRegionCodeTable(deliveryEtype);
+        Map<EncodedExpressionCache.GradeKey, GradeGroup> groups = new LinkedHashMap<>();
+        List<GradeGroup> recordGroups = new ArrayList<>(cigaretteRecords.size());
+        for (CigaretteDistributionPredictionData record : cigaretteRecords) {
+            EncodedExpressionCache.GradeKey key = EncodedExpressionCache.GradeKey.of(record.getGrades());
+            GradeGroup group = groups.computeIfAbsent(key, GradeGroup::new);
+            group.addRegion(regionTable, record.getDeliveryArea());
+            recordGroups.add(group);
+        }
+        
+        Map<GradeGroup, String> groupExpressions = new IdentityHashMap<>();
+        Map<String, String> expressionByArea = new LinkedHashMap<>();
+        for (int i = 0; i < cigaretteRecords.size(); i++) {
+            String area = cigaretteRecords.get(i).getDeliveryArea();
+            if (area == null || expressionByArea.containsKey(area)) {
+                continue;
+            }
+            GradeGroup group = recordGroups.get(i);
+            String expression = groupExpressions.get(group);
+            if (expression == null) {
+                expression = buildGroupExpression(deliveryMethodCode, etypeCode, regionTable, group);
+                groupExpressions.put(group, expression);
+            }
+            expressionByArea.put(area, expression);
+        }
+        log.debug("卷烟 {} - {} 全部区域编码完成，区域数: {}，分组数: {}", cigCode, cigName, expressionByArea.size(), groups.size());
+        return expressionByArea;
+    }
+
+    /**
+     * 校验存储的编码表达式与记录一致：投放类型、档位取整值，以及区域位恰好等于该卷烟中档位相同的全部区域
+     * （旧版单区域编码、早先编辑遗留的同组区域列表均视为过期）
+     */
+    @Override
+    public boolean isStoredCodeCurrent(CigaretteDistributionPredictionData record,
+                                       List<CigaretteDistributionPredictionData> cigaretteRecords) {
+        String storedCode = record.getDeployinfoCode();
+        // 多个编码表达式以"; "连接的编码（encodeToString）不是单个区域的编码
+        if (storedCode == null || storedCode.trim().isEmpty() || storedCode.indexOf(';') >= 0) {
+            return false;
+        }
+        String deliveryMethodCode = DELIVERY_METHOD_CODES.get(record.getDeliveryMethod());
+        if (deliveryMethodCode == null) {
+            return false;
+        }
+        
+        EncodedExpressionParser.ParsedExpression parsed = parseExpression(storedCode);
+        if (parsed.getGrades() == null || parsed.getRegionError() != null || parsed.getUnknownRegion() != null
+                || parsed.getMethod() != deliveryMethodCode.charAt(0)) {
+            return false;
+        }
+        EncodedExpressionCache.GradeKey gradeKey = EncodedExpressionCache.GradeKey.of(parsed.getGrades());
+        if (!gradeKey.matches(record.getGrades())) {
+            return false;
+        }
+        if ("B".equals(deliveryMethodCode)) {
+            String etypeCode = DELIVERY_ETYPE_CODES.get(record.getDeliveryEtype());
+            if (etypeCode == null || !parsed.hasEtype() || parsed.getEtype() != etypeCode.charAt(0)) {
+                return false;
+            }
+            RegionCodeTable regionTable = getRegionCodeTable(record.getDeliveryEtype());
+            if (regionTable != null && regionTable.bitOf(record.getDeliveryArea()) != 0L) {
+                // 与encodeByArea相同的分组：该卷烟中档位取整值相同的全部区域
+                GradeGroup expectedGroup = new GradeGroup(gradeKey);
+                expectedGroup.addRegion(regionTable, record.getDeliveryArea());
+                if (cigaretteRecords != null) {
+                    for (CigaretteDistributionPredictionData sibling : cigaretteRecords) {
+                        if (sibling != record && gradeKey.matches(sibling.getGrades())) {
+                            expectedGroup.addRegion(regionTable, sibling.getDeliveryArea());
+                        }
+                    }
                 }
-                
-                // 编码该组的档位投放量信息
-                String gradeAllocationCodes = encodeGradeSequencesForGroup(groupRecords);
-                if (!gradeAllocationCodes.isEmpty()) {
-                    encodedResult.append("（").append(gradeAllocationCodes).append("）");
+                if (!parsed.isRegionsMapped() || parsed.getRegionMask() != expectedGroup.regionMask) {
+                    return false;
                 }
-                
-                return encodedResult.toString();
             }
         }
-        
-        // 如果没有找到目标区域，返回空字符串
-        log.warn("未找到区域 {} 在卷烟 {} - {} 的档位设置组中", targetArea, cigCode, cigName);
-        return "";
+        return true;
     }
 
     /**
@@ -309,53 +374,37 @@ public class EncodeDecodeServiceImpl implements EncodeDecodeService {
                 throw new IllegalArgumentException("编码表达式不能为空");
             }
             
-            String expression = encodedExpression.trim();
+            EncodedExpressionParser.ParsedExpression parsed = parseExpression(encodedExpression);
             ParsedExpressionData result = new ParsedExpressionData();
-            int currentPos = 0;
 
             // 第一步：解析投放类型
-            if (currentPos < expression.length()) {
-                String deliveryMethodCode = expression.substring(currentPos, currentPos + 1);
-                String deliveryMethod = REVERSE_DELIVERY_METHOD_CODES.get(deliveryMethodCode);
-                if (deliveryMethod != null) {
-                    result.setDeliveryMethod(deliveryMethod);
-                    currentPos++;
-                } else {
-                    throw new IllegalArgumentException("无法解析投放方法代码: " + deliveryMethodCode);
-                }
+            String deliveryMethod = DELIVERY_METHOD_NAMES.get(parsed.getMethod());
+            if (deliveryMethod == null) {
+                throw new IllegalArgumentException("无法解析投放方法代码: " + parsed.getMethod());
             }
+            result.setDeliveryMethod(deliveryMethod);
 
             // 第二步：解析扩展投放类型（如果是B类型）
-            String etypeCode = null;
-            if (currentPos < expression.length() && "B".equals(expression.substring(0, 1))) {
-                etypeCode = expression.substring(currentPos, currentPos + 1);
-                String deliveryEtype = REVERSE_DELIVERY_ETYPE_CODES.get(etypeCode);
-                if (deliveryEtype != null) {
-                    result.setDeliveryEtype(deliveryEtype);
-                    currentPos++;
-                } else {
-                    throw new IllegalArgumentException("无法解析扩展投放类型代码: " + etypeCode);
+            if (parsed.hasEtype()) {
+                String deliveryEtype = DELIVERY_ETYPE_NAMES.get(parsed.getEtype());
+                if (deliveryEtype == null) {
+                    throw new IllegalArgumentException("无法解析扩展投放类型代码: " + parsed.getEtype());
                 }
+                result.setDeliveryEtype(deliveryEtype);
             } else {
                 result.setDeliveryEtype("NULL");
             }
 
-            // 第三步：解析区域和档位信息
-            String remainingExpression = expression.substring(currentPos);
-            
-            // 确定扩展投放类型用于区域解码
-            String deliveryEtypeForDecode = null;
-            if (etypeCode != null) {
-                deliveryEtypeForDecode = REVERSE_DELIVERY_ETYPE_CODES.get(etypeCode);
+            // 第三步：解析区域列表
+            result.setDeliveryAreas(parseRegions(parsed));
+
+            // 第四步：解析档位分配
+            BigDecimal[] gradeAllocations = parsed.getGrades();
+            if (gradeAllocations == null) {
+                throw new IllegalArgumentException(parsed.getGradeError() != null
+                        ? parsed.getGradeError() : "编码表达式格式错误：找不到档位分配信息");
             }
-            
-            // 解析区域列表
-            List<String> regions = parseRegionsFromExpression(remainingExpression, deliveryEtypeForDecode);
-            result.setDeliveryAreas(regions);
-            
-            // 解析档位分配（传递完整表达式，而不是剩余部分）
-            BigDecimal[] gradeAllocations = parseGradeAllocationsFromExpression(expression);
-            result.setGradeAllocations(gradeAllocations);
+            result.setGradeAllocations(gradeAllocations.clone()); // 解析结果可能来自缓存，返回副本
             
             log.debug("解析完成: 投放类型={}, 扩展类型={}, 区域数量={}, 档位分配={}条", 
                      result.getDeliveryMethod(), result.getDeliveryEtype(), 
@@ -370,249 +419,110 @@ public class EncodeDecodeServiceImpl implements EncodeDecodeService {
     }
 
     /**
-     * 从表达式中解析区域列表
+     * 单遍解析编码表达式，优先从编码表达式缓存获取（解析结果共享，不得修改）
      */
-    private List<String> parseRegionsFromExpression(String expression, String deliveryEtype) {
-        List<String> regions = new ArrayList<>();
-        
-        // 查找第一个括号中的内容（区域编码）
-        int firstBracketStart = expression.indexOf("（");
-        if (firstBracketStart == -1) {
-            // 如果是A类型（全市统一投放），没有区域编码
-            regions.add("全市");
-            return regions;
-        }
-        
-        int firstBracketEnd = expression.indexOf("）", firstBracketStart);
-        if (firstBracketEnd == -1) {
-            throw new IllegalArgumentException("编码表达式格式错误：缺少区域编码结束括号");
+    private EncodedExpressionParser.ParsedExpression parseExpression(String encodedExpression) {
+        if (expressionCache == null) {
+            return regionCodes().parser.parse(encodedExpression);
         }
-        
-        String regionCodes = expression.substring(firstBracketStart + 1, firstBracketEnd);
-        Map<String, String> reverseCodeMap = getReverseRegionCodeMap(deliveryEtype);
-        
-        if (reverseCodeMap == null) {
-            // 对于没有扩展投放类型的情况（如A类型），返回"全市"
-            log.debug("无法确定区域编码映射类型: {}, 判断为全市统一投放", deliveryEtype);
-            regions.add("全市");
-            return regions;
-        }
-        
-        // 解码区域编码为区域名称
-        String[] codes = regionCodes.split("\\+");
-        for (String code : codes) {
-            String regionName = reverseCodeMap.get(code.trim());
-            if (regionName != null) {
-                regions.add(regionName);
-            } else {
-                throw new IllegalArgumentException("无法解码区域编码: " + code.trim());
-            }
-        }
-        
-        return regions;
+        return expressionCache.parsed(encodedExpression, expression -> regionCodes().parser.parse(expression));
     }
 
     /**
-     * 从表达式中解析档位分配
+     * 从解析结果中获取区域列表
+     * 非B类型、没有区域编码组或该扩展投放类型没有区域编码时为全市统一投放
      */
-    private BigDecimal[] parseGradeAllocationsFromExpression(String expression) {
-        BigDecimal[] grades = new BigDecimal[30]; // 30个档位
-        Arrays.fill(grades, BigDecimal.ZERO); // 初始化为0
-        
-        // 查找档位分配括号（可能是第二个括号，或者对于A类型是第一个括号）
-        int allocationBracketStart = -1;
-        int bracketCount = 0;
-        
-        for (int i = 0; i < expression.length(); i++) {
-            if (expression.charAt(i) == '（') {
-                bracketCount++;
-                // 对于A类型（全市统一投放），档位分配在第一个括号
-                // 对于B类型（扩展投放），档位分配在第二个括号
-                if ((bracketCount == 1 && expression.startsWith("A")) || 
-                    (bracketCount == 2 && expression.startsWith("B"))) {
-                    allocationBracketStart = i;
-                    break;
-                }
-            }
+    private List<String> parseRegions(EncodedExpressionParser.ParsedExpression parsed) {
+        if (parsed.getRegionError() != null) {
+            throw new IllegalArgumentException(parsed.getRegionError());
         }
-        
-        if (allocationBracketStart == -1) {
-            throw new IllegalArgumentException("编码表达式格式错误：找不到档位分配信息");
+        if (!parsed.isRegionsMapped() || !parsed.isGroupClosed(0)) {
+            log.debug("扩展投放类型{}无区域编码，判断为全市统一投放", parsed.getEtype());
+            return new ArrayList<>(Collections.singletonList("全市"));
         }
-        
-        int allocationBracketEnd = expression.indexOf("）", allocationBracketStart);
-        if (allocationBracketEnd == -1) {
-            throw new IllegalArgumentException("编码表达式格式错误：缺少档位分配结束括号");
+        if (parsed.getUnknownRegion() != null) {
+            throw new IllegalArgumentException("无法解码区域编码: " + parsed.getUnknownRegion());
         }
-        
-        String allocationCode = expression.substring(allocationBracketStart + 1, allocationBracketEnd);
-        
-        // 解析档位分配编码，例如：2×2+14×1+14×0
-        String[] segments = allocationCode.split("\\+");
-        int currentGradeIndex = 0;
-        
-        for (String segment : segments) {
-            String[] parts = segment.split("×");
-            if (parts.length != 2) {
-                throw new IllegalArgumentException("档位分配编码格式错误: " + segment);
-            }
-            
-            try {
-                int count = Integer.parseInt(parts[0].trim());
-                BigDecimal value = new BigDecimal(parts[1].trim());
-                
-                // 填充对应数量的档位
-                for (int i = 0; i < count && currentGradeIndex < 30; i++) {
-                    grades[currentGradeIndex++] = value;
-                }
-                
-            } catch (NumberFormatException e) {
-                throw new IllegalArgumentException("档位分配编码数值格式错误: " + segment, e);
-            }
+
+        RegionCodeTable regionTable = parsed.getRegionCodeTable();
+        List<String> regions = new ArrayList<>(Long.bitCount(parsed.getRegionMask()));
+        for (long mask = parsed.getRegionMask(); mask != 0; mask &= mask - 1) {
+            regions.add(regionTable.nameAt(Long.numberOfTrailingZeros(mask)));
         }
-        
-        return grades;
+        return regions;
     }
 
-
-    // ==================== 私有辅助方法 ====================
-
-
     /**
-     * 将连续档位进行压缩编码（包含所有30个档位，包括0值）
+     * 从解析结果中解码区域信息
+     * 区域名称按编码顺序直接拼接；无法确定编码类型时返回原编码，无法识别的编码保持原样
      */
-    private String encodeGradeSequences(BigDecimal[] grades) {
-        List<String> sequences = new ArrayList<>();
-        
-        int start = 0;
-        while (start < grades.length) {
-            BigDecimal currentValue = grades[start];
-            // 将null值统一处理为0
-            if (currentValue == null) {
-                currentValue = BigDecimal.ZERO;
-            }
+    private String decodeRegions(EncodedExpressionParser.ParsedExpression parsed) {
+        if (!parsed.isGroupClosed(0)) {
+            return "";
+        }
+        if (!parsed.isRegionsMapped()) {
+            return parsed.getGroupText(0); // 如果无法确定类型，返回原编码
+        }
 
-            int end = start;
-            // 找到连续且值相同的档位（包括0值）
-            while (end < grades.length) {
-                BigDecimal endValue = grades[end];
-                if (endValue == null) {
-                    endValue = BigDecimal.ZERO;
-                }
-                
-                if (endValue.compareTo(currentValue) == 0) {
-                    end++;
-                } else {
-                    break;
-                }
+        RegionCodeTable regionTable = parsed.getRegionCodeTable();
+        StringBuilder decodedRegions = new StringBuilder();
+        if (parsed.getUnknownRegion() == null) {
+            for (long mask = parsed.getRegionMask(); mask != 0; mask &= mask - 1) {
+                decodedRegions.append(regionTable.nameAt(Long.numberOfTrailingZeros(mask)));
             }
+            return decodedRegions.toString();
+        }
 
-            int count = end - start;
-            if (count > 1) {
-                sequences.add(count + "×" + formatAsInteger(currentValue));
-            } else {
-                sequences.add("1×" + formatAsInteger(currentValue));
+        // 含无法识别的编码：按原顺序逐个解码，无法解码的保持原编码
+        String regionCodes = parsed.getGroupText(0);
+        int tokenStart = 0;
+        for (int i = 0; i <= regionCodes.length(); i++) {
+            if (i < regionCodes.length() && regionCodes.charAt(i) != '+') {
+                continue;
             }
-            
-            start = end;
+            String code = regionCodes.substring(tokenStart, i).trim();
+            int index = code.length() == 1 ? regionTable.indexOf(code.charAt(0)) : -1;
+            decodedRegions.append(index >= 0 ? regionTable.nameAt(index) : code);
+            tokenStart = i + 1;
         }
-
-        return String.join("+", sequences);
+        return decodedRegions.toString();
     }
 
-    /**
-     * 提取档位数据数组
-     */
-    private BigDecimal[] extractGrades(CigaretteDistributionPredictionData record) {
-        return new BigDecimal[] {
-            record.getD30(), record.getD29(), record.getD28(), record.getD27(), record.getD26(),
-            record.getD25(), record.getD24(), record.getD23(), record.getD22(), record.getD21(),
-            record.getD20(), record.getD19(), record.getD18(), record.getD17(), record.getD16(),
-            record.getD15(), record.getD14(), record.getD13(), record.getD12(), record.getD11(),
-            record.getD10(), record.getD9(), record.getD8(), record.getD7(), record.getD6(),
-            record.getD5(), record.getD4(), record.getD3(), record.getD2(), record.getD1()
-        };
-    }
+
+    // ==================== 私有辅助方法 ====================
+
 
     /**
-     * 根据扩展投放类型获取区域编码映射
+     * 档位投放量编码，优先从编码表达式缓存获取
      */
-    private Map<String, String> getRegionCodeMap(String deliveryEtype) {
-        if (deliveryEtype == null) {
-            return null;
-        }
-
-        switch (deliveryEtype) {
-            case "档位+区县":
-                return COUNTY_CODES;
-            case "档位+市场类型":
-                return MARKET_CODES;
-            case "档位+城乡分类代码":
-                return URBAN_RURAL_CODES;
-            case "档位+业态":
-                return BUSINESS_FORMAT_CODES;
-            default:
-                return null;
+    private String encodeGradeSequences(EncodedExpressionCache.GradeKey grades) {
+        if (expressionCache == null) {
+            return buildGradeSequences(grades);
         }
+        return expressionCache.gradeSequence(grades, EncodeDecodeServiceImpl::buildGradeSequences);
     }
 
     /**
-     * 从表达式中解码区域信息（带指定的扩展投放类型）
+     * 将连续档位进行压缩编码（包含所有30个档位，包括0值），例如 2×5+1×3+27×0
      */
-    private String decodeRegionsFromExpressionWithEtype(String expression, String deliveryEtype) {
-        // 查找第一个括号中的内容（区域编码）
-        int firstBracketStart = expression.indexOf("（");
-        if (firstBracketStart == -1) return "";
-        
-        int firstBracketEnd = expression.indexOf("）", firstBracketStart);
-        if (firstBracketEnd == -1) return "";
-        
-        String regionCodes = expression.substring(firstBracketStart + 1, firstBracketEnd);
-        
-        Map<String, String> reverseCodeMap = getReverseRegionCodeMap(deliveryEtype);
-        
-        if (reverseCodeMap == null) {
-            return regionCodes; // 如果无法确定类型，返回原编码
-        }
-        
-        // 解码区域编码为区域名称
-        StringBuilder decodedRegions = new StringBuilder();
-        String[] codes = regionCodes.split("\\+");
-        
-        for (String code : codes) {
-            String regionName = reverseCodeMap.get(code.trim());
-            if (regionName != null) {
-                decodedRegions.append(regionName);
-            } else {
-                // 如果无法解码，保持原编码
-                decodedRegions.append(code.trim());
+    private static String buildGradeSequences(EncodedExpressionCache.GradeKey grades) {
+        StringBuilder sequences = new StringBuilder(32);
+        int start = 0;
+        while (start < grades.size()) {
+            int end = start + 1;
+            // 找到连续且值相同的档位（包括0值）
+            while (end < grades.size() && grades.get(end) == grades.get(start)) {
+                end++;
+            }
+            if (start > 0) {
+                sequences.append('+');
             }
+            sequences.append(end - start).append('×').append(grades.get(start));
+            start = end;
         }
-        
-        String result = decodedRegions.toString();
-        return result;
+        return sequences.toString();
     }
 
-
-    /**
-     * 从表达式中解码档位投放量信息
-     */
-    private String decodeAllocationsFromExpression(String expression) {
-        // 查找第二个括号中的内容（档位投放量编码）
-        int firstBracketEnd = expression.indexOf("）");
-        if (firstBracketEnd == -1) return "";
-        
-        int secondBracketStart = expression.indexOf("（", firstBracketEnd);
-        if (secondBracketStart == -1) return "";
-        
-        int secondBracketEnd = expression.indexOf("）", secondBracketStart);
-        if (secondBracketEnd == -1) return "";
-        
-        String allocationCodes = expression.substring(secondBracketStart + 1, secondBracketEnd);
-        // 投放量编码无需解码，直接返回
-        return "（" + allocationCodes + "）";
-    }
-    
     /**
      * 从编码表达式中确定扩展投放类型
      */
@@ -632,25 +542,28 @@ public class EncodeDecodeServiceImpl implements EncodeDecodeService {
     }
     
     /**
-     * 根据扩展投放类型获取反向区域编码映射
+     * 当前区域编码表及其编译出的解析器，区域编码字典重新加载（返回新的编码表实例）后重建
      */
-    private Map<String, String> getReverseRegionCodeMap(String deliveryEtype) {
-        if (deliveryEtype == null) {
-            return null;
-        }
+    private CompiledRegionCodes regionCodes() {
+        Map<String, RegionCodeTable> tables = regionCodeService != null
+                ? regionCodeService.getRegionCodeTables() : RegionCodeTable.defaults();
+        CompiledRegionCodes compiled = compiledRegionCodes;
+        if (compiled == null || compiled.tables != tables) {
+            compiled = new CompiledRegionCodes(tables);
+            compiledRegionCodes = compiled;
+        }
+        return compiled;
+    }
 
-        switch (deliveryEtype) {
-            case "档位+区县":
-                return REVERSE_COUNTY_CODES;
-            case "档位+市场类型":
-                return REVERSE_MARKET_CODES;
-            case "档位+城乡分类代码":
-                return REVERSE_URBAN_RURAL_CODES;
-            case "档位+业态":
-                return REVERSE_BUSINESS_FORMAT_CODES;
-            default:
-                return null;
+    /**
+     * 将单字符代码为键的映射转换为按字符查找
+     */
+    private static Map<Character, String> charKeyMap(Map<String, String> codeMap) {
+        Map<Character, String> result = new HashMap<>();
+        for (Map.Entry<String, String> entry : codeMap.entrySet()) {
+            result.put(entry.getKey().charAt(0), entry.getValue());
         }
+        return result;
     }
 
     /**
@@ -664,128 +577,114 @@ public class EncodeDecodeServiceImpl implements EncodeDecodeService {
         return reversedMap;
     }
     
-    /**
-     * 将BigDecimal格式化为整数字符串
-     * 如果是小数，则四舍五入到最近的整数
-     */
-    private String formatAsInteger(BigDecimal value) {
-        if (value == null) {
-            return "0";
-        }
-        // 使用 intValue() 直接取整数部分，或者使用 setScale(0, RoundingMode.HALF_UP) 四舍五入
-        return String.valueOf(value.setScale(0, java.math.RoundingMode.HALF_UP).intValue());
-    }
-    
     /**
      * 按档位设置分组生成多个编码表达式
      * 相同档位设置的区域聚合成一个编码表达式，不同档位设置的区域生成不同的编码表达式
      */
     private List<String> generateMultipleEncodedExpressions(String deliveryMethodCode, String etypeCode, 
                                                            String deliveryEtype, List<CigaretteDistributionPredictionData> records) {
-        List<String> expressions = new ArrayList<>();
-        
-        // 按档位设置对区域进行分组
-        Map<String, List<CigaretteDistributionPredictionData>> gradeGroups = groupRecordsByGradeSettings(records);
-        
-        for (Map.Entry<String, List<CigaretteDistributionPredictionData>> entry : gradeGroups.entrySet()) {
-            List<CigaretteDistributionPredictionData> groupRecords = entry.getValue();
-            
-            StringBuilder encodedResult = new StringBuilder();
-            
-            // 添加投放类型编码
-            encodedResult.append(deliveryMethodCode).append(etypeCode);
-            
-            // 添加区域编码（聚合相同档位设置的区域）
-            String regionCodes = encodeRegionsForGroup(deliveryEtype, groupRecords);
-            if (!regionCodes.isEmpty()) {
-                encodedResult.append("（").append(regionCodes).append("）");
-            }
-            
-            // 添加档位投放量编码
-            String gradeAllocationCodes = encodeGradeSequencesForGroup(groupRecords);
-            if (!gradeAllocationCodes.isEmpty()) {
-                encodedResult.append("（").append(gradeAllocationCodes).append("）");
-            }
-            
-            expressions.add(encodedResult.toString());
+        RegionCodeTable regionTable = getRegionCodeTable(deliveryEtype);
+        List<GradeGroup> gradeGroups = groupRecordsByGradeSettings(regionTable, records);
+
+        List<String> expressions = new ArrayList<>(gradeGroups.size());
+        for (GradeGroup group : gradeGroups) {
+            expressions.add(buildGroupExpression(deliveryMethodCode, etypeCode, regionTable, group));
         }
-        
         return expressions;
     }
     
     /**
      * 按档位设置对区域进行分组
-     * 档位设置完全相同的区域归为一组
+     * 档位设置（取整后）完全相同的区域归为一组；分组按所含最小区域编码排序，
+     * 没有区域编码的扩展投放类型按记录首次出现的顺序排列
      */
-    private Map<String, List<CigaretteDistributionPredictionData>> groupRecordsByGradeSettings(List<CigaretteDistributionPredictionData> records) {
-        Map<String, List<CigaretteDistributionPredictionData>> groups = new HashMap<>();
-        
+    private List<GradeGroup> groupRecordsByGradeSettings(RegionCodeTable regionTable,
+                                                         List<CigaretteDistributionPredictionData> records) {
+        Map<EncodedExpressionCache.GradeKey, GradeGroup> groups = new LinkedHashMap<>();
         for (CigaretteDistributionPredictionData record : records) {
-            String gradePattern = generateGradePattern(record);
-            groups.computeIfAbsent(gradePattern, k -> new ArrayList<>()).add(record);
+            EncodedExpressionCache.GradeKey key = EncodedExpressionCache.GradeKey.of(record.getGrades());
+            GradeGroup group = groups.get(key);
+            if (group == null) {
+                group = new GradeGroup(key);
+                groups.put(key, group);
+            }
+            group.addRegion(regionTable, record.getDeliveryArea());
         }
-        
-        return groups;
+
+        List<GradeGroup> ordered = new ArrayList<>(groups.values());
+        if (regionTable != null) {
+            ordered.sort(Comparator.comparingInt(group -> Long.numberOfTrailingZeros(group.regionMask)));
+        }
+        return ordered;
     }
-    
+
     /**
-     * 生成区域的档位设置模式字符串，用于分组
+     * 生成一个分组的编码表达式：投放类型编码 + （区域编码） + （档位投放量编码）
      */
-    private String generateGradePattern(CigaretteDistributionPredictionData record) {
-        BigDecimal[] grades = extractGrades(record);
-        StringBuilder pattern = new StringBuilder();
-        
-        for (int i = 0; i < grades.length; i++) {
-            if (i > 0) pattern.append(",");
-            pattern.append(grades[i] != null ? formatAsInteger(grades[i]) : "0");
+    private String buildGroupExpression(String deliveryMethodCode, String etypeCode,
+                                        RegionCodeTable regionTable, GradeGroup group) {
+        StringBuilder encodedResult = new StringBuilder(64);
+
+        // 添加投放类型编码
+        encodedResult.append(deliveryMethodCode).append(etypeCode);
+
+        // 添加区域编码（聚合相同档位设置的区域，编码表按字典序排列，位掩码即对应排序后的编码串）
+        if (regionTable != null && group.regionMask != 0) {
+            encodedResult.append("（").append(regionTable.encode(group.regionMask)).append("）");
         }
-        
-        return pattern.toString();
+
+        // 添加档位投放量编码（相同档位设置共用缓存中的编码串）
+        encodedResult.append("（").append(encodeGradeSequences(group.key)).append("）");
+
+        return encodedResult.toString();
     }
-    
+
     /**
-     * 为分组编码区域信息
+     * 根据扩展投放类型名称获取区域编码表，没有区域编码时返回null
      */
-    private String encodeRegionsForGroup(String deliveryEtype, List<CigaretteDistributionPredictionData> groupRecords) {
-        if (groupRecords == null || groupRecords.isEmpty()) {
-            return "";
-        }
+    private RegionCodeTable getRegionCodeTable(String deliveryEtype) {
+        return deliveryEtype != null ? regionCodes().tables.get(deliveryEtype) : null;
+    }
 
-        // 获取分组中所有区域并去重
-        Set<String> regions = groupRecords.stream()
-                .map(CigaretteDistributionPredictionData::getDeliveryArea)
-                .filter(Objects::nonNull)
-                .collect(Collectors.toSet());
+    /**
+     * 按扩展投放类型代码索引的区域编码表及对应的编码表达式解析器
+     */
+    private static final class CompiledRegionCodes {
 
-        Map<String, String> codeMap = getRegionCodeMap(deliveryEtype);
-        if (codeMap == null) {
-            return "";
-        }
+        private final Map<String, RegionCodeTable> tables;
+        private final EncodedExpressionParser parser;
 
-        List<String> regionCodes = new ArrayList<>();
-        for (String region : regions) {
-            String code = codeMap.get(region);
-            if (code != null) {
-                regionCodes.add(code);
+        private CompiledRegionCodes(Map<String, RegionCodeTable> tables) {
+            this.tables = tables;
+            Map<Character, RegionCodeTable> byEtypeCode = new HashMap<>();
+            for (Map.Entry<String, RegionCodeTable> entry : tables.entrySet()) {
+                String etypeCode = DELIVERY_ETYPE_CODES.get(entry.getKey());
+                if (etypeCode == null) {
+                    log.warn("区域编码字典中的扩展投放类型[{}]没有对应的编码，忽略", entry.getKey());
+                    continue;
+                }
+                byEtypeCode.put(etypeCode.charAt(0), entry.getValue());
             }
+            this.parser = new EncodedExpressionParser(byEtypeCode);
         }
-
-        // 排序并用+连接
-        Collections.sort(regionCodes);
-        return String.join("+", regionCodes);
     }
-    
+
     /**
-     * 为分组编码档位投放量信息
+     * 档位设置分组：取整后的档位向量及组内区域位掩码
      */
-    private String encodeGradeSequencesForGroup(List<CigaretteDistributionPredictionData> groupRecords) {
-        if (groupRecords == null || groupRecords.isEmpty()) {
-            return "";
+    private static final class GradeGroup {
+
+        private final EncodedExpressionCache.GradeKey key;
+        private long regionMask;
+
+        private GradeGroup(EncodedExpressionCache.GradeKey key) {
+            this.key = key;
+        }
+
+        private void addRegion(RegionCodeTable regionTable, String regionName) {
+            if (regionTable != null) {
+                regionMask |= regionTable.bitOf(regionName);
+            }
         }
-        
-        // 使用第一个记录的档位设置（因为同组内档位设置相同）
-        CigaretteDistributionPredictionData representative = groupRecords.get(0);
-        BigDecimal[] grades = extractGrades(representative);
-        return encodeGradeSequences(grades);
     }
 }
@@ -7,8 +7,12 @@ import org.apache.poi.hssf.usermodel.HSSFWorkbook;
 import org.example.dto.CigaretteImportRequestDto;
 import org.example.dto.RegionClientNumImportRequestDto;
 import org.example.service.ExcelImportService;
+import org.example.util.DynamicTableIndexes;
+import org.example.util.RegionClientTableVersions;
+import org.example.util.SchemaCatalog;
 import org.example.util.TableNameGeneratorUtil;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -29,6 +33,12 @@ public class ExcelImportServiceImpl implements ExcelImportService {
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
+    @Autowired
+    private SchemaCatalog schemaCatalog;
+
+    @Autowired
+    private RegionClientTableVersions regionClientTableVersions;
+
     /**
      * 导入卷烟投放基础信息Excel
      */
@@ -95,6 +105,7 @@ public class ExcelImportServiceImpl implements ExcelImportService {
      */
     @Override
     @Transactional(rollbackFor = Exception.class)
+    @CacheEvict(value = {"regionListByType", "regionCustomerMatrixByType", "regionClientNumByRegion"}, allEntries = true)
     public Map<String, Object> importRegionClientNumData(RegionClientNumImportRequestDto request) {
         Map<String, Object> result = new HashMap<>();
         
@@ -132,6 +143,7 @@ public class ExcelImportServiceImpl implements ExcelImportService {
             
             // 6. 清空表数据并插入新数据
             int insertedCount = replaceRegionClientNumData(tableName, excelData);
+            regionClientTableVersions.invalidateAfterCommit(tableName);
             
             result.put("success", true);
             result.put("message", "导入成功");
@@ -372,9 +384,11 @@ public class ExcelImportServiceImpl implements ExcelImportService {
             "`DELIVERY_AREA` varchar(100) DEFAULT NULL COMMENT '投放区域', " +
             "`bz` varchar(255) DEFAULT NULL COMMENT '备注', " +
             "PRIMARY KEY (`id`)" +
-            ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci", tableName);
+            "%s) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci",
+            tableName, DynamicTableIndexes.buildIndexClauses(tableName, "id"));
         
         jdbcTemplate.execute(createSql);
+        schemaCatalog.markCreated(tableName);
         log.info("创建卷烟投放基础信息表: {}", tableName);
     }
 
@@ -383,12 +397,7 @@ public class ExcelImportServiceImpl implements ExcelImportService {
      */
     private void ensureRegionClientNumTableExists(String tableName) {
         // 检查表是否存在
-        String checkTableSql = "SELECT COUNT(*) FROM information_schema.tables " +
-                              "WHERE table_schema = DATABASE() AND table_name = ?";
-        
-        Integer tableCount = jdbcTemplate.queryForObject(checkTableSql, Integer.class, tableName);
-        
-        if (tableCount == null || tableCount == 0) {
+        if (!schemaCatalog.tableExists(tableName)) {
             // 表不存在，创建新表（结构与init.sql中的region_clientNum表完全一致）
             StringBuilder createSql = new StringBuilder();
             createSql.append(String.format("CREATE TABLE `%s` (", tableName));
@@ -406,14 +415,18 @@ public class ExcelImportServiceImpl implements ExcelImportService {
             createSql.append("`TOTAL` decimal(18,2) DEFAULT NULL COMMENT '总计', ");
             createSql.append("PRIMARY KEY (`id`) USING BTREE");
             
-            // 为档位+区县表添加唯一索引
+            // 为档位+区县表添加唯一索引，其他表添加region二级索引
             if (tableName.startsWith("region_clientNum_1_")) {
                 createSql.append(", UNIQUE KEY `county_unique` (`region`) USING BTREE");
+                createSql.append(DynamicTableIndexes.buildIndexClauses(tableName, "id", "region"));
+            } else {
+                createSql.append(DynamicTableIndexes.buildIndexClauses(tableName, "id"));
             }
             
             createSql.append(") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci ROW_FORMAT=DYNAMIC");
             
             jdbcTemplate.execute(createSql.toString());
+            schemaCatalog.markCreated(tableName);
             log.info("创建区域客户数表: {}", tableName);
         } else {
             log.info("区域客户数表已存在，将覆盖数据: {}", tableName);
@@ -0,0 +1,361 @@
+package org.example.service.impl;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.entity.RegionClientNumData;
+import org.example.service.MarketRatioSweepService;
+import org.example.service.RegionClientNumDataService;
+import org.example.service.strategy.AllocationPolicyProperties;
+import org.example.service.strategy.DistributionStrategy;
+import org.example.service.strategy.DistributionStrategyManager;
+import org.example.util.AllocationBudget;
+import org.example.util.AllocationPolicy;
+import org.example.util.CigaretteDistributionSqlBuilder;
+import org.example.util.GradeVector;
+import org.example.util.SchemaCatalog;
+import org.example.util.TableNameGeneratorUtil;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 市场类型比例扫描服务实现类
+ * 每个比例点作为一个任务提交到固定大小的线程池并行计算，客户数和目标区域在提交前一次性准备好，任务内不访问数据库
+ */
+@Slf4j
+@Service
+public class MarketRatioSweepServiceImpl implements MarketRatioSweepService {
+
+    private static final String EXTENDED_DELIVERY = "按档位扩展投放";
+    private static final String MARKET_TYPE = "档位+市场类型";
+    private static final String URBAN_NETWORK = "城网";
+    private static final String RURAL_NETWORK = "农网";
+
+    /**
+     * 单次扫描的最大比例点数（0-1按0.005步长）
+     */
+    private static final int MAX_POINTS = 201;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DistributionStrategyManager strategyManager;
+
+    @Autowired
+    private RegionClientNumDataService regionClientNumDataService;
+
+    @Autowired
+    private AllocationPolicyProperties allocationPolicyProperties;
+
+    @Autowired
+    private SchemaCatalog schemaCatalog;
+
+    /**
+     * 并行计算的线程数，0表示与CPU核数相同
+     */
+    @Value("${distribution.allocation.sweep.parallelism:0}")
+    private int parallelism;
+
+    private ExecutorService executor;
+
+    @PostConstruct
+    public void init() {
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadIndex = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "ratio-sweep-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        log.info("市场类型比例扫描线程池已创建，线程数: {}", threads);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Override
+    public Map<String, Object> sweepMarketRatios(Integer year, Integer month, Integer weekSeq,
+                                                 BigDecimal fromRatio, BigDecimal toRatio, BigDecimal step) {
+        long start = System.nanoTime();
+        Map<String, Object> result = new LinkedHashMap<>();
+
+        // 1. 校验比例范围并生成比例点
+        if (fromRatio == null || toRatio == null || step == null || step.signum() <= 0
+                || fromRatio.signum() < 0 || toRatio.compareTo(BigDecimal.ONE) > 0 || fromRatio.compareTo(toRatio) > 0) {
+            result.put("success", false);
+            result.put("message", "比例范围无效：要求 0 <= 起始比例 <= 结束比例 <= 1 且步长大于0");
+            return result;
+        }
+        List<BigDecimal> urbanRatios = new ArrayList<>();
+        for (BigDecimal ratio = fromRatio; ratio.compareTo(toRatio) <= 0; ratio = ratio.add(step)) {
+            if (urbanRatios.size() == MAX_POINTS) {
+                result.put("success", false);
+                result.put("message", "比例点过多（最多" + MAX_POINTS + "个），请增大步长或缩小范围");
+                return result;
+            }
+            urbanRatios.add(ratio);
+        }
+
+        // 2. 读取该周的档位+市场类型卷烟
+        String tableName = TableNameGeneratorUtil.generateDistributionInfoTableName(year, month, weekSeq);
+        if (!schemaCatalog.tableExists(tableName)) {
+            result.put("success", false);
+            result.put("message", "指定时间的卷烟投放基本信息表不存在: " + tableName);
+            return result;
+        }
+        List<Map<String, Object>> advDataList = jdbcTemplate.queryForList(
+                CigaretteDistributionSqlBuilder.buildAdvDataQuerySql(tableName, year, month, weekSeq));
+
+        // 3. 准备分配问题：目标区域和预投放量相同的卷烟合并为一个问题，客户数在此一次性读取
+        DistributionStrategy strategy = strategyManager.getStrategy(EXTENDED_DELIVERY, MARKET_TYPE);
+        Map<List<Object>, SweepProblem> problems = new LinkedHashMap<>();
+        Map<String, GradeVector> customerCounts = new HashMap<>();
+        List<String> skipped = new ArrayList<>();
+        int cigaretteCount = 0;
+        BigDecimal totalAdv = BigDecimal.ZERO;
+        for (Map<String, Object> advData : advDataList) {
+            if (!MARKET_TYPE.equals(advData.get("delivery_etype"))) {
+                continue;
+            }
+            String cigLabel = advData.get("cig_code") + " - " + advData.get("cig_name");
+            BigDecimal adv = (BigDecimal) advData.get("adv");
+            String deliveryArea = (String) advData.get("delivery_area");
+            if (adv == null || adv.signum() <= 0 || deliveryArea == null || deliveryArea.trim().isEmpty()) {
+                skipped.add(cigLabel);
+                continue;
+            }
+            try {
+                List<String> targetList = strategy.getTargetList(deliveryArea);
+                String clientTable = TableNameGeneratorUtil.generateRegionClientTableName(
+                        EXTENDED_DELIVERY, MARKET_TYPE, (String) advData.get("remark"));
+                GradeVector[] targetCounts = new GradeVector[targetList.size()];
+                for (int i = 0; i < targetList.size(); i++) {
+                    targetCounts[i] = customerCounts.computeIfAbsent(clientTable + "|" + targetList.get(i),
+                            key -> loadCustomerCounts(clientTable, key.substring(clientTable.length() + 1)));
+                }
+                List<Object> key = Arrays.asList(targetList, adv.stripTrailingZeros());
+                problems.computeIfAbsent(key, k -> new SweepProblem(targetList, adv)).cigarettes.add(targetCounts);
+                cigaretteCount++;
+                totalAdv = totalAdv.add(adv);
+            } catch (RuntimeException e) {
+                log.warn("比例扫描跳过卷烟 {}: {}", cigLabel, e.getMessage());
+                skipped.add(cigLabel);
+            }
+        }
+        if (cigaretteCount == 0) {
+            result.put("success", false);
+            result.put("message", String.format("%d年%d月第%d周没有可计算的档位+市场类型卷烟", year, month, weekSeq));
+            result.put("skipped", skipped);
+            return result;
+        }
+
+        // 4. 与比例无关的卷烟（仅城网或仅农网）计算一次；其余按比例点并行计算
+        AllocationPolicy policy = allocationPolicyProperties.resolve(MARKET_TYPE);
+        List<SweepProblem> ratioSensitive = new ArrayList<>();
+        SweepTotals fixedTotals = new SweepTotals();
+        int ratioSensitiveCount = 0;
+        for (SweepProblem problem : problems.values()) {
+            if (problem.targetList.contains(URBAN_NETWORK) && problem.targetList.contains(RURAL_NETWORK)) {
+                ratioSensitive.add(problem);
+                ratioSensitiveCount += problem.cigarettes.size();
+            } else {
+                evaluate(strategy, policy, problem, null, fixedTotals);
+            }
+        }
+
+        List<Future<SweepTotals>> futures = new ArrayList<>(urbanRatios.size());
+        for (BigDecimal urbanRatio : urbanRatios) {
+            futures.add(executor.submit(() -> {
+                SweepTotals totals = new SweepTotals();
+                for (SweepProblem problem : ratioSensitive) {
+                    // 单个比例点计算失败（如端点比例下某一网络的目标为0）只标记该点，不影响其他比例点
+                    try {
+                        evaluate(strategy, policy, problem, urbanRatio, totals);
+                    } catch (RuntimeException e) {
+                        log.warn("城网比例 {} 下计算失败，目标区域: {}，预投放量: {}，原因: {}",
+                                urbanRatio, problem.targetList, problem.adv, e.getMessage());
+                        totals.failure = String.format("目标区域%s、预投放量%s计算失败: %s",
+                                problem.targetList, problem.adv.toPlainString(), e.getMessage());
+                        break;
+                    }
+                }
+                return totals;
+            }));
+        }
+
+        List<Map<String, Object>> points = new ArrayList<>(urbanRatios.size());
+        Map<String, Object> bestPoint = null;
+        int failedPoints = 0;
+        String firstFailure = null;
+        try {
+            for (int i = 0; i < urbanRatios.size(); i++) {
+                SweepTotals totals = futures.get(i).get();
+                totals.add(fixedTotals);
+                Map<String, Object> point = totals.toPoint(urbanRatios.get(i));
+                points.add(point);
+                if (totals.failure != null) {
+                    failedPoints++;
+                    firstFailure = firstFailure != null ? firstFailure : totals.failure;
+                    continue;
+                }
+                if (bestPoint == null || totals.totalError.compareTo((BigDecimal) bestPoint.get("totalError")) < 0) {
+                    bestPoint = point;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            futures.forEach(future -> future.cancel(true));
+            throw new IllegalStateException("比例扫描被中断", e);
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            log.error("比例扫描计算失败", e.getCause());
+            result.put("success", false);
+            result.put("message", "比例扫描计算失败: " + e.getCause().getMessage());
+            return result;
+        }
+
+        if (bestPoint == null) {
+            result.put("success", false);
+            result.put("message", "比例扫描计算失败: " + firstFailure);
+            result.put("points", points);
+            return result;
+        }
+
+        result.put("success", true);
+        result.put("message", failedPoints == 0
+                ? String.format("比例扫描完成，%d个比例点，%d种档位+市场类型卷烟", points.size(), cigaretteCount)
+                : String.format("比例扫描完成，%d个比例点（%d个计算失败），%d种档位+市场类型卷烟", points.size(), failedPoints, cigaretteCount));
+        result.put("failedPoints", failedPoints);
+        result.put("cigaretteCount", cigaretteCount);
+        result.put("ratioSensitiveCount", ratioSensitiveCount);
+        result.put("uniqueProblems", problems.size());
+        result.put("totalAdv", totalAdv);
+        result.put("skipped", skipped);
+        result.put("allocationPolicy", policy.toMap());
+        result.put("bestPoint", bestPoint);
+        result.put("points", points);
+        result.put("elapsedMs", Math.round((System.nanoTime() - start) / 1_000.0) / 1_000.0);
+        log.info("{}年{}月第{}周比例扫描完成，比例点: {}，卷烟: {}（随比例变化: {}），最优城网比例: {}，耗时: {}ms",
+                year, month, weekSeq, points.size(), cigaretteCount, ratioSensitiveCount,
+                bestPoint.get("urbanRatio"), result.get("elapsedMs"));
+        return result;
+    }
+
+    // ==================== 私有辅助方法 ====================
+
+    /**
+     * 按指定城网比例计算一个分配问题，并把其中每个卷烟的实际投放量和误差累加到totals
+     *
+     * @param urbanRatio 城网比例；为null时不传比例（仅投放单一网络的卷烟）
+     */
+    private void evaluate(DistributionStrategy strategy, AllocationPolicy policy, SweepProblem problem,
+                          BigDecimal urbanRatio, SweepTotals totals) {
+        Map<String, Object> extraParams = new HashMap<>();
+        if (urbanRatio != null) {
+            extraParams.put("urbanRatio", urbanRatio);
+            extraParams.put("ruralRatio", BigDecimal.ONE.subtract(urbanRatio));
+        }
+        BigDecimal[][] matrix;
+        AllocationBudget.begin(policy);
+        try {
+            matrix = strategy.calculateMatrix(problem.targetList, problem.adv, extraParams);
+        } finally {
+            AllocationBudget.end();
+        }
+
+        for (GradeVector[] targetCounts : problem.cigarettes) {
+            BigDecimal actualDelivery = BigDecimal.ZERO;
+            for (int i = 0; i < matrix.length; i++) {
+                BigDecimal regionDelivery = targetCounts[i].dot(matrix[i]);
+                actualDelivery = actualDelivery.add(regionDelivery);
+                if (URBAN_NETWORK.equals(problem.targetList.get(i))) {
+                    totals.urbanActualDelivery = totals.urbanActualDelivery.add(regionDelivery);
+                } else if (RURAL_NETWORK.equals(problem.targetList.get(i))) {
+                    totals.ruralActualDelivery = totals.ruralActualDelivery.add(regionDelivery);
+                }
+            }
+            BigDecimal error = problem.adv.subtract(actualDelivery).abs();
+            totals.totalError = totals.totalError.add(error);
+            totals.maxError = totals.maxError.max(error);
+        }
+    }
+
+    private GradeVector loadCustomerCounts(String clientTable, String target) {
+        List<RegionClientNumData> dataList = regionClientNumDataService.findByTableNameAndRegion(clientTable, target);
+        if (dataList.isEmpty()) {
+            throw new IllegalStateException(String.format("在表 '%s' 中未找到目标区域 '%s' 的客户数数据", clientTable, target));
+        }
+        return dataList.get(0).toGradeVector();
+    }
+
+    /**
+     * 扫描中的一个分配问题：相同目标区域和预投放量的卷烟，各自的客户数（双周上浮时客户数表不同）
+     */
+    private static final class SweepProblem {
+
+        private final List<String> targetList;
+        private final BigDecimal adv;
+        private final List<GradeVector[]> cigarettes = new ArrayList<>();
+
+        private SweepProblem(List<String> targetList, BigDecimal adv) {
+            this.targetList = targetList;
+            this.adv = adv;
+        }
+    }
+
+    /**
+     * 一个比例点的累计结果
+     */
+    private static final class SweepTotals {
+
+        private BigDecimal urbanActualDelivery = BigDecimal.ZERO;
+        private BigDecimal ruralActualDelivery = BigDecimal.ZERO;
+        private BigDecimal totalError = BigDecimal.ZERO;
+        private BigDecimal maxError = BigDecimal.ZERO;
+
+        /**
+         * 计算失败原因（为null表示该比例点全部计算成功）
+         */
+        private String failure;
+
+        private void add(SweepTotals other) {
+            urbanActualDelivery = urbanActualDelivery.add(other.urbanActualDelivery);
+            ruralActualDelivery = ruralActualDelivery.add(other.ruralActualDelivery);
+            totalError = totalError.add(other.totalError);
+            maxError = maxError.max(other.maxError);
+        }
+
+        private Map<String, Object> toPoint(BigDecimal urbanRatio) {
+            Map<String, Object> point = new LinkedHashMap<>();
+            point.put("urbanRatio", urbanRatio);
+            point.put("ruralRatio", BigDecimal.ONE.subtract(urbanRatio));
+            point.put("totalError", totalError);
+            point.put("maxError", maxError);
+            point.put("urbanActualDelivery", urbanActualDelivery);
+            point.put("ruralActualDelivery", ruralActualDelivery);
+            point.put("totalActualDelivery", urbanActualDelivery.add(ruralActualDelivery));
+            if (failure != null) {
+                point.put("error", failure);
+            }
+            return point;
+        }
+    }
+}
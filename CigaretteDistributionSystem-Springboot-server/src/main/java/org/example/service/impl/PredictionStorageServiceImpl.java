@@ -0,0 +1,224 @@
+package org.example.service.impl;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.service.PredictionStorageService;
+import org.example.util.CigaretteDistributionSqlBuilder;
+import org.example.util.SchemaCatalog;
+import org.example.util.TableNameGeneratorUtil;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 预测数据存储布局服务实现
+ *
+ * 分区维护语句（建表、增删分区、建视图、重命名）均为DDL，不参与外层事务；
+ * 并行任务或其他实例同时添加同一分区/视图时，复查已存在即视为成功
+ *
+ * @author Robin
+ * @version 1.0
+ * @since 2025-10-20
+ */
+@Slf4j
+@Service
+public class PredictionStorageServiceImpl implements PredictionStorageService {
+
+    private static final String LAYOUT_PARTITIONED = "partitioned";
+
+    private static final String BACKUP_SUFFIX = "_bak";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private SchemaCatalog schemaCatalog;
+
+    @Value("${distribution.storage.layout:weekly}")
+    private String layout;
+
+    private volatile boolean baseTableReady = false;
+
+    @Override
+    public boolean isPartitioned() {
+        return layout != null && LAYOUT_PARTITIONED.equalsIgnoreCase(layout.trim());
+    }
+
+    @Override
+    public void createWeekStorage(Integer year, Integer month, Integer weekSeq) {
+        String weekTable = TableNameGeneratorUtil.generatePredictionTableName(year, month, weekSeq);
+        if (!isPartitioned()) {
+            jdbcTemplate.execute(CigaretteDistributionSqlBuilder.buildCreatePredictionTableSql(weekTable));
+            schemaCatalog.markCreated(weekTable);
+            log.info("成功创建预测数据表: {}", weekTable);
+            return;
+        }
+        ensureBaseTable();
+        ensurePartition(year, month, weekSeq);
+        try {
+            jdbcTemplate.execute(CigaretteDistributionSqlBuilder.buildCreateWeekViewSql(
+                    weekTable, TableNameGeneratorUtil.getPartitionedPredictionTableName(), year, month, weekSeq));
+            schemaCatalog.markCreated(weekTable);
+            log.info("成功创建预测数据周视图: {}", weekTable);
+        } catch (DataAccessException e) {
+            if (!schemaCatalog.recheckTableExists(weekTable)) {
+                throw e;
+            }
+            log.debug("预测数据周视图 {} 已由其他任务创建", weekTable);
+        }
+    }
+
+    @Override
+    public boolean dropWeekPartition(Integer year, Integer month, Integer weekSeq) {
+        if (!isPartitioned()) {
+            return false;
+        }
+        String baseTable = TableNameGeneratorUtil.getPartitionedPredictionTableName();
+        String partition = TableNameGeneratorUtil.generateWeekPartitionName(year, month, weekSeq);
+        if (!partitionExists(partition)) {
+            // 该周仍是未迁移的周表，由调用方按行删除
+            return false;
+        }
+        // 先删分区再删视图：视图只引用基础表，分区删除失败时周视图仍然可用，不会留下有分区却无法按周访问的数据
+        String weekView = TableNameGeneratorUtil.generatePredictionTableName(year, month, weekSeq);
+        jdbcTemplate.execute(CigaretteDistributionSqlBuilder.buildDropWeekPartitionSql(baseTable, partition));
+        log.info("已删除预测数据分区: {}.{}", baseTable, partition);
+        jdbcTemplate.execute(CigaretteDistributionSqlBuilder.buildDropViewSql(weekView));
+        schemaCatalog.markDropped(weekView);
+        return true;
+    }
+
+    @Override
+    public synchronized Map<String, Object> migrateWeeklyTables() {
+        Map<String, Object> result = new HashMap<>();
+        if (!isPartitioned()) {
+            result.put("success", false);
+            result.put("message", "当前存储布局为weekly，请先配置distribution.storage.layout=partitioned");
+            return result;
+        }
+        ensureBaseTable();
+
+        List<String> tables = jdbcTemplate.queryForList(CigaretteDistributionSqlBuilder.buildWeeklyBaseTablesQuerySql(),
+                String.class, TableNameGeneratorUtil.getPartitionedPredictionTableName() + "_%");
+        List<Map<String, Object>> details = new ArrayList<>();
+        int migrated = 0;
+        int failed = 0;
+        for (String table : tables) {
+            int[] week = TableNameGeneratorUtil.parsePredictionTableName(table);
+            if (week == null) {
+                continue;
+            }
+            Map<String, Object> detail = migrateWeeklyTable(table, week[0], week[1], week[2]);
+            details.add(detail);
+            if (Boolean.TRUE.equals(detail.get("success"))) {
+                migrated++;
+            } else {
+                failed++;
+            }
+        }
+
+        result.put("success", failed == 0);
+        result.put("message", String.format("周表迁移完成，成功: %d，失败: %d", migrated, failed));
+        result.put("migratedTables", migrated);
+        result.put("failedTables", failed);
+        result.put("tables", details);
+        log.info("周表迁移完成，成功: {}，失败: {}", migrated, failed);
+        return result;
+    }
+
+    /**
+     * 迁移单张周表：添加分区 -> 复制数据 -> 核对记录数 -> 原表重命名为备份表 -> 创建周视图
+     */
+    private Map<String, Object> migrateWeeklyTable(String table, int year, int month, int weekSeq) {
+        Map<String, Object> detail = new LinkedHashMap<>();
+        detail.put("table", table);
+        String baseTable = TableNameGeneratorUtil.getPartitionedPredictionTableName();
+        String partition = TableNameGeneratorUtil.generateWeekPartitionName(year, month, weekSeq);
+        boolean partitionAdded = false;
+        try {
+            if (partitionExists(partition)) {
+                detail.put("success", false);
+                detail.put("message", "统一预测表中已存在该周分区: " + partition);
+                return detail;
+            }
+            jdbcTemplate.execute(CigaretteDistributionSqlBuilder.buildAddWeekPartitionSql(baseTable, partition, year, month, weekSeq));
+            partitionAdded = true;
+
+            Integer sourceRows = jdbcTemplate.queryForObject(CigaretteDistributionSqlBuilder.buildCountRowsSql(table), Integer.class);
+            int copiedRows = jdbcTemplate.update(CigaretteDistributionSqlBuilder.buildCopyWeekRowsSql(baseTable, table),
+                    year, month, weekSeq);
+            if (sourceRows == null || sourceRows != copiedRows) {
+                throw new IllegalStateException(String.format("记录数不一致，周表: %s，已复制: %d", sourceRows, copiedRows));
+            }
+
+            String backupTable = table + BACKUP_SUFFIX;
+            jdbcTemplate.execute(CigaretteDistributionSqlBuilder.buildRenameTableSql(table, backupTable));
+            schemaCatalog.markCreated(backupTable);
+            try {
+                jdbcTemplate.execute(CigaretteDistributionSqlBuilder.buildCreateWeekViewSql(table, baseTable, year, month, weekSeq));
+            } catch (DataAccessException e) {
+                jdbcTemplate.execute(CigaretteDistributionSqlBuilder.buildRenameTableSql(backupTable, table));
+                schemaCatalog.markDropped(backupTable);
+                throw e;
+            }
+
+            detail.put("success", true);
+            detail.put("partition", partition);
+            detail.put("rows", copiedRows);
+            detail.put("backupTable", backupTable);
+            log.info("周表 {} 已迁移到分区 {}，记录数: {}", table, partition, copiedRows);
+        } catch (Exception e) {
+            log.error("周表 {} 迁移失败", table, e);
+            if (partitionAdded) {
+                try {
+                    jdbcTemplate.execute(CigaretteDistributionSqlBuilder.buildDropWeekPartitionSql(baseTable, partition));
+                } catch (DataAccessException dropError) {
+                    log.error("回退分区 {} 失败", partition, dropError);
+                }
+            }
+            detail.put("success", false);
+            detail.put("message", e.getMessage());
+        }
+        return detail;
+    }
+
+    private void ensureBaseTable() {
+        if (baseTableReady) {
+            return;
+        }
+        jdbcTemplate.execute(CigaretteDistributionSqlBuilder.buildCreatePartitionedPredictionTableSql(
+                TableNameGeneratorUtil.getPartitionedPredictionTableName()));
+        schemaCatalog.markCreated(TableNameGeneratorUtil.getPartitionedPredictionTableName());
+        baseTableReady = true;
+    }
+
+    private void ensurePartition(int year, int month, int weekSeq) {
+        String partition = TableNameGeneratorUtil.generateWeekPartitionName(year, month, weekSeq);
+        if (partitionExists(partition)) {
+            return;
+        }
+        try {
+            jdbcTemplate.execute(CigaretteDistributionSqlBuilder.buildAddWeekPartitionSql(
+                    TableNameGeneratorUtil.getPartitionedPredictionTableName(), partition, year, month, weekSeq));
+            log.info("成功添加预测数据分区: {}", partition);
+        } catch (DataAccessException e) {
+            if (!partitionExists(partition)) {
+                throw e;
+            }
+            log.debug("预测数据分区 {} 已由其他任务添加", partition);
+        }
+    }
+
+    private boolean partitionExists(String partition) {
+        Integer count = jdbcTemplate.queryForObject(CigaretteDistributionSqlBuilder.buildCheckPartitionExistsSql(), Integer.class,
+                TableNameGeneratorUtil.getPartitionedPredictionTableName(), partition);
+        return count != null && count > 0;
+    }
+}
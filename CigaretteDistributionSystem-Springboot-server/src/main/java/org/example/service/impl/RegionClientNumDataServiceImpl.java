@@ -3,7 +3,9 @@ package org.example.service.impl;
 import lombok.extern.slf4j.Slf4j;
 import org.example.entity.RegionClientNumData;
 import org.example.service.RegionClientNumDataService;
+import org.example.util.GradeVector;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 
 import javax.persistence.EntityManager;
@@ -36,6 +38,8 @@ public class RegionClientNumDataServiceImpl implements RegionClientNumDataServic
     private EntityManager entityManager;
     
     @Override
+    @Cacheable(value = "regionClientNumByRegion",
+            key = "@regionClientTableVersions.tableCacheKey(#tableName, #region)", unless = "#result.isEmpty()")
     public List<RegionClientNumData> findByTableNameAndRegion(String tableName, String region) {
         try {
             String sql = String.format("SELECT * FROM `%s` WHERE region = ? ORDER BY id ASC", tableName);
@@ -65,37 +69,12 @@ public class RegionClientNumDataServiceImpl implements RegionClientNumDataServic
             data.setId((Integer) row[0]);
             data.setRegion((String) row[1]);
             
-            // 设置档位字段 D30-D1 (索引2-31)
-            data.setD30((BigDecimal) row[2]);
-            data.setD29((BigDecimal) row[3]);
-            data.setD28((BigDecimal) row[4]);
-            data.setD27((BigDecimal) row[5]);
-            data.setD26((BigDecimal) row[6]);
-            data.setD25((BigDecimal) row[7]);
-            data.setD24((BigDecimal) row[8]);
-            data.setD23((BigDecimal) row[9]);
-            data.setD22((BigDecimal) row[10]);
-            data.setD21((BigDecimal) row[11]);
-            data.setD20((BigDecimal) row[12]);
-            data.setD19((BigDecimal) row[13]);
-            data.setD18((BigDecimal) row[14]);
-            data.setD17((BigDecimal) row[15]);
-            data.setD16((BigDecimal) row[16]);
-            data.setD15((BigDecimal) row[17]);
-            data.setD14((BigDecimal) row[18]);
-            data.setD13((BigDecimal) row[19]);
-            data.setD12((BigDecimal) row[20]);
-            data.setD11((BigDecimal) row[21]);
-            data.setD10((BigDecimal) row[22]);
-            data.setD9((BigDecimal) row[23]);
-            data.setD8((BigDecimal) row[24]);
-            data.setD7((BigDecimal) row[25]);
-            data.setD6((BigDecimal) row[26]);
-            data.setD5((BigDecimal) row[27]);
-            data.setD4((BigDecimal) row[28]);
-            data.setD3((BigDecimal) row[29]);
-            data.setD2((BigDecimal) row[30]);
-            data.setD1((BigDecimal) row[31]);
+            // 设置档位字段 D30-D1 (索引2-31)，一次构建档位向量
+            BigDecimal[] grades = new BigDecimal[GradeVector.GRADE_COUNT];
+            for (int i = 0; i < GradeVector.GRADE_COUNT; i++) {
+                grades[i] = (BigDecimal) row[2 + i];
+            }
+            data.setGradeArray(grades);
             
             // 设置总计字段 (索引32)
             data.setTotal((BigDecimal) row[32]);
@@ -0,0 +1,142 @@
+package org.example.service.impl;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.service.RegionCodeService;
+import org.example.util.CigaretteDistributionSqlBuilder;
+import org.example.util.EncodedExpressionCache;
+import org.example.util.RegionCodeTable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 区域编码字典服务实现
+ *
+ * 字典表很小（每种扩展投放类型十个以内区域），每次重新加载读取全表、编译后与当前编码表比较，
+ * 有变化时整体替换（编码表不可变，替换为一次volatile写）
+ *
+ * @author Robin
+ * @version 1.0
+ * @since 2025-10-20
+ */
+@Slf4j
+@Service
+public class RegionCodeServiceImpl implements RegionCodeService {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EncodedExpressionCache expressionCache;
+
+    private volatile Map<String, RegionCodeTable> regionCodeTables = RegionCodeTable.defaults();
+
+    private volatile boolean tableReady = false;
+
+    @PostConstruct
+    public void init() {
+        Map<String, Object> result = reload();
+        if (Boolean.TRUE.equals(result.get("success"))) {
+            log.info("区域编码加载完成: {}", result.get("regionCounts"));
+        } else {
+            log.warn("区域编码加载失败，使用{}: {}", regionCodeTables == RegionCodeTable.defaults() ? "默认编码" : "当前编码",
+                    result.get("message"));
+        }
+    }
+
+    @Override
+    public Map<String, RegionCodeTable> getRegionCodeTables() {
+        return regionCodeTables;
+    }
+
+    /**
+     * 定时重新加载字典表（多实例部署时各实例各自加载）
+     */
+    @Scheduled(initialDelayString = "${distribution.region-codes.refresh-interval-ms:60000}",
+            fixedDelayString = "${distribution.region-codes.refresh-interval-ms:60000}")
+    public void refresh() {
+        Map<String, Object> result = reload();
+        if (!Boolean.TRUE.equals(result.get("success"))) {
+            log.warn("区域编码重新加载失败，保留当前编码: {}", result.get("message"));
+        }
+    }
+
+    @Override
+    public synchronized Map<String, Object> reload() {
+        Map<String, Object> result = new HashMap<>();
+        try {
+            Map<String, RegionCodeTable> loaded = RegionCodeTable.compile(loadRows());
+            boolean changed = !loaded.equals(regionCodeTables);
+            if (changed) {
+                regionCodeTables = loaded;
+                if (expressionCache != null) {
+                    expressionCache.clear();
+                }
+                log.info("区域编码已更新: {}", loaded.values());
+            }
+            result.put("success", true);
+            result.put("message", changed ? "区域编码已更新" : "区域编码未变化");
+            result.put("changed", changed);
+        } catch (IllegalArgumentException e) {
+            result.put("success", false);
+            result.put("message", "区域编码字典无效: " + e.getMessage());
+            result.put("changed", false);
+        } catch (DataAccessException e) {
+            result.put("success", false);
+            result.put("message", "读取区域编码字典失败: " + e.getMessage());
+            result.put("changed", false);
+        }
+
+        Map<String, Integer> regionCounts = new LinkedHashMap<>();
+        regionCodeTables.forEach((etype, table) -> regionCounts.put(etype, table.size()));
+        result.put("regionCounts", regionCounts);
+        return result;
+    }
+
+    // ==================== 辅助方法 ====================
+
+    /**
+     * 读取字典表全部区域编码，表不存在时创建，为空时写入默认编码
+     */
+    private List<String[]> loadRows() {
+        if (!tableReady) {
+            jdbcTemplate.execute(CigaretteDistributionSqlBuilder.buildCreateRegionCodeTableSql());
+            tableReady = true;
+        }
+        List<String[]> rows = queryRows();
+        if (!rows.isEmpty()) {
+            return rows;
+        }
+
+        List<Object[]> defaults = new ArrayList<>();
+        for (String[] row : RegionCodeTable.defaultRows()) {
+            defaults.add(row);
+        }
+        try {
+            jdbcTemplate.batchUpdate(CigaretteDistributionSqlBuilder.buildInsertRegionCodeSql(), defaults);
+            log.info("区域编码字典为空，已写入{}条默认编码", defaults.size());
+        } catch (DuplicateKeyException e) {
+            log.info("其他实例已写入默认区域编码");
+        }
+        return queryRows();
+    }
+
+    private List<String[]> queryRows() {
+        return jdbcTemplate.query(CigaretteDistributionSqlBuilder.buildRegionCodesQuerySql(), (rs, rowNum) -> new String[]{
+                trim(rs.getString("DELIVERY_ETYPE")), trim(rs.getString("REGION_NAME")), trim(rs.getString("REGION_CODE"))});
+    }
+
+    private static String trim(String value) {
+        return value != null ? value.trim() : null;
+    }
+}
@@ -0,0 +1,150 @@
+package org.example.service.impl;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.service.TableIndexService;
+import org.example.util.CigaretteDistributionSqlBuilder;
+import org.example.util.DynamicTableIndexes;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 动态表索引维护服务实现
+ *
+ * 索引按表逐个补建，单张表失败（如表被并发删除、索引名被不同列占用）记入报告后继续处理其他表；
+ * MySQL 8的ADD INDEX为在线DDL，补建期间表仍可读写
+ *
+ * @author Robin
+ * @version 1.0
+ * @since 2025-10-20
+ */
+@Slf4j
+@Service
+public class TableIndexServiceImpl implements TableIndexService {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${distribution.table-indexes.retrofit-on-startup:true}")
+    private boolean retrofitOnStartup = true;
+
+    private volatile Map<String, Object> lastReport;
+
+    /**
+     * 启动完成后补建存量表索引（数据库不可用时仅记录警告，不影响启动）
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void retrofitOnStartup() {
+        if (!retrofitOnStartup) {
+            return;
+        }
+        try {
+            Map<String, Object> report = retrofitIndexes();
+            log.info("动态表索引补建: {}", report.get("message"));
+        } catch (Exception e) {
+            log.warn("动态表索引补建失败: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public synchronized Map<String, Object> retrofitIndexes() {
+        List<String> tables = jdbcTemplate.queryForList(CigaretteDistributionSqlBuilder.buildBaseTablesQuerySql(), String.class);
+        List<Map<String, Object>> changes = new ArrayList<>();
+        int scanned = 0;
+        int created = 0;
+        int failed = 0;
+        for (String table : tables) {
+            if (DynamicTableIndexes.forTable(table).isEmpty()) {
+                continue;
+            }
+            scanned++;
+            Map<String, Object> change = retrofitTable(table);
+            if (change == null) {
+                continue;
+            }
+            changes.add(change);
+            created += ((List<?>) change.get("created")).size();
+            if (change.containsKey("error")) {
+                failed++;
+            }
+        }
+
+        Map<String, Object> report = new HashMap<>();
+        report.put("success", failed == 0);
+        report.put("message", String.format("扫描动态表%d张，新建索引%d个，失败%d张", scanned, created, failed));
+        report.put("scannedTables", scanned);
+        report.put("createdIndexes", created);
+        report.put("failedTables", failed);
+        report.put("changes", changes);
+        report.put("finishedAt", LocalDateTime.now().toString());
+        lastReport = report;
+        return report;
+    }
+
+    @Override
+    public Map<String, Object> getLastReport() {
+        Map<String, Object> report = lastReport;
+        if (report == null) {
+            Map<String, Object> result = new HashMap<>();
+            result.put("success", false);
+            result.put("message", "尚未执行索引补建");
+            return result;
+        }
+        return report;
+    }
+
+    /**
+     * 为单张表补建缺少的索引
+     *
+     * @return 表明细（table、created、error）；无需补建时返回null
+     */
+    private Map<String, Object> retrofitTable(String table) {
+        List<String> createdIndexes = new ArrayList<>();
+        Map<String, Object> change = new LinkedHashMap<>();
+        change.put("table", table);
+        change.put("created", createdIndexes);
+        try {
+            Map<String, List<String>> existing = loadIndexColumns(table);
+            List<DynamicTableIndexes.IndexDefinition> missing = DynamicTableIndexes.missingIndexes(table, existing.values());
+            if (missing.isEmpty()) {
+                return null;
+            }
+            for (DynamicTableIndexes.IndexDefinition index : missing) {
+                if (existing.containsKey(index.getName())) {
+                    throw new IllegalStateException(String.format("索引名%s已被列%s占用", index.getName(), existing.get(index.getName())));
+                }
+                jdbcTemplate.execute(CigaretteDistributionSqlBuilder.buildAddIndexSql(table, index));
+                createdIndexes.add(index.getName() + index.getColumns());
+                log.info("已为表{}补建索引{}{}", table, index.getName(), index.getColumns());
+            }
+        } catch (Exception e) {
+            log.error("表{}索引补建失败", table, e);
+            change.put("error", e.getMessage());
+        }
+        return change;
+    }
+
+    /**
+     * 读取表已有索引的列
+     *
+     * @return 索引名 -> 按顺序的列名
+     */
+    private Map<String, List<String>> loadIndexColumns(String table) {
+        Map<String, List<String>> indexes = new LinkedHashMap<>();
+        for (Map<String, Object> row : jdbcTemplate.queryForList(CigaretteDistributionSqlBuilder.buildTableIndexColumnsSql(), table)) {
+            String indexName = String.valueOf(row.get("index_name"));
+            indexes.computeIfAbsent(indexName, k -> new ArrayList<>()).add(String.valueOf(row.get("column_name")));
+        }
+        return indexes;
+    }
+}
@@ -0,0 +1,353 @@
+package org.example.service.strategy;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.service.algorithm.WarmStartSeeds;
+import org.example.util.AllocationBudget;
+import org.example.util.RegionClientTableVersions;
+import org.example.util.TableNameGeneratorUtil;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 分配问题记忆化缓存
+ *
+ * 【核心功能】
+ * 同一周内大量卷烟（常见于同品牌不同规格）的投放类型、目标区域和预投放量完全相同，算法输出也必然相同。
+ * 本缓存以（策略，目标区域列表，客户数矩阵版本，预投放量，市场类型比例，热启动初始解）为键，
+ * 在一次运行内每个唯一问题只计算一次；可选地跨运行保留结果，重新生成某周时只需计算有变动的卷烟
+ *
+ * 【客户数矩阵版本】
+ * 每次运行对用到的每种投放类型取一次客户数表的内容版本（RegionClientTableVersions，与增量计算的输入摘要、
+ * 客户数矩阵Spring缓存键所用版本相同）。客户数表内容变化后版本随之变化，跨运行缓存中的旧结果自然不再命中，无需显式失效；
+ * 取版本在记忆表的锁之外进行，并发线程首次遇到同一投放类型时最多重复取一次
+ *
+ * 【使用方式】
+ * 每次运行调用 beginRun() 获取运行级记忆表，通过 RunMemo.calculate() 代替 strategy.calculateMatrix()。
+ * 返回的矩阵均为副本，调用方修改不会影响缓存内容
+ *
+ * 【分配策略】
+ * 缓存条目同时保存计算时的停止原因和实际误差，复用时一并沿用（AllocationBudget.recordReused）；
+ * 因超过截止时间而提前停止的结果取决于当时的负载，不写入缓存
+ *
+ * 【配置】
+ * - distribution.allocation.memo.enabled=false 时每个卷烟都直接调用策略计算
+ * - distribution.allocation.memo.cross-run-enabled=false 时仅在单次运行内复用
+ *
+ * @author Robin
+ * @version 1.0
+ * @since 2025-10-20
+ */
+@Slf4j
+@Component
+public class AllocationMemoCache {
+
+    /**
+     * 跨运行缓存的最大问题数
+     */
+    private static final int MAX_ENTRIES = 4096;
+
+    /**
+     * 分配结果来源
+     */
+    public static final String SOURCE_COMPUTED = "计算";
+    public static final String SOURCE_RUN_MEMO = "本次运行复用";
+    public static final String SOURCE_CROSS_RUN = "跨运行缓存";
+
+    /**
+     * 客户数表缺失或读取失败时的摘要标记（见DistributionInputHashServiceImpl）
+     */
+    private static final String MISSING_TABLE_HASH = "missing";
+
+    @Autowired
+    private RegionClientTableVersions regionClientTableVersions;
+
+    @Value("${distribution.allocation.memo.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${distribution.allocation.memo.cross-run-enabled:true}")
+    private boolean crossRunEnabled = true;
+
+    private final AtomicLong crossRunHits = new AtomicLong();
+    private final AtomicLong crossRunMisses = new AtomicLong();
+
+    private final Map<List<Object>, MemoEntry> sharedResults = new LinkedHashMap<List<Object>, MemoEntry>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<List<Object>, MemoEntry> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isCrossRunEnabled() {
+        return crossRunEnabled;
+    }
+
+    public void setCrossRunEnabled(boolean crossRunEnabled) {
+        this.crossRunEnabled = crossRunEnabled;
+    }
+
+    /**
+     * 开始一次运行，返回运行级记忆表
+     */
+    public RunMemo beginRun() {
+        return new RunMemo();
+    }
+
+    /**
+     * 清空跨运行缓存
+     */
+    public void clear() {
+        synchronized (sharedResults) {
+            sharedResults.clear();
+        }
+        log.info("分配问题跨运行缓存已清空");
+    }
+
+    /**
+     * 获取跨运行缓存统计信息
+     *
+     * @return 包含enabled、crossRunEnabled、size、hits、misses、hitRate的统计Map
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        long hitCount = crossRunHits.get();
+        long missCount = crossRunMisses.get();
+        synchronized (sharedResults) {
+            stats.put("size", sharedResults.size());
+        }
+        stats.put("enabled", enabled);
+        stats.put("crossRunEnabled", crossRunEnabled);
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("hitRate", hitCount + missCount == 0 ? 0.0 : (double) hitCount / (hitCount + missCount));
+        return stats;
+    }
+
+    /**
+     * 运行级记忆表（并行执行模式下由多个线程共享：查找和登记在记忆表上同步，计算本身不加锁）
+     */
+    public final class RunMemo {
+
+        private final Map<List<Object>, MemoEntry> runResults = new HashMap<>();
+        private final Map<String, String> matrixVersions = new ConcurrentHashMap<>();
+        private final ThreadLocal<String> lastSource = ThreadLocal.withInitial(() -> SOURCE_COMPUTED);
+        private int computed;
+        private int runHits;
+        private int crossRunHitCount;
+
+        private RunMemo() {
+        }
+
+        /**
+         * 计算分配矩阵，相同问题直接复用已有结果
+         *
+         * @param strategy 分配策略
+         * @param targetList 目标区域列表
+         * @param targetAmount 预投放量
+         * @param extraParams 额外参数（市场类型比例、热启动初始解）
+         * @return 分配矩阵副本
+         */
+        public BigDecimal[][] calculate(DistributionStrategy strategy, List<String> targetList,
+                                        BigDecimal targetAmount, Map<String, Object> extraParams) {
+            lastSource.set(SOURCE_COMPUTED);
+            List<Object> key = enabled ? buildKey(strategy, targetList, targetAmount, extraParams) : null;
+            if (key == null) {
+                synchronized (this) {
+                    computed++;
+                }
+                return strategy.calculateMatrix(targetList, targetAmount, extraParams);
+            }
+
+            MemoEntry cached;
+            synchronized (this) {
+                cached = runResults.get(key);
+                if (cached != null) {
+                    runHits++;
+                }
+            }
+            if (cached != null) {
+                lastSource.set(SOURCE_RUN_MEMO);
+                return cached.reuse();
+            }
+
+            if (crossRunEnabled) {
+                synchronized (sharedResults) {
+                    cached = sharedResults.get(key);
+                }
+                if (cached != null) {
+                    crossRunHits.incrementAndGet();
+                    synchronized (this) {
+                        crossRunHitCount++;
+                        runResults.put(key, cached);
+                    }
+                    lastSource.set(SOURCE_CROSS_RUN);
+                    return cached.reuse();
+                }
+                crossRunMisses.incrementAndGet();
+            }
+
+            BigDecimal[][] matrix = strategy.calculateMatrix(targetList, targetAmount, extraParams);
+            Map<String, Object> outcome = AllocationBudget.snapshot();
+            boolean deadlineStopped = outcome != null && AllocationBudget.STOP_DEADLINE.equals(outcome.get("stopReason"));
+            MemoEntry stored = matrix != null && !deadlineStopped ? new MemoEntry(copy(matrix), outcome) : null;
+            synchronized (this) {
+                computed++;
+                if (stored != null) {
+                    runResults.put(key, stored);
+                }
+            }
+            if (stored != null && crossRunEnabled) {
+                synchronized (sharedResults) {
+                    sharedResults.put(key, stored);
+                }
+            }
+            return matrix;
+        }
+
+        /**
+         * 当前线程最近一次calculate()的结果来源（计算/本次运行复用/跨运行缓存）
+         */
+        public String getLastSource() {
+            return lastSource.get();
+        }
+
+        /**
+         * 本次运行的记忆化统计
+         *
+         * @return 包含computed、runHits、crossRunHits、uniqueProblems的统计Map
+         */
+        public synchronized Map<String, Object> getStats() {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("enabled", enabled);
+            stats.put("computed", computed);
+            stats.put("runHits", runHits);
+            stats.put("crossRunHits", crossRunHitCount);
+            stats.put("uniqueProblems", runResults.size());
+            return stats;
+        }
+
+        /**
+         * 构建问题键；客户数矩阵版本无法确定时返回null（不做记忆化）
+         */
+        private List<Object> buildKey(DistributionStrategy strategy, List<String> targetList,
+                                      BigDecimal targetAmount, Map<String, Object> extraParams) {
+            if (targetList == null || targetAmount == null) {
+                return null;
+            }
+            String deliveryType = strategy.getDeliveryType();
+            String version = matrixVersions.get(deliveryType);
+            if (version == null) {
+                String computedVersion = computeMatrixVersion(deliveryType);
+                String existing = matrixVersions.putIfAbsent(deliveryType, computedVersion);
+                version = existing != null ? existing : computedVersion;
+            }
+            if (version.isEmpty()) {
+                return null;
+            }
+            return Arrays.asList(deliveryType, strategy.getAlgorithmName(), new ArrayList<>(targetList), version,
+                    normalize(targetAmount), normalizeParam(extraParams, "urbanRatio"), normalizeParam(extraParams, "ruralRatio"),
+                    warmStartSeedKey(extraParams));
+        }
+    }
+
+    // ==================== 辅助方法 ====================
+
+    /**
+     * 获取策略所用客户数表的内容版本（策略与非双周上浮的客户数表一致）
+     *
+     * @return 摘要字符串；表缺失或读取失败时返回空字符串
+     */
+    private String computeMatrixVersion(String deliveryType) {
+        String[] regionClientType = DistributionStrategyManager.regionClientTypeOf(deliveryType);
+        String tableName;
+        try {
+            tableName = TableNameGeneratorUtil.generateRegionClientTableName(regionClientType[0], regionClientType[1], false);
+        } catch (IllegalArgumentException e) {
+            log.warn("投放类型 {} 无对应的客户数表，不对该类型做分配记忆化: {}", deliveryType, e.getMessage());
+            return "";
+        }
+        String version = regionClientTableVersions.version(tableName);
+        if (version == null || MISSING_TABLE_HASH.equals(version)) {
+            log.warn("客户数表 {} 缺失或读取失败，不对投放类型 {} 做分配记忆化", tableName, deliveryType);
+            return "";
+        }
+        log.debug("投放类型 {} 的客户数表 {} 版本: {}", deliveryType, tableName, version);
+        return version;
+    }
+
+    private static BigDecimal normalize(BigDecimal value) {
+        return value.signum() == 0 ? BigDecimal.ZERO : value.stripTrailingZeros();
+    }
+
+    private static Object normalizeParam(Map<String, Object> extraParams, String name) {
+        Object value = extraParams != null ? extraParams.get(name) : null;
+        return value instanceof BigDecimal ? normalize((BigDecimal) value) : value;
+    }
+
+    /**
+     * 热启动初始解会改变算法输出，按内容纳入问题键
+     */
+    private static Object warmStartSeedKey(Map<String, Object> extraParams) {
+        Object seed = extraParams != null ? extraParams.get(WarmStartSeeds.EXTRA_PARAM_KEY) : null;
+        if (!(seed instanceof BigDecimal[][])) {
+            return null;
+        }
+        List<List<BigDecimal>> rows = new ArrayList<>();
+        for (BigDecimal[] row : (BigDecimal[][]) seed) {
+            List<BigDecimal> values = new ArrayList<>(row.length);
+            for (BigDecimal value : row) {
+                values.add(value == null ? null : normalize(value));
+            }
+            rows.add(values);
+        }
+        return rows;
+    }
+
+    /**
+     * 缓存条目：分配矩阵及计算时的分配策略结果
+     */
+    private static final class MemoEntry {
+
+        private final BigDecimal[][] matrix;
+        private final Map<String, Object> outcome;
+
+        private MemoEntry(BigDecimal[][] matrix, Map<String, Object> outcome) {
+            this.matrix = matrix;
+            this.outcome = outcome;
+        }
+
+        /**
+         * 复用本条目：沿用计算时的停止原因和误差，返回矩阵副本
+         */
+        private BigDecimal[][] reuse() {
+            AllocationBudget.recordReused(outcome);
+            return copy(matrix);
+        }
+    }
+
+    private static BigDecimal[][] copy(BigDecimal[][] matrix) {
+        BigDecimal[][] copy = new BigDecimal[matrix.length][];
+        for (int i = 0; i < matrix.length; i++) {
+            copy[i] = matrix[i] == null ? null : matrix[i].clone();
+        }
+        return copy;
+    }
+}
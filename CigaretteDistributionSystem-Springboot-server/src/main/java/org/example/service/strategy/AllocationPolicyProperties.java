@@ -0,0 +1,72 @@
+package org.example.service.strategy;
+
+import lombok.Data;
+import org.example.util.AllocationPolicy;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 按投放类型配置的分配质量/耗时策略
+ *
+ * 【核心功能】
+ * 为每种投放类型（与DistributionStrategy.getDeliveryType()一致）配置单卷烟截止时间和误差预算，
+ * 未单独配置的投放类型使用默认值；单独配置中未填写的项同样回退到默认值
+ *
+ * 【配置示例】
+ * distribution.allocation.policy:
+ *   deadline-ms: 2000
+ *   error-budget: 0
+ *   types:
+ *     "[档位+市场类型]":
+ *       error-budget: 200
+ *
+ * @author Robin
+ * @version 1.0
+ * @since 2025-10-20
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "distribution.allocation.policy")
+public class AllocationPolicyProperties {
+
+    /**
+     * 默认单卷烟截止时间（毫秒），0表示不限制
+     */
+    private long deadlineMs = 0L;
+
+    /**
+     * 默认误差预算，0表示不限制（迭代至算法自身的收敛条件）
+     */
+    private BigDecimal errorBudget = BigDecimal.ZERO;
+
+    /**
+     * 按投放类型覆盖的配置
+     */
+    private Map<String, TypePolicy> types = new HashMap<>();
+
+    /**
+     * 解析指定投放类型的分配策略
+     *
+     * @param deliveryType 投放类型（如：档位+区县）
+     * @return 分配策略
+     */
+    public AllocationPolicy resolve(String deliveryType) {
+        TypePolicy override = deliveryType != null ? types.get(deliveryType) : null;
+        long deadline = override != null && override.getDeadlineMs() != null ? override.getDeadlineMs() : deadlineMs;
+        BigDecimal budget = override != null && override.getErrorBudget() != null ? override.getErrorBudget() : errorBudget;
+        return new AllocationPolicy(deliveryType, deadline, budget);
+    }
+
+    /**
+     * 单个投放类型的配置（未填写的项使用默认值）
+     */
+    @Data
+    public static class TypePolicy {
+        private Long deadlineMs;
+        private BigDecimal errorBudget;
+    }
+}
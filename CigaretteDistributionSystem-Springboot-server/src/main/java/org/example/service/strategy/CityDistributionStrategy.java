@@ -3,6 +3,7 @@ package org.example.service.strategy;
 import lombok.extern.slf4j.Slf4j;
 import org.example.service.CommonService;
 import org.example.service.algorithm.CityCigaretteDistributionAlgorithm;
+import org.example.service.algorithm.WarmStartSeeds;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Component;
@@ -10,6 +11,7 @@ import org.springframework.stereotype.Component;
 import java.math.BigDecimal;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 全市统一投放策略实现
@@ -51,6 +53,15 @@ public class CityDistributionStrategy implements DistributionStrategy {
     
     @Override
     public BigDecimal[][] calculateMatrix(List<String> targetList, BigDecimal targetAmount) {
+        return calculateMatrix(targetList, targetAmount, null);
+    }
+    
+    /**
+     * 计算分配矩阵（支持热启动）
+     * extraParams中包含WarmStartSeeds.EXTRA_PARAM_KEY时，以上周分配矩阵作为算法初始解
+     */
+    @Override
+    public BigDecimal[][] calculateMatrix(List<String> targetList, BigDecimal targetAmount, Map<String, Object> extraParams) {
         if (!isValidTargetList(targetList)) {
             throw new IllegalArgumentException("目标列表无效");
         }
@@ -80,7 +91,8 @@ public class CityDistributionStrategy implements DistributionStrategy {
             }
             
             // 调用分配算法计算分配矩阵
-            BigDecimal[][] matrix = distributionAlgorithm.calculateDistribution(targetList, targetCityCustomerMatrix, targetAmount);
+            BigDecimal[][] matrix = distributionAlgorithm.calculateDistribution(targetList, targetCityCustomerMatrix, targetAmount,
+                    warmStartSeed(extraParams));
             
             if (matrix == null || matrix.length == 0) {
                 throw new RuntimeException("城市算法返回空分配矩阵");
@@ -95,6 +107,14 @@ public class CityDistributionStrategy implements DistributionStrategy {
         }
     }
     
+    /**
+     * 从额外参数中取出热启动初始解
+     */
+    private BigDecimal[][] warmStartSeed(Map<String, Object> extraParams) {
+        Object seed = extraParams != null ? extraParams.get(WarmStartSeeds.EXTRA_PARAM_KEY) : null;
+        return seed instanceof BigDecimal[][] ? (BigDecimal[][]) seed : null;
+    }
+    
     @Override
     public String getAlgorithmName() {
         return "CityCigaretteDistributionAlgorithm";
@@ -3,6 +3,7 @@ package org.example.service.strategy;
 import lombok.extern.slf4j.Slf4j;
 import org.example.service.CommonService;
 import org.example.service.algorithm.countyCigaretteDistributionAlgorithm;
+import org.example.service.algorithm.WarmStartSeeds;
 import org.example.util.KmpMatcher;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cache.annotation.Cacheable;
@@ -10,6 +11,7 @@ import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 区县分配策略实现
@@ -75,6 +77,15 @@ public class CountyDistributionStrategy implements DistributionStrategy {
     
     @Override
     public BigDecimal[][] calculateMatrix(List<String> targetList, BigDecimal targetAmount) {
+        return calculateMatrix(targetList, targetAmount, null);
+    }
+    
+    /**
+     * 计算分配矩阵（支持热启动）
+     * extraParams中包含WarmStartSeeds.EXTRA_PARAM_KEY时，以上周分配矩阵作为算法初始解
+     */
+    @Override
+    public BigDecimal[][] calculateMatrix(List<String> targetList, BigDecimal targetAmount, Map<String, Object> extraParams) {
         if (!isValidTargetList(targetList)) {
             throw new IllegalArgumentException("区县目标列表无效");
         }
@@ -110,7 +121,8 @@ public class CountyDistributionStrategy implements DistributionStrategy {
             }
             
             // 调用分配算法计算分配矩阵
-            BigDecimal[][] matrix = distributionAlgorithm.calculateDistribution(targetList, targetCountyCustomerMatrix, targetAmount);
+            BigDecimal[][] matrix = distributionAlgorithm.calculateDistribution(targetList, targetCountyCustomerMatrix, targetAmount,
+                    warmStartSeed(extraParams));
             
             if (matrix == null || matrix.length == 0) {
                 throw new RuntimeException("区县算法返回空分配矩阵");
@@ -130,6 +142,14 @@ public class CountyDistributionStrategy implements DistributionStrategy {
         }
     }
     
+    /**
+     * 从额外参数中取出热启动初始解
+     */
+    private BigDecimal[][] warmStartSeed(Map<String, Object> extraParams) {
+        Object seed = extraParams != null ? extraParams.get(WarmStartSeeds.EXTRA_PARAM_KEY) : null;
+        return seed instanceof BigDecimal[][] ? (BigDecimal[][]) seed : null;
+    }
+    
     @Override
     public String getAlgorithmName() {
         return "countyCigaretteDistributionAlgorithm";
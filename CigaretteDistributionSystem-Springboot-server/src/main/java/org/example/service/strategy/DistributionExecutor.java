@@ -0,0 +1,291 @@
+package org.example.service.strategy;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.example.util.DistributionRunReport;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 卷烟分配执行器（串行/并行执行模式）
+ *
+ * 【核心功能】
+ * 一键生成时每种卷烟的处理既有阻塞的JDBC操作（客户数查询、删除/插入、存在性检查），也有CPU密集的算法计算。
+ * 并行模式下：
+ * - 每种卷烟作为一个任务在I/O执行器上运行：JVM支持虚拟线程（Java 21+）时每个任务一个虚拟线程，否则使用平台线程池
+ * - 数据库步骤通过信号量限制并发数，默认等于Hikari连接池大小，避免任务在连接池上排队超时
+ * - 算法计算提交到与CPU核数相同的固定平台线程池，I/O任务等待结果；
+ *   算法线程不获取数据库许可，其用到的区域列表和客户数矩阵由调用方预先在withDatabase内加载到缓存
+ *
+ * 【兼容性】
+ * 虚拟线程通过反射创建（Executors.newVirtualThreadPerTaskExecutor），源码仍按当前Java版本编译；
+ * 调用线程处于事务中时（工作线程看不到未提交的数据）自动按串行执行
+ *
+ * 【分布式模式】
+ * mode为distributed时，一键生成拆分为distribution_job_item任务项，由各应用实例领取处理（见DistributionJobService），
+ * 本实例内按串行处理领取到的卷烟
+ *
+ * 【配置】
+ * distribution.execution:
+ *   mode: sequential | parallel | distributed
+ *   virtual-threads: true
+ *   cpu-threads: 0      # 0表示与CPU核数相同
+ *   db-permits: 0       # 0表示与Hikari连接池大小相同
+ *
+ * @author Robin
+ * @version 1.0
+ * @since 2025-10-20
+ */
+@Slf4j
+@Component
+public class DistributionExecutor {
+
+    public static final String MODE_SEQUENTIAL = "sequential";
+    public static final String MODE_PARALLEL = "parallel";
+    public static final String MODE_DISTRIBUTED = "distributed";
+
+    /**
+     * 无法读取连接池大小时的数据库并发上限（与Hikari默认连接池大小一致）
+     */
+    private static final int DEFAULT_DB_PERMITS = 10;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Value("${distribution.execution.mode:sequential}")
+    private String mode = MODE_SEQUENTIAL;
+
+    @Value("${distribution.execution.virtual-threads:true}")
+    private boolean virtualThreadsEnabled = true;
+
+    @Value("${distribution.execution.cpu-threads:0}")
+    private int cpuThreads;
+
+    @Value("${distribution.execution.db-permits:0}")
+    private int dbPermits;
+
+    private ExecutorService ioExecutor;
+    private ExecutorService cpuExecutor;
+    private Semaphore dbSemaphore;
+    private boolean virtualThreads;
+    private final AtomicInteger dbInFlight = new AtomicInteger();
+    private final AtomicInteger dbPeak = new AtomicInteger();
+
+    @PostConstruct
+    public void init() {
+        if (!isParallel()) {
+            log.info("卷烟分配执行模式: {}", isDistributed() ? "分布式任务队列" : "串行");
+            return;
+        }
+        if (dbPermits <= 0) {
+            dbPermits = resolveConnectionPoolSize();
+        }
+        if (cpuThreads <= 0) {
+            cpuThreads = Runtime.getRuntime().availableProcessors();
+        }
+        dbSemaphore = new Semaphore(dbPermits, true);
+        cpuExecutor = Executors.newFixedThreadPool(cpuThreads, namedThreadFactory("distribution-cpu-"));
+        ioExecutor = virtualThreadsEnabled ? newVirtualThreadExecutor() : null;
+        virtualThreads = ioExecutor != null;
+        if (ioExecutor == null) {
+            ioExecutor = Executors.newFixedThreadPool(dbPermits, namedThreadFactory("distribution-io-"));
+        }
+        log.info("卷烟分配执行模式: 并行，I/O任务使用{}，算法线程数: {}，数据库并发上限: {}",
+                virtualThreads ? "虚拟线程" : "平台线程池", cpuThreads, dbPermits);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (ioExecutor != null) {
+            ioExecutor.shutdownNow();
+        }
+        if (cpuExecutor != null) {
+            cpuExecutor.shutdownNow();
+        }
+    }
+
+    public boolean isParallel() {
+        return MODE_PARALLEL.equalsIgnoreCase(mode);
+    }
+    
+    public boolean isDistributed() {
+        return MODE_DISTRIBUTED.equalsIgnoreCase(mode);
+    }
+
+    /**
+     * 执行一组卷烟任务，按提交顺序返回结果
+     * 串行模式或调用线程处于事务中时在当前线程依次执行
+     *
+     * @param tasks 卷烟任务
+     * @return 各任务结果（顺序与tasks一致）
+     */
+    public <T> List<T> invokeAll(List<Callable<T>> tasks) {
+        List<T> results = new ArrayList<>(tasks.size());
+        if (!runsInParallel() || tasks.size() <= 1) {
+            for (Callable<T> task : tasks) {
+                results.add(call(task));
+            }
+            return results;
+        }
+
+        List<Future<T>> futures = new ArrayList<>(tasks.size());
+        for (Callable<T> task : tasks) {
+            futures.add(ioExecutor.submit(DistributionRunReport.propagate(task)));
+        }
+        try {
+            for (Future<T> future : futures) {
+                results.add(await(future));
+            }
+        } finally {
+            futures.forEach(future -> future.cancel(true));
+        }
+        return results;
+    }
+
+    /**
+     * 执行CPU密集的算法计算：并行模式下提交到算法线程池并等待结果
+     */
+    public <T> T compute(Callable<T> task) {
+        if (!runsInParallel()) {
+            return call(task);
+        }
+        return await(cpuExecutor.submit(DistributionRunReport.propagate(task)));
+    }
+
+    /**
+     * 执行数据库步骤：并行模式下先获取数据库并发许可
+     */
+    public <T> T withDatabase(Callable<T> task) {
+        if (!runsInParallel()) {
+            return call(task);
+        }
+        try {
+            dbSemaphore.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("等待数据库并发许可时被中断", e);
+        }
+        try {
+            dbPeak.accumulateAndGet(dbInFlight.incrementAndGet(), Math::max);
+            return call(task);
+        } finally {
+            dbInFlight.decrementAndGet();
+            dbSemaphore.release();
+        }
+    }
+
+    /**
+     * 执行模式信息（写入运行报告）
+     *
+     * @return 包含mode、virtualThreads、cpuThreads、dbPermits、peakDbConcurrency的Map
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("mode", isParallel() ? MODE_PARALLEL : isDistributed() ? MODE_DISTRIBUTED : MODE_SEQUENTIAL);
+        if (isParallel()) {
+            stats.put("virtualThreads", virtualThreads);
+            stats.put("cpuThreads", cpuThreads);
+            stats.put("dbPermits", dbPermits);
+            stats.put("peakDbConcurrency", dbPeak.get());
+        }
+        return stats;
+    }
+
+    // ==================== 辅助方法 ====================
+
+    /**
+     * 当前调用是否按并行执行（调用线程处于事务中时按串行）
+     */
+    private boolean runsInParallel() {
+        if (!isParallel()) {
+            return false;
+        }
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            log.debug("调用线程处于事务中，按串行执行");
+            return false;
+        }
+        return true;
+    }
+
+    private int resolveConnectionPoolSize() {
+        try {
+            if (dataSource.isWrapperFor(HikariDataSource.class)) {
+                return dataSource.unwrap(HikariDataSource.class).getMaximumPoolSize();
+            }
+        } catch (Exception e) {
+            log.warn("读取连接池大小失败，数据库并发上限使用默认值{}: {}", DEFAULT_DB_PERMITS, e.getMessage());
+        }
+        return DEFAULT_DB_PERMITS;
+    }
+
+    /**
+     * 通过反射创建虚拟线程执行器（Java 21+），不支持时返回null
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (NoSuchMethodException e) {
+            log.info("当前JVM（{}）不支持虚拟线程，I/O任务使用平台线程池", System.getProperty("java.version"));
+            return null;
+        } catch (ReflectiveOperationException e) {
+            log.warn("创建虚拟线程执行器失败，I/O任务使用平台线程池: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private static java.util.concurrent.ThreadFactory namedThreadFactory(String prefix) {
+        AtomicInteger index = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + index.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static <T> T call(Callable<T> task) {
+        try {
+            return task.call();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+
+    private static <T> T await(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("等待卷烟任务结果时被中断", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause.getMessage(), cause);
+        }
+    }
+}
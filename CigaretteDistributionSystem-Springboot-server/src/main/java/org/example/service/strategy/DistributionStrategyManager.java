@@ -80,6 +80,18 @@ public class DistributionStrategyManager {
         return strategy;
     }
     
+    /**
+     * 策略所用区域客户数表（非双周上浮）对应的投放方法和扩展投放类型
+     *
+     * @param deliveryType 策略的投放类型（DistributionStrategy.getDeliveryType()）
+     * @return {投放方法, 扩展投放类型}，全市统一投放时扩展投放类型为null
+     */
+    public static String[] regionClientTypeOf(String deliveryType) {
+        return "全市统一投放".equals(deliveryType)
+                ? new String[]{"按档位统一投放", null}
+                : new String[]{"按档位扩展投放", deliveryType};
+    }
+    
     /**
      * 检查是否支持指定的投放方法和类型
      * 
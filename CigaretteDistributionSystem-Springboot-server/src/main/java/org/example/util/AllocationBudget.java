@@ -0,0 +1,158 @@
+package org.example.util;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 单卷烟分配计算的预算跟踪（随时可停的"anytime"分配）
+ *
+ * 【核心功能】
+ * 服务层在计算每个卷烟前按投放类型的AllocationPolicy开始跟踪，各算法在每轮迭代的检查点询问是否应停止：
+ * - 超过截止时间：停止迭代，返回当前最优（best so far）结果
+ * - 误差不超过误差预算：提前结束微调/粗调
+ * 计算结束后服务层取出结果（策略、停止原因、实际误差、耗时），写入该卷烟的writeBackResults
+ *
+ * 【使用方式】
+ * 与DistributionRunReport相同，跟踪状态绑定到当前线程：begin()开始，end()结束并返回结果。
+ * 未开始跟踪时（如基准测试、单元测试直接调用算法）所有检查均返回false，算法行为与原来一致
+ *
+ * @author Robin
+ * @version 1.0
+ * @since 2025-10-20
+ */
+public final class AllocationBudget {
+
+    /**
+     * 停止原因
+     */
+    public static final String STOP_COMPLETED = "完成";
+    public static final String STOP_DEADLINE = "超时";
+    public static final String STOP_ERROR_BUDGET = "误差达标";
+
+    private static final ThreadLocal<AllocationBudget> CURRENT = new ThreadLocal<>();
+
+    private final AllocationPolicy policy;
+    private final long startNanos;
+    private final long deadlineNanos;
+    private String stopReason = STOP_COMPLETED;
+    private String stopPhase;
+    private BigDecimal achievedError;
+
+    private AllocationBudget(AllocationPolicy policy) {
+        this.policy = policy != null ? policy : AllocationPolicy.UNLIMITED;
+        this.startNanos = System.nanoTime();
+        this.deadlineNanos = this.policy.hasDeadline() ? startNanos + this.policy.getDeadlineMillis() * 1_000_000L : 0L;
+    }
+
+    // ==================== 线程绑定 ====================
+
+    /**
+     * 开始跟踪一个卷烟的分配计算
+     */
+    public static void begin(AllocationPolicy policy) {
+        CURRENT.set(new AllocationBudget(policy));
+    }
+
+    /**
+     * 结束跟踪并解除线程绑定
+     *
+     * @return 计算结果Map（policy、stopReason、stopPhase、achievedError、elapsedMs）；未开始跟踪时返回null
+     */
+    public static Map<String, Object> end() {
+        AllocationBudget budget = CURRENT.get();
+        CURRENT.remove();
+        return budget != null ? budget.toMap() : null;
+    }
+
+    /**
+     * 当前跟踪的结果快照（不结束跟踪）
+     *
+     * @return 结果Map；未开始跟踪时返回null
+     */
+    public static Map<String, Object> snapshot() {
+        AllocationBudget budget = CURRENT.get();
+        return budget != null ? budget.toMap() : null;
+    }
+
+    // ==================== 算法检查点 ====================
+
+    /**
+     * 检查是否已超过截止时间
+     *
+     * @param phase 当前阶段名称（如：countyCigaretteDistributionAlgorithm.greedyFill）
+     * @return true表示应停止迭代
+     */
+    public static boolean deadlineReached(String phase) {
+        AllocationBudget budget = CURRENT.get();
+        if (budget == null || budget.deadlineNanos == 0L || System.nanoTime() < budget.deadlineNanos) {
+            return false;
+        }
+        budget.stop(STOP_DEADLINE, phase);
+        return true;
+    }
+
+    /**
+     * 检查是否应结束迭代：超过截止时间，或当前误差不超过误差预算
+     *
+     * @param phase 当前阶段名称
+     * @param currentError 当前误差（绝对值）
+     * @return true表示应停止迭代
+     */
+    public static boolean shouldStop(String phase, BigDecimal currentError) {
+        AllocationBudget budget = CURRENT.get();
+        if (budget == null) {
+            return false;
+        }
+        if (budget.policy.hasErrorBudget() && currentError != null
+                && currentError.compareTo(budget.policy.getErrorBudget()) <= 0) {
+            budget.stop(STOP_ERROR_BUDGET, phase);
+            return true;
+        }
+        return deadlineReached(phase);
+    }
+
+    /**
+     * 记录算法最终结果的误差（多次记录时以最后一次为准）
+     */
+    public static void recordAchievedError(BigDecimal error) {
+        AllocationBudget budget = CURRENT.get();
+        if (budget != null) {
+            budget.achievedError = error;
+        }
+    }
+
+    /**
+     * 复用已有计算结果时，沿用其停止原因和误差
+     *
+     * @param outcome 之前计算时的结果快照
+     */
+    public static void recordReused(Map<String, Object> outcome) {
+        AllocationBudget budget = CURRENT.get();
+        if (budget != null && outcome != null) {
+            budget.stopReason = (String) outcome.get("stopReason");
+            budget.stopPhase = (String) outcome.get("stopPhase");
+            budget.achievedError = (BigDecimal) outcome.get("achievedError");
+        }
+    }
+
+    // ==================== 辅助方法 ====================
+
+    private void stop(String reason, String phase) {
+        // 超时优先于误差达标记录（超时意味着结果未必达到误差预算）
+        if (STOP_COMPLETED.equals(stopReason) || STOP_DEADLINE.equals(reason)) {
+            stopReason = reason;
+            stopPhase = phase;
+        }
+    }
+
+    private Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("policy", policy.toMap());
+        map.put("stopReason", stopReason);
+        map.put("stopPhase", stopPhase);
+        map.put("achievedError", achievedError);
+        map.put("elapsedMs", Math.round((System.nanoTime() - startNanos) / 1_000.0) / 1_000.0);
+        return map;
+    }
+}
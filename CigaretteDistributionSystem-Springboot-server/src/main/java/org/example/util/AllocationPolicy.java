@@ -0,0 +1,78 @@
+package org.example.util;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 分配算法的质量/耗时策略
+ *
+ * 【核心功能】
+ * 描述单个卷烟分配计算允许的耗时上限和可接受的误差：
+ * - 截止时间：单卷烟计算超过该耗时后，各算法在下一个检查点停止迭代并返回当前最优结果
+ * - 误差预算：微调/粗调阶段误差已不超过该值时提前结束，不再追求更小误差
+ *
+ * 两项均为0（或未配置）时不做限制，算法按原有迭代上限运行
+ *
+ * @author Robin
+ * @version 1.0
+ * @since 2025-10-20
+ */
+public final class AllocationPolicy {
+
+    /**
+     * 不限制耗时和误差的策略
+     */
+    public static final AllocationPolicy UNLIMITED = new AllocationPolicy("默认", 0L, null);
+
+    private final String name;
+    private final long deadlineMillis;
+    private final BigDecimal errorBudget;
+
+    /**
+     * @param name 策略名称（通常为投放类型）
+     * @param deadlineMillis 单卷烟截止时间（毫秒），小于等于0表示不限制
+     * @param errorBudget 误差预算，为null或小于等于0表示不限制
+     */
+    public AllocationPolicy(String name, long deadlineMillis, BigDecimal errorBudget) {
+        this.name = name;
+        this.deadlineMillis = Math.max(deadlineMillis, 0L);
+        this.errorBudget = errorBudget != null && errorBudget.signum() > 0 ? errorBudget : null;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getDeadlineMillis() {
+        return deadlineMillis;
+    }
+
+    public BigDecimal getErrorBudget() {
+        return errorBudget;
+    }
+
+    public boolean hasDeadline() {
+        return deadlineMillis > 0;
+    }
+
+    public boolean hasErrorBudget() {
+        return errorBudget != null;
+    }
+
+    /**
+     * 转换为响应中展示的Map结构
+     */
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("name", name);
+        map.put("deadlineMs", hasDeadline() ? deadlineMillis : null);
+        map.put("errorBudget", errorBudget);
+        return map;
+    }
+
+    @Override
+    public String toString() {
+        return "AllocationPolicy{" + name + ", deadlineMs=" + deadlineMillis + ", errorBudget=" + errorBudget + "}";
+    }
+}
@@ -0,0 +1,109 @@
+package org.example.util;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+/**
+ * 有界Spring缓存管理器
+ *
+ * 【核心功能】
+ * 区域列表、客户数矩阵和区域客户数行的缓存键带有客户数表的内容版本（RegionClientTableVersions），
+ * 表内容每变化一次就产生一批新键。默认的ConcurrentMapCacheManager不限容量，旧版本条目会一直保留；
+ * 本管理器为每个缓存按最近访问顺序最多保留 max-entries 条
+ *
+ * 【配置】
+ * distribution.cache.max-entries：每个缓存的最大条目数（默认256）
+ *
+ * @author Robin
+ * @version 1.0
+ * @since 2025-10-20
+ */
+@Component("cacheManager")
+public class BoundedCacheManager extends ConcurrentMapCacheManager {
+
+    @Value("${distribution.cache.max-entries:256}")
+    private int maxEntries = 256;
+
+    @Override
+    protected Cache createConcurrentMapCache(String name) {
+        return new BoundedMapCache(name, maxEntries);
+    }
+
+    /**
+     * 按最近访问顺序淘汰的缓存（读写在缓存实例上同步；加载在锁外进行，并发首次访问同一键时可能重复加载一次）
+     */
+    static final class BoundedMapCache extends AbstractValueAdaptingCache {
+
+        private final String name;
+        private final Map<Object, Object> store;
+
+        BoundedMapCache(String name, int maxEntries) {
+            super(true);
+            this.name = name;
+            this.store = new LinkedHashMap<Object, Object>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Object, Object> eldest) {
+                    return size() > maxEntries;
+                }
+            };
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public Object getNativeCache() {
+            return store;
+        }
+
+        @Override
+        protected synchronized Object lookup(Object key) {
+            return store.get(key);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T get(Object key, Callable<T> valueLoader) {
+            Object stored = lookup(key);
+            if (stored != null) {
+                return (T) fromStoreValue(stored);
+            }
+            T value;
+            try {
+                value = valueLoader.call();
+            } catch (Exception e) {
+                throw new ValueRetrievalException(key, valueLoader, e);
+            }
+            put(key, value);
+            return value;
+        }
+
+        @Override
+        public synchronized void put(Object key, Object value) {
+            store.put(key, toStoreValue(value));
+        }
+
+        @Override
+        public synchronized void evict(Object key) {
+            store.remove(key);
+        }
+
+        @Override
+        public synchronized void clear() {
+            store.clear();
+        }
+
+        synchronized int size() {
+            return store.size();
+        }
+    }
+}
@@ -349,17 +349,9 @@ public class CigaretteDistributionRowMapper {
         }
         
         int count = 0;
-        BigDecimal[] grades = {
-            data.getD30(), data.getD29(), data.getD28(), data.getD27(), data.getD26(),
-            data.getD25(), data.getD24(), data.getD23(), data.getD22(), data.getD21(),
-            data.getD20(), data.getD19(), data.getD18(), data.getD17(), data.getD16(),
-            data.getD15(), data.getD14(), data.getD13(), data.getD12(), data.getD11(),
-            data.getD10(), data.getD9(), data.getD8(), data.getD7(), data.getD6(),
-            data.getD5(), data.getD4(), data.getD3(), data.getD2(), data.getD1()
-        };
-        
-        for (BigDecimal grade : grades) {
-            if (grade != null) {
+        GradeVector grades = data.getGrades();
+        for (int i = 0; i < GradeVector.GRADE_COUNT; i++) {
+            if (!grades.isNull(i)) {
                 count++;
             }
         }
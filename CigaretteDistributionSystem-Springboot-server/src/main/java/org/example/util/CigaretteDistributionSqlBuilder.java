@@ -135,6 +135,34 @@ public class CigaretteDistributionSqlBuilder {
             year, month, weekSeq, tableName);
     }
     
+    /**
+     * 构建查询单个卷烟预投放量数据的SQL（字段与buildAdvDataQuerySql一致）
+     * 
+     * @param tableName 卷烟投放基本信息表名
+     * @param year 年份
+     * @param month 月份
+     * @param weekSeq 周序号
+     * @return 查询SQL语句，参数依次为CIG_CODE、CIG_NAME
+     */
+    public static String buildSingleAdvDataQuerySql(String tableName, int year, int month, int weekSeq) {
+        return buildAdvDataQuerySql(tableName, year, month, weekSeq) + " WHERE CIG_CODE = ? AND CIG_NAME = ?";
+    }
+    
+    /**
+     * 构建查询预测表全部分配方案的SQL（用于热启动初始解）
+     * 
+     * @param tableName 预测数据表名
+     * @return 查询SQL语句
+     * 
+     * @example
+     * buildWarmStartSeedQuerySql("cigarette_distribution_prediction_2025_9_2")
+     * -> "SELECT CIG_CODE, CIG_NAME, DELIVERY_AREA, D30, ..., D1 FROM `cigarette_distribution_prediction_2025_9_2`"
+     */
+    public static String buildWarmStartSeedQuerySql(String tableName) {
+        return String.format("SELECT CIG_CODE, CIG_NAME, DELIVERY_AREA, %s FROM `%s`",
+                String.join(", ", GradeMatrixUtils.GRADE_NAMES), tableName);
+    }
+    
     // ==================== 数据操作SQL ====================
     
     /**
@@ -214,6 +242,93 @@ public class CigaretteDistributionSqlBuilder {
         return String.format("DELETE FROM %s WHERE CIG_CODE = ? AND CIG_NAME = ?", tableName);
     }
     
+    /**
+     * 构建插入单个区域投放记录的SQL（不含冲突更新）
+     * 参数顺序：卷烟代码、名称、投放区域、年、月、周序号，投放方法、扩展投放类型、D30到D1、备注、实际投放量、编码表达式
+     * 
+     * @param tableName 预测数据表名
+     * @return 插入SQL语句，配合JdbcTemplate.batchUpdate一次写入多个区域
+     * 
+     * @example
+     * buildAreaRecordInsertSql("cigarette_distribution_prediction_2025_9_3")
+     * -> "INSERT INTO cigarette_distribution_prediction_2025_9_3 (CIG_CODE, CIG_NAME, DELIVERY_AREA, YEAR, ...) VALUES (?, ?, ...)"
+     */
+    public static String buildAreaRecordInsertSql(String tableName) {
+        return String.format("INSERT INTO %s " +
+                "(CIG_CODE, CIG_NAME, DELIVERY_AREA, YEAR, MONTH, WEEK_SEQ, DELIVERY_METHOD, DELIVERY_ETYPE, %s, " +
+                "BZ, ACTUAL_DELIVERY, DEPLOYINFO_CODE) VALUES (%s)",
+                tableName, buildGradeColumns(), buildPlaceholders(41));
+    }
+    
+    /**
+     * 构建更新单个区域投放记录的SQL
+     * 参数顺序：投放方法、扩展投放类型、D30到D1、备注、实际投放量、编码表达式，卷烟代码、名称、投放区域、年、月、周序号
+     * 
+     * @param tableName 预测数据表名
+     * @return 更新SQL语句，配合JdbcTemplate.batchUpdate一次更新多个区域
+     * 
+     * @example
+     * buildAreaRecordUpdateSql("cigarette_distribution_prediction_2025_9_3")
+     * -> "UPDATE cigarette_distribution_prediction_2025_9_3 SET DELIVERY_METHOD = ?, ... WHERE CIG_CODE = ? AND ... AND WEEK_SEQ = ?"
+     */
+    public static String buildAreaRecordUpdateSql(String tableName) {
+        StringBuilder assignments = new StringBuilder("DELIVERY_METHOD = ?, DELIVERY_ETYPE = ?");
+        for (int i = 30; i >= 1; i--) {
+            assignments.append(", D").append(i).append(" = ?");
+        }
+        assignments.append(", BZ = ?, ACTUAL_DELIVERY = ?, DEPLOYINFO_CODE = ?");
+        return String.format("UPDATE %s SET %s WHERE CIG_CODE = ? AND CIG_NAME = ? AND DELIVERY_AREA = ? " +
+                "AND YEAR = ? AND MONTH = ? AND WEEK_SEQ = ?", tableName, assignments);
+    }
+    
+    /**
+     * 构建按区域列表删除卷烟记录的SQL
+     * 一条语句删除卷烟的多个投放区域，参数顺序：卷烟代码、名称、各投放区域
+     * 
+     * @param tableName 预测数据表名
+     * @param areaCount 投放区域数（至少1个）
+     * @return 删除SQL语句
+     * 
+     * @example
+     * buildDeleteAreasSql("cigarette_distribution_prediction_2025_9_3", 2)
+     * -> "DELETE FROM cigarette_distribution_prediction_2025_9_3 WHERE CIG_CODE = ? AND CIG_NAME = ? AND DELIVERY_AREA IN (?, ?)"
+     */
+    public static String buildDeleteAreasSql(String tableName, int areaCount) {
+        return String.format("DELETE FROM %s WHERE CIG_CODE = ? AND CIG_NAME = ? AND DELIVERY_AREA IN (%s)",
+                tableName, buildPlaceholders(areaCount));
+    }
+    
+    /**
+     * 构建查询卷烟全部区域记录的SQL
+     * 用于编辑后按整支卷烟重新生成编码表达
+     * 
+     * @param tableName 预测数据表名
+     * @return 查询SQL语句
+     * 
+     * @example
+     * buildCigaretteRecordsQuerySql("cigarette_distribution_prediction_2025_9_3")
+     * -> "SELECT * FROM cigarette_distribution_prediction_2025_9_3 WHERE CIG_CODE = ? AND CIG_NAME = ? ORDER BY DELIVERY_AREA"
+     */
+    public static String buildCigaretteRecordsQuerySql(String tableName) {
+        return String.format("SELECT * FROM %s WHERE CIG_CODE = ? AND CIG_NAME = ? ORDER BY DELIVERY_AREA", tableName);
+    }
+    
+    /**
+     * 构建更新单个区域编码表达的SQL
+     * 参数顺序：编码表达式、卷烟代码、名称、投放区域
+     * 
+     * @param tableName 预测数据表名
+     * @return 更新SQL语句
+     * 
+     * @example
+     * buildUpdateDeployinfoCodeSql("cigarette_distribution_prediction_2025_9_3")
+     * -> "UPDATE cigarette_distribution_prediction_2025_9_3 SET DEPLOYINFO_CODE = ? WHERE CIG_CODE = ? AND CIG_NAME = ? AND DELIVERY_AREA = ?"
+     */
+    public static String buildUpdateDeployinfoCodeSql(String tableName) {
+        return String.format("UPDATE %s SET DEPLOYINFO_CODE = ? WHERE CIG_CODE = ? AND CIG_NAME = ? AND DELIVERY_AREA = ?",
+                tableName);
+    }
+    
     /**
      * 构建检查表是否存在的SQL
      * 查询information_schema判断指定表是否存在于当前数据库中
@@ -228,6 +343,22 @@ public class CigaretteDistributionSqlBuilder {
         return "SELECT COUNT(*) FROM information_schema.tables WHERE table_schema = DATABASE() AND table_name = ?";
     }
     
+    /**
+     * 构建查询当前数据库所有表（含视图）名的SQL，用于加载表目录缓存（SchemaCatalog）
+     * 
+     * @example
+     * buildListTablesSql()
+     * -> "SELECT table_name FROM information_schema.tables WHERE table_schema = DATABASE()"
+     */
+    public static String buildListTablesSql() {
+        return "SELECT table_name FROM information_schema.tables WHERE table_schema = DATABASE()";
+    }
+    
+    /**
+     * 预测表唯一键列（按卷烟+区域+时间唯一），同时覆盖按卷烟查询所需的 (CIG_CODE, CIG_NAME) 索引
+     */
+    private static final String PREDICTION_UNIQUE_KEY = "CIG_CODE,CIG_NAME,DELIVERY_AREA,YEAR,MONTH,WEEK_SEQ";
+    
     /**
      * 构建创建预测数据表的SQL
      * 创建cigarette_distribution_prediction结构的动态表，包含所有必需字段
@@ -285,9 +416,9 @@ public class CigaretteDistributionSqlBuilder {
             "`ACTUAL_DELIVERY` decimal(18,2) DEFAULT NULL COMMENT '实际投放量', " +
             "`DEPLOYINFO_CODE` text COMMENT '部署信息编码', " +
             "PRIMARY KEY (`id`), " +
-            "UNIQUE KEY `unique_cigarette_area` (`CIG_CODE`, `CIG_NAME`, `DELIVERY_AREA`, `YEAR`, `MONTH`, `WEEK_SEQ`) " +
-            ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci COMMENT='卷烟分配预测数据表'",
-            tableName);
+            "UNIQUE KEY `unique_cigarette_area` (`CIG_CODE`, `CIG_NAME`, `DELIVERY_AREA`, `YEAR`, `MONTH`, `WEEK_SEQ`)" +
+            "%s) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci COMMENT='卷烟分配预测数据表'",
+            tableName, DynamicTableIndexes.buildIndexClauses(tableName, "id", PREDICTION_UNIQUE_KEY));
     }
     
     /**
@@ -310,6 +441,529 @@ public class CigaretteDistributionSqlBuilder {
                 tableName);
     }
     
+    // ==================== 运行报告SQL ====================
+    
+    /**
+     * 构建创建运行报告表的SQL
+     * 每次一键生成分配方案写入一条记录，用于逐周对比性能
+     * 
+     * @return 创建表的SQL语句（表已存在时不做任何操作）
+     * 
+     * @example
+     * buildCreateRunReportTableSql()
+     * -> "CREATE TABLE IF NOT EXISTS `distribution_run_report` (...)"
+     */
+    public static String buildCreateRunReportTableSql() {
+        return "CREATE TABLE IF NOT EXISTS `distribution_run_report` (" +
+            "`id` bigint NOT NULL AUTO_INCREMENT COMMENT '主键ID', " +
+            "`YEAR` int NOT NULL COMMENT '年份', " +
+            "`MONTH` tinyint NOT NULL COMMENT '月份', " +
+            "`WEEK_SEQ` tinyint NOT NULL COMMENT '周序号', " +
+            "`START_TIME` bigint NOT NULL COMMENT '开始时间戳(ms)', " +
+            "`TOTAL_MS` bigint DEFAULT NULL COMMENT '总耗时(ms)', " +
+            "`DELETE_MS` decimal(14,3) DEFAULT NULL COMMENT '删除旧数据耗时(ms)', " +
+            "`COMPUTE_MS` decimal(14,3) DEFAULT NULL COMMENT '算法计算耗时(ms)', " +
+            "`WRITE_BACK_MS` decimal(14,3) DEFAULT NULL COMMENT '写回耗时(ms)', " +
+            "`ENCODE_MS` decimal(14,3) DEFAULT NULL COMMENT '编码耗时(ms)', " +
+            "`DB_ROUND_TRIPS` int DEFAULT NULL COMMENT '数据库往返次数', " +
+            "`CIGARETTE_COUNT` int DEFAULT NULL COMMENT '卷烟种数', " +
+            "`SUCCESS_COUNT` int DEFAULT NULL COMMENT '成功分配卷烟种数', " +
+            "`SUCCESS` tinyint(1) DEFAULT NULL COMMENT '是否成功', " +
+            "`REPORT_JSON` mediumtext COMMENT '完整报告(JSON)', " +
+            "`CREATED_AT` timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间', " +
+            "PRIMARY KEY (`id`), " +
+            "KEY `idx_run_week` (`YEAR`, `MONTH`, `WEEK_SEQ`) " +
+            ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci COMMENT='分配方案运行性能报告表'";
+    }
+    
+    /**
+     * 构建插入运行报告的SQL
+     * 
+     * @return 插入SQL语句
+     */
+    public static String buildInsertRunReportSql() {
+        return "INSERT INTO `distribution_run_report` " +
+            "(YEAR, MONTH, WEEK_SEQ, START_TIME, TOTAL_MS, DELETE_MS, COMPUTE_MS, WRITE_BACK_MS, ENCODE_MS, " +
+            "DB_ROUND_TRIPS, CIGARETTE_COUNT, SUCCESS_COUNT, SUCCESS, REPORT_JSON) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    }
+    
+    /**
+     * 构建查询运行报告列表的SQL（按时间倒序）
+     * 
+     * @param filterByWeek 是否按年月周序号过滤
+     * @return 查询SQL语句，最后一个参数为返回条数
+     * 
+     * @example
+     * buildRunReportQuerySql(true)
+     * -> "SELECT ... FROM `distribution_run_report` WHERE YEAR = ? AND MONTH = ? AND WEEK_SEQ = ? ORDER BY id DESC LIMIT ?"
+     */
+    public static String buildRunReportQuerySql(boolean filterByWeek) {
+        return "SELECT id, YEAR, MONTH, WEEK_SEQ, START_TIME, TOTAL_MS, DELETE_MS, COMPUTE_MS, WRITE_BACK_MS, " +
+            "ENCODE_MS, DB_ROUND_TRIPS, CIGARETTE_COUNT, SUCCESS_COUNT, SUCCESS, REPORT_JSON, CREATED_AT " +
+            "FROM `distribution_run_report` " +
+            (filterByWeek ? "WHERE YEAR = ? AND MONTH = ? AND WEEK_SEQ = ? " : "") +
+            "ORDER BY id DESC LIMIT ?";
+    }
+    
+    // ==================== 输入摘要SQL ====================
+    
+    /**
+     * 构建创建卷烟输入摘要表的SQL
+     * 每周每种卷烟一条记录，保存上次写回时输入数据（预投放量、投放方式、投放区域、备注、所用客户数表内容）的摘要，
+     * 用于增量重新生成时判断卷烟输入是否变化
+     * 
+     * @return 创建表的SQL语句（表已存在时不做任何操作）
+     */
+    public static String buildCreateInputHashTableSql() {
+        return "CREATE TABLE IF NOT EXISTS `distribution_input_hash` (" +
+            "`YEAR` int NOT NULL COMMENT '年份', " +
+            "`MONTH` tinyint NOT NULL COMMENT '月份', " +
+            "`WEEK_SEQ` tinyint NOT NULL COMMENT '周序号', " +
+            "`CIG_CODE` varchar(50) NOT NULL COMMENT '卷烟代码', " +
+            "`CIG_NAME` varchar(100) NOT NULL COMMENT '卷烟名称', " +
+            "`INPUT_HASH` char(64) NOT NULL COMMENT '输入数据摘要(SHA-256)', " +
+            "`UPDATED_AT` timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '更新时间', " +
+            "PRIMARY KEY (`YEAR`, `MONTH`, `WEEK_SEQ`, `CIG_CODE`, `CIG_NAME`) " +
+            ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci COMMENT='卷烟分配输入摘要表'";
+    }
+    
+    /**
+     * 构建查询指定周所有卷烟输入摘要的SQL
+     * 
+     * @return 查询SQL语句，参数依次为YEAR、MONTH、WEEK_SEQ
+     */
+    public static String buildInputHashQuerySql() {
+        return "SELECT CIG_CODE, CIG_NAME, INPUT_HASH FROM `distribution_input_hash` " +
+            "WHERE YEAR = ? AND MONTH = ? AND WEEK_SEQ = ?";
+    }
+    
+    /**
+     * 构建删除单个卷烟输入摘要的SQL
+     * 
+     * @return 删除SQL语句，参数依次为YEAR、MONTH、WEEK_SEQ、CIG_CODE、CIG_NAME
+     */
+    public static String buildDeleteInputHashSql() {
+        return "DELETE FROM `distribution_input_hash` " +
+            "WHERE YEAR = ? AND MONTH = ? AND WEEK_SEQ = ? AND CIG_CODE = ? AND CIG_NAME = ?";
+    }
+    
+    /**
+     * 构建插入单个卷烟输入摘要的SQL（与buildDeleteInputHashSql配合实现覆盖写入）
+     * 
+     * @return 插入SQL语句，参数依次为YEAR、MONTH、WEEK_SEQ、CIG_CODE、CIG_NAME、INPUT_HASH
+     */
+    public static String buildInsertInputHashSql() {
+        return "INSERT INTO `distribution_input_hash` (YEAR, MONTH, WEEK_SEQ, CIG_CODE, CIG_NAME, INPUT_HASH) " +
+            "VALUES (?, ?, ?, ?, ?, ?)";
+    }
+    
+    /**
+     * 构建查询客户数表全部内容的SQL（用于计算表内容摘要）
+     * 
+     * @param tableName 区域客户数表名
+     * @return 查询SQL语句
+     */
+    public static String buildRegionClientTableContentSql(String tableName) {
+        return String.format("SELECT * FROM `%s`", tableName);
+    }
+    
+    /**
+     * 构建查询预测表中已有卷烟（代码+名称）的SQL
+     * 
+     * @param tableName 预测表名
+     * @return 查询SQL语句
+     */
+    public static String buildDistinctCigaretteQuerySql(String tableName) {
+        return String.format("SELECT DISTINCT CIG_CODE, CIG_NAME FROM `%s`", tableName);
+    }
+    
+    // ==================== 分布式任务队列SQL ====================
+    
+    /**
+     * 构建创建分布式分配任务表的SQL
+     * 每次分布式一键生成一条记录，由接收请求的实例（协调者）创建并汇总结果
+     * 
+     * @return 创建表的SQL语句（表已存在时不做任何操作）
+     */
+    public static String buildCreateJobTableSql() {
+        return "CREATE TABLE IF NOT EXISTS `distribution_job` (" +
+            "`id` bigint NOT NULL AUTO_INCREMENT COMMENT '主键ID', " +
+            "`YEAR` int NOT NULL COMMENT '年份', " +
+            "`MONTH` tinyint NOT NULL COMMENT '月份', " +
+            "`WEEK_SEQ` tinyint NOT NULL COMMENT '周序号', " +
+            "`URBAN_RATIO` decimal(10,4) DEFAULT NULL COMMENT '城网比例', " +
+            "`RURAL_RATIO` decimal(10,4) DEFAULT NULL COMMENT '农网比例', " +
+            "`STATUS` varchar(16) NOT NULL COMMENT '任务状态(RUNNING/COMPLETED/FAILED)', " +
+            "`COORDINATOR` varchar(128) DEFAULT NULL COMMENT '协调者实例标识', " +
+            "`TOTAL_ITEMS` int NOT NULL DEFAULT 0 COMMENT '卷烟任务项数', " +
+            "`CREATED_AT` bigint NOT NULL COMMENT '创建时间戳(ms)', " +
+            "`FINISHED_AT` bigint DEFAULT NULL COMMENT '结束时间戳(ms)', " +
+            "PRIMARY KEY (`id`), " +
+            "KEY `idx_job_status` (`STATUS`) " +
+            ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci COMMENT='分布式分配任务表'";
+    }
+    
+    /**
+     * 构建创建分布式分配任务项表的SQL
+     * 每种卷烟一条记录，各实例通过领取（CLAIMED）-> 完成（DONE/FAILED）的状态流转分担计算和写回
+     * 
+     * @return 创建表的SQL语句（表已存在时不做任何操作）
+     */
+    public static String buildCreateJobItemTableSql() {
+        return "CREATE TABLE IF NOT EXISTS `distribution_job_item` (" +
+            "`id` bigint NOT NULL AUTO_INCREMENT COMMENT '主键ID', " +
+            "`JOB_ID` bigint NOT NULL COMMENT '任务ID', " +
+            "`CIG_CODE` varchar(50) NOT NULL COMMENT '卷烟代码', " +
+            "`CIG_NAME` varchar(100) NOT NULL COMMENT '卷烟名称', " +
+            "`STATUS` varchar(16) NOT NULL COMMENT '任务项状态(PENDING/CLAIMED/DONE/FAILED)', " +
+            "`WORKER_ID` varchar(128) DEFAULT NULL COMMENT '领取实例标识', " +
+            "`ATTEMPTS` int NOT NULL DEFAULT 0 COMMENT '领取次数', " +
+            "`CLAIMED_AT` bigint DEFAULT NULL COMMENT '领取时间戳(ms)', " +
+            "`FINISHED_AT` bigint DEFAULT NULL COMMENT '完成时间戳(ms)', " +
+            "`RESULT_JSON` text COMMENT '卷烟处理结果(JSON)', " +
+            "PRIMARY KEY (`id`), " +
+            "KEY `idx_job_item_status` (`JOB_ID`, `STATUS`) " +
+            ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci COMMENT='分布式分配任务项表'";
+    }
+    
+    /**
+     * 构建插入分布式分配任务的SQL
+     * 
+     * @return 插入SQL语句，参数依次为YEAR、MONTH、WEEK_SEQ、URBAN_RATIO、RURAL_RATIO、STATUS、COORDINATOR、TOTAL_ITEMS、CREATED_AT
+     */
+    public static String buildInsertJobSql() {
+        return "INSERT INTO `distribution_job` " +
+            "(YEAR, MONTH, WEEK_SEQ, URBAN_RATIO, RURAL_RATIO, STATUS, COORDINATOR, TOTAL_ITEMS, CREATED_AT) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    }
+    
+    /**
+     * 构建插入任务项的SQL（状态为PENDING）
+     * 
+     * @return 插入SQL语句，参数依次为JOB_ID、CIG_CODE、CIG_NAME
+     */
+    public static String buildInsertJobItemSql() {
+        return "INSERT INTO `distribution_job_item` (JOB_ID, CIG_CODE, CIG_NAME, STATUS) VALUES (?, ?, ?, 'PENDING')";
+    }
+    
+    /**
+     * 构建查询进行中任务的SQL
+     * 
+     * @return 查询SQL语句
+     */
+    public static String buildRunningJobsQuerySql() {
+        return "SELECT id, YEAR, MONTH, WEEK_SEQ, URBAN_RATIO, RURAL_RATIO FROM `distribution_job` " +
+            "WHERE STATUS = 'RUNNING' ORDER BY id";
+    }
+    
+    /**
+     * 构建查询单个任务的SQL
+     * 
+     * @return 查询SQL语句，参数为id
+     */
+    public static String buildJobQuerySql() {
+        return "SELECT id, YEAR, MONTH, WEEK_SEQ, URBAN_RATIO, RURAL_RATIO, STATUS, COORDINATOR, TOTAL_ITEMS, " +
+            "CREATED_AT, FINISHED_AT FROM `distribution_job` WHERE id = ?";
+    }
+    
+    /**
+     * 构建查询可领取任务项的SQL
+     * 可领取：待处理，或已被领取但租约过期（领取实例宕机或超时）
+     * 
+     * @param skipLocked 是否使用 FOR UPDATE SKIP LOCKED（MySQL 8.0+），多个实例同时领取时互不等待、不重复
+     * @return 查询SQL语句，参数依次为JOB_ID、租约过期时间戳、领取数量
+     * 
+     * @example
+     * buildClaimableJobItemsSql(true)
+     * -> "SELECT id, CIG_CODE, CIG_NAME FROM `distribution_job_item` WHERE JOB_ID = ? AND (...) ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED"
+     */
+    public static String buildClaimableJobItemsSql(boolean skipLocked) {
+        return "SELECT id, CIG_CODE, CIG_NAME FROM `distribution_job_item` " +
+            "WHERE JOB_ID = ? AND (STATUS = 'PENDING' OR (STATUS = 'CLAIMED' AND CLAIMED_AT < ?)) " +
+            "ORDER BY id LIMIT ?" + (skipLocked ? " FOR UPDATE SKIP LOCKED" : "");
+    }
+    
+    /**
+     * 构建领取任务项的SQL
+     * 条件与buildClaimableJobItemsSql一致，不支持SKIP LOCKED的数据库上以影响行数判断是否领取成功（先到先得）
+     * 
+     * @return 更新SQL语句，参数依次为WORKER_ID、CLAIMED_AT、id、租约过期时间戳
+     */
+    public static String buildClaimJobItemSql() {
+        return "UPDATE `distribution_job_item` SET STATUS = 'CLAIMED', WORKER_ID = ?, CLAIMED_AT = ?, ATTEMPTS = ATTEMPTS + 1 " +
+            "WHERE id = ? AND (STATUS = 'PENDING' OR (STATUS = 'CLAIMED' AND CLAIMED_AT < ?))";
+    }
+    
+    /**
+     * 构建续租任务项的SQL（仅领取该任务项且租约仍有效的实例可以续租）
+     * 影响行数为0表示租约已过期并被其他实例重新领取，本实例不应再写回该卷烟
+     * 
+     * @return 更新SQL语句，参数依次为CLAIMED_AT、id、WORKER_ID
+     */
+    public static String buildRenewJobItemLeaseSql() {
+        return "UPDATE `distribution_job_item` SET CLAIMED_AT = ? WHERE id = ? AND STATUS = 'CLAIMED' AND WORKER_ID = ?";
+    }
+    
+    /**
+     * 构建完成任务项的SQL（仅领取该任务项的实例可以完成）
+     * 
+     * @return 更新SQL语句，参数依次为STATUS、RESULT_JSON、FINISHED_AT、id、WORKER_ID
+     */
+    public static String buildFinishJobItemSql() {
+        return "UPDATE `distribution_job_item` SET STATUS = ?, RESULT_JSON = ?, FINISHED_AT = ? " +
+            "WHERE id = ? AND STATUS = 'CLAIMED' AND WORKER_ID = ?";
+    }
+    
+    /**
+     * 构建按状态统计任务项数量的SQL
+     * 
+     * @return 查询SQL语句，参数为JOB_ID
+     */
+    public static String buildJobItemProgressSql() {
+        return "SELECT STATUS, COUNT(*) AS ITEM_COUNT FROM `distribution_job_item` WHERE JOB_ID = ? GROUP BY STATUS";
+    }
+    
+    /**
+     * 构建查询任务项结果的SQL（按创建顺序，即投放基本信息表顺序）
+     * 
+     * @return 查询SQL语句，参数为JOB_ID
+     */
+    public static String buildJobItemResultsSql() {
+        return "SELECT CIG_CODE, CIG_NAME, STATUS, WORKER_ID, ATTEMPTS, RESULT_JSON FROM `distribution_job_item` " +
+            "WHERE JOB_ID = ? ORDER BY id";
+    }
+    
+    /**
+     * 构建结束任务的SQL（仅结束仍在进行中的任务，已被标记为超时失败的任务不再改为完成）
+     * 
+     * @return 更新SQL语句，参数依次为STATUS、FINISHED_AT、id
+     */
+    public static String buildFinishJobSql() {
+        return "UPDATE `distribution_job` SET STATUS = ?, FINISHED_AT = ? WHERE id = ? AND STATUS = 'RUNNING'";
+    }
+    
+    /**
+     * 构建将超时任务标记为失败的SQL（协调者宕机后任务不会再被结束，由轮询的实例按创建时间判定超时）
+     * 
+     * @return 更新SQL语句，参数依次为FINISHED_AT、创建时间早于该时间戳的任务视为超时
+     */
+    public static String buildFailExpiredJobsSql() {
+        return "UPDATE `distribution_job` SET STATUS = 'FAILED', FINISHED_AT = ? WHERE STATUS = 'RUNNING' AND CREATED_AT < ?";
+    }
+
+    // ==================== 区域编码字典SQL ====================
+
+    /**
+     * 构建创建区域编码字典表的SQL
+     * 每个（扩展投放类型，区域）一条记录，编码表达式中的区域编码由此表维护
+     *
+     * @return 创建表的SQL语句（表已存在时不做任何操作）
+     */
+    public static String buildCreateRegionCodeTableSql() {
+        return "CREATE TABLE IF NOT EXISTS `region_code_dict` (" +
+            "`id` bigint NOT NULL AUTO_INCREMENT COMMENT '主键ID', " +
+            "`DELIVERY_ETYPE` varchar(50) NOT NULL COMMENT '扩展投放类型', " +
+            "`REGION_NAME` varchar(50) NOT NULL COMMENT '区域名称（与region_clientNum表的区域一致）', " +
+            "`REGION_CODE` varchar(4) NOT NULL COMMENT '区域编码（单个字符）', " +
+            "PRIMARY KEY (`id`), " +
+            "UNIQUE KEY `uk_region_code_name` (`DELIVERY_ETYPE`, `REGION_NAME`), " +
+            "UNIQUE KEY `uk_region_code_code` (`DELIVERY_ETYPE`, `REGION_CODE`) " +
+            ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci COMMENT='区域编码字典表'";
+    }
+
+    /**
+     * 构建插入区域编码的SQL
+     *
+     * @return 插入SQL语句，参数依次为DELIVERY_ETYPE、REGION_NAME、REGION_CODE
+     */
+    public static String buildInsertRegionCodeSql() {
+        return "INSERT INTO `region_code_dict` (DELIVERY_ETYPE, REGION_NAME, REGION_CODE) VALUES (?, ?, ?)";
+    }
+
+    /**
+     * 构建查询全部区域编码的SQL
+     *
+     * @return 查询SQL语句，结果列为DELIVERY_ETYPE、REGION_NAME、REGION_CODE
+     */
+    public static String buildRegionCodesQuerySql() {
+        return "SELECT DELIVERY_ETYPE, REGION_NAME, REGION_CODE FROM `region_code_dict` ORDER BY DELIVERY_ETYPE, REGION_CODE";
+    }
+
+    // ==================== 分区预测表SQL ====================
+    
+    /**
+     * 预测表业务列（不含自增主键），周表迁移到统一预测表时按此顺序复制
+     */
+    private static final String PREDICTION_DATA_COLUMNS = "CIG_CODE, CIG_NAME, YEAR, MONTH, WEEK_SEQ, DELIVERY_AREA, "
+            + "DELIVERY_METHOD, DELIVERY_ETYPE, " + buildGradeColumns() + ", BZ, ACTUAL_DELIVERY, DEPLOYINFO_CODE";
+    
+    /**
+     * 构建创建统一预测表的SQL（按年、月、周序号LIST COLUMNS分区）
+     * 分区列须包含在所有唯一键中，年份使用smallint（COLUMNS分区不支持year类型）；
+     * 初始只有一个占位分区，各周分区由PredictionStorageService按需添加
+     * 
+     * @param tableName 统一预测表名（cigarette_distribution_prediction）
+     * @return 建表SQL语句
+     */
+    public static String buildCreatePartitionedPredictionTableSql(String tableName) {
+        StringBuilder grades = new StringBuilder();
+        for (int i = 30; i >= 1; i--) {
+            grades.append("`D").append(i).append("` decimal(18,2) DEFAULT NULL, ");
+        }
+        return String.format(
+            "CREATE TABLE IF NOT EXISTS `%s` (" +
+            "`id` int NOT NULL AUTO_INCREMENT COMMENT '主键ID', " +
+            "`CIG_CODE` varchar(32) DEFAULT NULL COMMENT '卷烟代码', " +
+            "`CIG_NAME` varchar(100) DEFAULT NULL COMMENT '卷烟名称', " +
+            "`YEAR` smallint NOT NULL COMMENT '年份', " +
+            "`MONTH` tinyint NOT NULL COMMENT '月份', " +
+            "`WEEK_SEQ` tinyint NOT NULL COMMENT '周序号', " +
+            "`DELIVERY_AREA` varchar(100) DEFAULT NULL COMMENT '投放区域', " +
+            "`DELIVERY_METHOD` varchar(50) DEFAULT NULL COMMENT '档位投放方式', " +
+            "`DELIVERY_ETYPE` varchar(50) DEFAULT NULL COMMENT '扩展投放方式', " +
+            "%s" +
+            "`BZ` varchar(255) DEFAULT NULL COMMENT '备注', " +
+            "`ACTUAL_DELIVERY` decimal(18,2) DEFAULT NULL COMMENT '实际投放量', " +
+            "`DEPLOYINFO_CODE` text COMMENT '部署信息编码', " +
+            "PRIMARY KEY (`id`, `YEAR`, `MONTH`, `WEEK_SEQ`), " +
+            "UNIQUE KEY `unique_cigarette_area` (`CIG_CODE`, `CIG_NAME`, `DELIVERY_AREA`, `YEAR`, `MONTH`, `WEEK_SEQ`)" +
+            "%s) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci COMMENT='卷烟分配预测数据表（按周分区）' " +
+            "PARTITION BY LIST COLUMNS (`YEAR`, `MONTH`, `WEEK_SEQ`) (PARTITION `p_init` VALUES IN ((0, 0, 0)))",
+            tableName, grades, DynamicTableIndexes.buildIndexClauses(tableName, "id", PREDICTION_UNIQUE_KEY));
+    }
+    
+    /**
+     * 构建检查分区是否存在的SQL
+     * 参数顺序：表名、分区名
+     * 
+     * @example
+     * buildCheckPartitionExistsSql()
+     * -> "SELECT COUNT(*) FROM information_schema.partitions WHERE table_schema = DATABASE() AND table_name = ? AND partition_name = ?"
+     */
+    public static String buildCheckPartitionExistsSql() {
+        return "SELECT COUNT(*) FROM information_schema.partitions WHERE table_schema = DATABASE() AND table_name = ? AND partition_name = ?";
+    }
+    
+    /**
+     * 构建添加周分区的SQL
+     * 
+     * @example
+     * buildAddWeekPartitionSql("cigarette_distribution_prediction", "p2025_9_3", 2025, 9, 3)
+     * -> "ALTER TABLE `cigarette_distribution_prediction` ADD PARTITION (PARTITION `p2025_9_3` VALUES IN ((2025, 9, 3)))"
+     */
+    public static String buildAddWeekPartitionSql(String tableName, String partitionName, int year, int month, int weekSeq) {
+        return String.format("ALTER TABLE `%s` ADD PARTITION (PARTITION `%s` VALUES IN ((%d, %d, %d)))",
+                tableName, partitionName, year, month, weekSeq);
+    }
+    
+    /**
+     * 构建删除周分区的SQL（整周数据随分区一并删除，为元数据操作）
+     * 
+     * @example
+     * buildDropWeekPartitionSql("cigarette_distribution_prediction", "p2025_9_3")
+     * -> "ALTER TABLE `cigarette_distribution_prediction` DROP PARTITION `p2025_9_3`"
+     */
+    public static String buildDropWeekPartitionSql(String tableName, String partitionName) {
+        return String.format("ALTER TABLE `%s` DROP PARTITION `%s`", tableName, partitionName);
+    }
+    
+    /**
+     * 构建周视图SQL：周表名作为统一预测表该周数据上的可更新视图，原有按周表名的读写SQL不变
+     * WITH CHECK OPTION保证经视图写入的记录属于该周
+     * 
+     * @example
+     * buildCreateWeekViewSql("cigarette_distribution_prediction_2025_9_3", "cigarette_distribution_prediction", 2025, 9, 3)
+     * -> "CREATE VIEW `cigarette_distribution_prediction_2025_9_3` AS SELECT * FROM `cigarette_distribution_prediction`
+     *     WHERE `YEAR` = 2025 AND `MONTH` = 9 AND `WEEK_SEQ` = 3 WITH CASCADED CHECK OPTION"
+     */
+    public static String buildCreateWeekViewSql(String viewName, String tableName, int year, int month, int weekSeq) {
+        return String.format("CREATE VIEW `%s` AS SELECT * FROM `%s` WHERE `YEAR` = %d AND `MONTH` = %d AND `WEEK_SEQ` = %d " +
+                "WITH CASCADED CHECK OPTION", viewName, tableName, year, month, weekSeq);
+    }
+    
+    /**
+     * 构建删除周视图的SQL
+     */
+    public static String buildDropViewSql(String viewName) {
+        return String.format("DROP VIEW IF EXISTS `%s`", viewName);
+    }
+    
+    /**
+     * 构建查询周预测表（实体表，不含视图）的SQL，参数为表名LIKE模式
+     * 
+     * @example
+     * buildWeeklyBaseTablesQuerySql()
+     * -> "SELECT table_name FROM information_schema.tables WHERE table_schema = DATABASE() AND table_type = 'BASE TABLE' AND table_name LIKE ? ORDER BY table_name"
+     */
+    public static String buildWeeklyBaseTablesQuerySql() {
+        return "SELECT table_name FROM information_schema.tables WHERE table_schema = DATABASE() " +
+                "AND table_type = 'BASE TABLE' AND table_name LIKE ? ORDER BY table_name";
+    }
+    
+    /**
+     * 构建将周预测表数据复制到统一预测表的SQL
+     * 年、月、周序号以参数写入（按周表名确定），自增主键重新生成
+     * 
+     * @param targetTable 统一预测表名
+     * @param sourceTable 周预测表名
+     * @return 插入SQL语句，参数顺序：年、月、周序号
+     */
+    public static String buildCopyWeekRowsSql(String targetTable, String sourceTable) {
+        String selectColumns = PREDICTION_DATA_COLUMNS.replace("YEAR, MONTH, WEEK_SEQ", "?, ?, ?");
+        return String.format("INSERT INTO `%s` (%s) SELECT %s FROM `%s`",
+                targetTable, PREDICTION_DATA_COLUMNS, selectColumns, sourceTable);
+    }
+    
+    /**
+     * 构建统计表（或视图）记录数的SQL
+     */
+    public static String buildCountRowsSql(String tableName) {
+        return String.format("SELECT COUNT(*) FROM `%s`", tableName);
+    }
+    
+    /**
+     * 构建重命名表的SQL
+     */
+    public static String buildRenameTableSql(String fromTable, String toTable) {
+        return String.format("RENAME TABLE `%s` TO `%s`", fromTable, toTable);
+    }
+    
+    // ==================== 动态表索引SQL ====================
+    
+    /**
+     * 构建查询当前数据库所有实体表（不含视图）名的SQL，用于存量表补建索引
+     * 
+     * @example
+     * buildBaseTablesQuerySql()
+     * -> "SELECT table_name FROM information_schema.tables WHERE table_schema = DATABASE() AND table_type = 'BASE TABLE' ORDER BY table_name"
+     */
+    public static String buildBaseTablesQuerySql() {
+        return "SELECT table_name FROM information_schema.tables WHERE table_schema = DATABASE() " +
+                "AND table_type = 'BASE TABLE' ORDER BY table_name";
+    }
+    
+    /**
+     * 构建查询表已有索引及其列的SQL，参数为表名
+     * 结果按索引名、列序号排序，每行为一个索引列（index_name, column_name）
+     */
+    public static String buildTableIndexColumnsSql() {
+        return "SELECT index_name, column_name FROM information_schema.statistics " +
+                "WHERE table_schema = DATABASE() AND table_name = ? ORDER BY index_name, seq_in_index";
+    }
+    
+    /**
+     * 构建为已有表添加二级索引的SQL
+     * 
+     * @example
+     * buildAddIndexSql("cigarette_distribution_info_2025_9_3", idx_cig(CIG_CODE, CIG_NAME))
+     * -> "ALTER TABLE `cigarette_distribution_info_2025_9_3` ADD INDEX `idx_cig` (`CIG_CODE`, `CIG_NAME`)"
+     */
+    public static String buildAddIndexSql(String tableName, DynamicTableIndexes.IndexDefinition index) {
+        return String.format("ALTER TABLE `%s` ADD INDEX `%s` (%s)",
+                tableName, index.getName(), DynamicTableIndexes.quoteColumns(index.getColumns()));
+    }
+    
     // ==================== 私有辅助方法 ====================
     
     /**
@@ -332,6 +986,20 @@ public class CigaretteDistributionSqlBuilder {
         return columns.toString();
     }
     
+    /**
+     * 构建指定个数的"?"占位符，用逗号分隔
+     * 
+     * @example
+     * buildPlaceholders(3) -> "?, ?, ?"
+     */
+    private static String buildPlaceholders(int count) {
+        StringBuilder placeholders = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            placeholders.append(i > 0 ? ", ?" : "?");
+        }
+        return placeholders.toString();
+    }
+    
     // ==================== SQL验证和安全检查 ====================
     
     /**
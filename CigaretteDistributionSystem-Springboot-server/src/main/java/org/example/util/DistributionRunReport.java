@@ -0,0 +1,449 @@
+package org.example.util;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.stream.Collectors;
+
+/**
+ * 一键生成分配方案的运行性能报告
+ *
+ * 【核心功能】
+ * 记录一次分配运行中各阶段的耗时与资源消耗，随响应返回并持久化到distribution_run_report表，
+ * 用于逐周对比性能回归
+ *
+ * 【采集内容】
+ * - 阶段耗时：删除旧数据、算法计算、写回数据库、编码表达式生成
+ * - 数据库往返次数：运行期间执行的SQL语句数
+ * - 最慢卷烟：按单卷烟总耗时排序的前N种卷烟，附投放类型和区域数
+ * - 迭代次数：各算法粗调/微调阶段实际达到的迭代轮数
+ * - 分配记忆化：实际计算的问题数、运行内复用次数和跨运行缓存命中次数
+ *
+ * 【使用方式】
+ * 报告与当前线程绑定：调用begin()开始采集，end()结束并解绑。
+ * 服务层和算法层通过静态方法上报数据，未开始采集时所有上报均为空操作，不影响其他调用路径。
+ * 并行执行模式下由propagate()把报告和当前卷烟传递到工作线程，上报在报告对象上同步
+ *
+ * @author Robin
+ * @version 1.0
+ * @since 2025-10-20
+ */
+public class DistributionRunReport {
+
+    /**
+     * 默认返回的最慢卷烟数量
+     */
+    public static final int DEFAULT_SLOWEST_N = 10;
+
+    private static final ThreadLocal<DistributionRunReport> CURRENT = new ThreadLocal<>();
+    private static final ThreadLocal<CigaretteTiming> CURRENT_CIGARETTE = new ThreadLocal<>();
+
+    private final Integer year;
+    private final Integer month;
+    private final Integer weekSeq;
+    private final long startTime;
+    private long endTime;
+
+    private long deleteNanos;
+    private long computeNanos;
+    private long writeBackNanos;
+    private long encodeNanos;
+    private int dbRoundTrips;
+
+    private final List<CigaretteTiming> cigaretteTimings = new ArrayList<>();
+    private final Map<String, long[]> iterationStats = new LinkedHashMap<>(); // 阶段 -> [调用次数, 迭代总数, 最大迭代数]
+    private Map<String, Object> allocationMemoStats;
+    private Map<String, Object> executionStats;
+
+    private DistributionRunReport(Integer year, Integer month, Integer weekSeq) {
+        this.year = year;
+        this.month = month;
+        this.weekSeq = weekSeq;
+        this.startTime = System.currentTimeMillis();
+    }
+
+    // ==================== 线程绑定 ====================
+
+    /**
+     * 开始一次运行报告采集并绑定到当前线程
+     */
+    public static DistributionRunReport begin(Integer year, Integer month, Integer weekSeq) {
+        DistributionRunReport report = new DistributionRunReport(year, month, weekSeq);
+        CURRENT.set(report);
+        CURRENT_CIGARETTE.remove();
+        return report;
+    }
+
+    /**
+     * 获取当前线程正在采集的报告
+     *
+     * @return 当前报告，未开始采集时返回null
+     */
+    public static DistributionRunReport current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * 结束采集并解除线程绑定
+     */
+    public static void end() {
+        DistributionRunReport report = CURRENT.get();
+        if (report != null) {
+            synchronized (report) {
+                if (report.endTime == 0) {
+                    report.endTime = System.currentTimeMillis();
+                }
+            }
+        }
+        CURRENT.remove();
+        CURRENT_CIGARETTE.remove();
+    }
+
+    /**
+     * 将当前线程的报告和正在记录的卷烟传递给在其他线程执行的任务（并行执行模式）
+     * 任务执行期间上报的数据计入同一报告和同一卷烟，执行结束后恢复执行线程原有的绑定
+     *
+     * @param task 待执行的任务
+     * @return 包装后的任务；未开始采集时返回原任务
+     */
+    public static <T> Callable<T> propagate(Callable<T> task) {
+        DistributionRunReport report = CURRENT.get();
+        if (report == null) {
+            return task;
+        }
+        CigaretteTiming cigarette = CURRENT_CIGARETTE.get();
+        return () -> {
+            DistributionRunReport previousReport = CURRENT.get();
+            CigaretteTiming previousCigarette = CURRENT_CIGARETTE.get();
+            CURRENT.set(report);
+            CURRENT_CIGARETTE.set(cigarette);
+            try {
+                return task.call();
+            } finally {
+                CURRENT.set(previousReport);
+                CURRENT_CIGARETTE.set(previousCigarette);
+                if (previousReport == null) {
+                    CURRENT.remove();
+                }
+                if (previousCigarette == null) {
+                    CURRENT_CIGARETTE.remove();
+                }
+            }
+        };
+    }
+
+    // ==================== 静态上报方法（未采集时为空操作） ====================
+
+    /**
+     * 记录一次数据库往返
+     */
+    public static void recordDbRoundTrip() {
+        recordDbRoundTrips(1);
+    }
+
+    /**
+     * 记录多次数据库往返
+     */
+    public static void recordDbRoundTrips(int count) {
+        DistributionRunReport report = CURRENT.get();
+        if (report != null) {
+            CigaretteTiming cigarette = CURRENT_CIGARETTE.get();
+            synchronized (report) {
+                report.dbRoundTrips += count;
+                if (cigarette != null) {
+                    cigarette.dbRoundTrips += count;
+                }
+            }
+        }
+    }
+
+    /**
+     * 记录算法某阶段实际达到的迭代次数
+     *
+     * @param phase 阶段名称（如：countyCigaretteDistributionAlgorithm.微调）
+     * @param iterations 实际迭代次数
+     */
+    public static void recordIterations(String phase, int iterations) {
+        DistributionRunReport report = CURRENT.get();
+        if (report == null) {
+            return;
+        }
+        CigaretteTiming cigarette = CURRENT_CIGARETTE.get();
+        synchronized (report) {
+            long[] stats = report.iterationStats.computeIfAbsent(phase, k -> new long[3]);
+            stats[0]++;
+            stats[1] += iterations;
+            stats[2] = Math.max(stats[2], iterations);
+            if (cigarette != null) {
+                cigarette.iterations.merge(phase, iterations, Integer::sum);
+            }
+        }
+    }
+
+    /**
+     * 记录删除旧数据的耗时
+     */
+    public static void recordDeleteTime(long nanos) {
+        DistributionRunReport report = CURRENT.get();
+        if (report != null) {
+            synchronized (report) {
+                report.deleteNanos += nanos;
+            }
+        }
+    }
+
+    /**
+     * 记录编码表达式生成耗时（计入当前卷烟）
+     */
+    public static void recordEncodeTime(long nanos) {
+        DistributionRunReport report = CURRENT.get();
+        if (report != null) {
+            CigaretteTiming cigarette = CURRENT_CIGARETTE.get();
+            synchronized (report) {
+                report.encodeNanos += nanos;
+                if (cigarette != null) {
+                    cigarette.encodeNanos += nanos;
+                }
+            }
+        }
+    }
+
+    /**
+     * 记录分配问题记忆化统计（计算次数、运行内复用次数、跨运行缓存命中次数）
+     */
+    public static void recordAllocationMemo(Map<String, Object> stats) {
+        DistributionRunReport report = CURRENT.get();
+        if (report != null) {
+            synchronized (report) {
+                report.allocationMemoStats = stats;
+            }
+        }
+    }
+
+    /**
+     * 记录执行模式（串行/并行、虚拟线程、线程数、数据库并发上限）
+     */
+    public static void recordExecution(Map<String, Object> execution) {
+        DistributionRunReport report = CURRENT.get();
+        if (report != null) {
+            synchronized (report) {
+                report.executionStats = execution;
+            }
+        }
+    }
+
+    /**
+     * 开始记录单个卷烟（当前线程后续上报的数据计入该卷烟）
+     */
+    public static void startCigarette(String cigCode, String cigName, String deliveryMethod, String deliveryEtype) {
+        DistributionRunReport report = CURRENT.get();
+        if (report != null) {
+            CigaretteTiming timing = new CigaretteTiming(cigCode, cigName, deliveryMethod, deliveryEtype);
+            synchronized (report) {
+                report.cigaretteTimings.add(timing);
+            }
+            CURRENT_CIGARETTE.set(timing);
+        }
+    }
+
+    /**
+     * 记录当前卷烟的算法计算耗时及目标区域数
+     */
+    public static void recordComputeTime(long nanos, int regionCount) {
+        DistributionRunReport report = CURRENT.get();
+        if (report != null) {
+            CigaretteTiming cigarette = CURRENT_CIGARETTE.get();
+            synchronized (report) {
+                report.computeNanos += nanos;
+                if (cigarette != null) {
+                    cigarette.computeNanos += nanos;
+                    cigarette.regionCount = regionCount;
+                }
+            }
+        }
+    }
+
+    /**
+     * 记录当前卷烟的写回耗时（包含编码耗时）
+     */
+    public static void recordWriteBackTime(long nanos) {
+        DistributionRunReport report = CURRENT.get();
+        if (report != null) {
+            CigaretteTiming cigarette = CURRENT_CIGARETTE.get();
+            synchronized (report) {
+                report.writeBackNanos += nanos;
+                if (cigarette != null) {
+                    cigarette.writeBackNanos += nanos;
+                }
+            }
+        }
+    }
+
+    /**
+     * 结束当前卷烟的记录
+     */
+    public static void finishCigarette(String writeBackStatus) {
+        DistributionRunReport report = CURRENT.get();
+        CigaretteTiming cigarette = CURRENT_CIGARETTE.get();
+        if (report != null && cigarette != null) {
+            synchronized (report) {
+                cigarette.writeBackStatus = writeBackStatus;
+            }
+        }
+        CURRENT_CIGARETTE.remove();
+    }
+
+    // ==================== 报告输出 ====================
+
+    /**
+     * 转换为响应/持久化使用的Map结构
+     *
+     * @param slowestN 返回的最慢卷烟数量
+     * @return 报告Map，耗时单位均为毫秒
+     */
+    public synchronized Map<String, Object> toMap(int slowestN) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("year", year);
+        map.put("month", month);
+        map.put("weekSeq", weekSeq);
+        map.put("startTime", startTime);
+        map.put("endTime", getEndTime());
+        map.put("totalMs", getTotalMs());
+        map.put("deleteMs", getDeleteMs());
+        map.put("computeMs", getComputeMs());
+        map.put("writeBackMs", getWriteBackMs());
+        map.put("encodeMs", getEncodeMs());
+        map.put("dbRoundTrips", dbRoundTrips);
+        map.put("cigaretteCount", cigaretteTimings.size());
+
+        Map<String, Object> iterations = new LinkedHashMap<>();
+        for (Map.Entry<String, long[]> entry : iterationStats.entrySet()) {
+            long[] stats = entry.getValue();
+            Map<String, Object> phaseStats = new LinkedHashMap<>();
+            phaseStats.put("calls", stats[0]);
+            phaseStats.put("totalIterations", stats[1]);
+            phaseStats.put("maxIterations", stats[2]);
+            phaseStats.put("avgIterations", stats[0] == 0 ? 0 : (double) stats[1] / stats[0]);
+            iterations.put(entry.getKey(), phaseStats);
+        }
+        map.put("iterations", iterations);
+        if (allocationMemoStats != null) {
+            map.put("allocationMemo", allocationMemoStats);
+        }
+        if (executionStats != null) {
+            map.put("execution", executionStats);
+        }
+
+        List<Map<String, Object>> slowest = cigaretteTimings.stream()
+                .sorted(Comparator.comparingLong(CigaretteTiming::getTotalNanos).reversed())
+                .limit(Math.max(slowestN, 0))
+                .map(CigaretteTiming::toMap)
+                .collect(Collectors.toList());
+        map.put("slowestCigarettes", slowest);
+        return map;
+    }
+
+    public Integer getYear() {
+        return year;
+    }
+
+    public Integer getMonth() {
+        return month;
+    }
+
+    public Integer getWeekSeq() {
+        return weekSeq;
+    }
+
+    public long getStartTime() {
+        return startTime;
+    }
+
+    public long getEndTime() {
+        return endTime == 0 ? System.currentTimeMillis() : endTime;
+    }
+
+    public long getTotalMs() {
+        return getEndTime() - startTime;
+    }
+
+    public double getDeleteMs() {
+        return nanosToMillis(deleteNanos);
+    }
+
+    public double getComputeMs() {
+        return nanosToMillis(computeNanos);
+    }
+
+    public double getWriteBackMs() {
+        return nanosToMillis(writeBackNanos);
+    }
+
+    public double getEncodeMs() {
+        return nanosToMillis(encodeNanos);
+    }
+
+    public int getDbRoundTrips() {
+        return dbRoundTrips;
+    }
+
+    public int getCigaretteCount() {
+        return cigaretteTimings.size();
+    }
+
+    /**
+     * 纳秒转换为毫秒，保留3位小数（单卷烟耗时常低于1毫秒）
+     */
+    private static double nanosToMillis(long nanos) {
+        return Math.round(nanos / 1_000.0) / 1_000.0;
+    }
+
+    /**
+     * 单个卷烟的耗时记录
+     */
+    private static class CigaretteTiming {
+        private final String cigCode;
+        private final String cigName;
+        private final String deliveryMethod;
+        private final String deliveryEtype;
+        private int regionCount;
+        private long computeNanos;
+        private long writeBackNanos;
+        private long encodeNanos;
+        private int dbRoundTrips;
+        private String writeBackStatus;
+        private final Map<String, Integer> iterations = new HashMap<>();
+
+        CigaretteTiming(String cigCode, String cigName, String deliveryMethod, String deliveryEtype) {
+            this.cigCode = cigCode;
+            this.cigName = cigName;
+            this.deliveryMethod = deliveryMethod;
+            this.deliveryEtype = deliveryEtype;
+        }
+
+        long getTotalNanos() {
+            return computeNanos + writeBackNanos;
+        }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("cigCode", cigCode);
+            map.put("cigName", cigName);
+            map.put("deliveryMethod", deliveryMethod);
+            map.put("deliveryEtype", deliveryEtype);
+            map.put("regionCount", regionCount);
+            map.put("totalMs", nanosToMillis(getTotalNanos()));
+            map.put("computeMs", nanosToMillis(computeNanos));
+            map.put("writeBackMs", nanosToMillis(writeBackNanos));
+            map.put("encodeMs", nanosToMillis(encodeNanos));
+            map.put("dbRoundTrips", dbRoundTrips);
+            map.put("iterations", iterations);
+            map.put("writeBackStatus", writeBackStatus);
+            return map;
+        }
+    }
+}
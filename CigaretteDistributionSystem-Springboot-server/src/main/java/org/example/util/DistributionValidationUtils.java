@@ -284,16 +284,7 @@ public class DistributionValidationUtils {
         validateNotEmpty(predictionData.getDeliveryMethod(), "投放方法");
         
         // 验证档位数据（至少有一个非null值）
-        BigDecimal[] grades = GradeMatrixUtils.extractGradesFromEntity(predictionData);
-        boolean hasNonNullGrade = false;
-        for (BigDecimal grade : grades) {
-            if (grade != null) {
-                hasNonNullGrade = true;
-                break;
-            }
-        }
-        
-        if (!hasNonNullGrade) {
+        if (!predictionData.getGrades().hasAnyValue()) {
             throw new IllegalArgumentException("预测数据必须包含至少一个非空档位值");
         }
     }
@@ -0,0 +1,172 @@
+package org.example.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * 动态表二级索引定义
+ *
+ * 【核心功能】
+ * 按表族定义按周/按类型动态创建的表所需的二级索引，建表语句和存量表补建索引（TableIndexService）共用同一份定义：
+ * - 卷烟投放基本信息表 cigarette_distribution_info_{年}_{月}_{周}：(CIG_CODE, CIG_NAME)
+ * - 卷烟预测表 cigarette_distribution_prediction[_{年}_{月}_{周}]：(CIG_CODE, CIG_NAME) 前缀、(DELIVERY_ETYPE)
+ * - 区域客户数表 region_clientNum_*：(region)
+ *
+ * 【覆盖规则】
+ * 已有索引（含主键、唯一键）以所需列为最左前缀时视为已覆盖，不再重复建索引，
+ * 如预测表的唯一键 unique_cigarette_area (CIG_CODE, CIG_NAME, DELIVERY_AREA, ...) 覆盖 (CIG_CODE, CIG_NAME)
+ *
+ * @author Robin
+ * @version 1.0
+ * @since 2025-10-20
+ */
+public final class DynamicTableIndexes {
+
+    /**
+     * 二级索引定义：索引名 + 列（按顺序）
+     */
+    public static final class IndexDefinition {
+        private final String name;
+        private final List<String> columns;
+
+        IndexDefinition(String name, String... columns) {
+            this.name = name;
+            this.columns = Collections.unmodifiableList(Arrays.asList(columns));
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public List<String> getColumns() {
+            return columns;
+        }
+
+        /**
+         * 判断已有索引列是否以本索引的列为最左前缀（列名不区分大小写）
+         */
+        public boolean isCoveredBy(List<String> existingColumns) {
+            if (existingColumns.size() < columns.size()) {
+                return false;
+            }
+            for (int i = 0; i < columns.size(); i++) {
+                if (!columns.get(i).equalsIgnoreCase(existingColumns.get(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static final Pattern INFO_TABLE = Pattern.compile("cigarette_distribution_info_\\d{4}_\\d{1,2}_\\d", Pattern.CASE_INSENSITIVE);
+
+    private static final Pattern PREDICTION_TABLE = Pattern.compile("cigarette_distribution_prediction(_\\d{4}_\\d{1,2}_\\d)?",
+            Pattern.CASE_INSENSITIVE);
+
+    private static final Pattern REGION_CLIENT_TABLE = Pattern.compile("region_clientNum_\\w+", Pattern.CASE_INSENSITIVE);
+
+    private static final List<IndexDefinition> INFO_INDEXES = Collections.singletonList(
+            new IndexDefinition("idx_cig", "CIG_CODE", "CIG_NAME"));
+
+    private static final List<IndexDefinition> PREDICTION_INDEXES = Collections.unmodifiableList(Arrays.asList(
+            new IndexDefinition("idx_cig", "CIG_CODE", "CIG_NAME"),
+            new IndexDefinition("idx_delivery_etype", "DELIVERY_ETYPE")));
+
+    private static final List<IndexDefinition> REGION_CLIENT_INDEXES = Collections.singletonList(
+            new IndexDefinition("idx_region", "region"));
+
+    private DynamicTableIndexes() {
+    }
+
+    /**
+     * 获取表所属表族的二级索引定义
+     *
+     * @param tableName 表名
+     * @return 索引定义；不属于动态表族时返回空列表
+     *
+     * @example
+     * forTable("cigarette_distribution_info_2025_9_3") -> [idx_cig(CIG_CODE, CIG_NAME)]
+     * forTable("cigarette_distribution_prediction_2025_9_3_bak") -> []
+     */
+    public static List<IndexDefinition> forTable(String tableName) {
+        if (tableName == null) {
+            return Collections.emptyList();
+        }
+        if (INFO_TABLE.matcher(tableName).matches()) {
+            return INFO_INDEXES;
+        }
+        if (PREDICTION_TABLE.matcher(tableName).matches()) {
+            return PREDICTION_INDEXES;
+        }
+        if (REGION_CLIENT_TABLE.matcher(tableName).matches()) {
+            return REGION_CLIENT_INDEXES;
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * 找出表尚未被已有索引覆盖的二级索引
+     *
+     * @param tableName 表名
+     * @param existingIndexes 已有索引的列（每个索引一个按顺序的列名列表）
+     * @return 需要新建的索引定义
+     */
+    public static List<IndexDefinition> missingIndexes(String tableName, Collection<List<String>> existingIndexes) {
+        List<IndexDefinition> missing = new ArrayList<>();
+        for (IndexDefinition definition : forTable(tableName)) {
+            boolean covered = false;
+            for (List<String> existing : existingIndexes) {
+                if (definition.isCoveredBy(existing)) {
+                    covered = true;
+                    break;
+                }
+            }
+            if (!covered) {
+                missing.add(definition);
+            }
+        }
+        return missing;
+    }
+
+    /**
+     * 构建建表语句中的二级索引子句，跳过已被建表语句中的键覆盖的索引
+     *
+     * @param tableName 表名
+     * @param declaredKeys 建表语句中已声明的主键/唯一键列（每个键一个逗号分隔的列名字符串）
+     * @return 以", "开头的索引子句，无需建索引时返回空字符串
+     *
+     * @example
+     * buildIndexClauses("cigarette_distribution_prediction_2025_9_3", "id", "CIG_CODE,CIG_NAME,DELIVERY_AREA,YEAR,MONTH,WEEK_SEQ")
+     * -> ", KEY `idx_delivery_etype` (`DELIVERY_ETYPE`)"
+     */
+    public static String buildIndexClauses(String tableName, String... declaredKeys) {
+        List<List<String>> existing = new ArrayList<>();
+        for (String key : declaredKeys) {
+            existing.add(Arrays.asList(key.split("\\s*,\\s*")));
+        }
+        StringBuilder clauses = new StringBuilder();
+        for (IndexDefinition definition : missingIndexes(tableName, existing)) {
+            clauses.append(", KEY `").append(definition.getName()).append("` (")
+                    .append(quoteColumns(definition.getColumns())).append(")");
+        }
+        return clauses.toString();
+    }
+
+    /**
+     * 列名加反引号并以逗号分隔
+     */
+    static String quoteColumns(List<String> columns) {
+        StringBuilder quoted = new StringBuilder();
+        for (String column : columns) {
+            if (quoted.length() > 0) {
+                quoted.append(", ");
+            }
+            quoted.append('`').append(column).append('`');
+        }
+        return quoted.toString();
+    }
+}
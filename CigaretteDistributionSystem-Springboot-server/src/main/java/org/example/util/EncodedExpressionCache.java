@@ -0,0 +1,263 @@
+package org.example.util;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * 编码表达式驻留缓存
+ *
+ * 【核心功能】
+ * 档位投放量编码（如 2×2+14×1+14×0）只取决于30个档位的取整值，一周内大量区域、卷烟的档位设置相同；
+ * 编码表达式的解析结果和解码文本也只取决于表达式本身。本缓存保存三类结果，写回和查询路径共用：
+ * - 档位向量 -> 档位投放量编码（相同档位设置共用同一个字符串实例）
+ * - 编码表达式 -> 解析结果（投放方法、扩展投放类型、区域位掩码、30个档位值）
+ * - 编码表达式 -> 解码文本
+ *
+ * 【容量】
+ * 每类结果按最近访问顺序各保留最多 max-entries 条；档位向量键创建后不再修改，可直接作为缓存键
+ *
+ * 【配置】
+ * distribution.encoding.cache:
+ *   enabled: true        # false时每次重新编码/解析
+ *   max-entries: 4096
+ *
+ * @author Robin
+ * @version 1.0
+ * @since 2025-10-20
+ */
+@Slf4j
+@Component
+public class EncodedExpressionCache {
+
+    @Value("${distribution.encoding.cache.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${distribution.encoding.cache.max-entries:4096}")
+    private int maxEntries = 4096;
+
+    private final Segment<GradeKey, String> gradeSequences = new Segment<>();
+    private final Segment<String, EncodedExpressionParser.ParsedExpression> parsedExpressions = new Segment<>();
+    private final Segment<String, String> decodedExpressions = new Segment<>();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * 获取档位向量的档位投放量编码，不存在时编码并缓存
+     *
+     * @param key 档位向量（取整后）
+     * @param encoder 编码函数
+     * @return 档位投放量编码，相同档位向量返回同一个字符串实例
+     */
+    public String gradeSequence(GradeKey key, Function<GradeKey, String> encoder) {
+        return enabled ? gradeSequences.get(key, encoder, maxEntries) : encoder.apply(key);
+    }
+
+    /**
+     * 获取编码表达式的解析结果，不存在时解析并缓存
+     * 解析结果在调用方之间共享，调用方不得修改其档位数组
+     *
+     * @param expression 编码表达式
+     * @param parser 解析函数
+     */
+    public EncodedExpressionParser.ParsedExpression parsed(String expression,
+                                                          Function<String, EncodedExpressionParser.ParsedExpression> parser) {
+        return enabled ? parsedExpressions.get(expression, parser, maxEntries) : parser.apply(expression);
+    }
+
+    /**
+     * 获取编码表达式的解码文本，不存在时解码并缓存
+     *
+     * @param expression 编码表达式
+     * @param decoder 解码函数
+     */
+    public String decoded(String expression, Function<String, String> decoder) {
+        return enabled ? decodedExpressions.get(expression, decoder, maxEntries) : decoder.apply(expression);
+    }
+
+    /**
+     * 清空缓存（统计计数保留）
+     */
+    public void clear() {
+        gradeSequences.clear();
+        parsedExpressions.clear();
+        decodedExpressions.clear();
+        log.info("编码表达式缓存已清空");
+    }
+
+    /**
+     * 获取缓存统计信息
+     *
+     * @return 包含enabled、maxEntries及gradeSequences、parsed、decoded（各含size、hits、misses、hitRate）的统计Map
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("maxEntries", maxEntries);
+        stats.put("gradeSequences", gradeSequences.getStats());
+        stats.put("parsed", parsedExpressions.getStats());
+        stats.put("decoded", decodedExpressions.getStats());
+        return stats;
+    }
+
+    /**
+     * 档位向量键：30个档位按四舍五入取整后的值，哈希值预先计算
+     */
+    public static final class GradeKey {
+
+        private final long[] values;
+        private final int hash;
+
+        private GradeKey(long[] values) {
+            this.values = values;
+            this.hash = Arrays.hashCode(values);
+        }
+
+        /**
+         * 从档位数组（D30到D1）构建，null视为0，小数按HALF_UP取整
+         */
+        public static GradeKey of(BigDecimal[] grades) {
+            long[] values = new long[grades.length];
+            for (int i = 0; i < grades.length; i++) {
+                values[i] = roundToLong(grades[i]);
+            }
+            return new GradeKey(values);
+        }
+
+        /**
+         * 从档位向量（D30到D1）构建，null视为0，小数按HALF_UP取整
+         */
+        public static GradeKey of(GradeVector grades) {
+            long[] values = new long[GradeVector.GRADE_COUNT];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = grades.roundedUnits(i);
+            }
+            return new GradeKey(values);
+        }
+
+        /**
+         * 档位向量取整后是否与本键相同（不创建新的键）
+         */
+        public boolean matches(GradeVector grades) {
+            if (values.length != GradeVector.GRADE_COUNT) {
+                return false;
+            }
+            for (int i = 0; i < values.length; i++) {
+                if (values[i] != grades.roundedUnits(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * 档位数组取整后是否与本键相同（不创建新的键）
+         */
+        public boolean matches(BigDecimal[] grades) {
+            if (grades.length != values.length) {
+                return false;
+            }
+            for (int i = 0; i < values.length; i++) {
+                if (values[i] != roundToLong(grades[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        public int size() {
+            return values.length;
+        }
+
+        public long get(int index) {
+            return values[index];
+        }
+
+        private static long roundToLong(BigDecimal value) {
+            if (value == null || value.signum() == 0) {
+                return 0L;
+            }
+            return value.scale() <= 0 ? value.longValue() : value.setScale(0, RoundingMode.HALF_UP).longValue();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return this == o || (o instanceof GradeKey && Arrays.equals(values, ((GradeKey) o).values));
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * 按最近访问顺序淘汰的缓存段，带命中统计
+     * 计算函数在锁外执行，并发未命中时以先写入的结果为准
+     */
+    private static final class Segment<K, V> {
+
+        private final LinkedHashMap<K, V> entries = new LinkedHashMap<>(64, 0.75f, true);
+        private final AtomicLong hits = new AtomicLong();
+        private final AtomicLong misses = new AtomicLong();
+
+        V get(K key, Function<K, V> loader, int maxEntries) {
+            synchronized (entries) {
+                V cached = entries.get(key);
+                if (cached != null) {
+                    hits.incrementAndGet();
+                    return cached;
+                }
+            }
+
+            misses.incrementAndGet();
+            V value = loader.apply(key);
+            if (value == null) {
+                return null;
+            }
+            synchronized (entries) {
+                V existing = entries.putIfAbsent(key, value);
+                if (existing != null) {
+                    return existing;
+                }
+                if (entries.size() > maxEntries) {
+                    entries.remove(entries.keySet().iterator().next());
+                }
+            }
+            return value;
+        }
+
+        void clear() {
+            synchronized (entries) {
+                entries.clear();
+            }
+        }
+
+        Map<String, Object> getStats() {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            long hitCount = hits.get();
+            long missCount = misses.get();
+            synchronized (entries) {
+                stats.put("size", entries.size());
+            }
+            stats.put("hits", hitCount);
+            stats.put("misses", missCount);
+            stats.put("hitRate", hitCount + missCount == 0 ? 0.0 : (double) hitCount / (hitCount + missCount));
+            return stats;
+        }
+    }
+}
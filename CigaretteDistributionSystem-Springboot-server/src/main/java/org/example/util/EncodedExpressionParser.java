@@ -0,0 +1,446 @@
+package org.example.util;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 编码表达式单遍解析器
+ *
+ * 【核心功能】
+ * 以字符游标一次扫描编码表达式（如 "B1（3+4）（2×5+1×3+27×0）"），不使用正则、split、substring，
+ * 同时得到投放方法代码、扩展投放类型代码、区域位掩码和30个档位值，供解码、结构化解析和批量更新共用
+ *
+ * 【表达式结构】
+ * - 第1个字符：投放方法代码（A/B/C）；方法为B时第2个字符为扩展投放类型代码
+ * - 随后最多两个全角括号组：B类型依次为区域编码组、档位投放量组；A类型只有档位投放量组
+ * - 区域编码组：单字符区域编码以"+"连接，如 3+4
+ * - 档位投放量组："数量×值"以"+"连接，从D30开始依次填充，不足30个档位补0
+ *
+ * 【区域位掩码】
+ * 位序与区域编码表（RegionCodeTable）一致：第i个区域（按编码字典序）对应掩码第i位；
+ * 编码表由调用方提供（来自区域编码字典表），没有编码表的扩展投放类型不解析区域
+ *
+ * 【错误处理】
+ * 解析本身不抛出异常，格式错误记录在结果中（区域错误、档位错误分开记录），由调用方决定是否失败；
+ * 仅在出错时才截取子串生成错误信息
+ *
+ * 【线程安全】
+ * 解析器不可变，可在线程间共享；每次解析返回新的结果对象
+ *
+ * @author Robin
+ * @version 1.0
+ * @since 2025-10-20
+ */
+public final class EncodedExpressionParser {
+
+    /**
+     * 按档位统一投放（档位投放量在第1个括号组）
+     */
+    public static final char METHOD_UNIFORM = 'A';
+
+    /**
+     * 按档位扩展投放（区域在第1个括号组，档位投放量在第2个括号组）
+     */
+    public static final char METHOD_EXTENDED = 'B';
+
+    /**
+     * 表达式不含扩展投放类型代码
+     */
+    public static final char NO_ETYPE = '\0';
+
+    /**
+     * 档位总数
+     */
+    public static final int GRADE_COUNT = 30;
+
+    /**
+     * 解析的括号组数上限（区域组 + 档位组）
+     */
+    private static final int MAX_GROUPS = 2;
+
+    private static final char OPEN = '（';
+    private static final char CLOSE = '）';
+    private static final char SEPARATOR = '+';
+    private static final char TIMES = '×';
+
+    /**
+     * 无效数值标记
+     */
+    private static final long INVALID = Long.MIN_VALUE;
+
+    /**
+     * long可无溢出累加的最大十进制位数
+     */
+    private static final int MAX_FAST_DIGITS = 18;
+
+    /**
+     * 扩展投放类型代码 -> 区域编码表
+     */
+    private final Map<Character, RegionCodeTable> regionCodeTables;
+
+    /**
+     * @param regionCodeTables 扩展投放类型代码 -> 区域编码表
+     */
+    public EncodedExpressionParser(Map<Character, RegionCodeTable> regionCodeTables) {
+        this.regionCodeTables = new HashMap<>(regionCodeTables);
+    }
+
+    /**
+     * 指定扩展投放类型的区域编码表
+     *
+     * @param etype 扩展投放类型代码
+     * @return 区域编码表，该类型没有区域编码时返回null
+     */
+    public RegionCodeTable getRegionCodeTable(char etype) {
+        return regionCodeTables.get(etype);
+    }
+
+    /**
+     * 解析编码表达式（忽略首尾空白）
+     *
+     * @param expression 编码表达式（调用方保证非空）
+     * @return 解析结果，格式错误记录在结果中
+     *
+     * @example
+     * parse("B1（3+4）（2×5+1×3+27×0）")
+     * -> method='B', etype='1', regionMask=0b1100（区县编码表中的3和4），grades=[5,5,3,0,...,0]
+     */
+    public ParsedExpression parse(String expression) {
+        ParsedExpression result = new ParsedExpression(expression);
+        int cursor = 0;
+        int end = expression.length();
+        while (cursor < end && Character.isWhitespace(expression.charAt(cursor))) {
+            cursor++;
+        }
+        while (end > cursor && Character.isWhitespace(expression.charAt(end - 1))) {
+            end--;
+        }
+
+        if (cursor < end) {
+            result.method = expression.charAt(cursor++);
+        }
+        if (result.method == METHOD_EXTENDED && cursor < end) {
+            result.etype = expression.charAt(cursor++);
+        }
+        RegionCodeTable regionCodes = result.method == METHOD_EXTENDED ? regionCodeTables.get(result.etype) : null;
+        result.regionCodeTable = regionCodes;
+
+        while (result.groupCount < MAX_GROUPS) {
+            while (cursor < end && expression.charAt(cursor) != OPEN) {
+                cursor++;
+            }
+            if (cursor >= end) {
+                break;
+            }
+            int group = result.groupCount++;
+            int contentStart = cursor + 1;
+            int contentEnd = contentStart;
+            while (contentEnd < end && expression.charAt(contentEnd) != CLOSE) {
+                contentEnd++;
+            }
+            boolean closed = contentEnd < end;
+            result.groupStart[group] = contentStart;
+            result.groupEnd[group] = closed ? contentEnd : -1;
+
+            boolean regionGroup = result.method == METHOD_EXTENDED && group == 0;
+            boolean gradeGroup = (result.method == METHOD_EXTENDED && group == 1)
+                    || (result.method == METHOD_UNIFORM && group == 0);
+            if (regionGroup) {
+                if (!closed) {
+                    result.regionError = "编码表达式格式错误：缺少区域编码结束括号";
+                } else if (regionCodes != null) {
+                    parseRegions(expression, contentStart, contentEnd, regionCodes, result);
+                }
+            } else if (gradeGroup) {
+                if (!closed) {
+                    result.gradeError = "编码表达式格式错误：缺少档位分配结束括号";
+                } else {
+                    parseGrades(expression, contentStart, contentEnd, result);
+                }
+            }
+            if (!closed) {
+                break;
+            }
+            cursor = contentEnd + 1;
+        }
+        return result;
+    }
+
+    // ==================== 区域编码组 ====================
+
+    private static void parseRegions(String expression, int start, int end, RegionCodeTable regionCodes, ParsedExpression result) {
+        int cursor = start;
+        while (cursor <= end) {
+            int tokenStart = cursor;
+            while (cursor < end && expression.charAt(cursor) != SEPARATOR) {
+                cursor++;
+            }
+            int codeStart = trimStart(expression, tokenStart, cursor);
+            int tokenEnd = trimEnd(expression, codeStart, cursor);
+            if (codeStart == tokenEnd && cursor == end && tokenStart > start) {
+                break; // 末尾多余的"+"
+            }
+            int index = tokenEnd - codeStart == 1 ? regionCodes.indexOf(expression.charAt(codeStart)) : -1;
+            if (index >= 0) {
+                result.regionMask |= 1L << index;
+            } else if (result.unknownRegion == null) {
+                result.unknownRegion = expression.substring(codeStart, tokenEnd);
+            }
+            cursor++;
+        }
+    }
+
+    // ==================== 档位投放量组 ====================
+
+    private static void parseGrades(String expression, int start, int end, ParsedExpression result) {
+        BigDecimal[] grades = new BigDecimal[GRADE_COUNT];
+        Arrays.fill(grades, BigDecimal.ZERO);
+        int gradeIndex = 0;
+        int cursor = start;
+        while (cursor <= end) {
+            int segmentStart = cursor;
+            int times = -1;
+            int timesCount = 0;
+            while (cursor < end && expression.charAt(cursor) != SEPARATOR) {
+                if (expression.charAt(cursor) == TIMES) {
+                    times = cursor;
+                    timesCount++;
+                }
+                cursor++;
+            }
+            if (cursor == end && segmentStart > start && trimStart(expression, segmentStart, end) == end) {
+                break; // 末尾多余的"+"
+            }
+            if (timesCount != 1) {
+                result.gradeError = "档位分配编码格式错误: " + expression.substring(segmentStart, cursor);
+                return;
+            }
+            long count = parseCount(expression, segmentStart, times);
+            BigDecimal value = count == INVALID ? null : parseValue(expression, times + 1, cursor);
+            if (value == null) {
+                result.gradeError = "档位分配编码数值格式错误: " + expression.substring(segmentStart, cursor);
+                return;
+            }
+            for (long i = 0; i < count && gradeIndex < GRADE_COUNT; i++) {
+                grades[gradeIndex++] = value;
+            }
+            cursor++;
+        }
+        result.grades = grades;
+    }
+
+    /**
+     * 解析档位数量（整数，范围与int一致），无效时返回INVALID
+     */
+    private static long parseCount(String expression, int start, int end) {
+        start = trimStart(expression, start, end);
+        end = trimEnd(expression, start, end);
+        int cursor = start;
+        boolean negative = false;
+        if (cursor < end && (expression.charAt(cursor) == '+' || expression.charAt(cursor) == '-')) {
+            negative = expression.charAt(cursor) == '-';
+            cursor++;
+        }
+        if (cursor >= end) {
+            return INVALID;
+        }
+        long value = 0;
+        for (; cursor < end; cursor++) {
+            int digit = expression.charAt(cursor) - '0';
+            if (digit < 0 || digit > 9) {
+                return INVALID;
+            }
+            value = value * 10 + digit;
+            if (value > (long) Integer.MAX_VALUE + 1) {
+                return INVALID;
+            }
+        }
+        value = negative ? -value : value;
+        return value < Integer.MIN_VALUE || value > Integer.MAX_VALUE ? INVALID : value;
+    }
+
+    /**
+     * 解析档位值：常见的整数/定点小数直接按字符累加，其余写法（指数等）交给BigDecimal解析；无效时返回null
+     */
+    private static BigDecimal parseValue(String expression, int start, int end) {
+        start = trimStart(expression, start, end);
+        end = trimEnd(expression, start, end);
+        int cursor = start;
+        boolean negative = false;
+        if (cursor < end && (expression.charAt(cursor) == '+' || expression.charAt(cursor) == '-')) {
+            negative = expression.charAt(cursor) == '-';
+            cursor++;
+        }
+        long unscaled = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean fraction = false;
+        for (; cursor < end; cursor++) {
+            char c = expression.charAt(cursor);
+            if (c == '.' && !fraction) {
+                fraction = true;
+            } else if (c >= '0' && c <= '9' && digits < MAX_FAST_DIGITS) {
+                unscaled = unscaled * 10 + (c - '0');
+                digits++;
+                if (fraction) {
+                    scale++;
+                }
+            } else {
+                return parseValueSlow(expression, start, end);
+            }
+        }
+        if (digits == 0) {
+            return null;
+        }
+        return BigDecimal.valueOf(negative ? -unscaled : unscaled, scale);
+    }
+
+    private static BigDecimal parseValueSlow(String expression, int start, int end) {
+        try {
+            return new BigDecimal(expression.substring(start, end));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static int trimStart(String expression, int start, int end) {
+        while (start < end && Character.isWhitespace(expression.charAt(start))) {
+            start++;
+        }
+        return start;
+    }
+
+    private static int trimEnd(String expression, int start, int end) {
+        while (end > start && Character.isWhitespace(expression.charAt(end - 1))) {
+            end--;
+        }
+        return end;
+    }
+
+    /**
+     * 编码表达式解析结果（紧凑形式）
+     *
+     * 区域以位掩码表示（位序与解析器的区域编码表一致），档位为30个值的数组；
+     * 括号组记录在原表达式中的内容范围，按需截取原文
+     */
+    public static final class ParsedExpression {
+
+        private final String expression;
+        private char method = '\0';
+        private char etype = NO_ETYPE;
+        private RegionCodeTable regionCodeTable;
+        private long regionMask;
+        private String unknownRegion;
+        private String regionError;
+        private BigDecimal[] grades;
+        private String gradeError;
+        private int groupCount;
+        private final int[] groupStart = new int[MAX_GROUPS];
+        private final int[] groupEnd = new int[MAX_GROUPS];
+
+        private ParsedExpression(String expression) {
+            this.expression = expression;
+        }
+
+        /**
+         * 投放方法代码，表达式为空白时为'\\0'
+         */
+        public char getMethod() {
+            return method;
+        }
+
+        /**
+         * 扩展投放类型代码，非B类型或缺失时为NO_ETYPE
+         */
+        public char getEtype() {
+            return etype;
+        }
+
+        public boolean hasEtype() {
+            return etype != NO_ETYPE;
+        }
+
+        /**
+         * 是否按区域编码表解析了区域（B类型且该扩展投放类型有区域编码表）
+         */
+        public boolean isRegionsMapped() {
+            return regionCodeTable != null;
+        }
+
+        /**
+         * 解析区域时使用的区域编码表（区域位掩码按此表解释），未解析区域时为null
+         */
+        public RegionCodeTable getRegionCodeTable() {
+            return regionCodeTable;
+        }
+
+        /**
+         * 区域位掩码，第i位对应区域编码表中的第i个编码
+         */
+        public long getRegionMask() {
+            return regionMask;
+        }
+
+        /**
+         * 第一个不在区域编码表中的区域编码（已去除首尾空白），全部可识别时为null
+         */
+        public String getUnknownRegion() {
+            return unknownRegion;
+        }
+
+        /**
+         * 区域编码组格式错误，无错误时为null
+         */
+        public String getRegionError() {
+            return regionError;
+        }
+
+        /**
+         * 30个档位值（D30到D1），没有档位投放量组或格式错误时为null
+         */
+        public BigDecimal[] getGrades() {
+            return grades;
+        }
+
+        /**
+         * 档位投放量组格式错误，无错误时为null
+         */
+        public String getGradeError() {
+            return gradeError;
+        }
+
+        /**
+         * 已扫描到的括号组数（0-2）
+         */
+        public int getGroupCount() {
+            return groupCount;
+        }
+
+        /**
+         * 括号组是否存在且有结束括号
+         *
+         * @param group 括号组序号（0或1）
+         */
+        public boolean isGroupClosed(int group) {
+            return group < groupCount && groupEnd[group] >= 0;
+        }
+
+        /**
+         * 括号组内容的原文（不含括号）
+         *
+         * @param group 括号组序号（0或1），调用前应确认isGroupClosed
+         */
+        public String getGroupText(int group) {
+            return expression.substring(groupStart[group], groupEnd[group]);
+        }
+
+        /**
+         * 原表达式
+         */
+        public String getExpression() {
+            return expression;
+        }
+    }
+}
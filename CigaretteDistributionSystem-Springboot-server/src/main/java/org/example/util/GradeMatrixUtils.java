@@ -51,7 +51,7 @@ public class GradeMatrixUtils {
     
     /**
      * 将档位数组设置到CigaretteDistributionPredictionData实体对象
-     * 使用反射或直接调用，避免30行重复的setter代码
+     * 一次构建实体的档位向量，避免30次逐档位设置
      * 
      * @param entity 实体对象
      * @param grades 档位数组（长度必须为30）
@@ -71,29 +71,13 @@ public class GradeMatrixUtils {
             throw new IllegalArgumentException("档位数组必须包含" + GRADE_COUNT + "个元素");
         }
         
-        try {
-            // 直接调用setter方法，按D30到D1的顺序
-            entity.setD30(grades[0]);  entity.setD29(grades[1]);  entity.setD28(grades[2]);
-            entity.setD27(grades[3]);  entity.setD26(grades[4]);  entity.setD25(grades[5]);
-            entity.setD24(grades[6]);  entity.setD23(grades[7]);  entity.setD22(grades[8]);
-            entity.setD21(grades[9]);  entity.setD20(grades[10]); entity.setD19(grades[11]);
-            entity.setD18(grades[12]); entity.setD17(grades[13]); entity.setD16(grades[14]);
-            entity.setD15(grades[15]); entity.setD14(grades[16]); entity.setD13(grades[17]);
-            entity.setD12(grades[18]); entity.setD11(grades[19]); entity.setD10(grades[20]);
-            entity.setD9(grades[21]);  entity.setD8(grades[22]);  entity.setD7(grades[23]);
-            entity.setD6(grades[24]);  entity.setD5(grades[25]);  entity.setD4(grades[26]);
-            entity.setD3(grades[27]);  entity.setD2(grades[28]);  entity.setD1(grades[29]);
-            
-            log.debug("成功设置30个档位到实体对象");
-            
-        } catch (Exception e) {
-            log.error("设置档位到实体对象失败: {}", e.getMessage(), e);
-            throw new RuntimeException("档位设置失败: " + e.getMessage(), e);
-        }
+        // 一次构建档位向量（decimal(18,2)列语义），不逐档位复制
+        entity.setGrades(GradeVector.ofColumnValues(grades));
+        log.debug("成功设置30个档位到实体对象");
     }
     
     /**
-     * 从CigaretteDistributionPredictionData实体对象提取档位数组
+     * 从CigaretteDistributionPredictionData实体对象提取档位数组（边界转换；服务层计算直接使用entity.getGrades()）
      * 
      * @param entity 实体对象
      * @return 档位数组（长度为30）
@@ -104,21 +88,7 @@ public class GradeMatrixUtils {
             throw new IllegalArgumentException("实体对象不能为null");
         }
         
-        BigDecimal[] grades = new BigDecimal[GRADE_COUNT];
-        
-        // 按D30到D1的顺序提取
-        grades[0] = entity.getD30();  grades[1] = entity.getD29();  grades[2] = entity.getD28();
-        grades[3] = entity.getD27();  grades[4] = entity.getD26();  grades[5] = entity.getD25();
-        grades[6] = entity.getD24();  grades[7] = entity.getD23();  grades[8] = entity.getD22();
-        grades[9] = entity.getD21();  grades[10] = entity.getD20(); grades[11] = entity.getD19();
-        grades[12] = entity.getD18(); grades[13] = entity.getD17(); grades[14] = entity.getD16();
-        grades[15] = entity.getD15(); grades[16] = entity.getD14(); grades[17] = entity.getD13();
-        grades[18] = entity.getD12(); grades[19] = entity.getD11(); grades[20] = entity.getD10();
-        grades[21] = entity.getD9();  grades[22] = entity.getD8();  grades[23] = entity.getD7();
-        grades[24] = entity.getD6();  grades[25] = entity.getD5();  grades[26] = entity.getD4();
-        grades[27] = entity.getD3();  grades[28] = entity.getD2();  grades[29] = entity.getD1();
-        
-        return grades;
+        return entity.getGrades().toBigDecimalArray();
     }
     
     // ==================== SQL参数构建 ====================
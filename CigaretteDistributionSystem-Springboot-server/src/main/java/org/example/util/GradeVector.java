@@ -0,0 +1,327 @@
+package org.example.util;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+
+/**
+ * 30档位定点数向量
+ *
+ * 【核心功能】
+ * 以单个long[30]数组表示一行档位值（D30-D1），是预测记录（CigaretteDistributionPredictionData）和
+ * 区域客户数记录（RegionClientNumData）中档位的存储形式：每行档位只占一个数组对象，
+ * 档位比较、编码分组和实际投放量点积都直接在缩放值上完成。
+ * BigDecimal只出现在边界：JDBC参数/结果（getOrNull、toBigDecimalArray）、JSON输出（实体的getDxx）
+ * 以及算法输入输出的分配矩阵（BigDecimal[][]，通过dot(BigDecimal[])直接参与计算）
+ *
+ * 【定点数约定】
+ * - 数值按 SCALE=2 位小数缩放存储（与档位列 decimal(18,2) 一致），例如 12.5 存储为 1250
+ * - of / with：用于计算输入（区域客户数），超过两位小数时拒绝（IllegalArgumentException），不做静默舍入
+ * - ofColumnValues / withColumnValue：用于写入decimal(18,2)列的记录，超过两位小数按HALF_UP舍入，与数据库写入时的舍入一致
+ * - null档位单独标记：计算时视为0，边界转换时仍还原为null
+ * - 缩放值或乘积累加超出long范围时抛出ArithmeticException
+ * - 点积结果与原BigDecimal逐档相乘累加的结果一致：分配值超过两位小数的档位按BigDecimal精确计算
+ *
+ * 【不可变性】
+ * 实例不可变，可安全地作为Map键或在线程间共享；修改单个档位返回新实例
+ *
+ * @author Robin
+ * @version 1.0
+ * @since 2025-10-20
+ */
+public final class GradeVector {
+
+    /**
+     * 档位总数
+     */
+    public static final int GRADE_COUNT = GradeMatrixUtils.GRADE_COUNT;
+
+    /**
+     * 定点小数位数
+     */
+    public static final int SCALE = 2;
+
+    /**
+     * 全部档位为null的向量（新建实体的初始值）
+     */
+    public static final GradeVector EMPTY = new GradeVector(new long[GRADE_COUNT], (1 << GRADE_COUNT) - 1);
+
+    /**
+     * 边界转换复用的整数档位值（0到WHOLE_CACHE_MAX，两位小数）：投放量和客户数绝大多数是较小的整数，
+     * 复用实例后逐列读取（JDBC参数、JSON输出）不再为每个档位创建BigDecimal
+     */
+    private static final int WHOLE_CACHE_MAX = 1024;
+    private static final BigDecimal[] WHOLE_VALUES = new BigDecimal[WHOLE_CACHE_MAX + 1];
+
+    static {
+        for (int i = 0; i <= WHOLE_CACHE_MAX; i++) {
+            WHOLE_VALUES[i] = BigDecimal.valueOf(i * 100L, SCALE);
+        }
+    }
+
+    /**
+     * 按D30到D1顺序存储的缩放值
+     */
+    private final long[] scaled;
+
+    /**
+     * null档位的位标记（第i位对应索引i）
+     */
+    private final int nullMask;
+
+    private GradeVector(long[] scaled, int nullMask) {
+        this.scaled = scaled;
+        this.nullMask = nullMask;
+    }
+
+    // ==================== 构建 ====================
+
+    /**
+     * 从档位数组构建（按D30到D1的顺序），超过两位小数时拒绝
+     *
+     * @param grades 档位数组（长度必须为30，null元素记为null档位）
+     * @throws IllegalArgumentException 当数组为null、长度不为30或档位值超过两位小数时抛出异常
+     */
+    public static GradeVector of(BigDecimal[] grades) {
+        return build(grades, false);
+    }
+
+    /**
+     * 从decimal(18,2)列的档位值构建，超过两位小数时按HALF_UP舍入（与数据库写入一致）
+     *
+     * @param grades 档位数组（长度必须为30，null元素记为null档位）
+     * @throws IllegalArgumentException 当数组为null或长度不为30时抛出异常
+     */
+    public static GradeVector ofColumnValues(BigDecimal[] grades) {
+        return build(grades, true);
+    }
+
+    private static GradeVector build(BigDecimal[] grades, boolean roundToColumn) {
+        if (grades == null || grades.length != GRADE_COUNT) {
+            throw new IllegalArgumentException("档位数组必须包含" + GRADE_COUNT + "个元素");
+        }
+        long[] scaled = new long[GRADE_COUNT];
+        int nullMask = 0;
+        for (int i = 0; i < GRADE_COUNT; i++) {
+            if (grades[i] == null) {
+                nullMask |= 1 << i;
+            } else {
+                scaled[i] = roundToColumn ? toColumnScaled(grades[i]) : toScaled(grades[i]);
+            }
+        }
+        return new GradeVector(scaled, nullMask);
+    }
+
+    /**
+     * 返回设置了单个档位的新向量，超过两位小数时拒绝
+     *
+     * @param index 档位索引（0对应D30，29对应D1）
+     * @param value 档位值，null表示null档位
+     * @throws IllegalArgumentException 当档位值超过两位小数时抛出异常
+     */
+    public GradeVector with(int index, BigDecimal value) {
+        return with(index, value, false);
+    }
+
+    /**
+     * 返回设置了单个档位的新向量（decimal(18,2)列语义，超过两位小数按HALF_UP舍入）
+     *
+     * @param index 档位索引（0对应D30，29对应D1）
+     * @param value 档位值，null表示null档位
+     */
+    public GradeVector withColumnValue(int index, BigDecimal value) {
+        return with(index, value, true);
+    }
+
+    private GradeVector with(int index, BigDecimal value, boolean roundToColumn) {
+        long[] copy = scaled.clone();
+        int mask = nullMask;
+        if (value == null) {
+            copy[index] = 0L;
+            mask |= 1 << index;
+        } else {
+            copy[index] = roundToColumn ? toColumnScaled(value) : toScaled(value);
+            mask &= ~(1 << index);
+        }
+        return new GradeVector(copy, mask);
+    }
+
+    // ==================== 档位访问 ====================
+
+    /**
+     * 获取指定档位的值（索引0对应D30，索引29对应D1），null档位返回0
+     */
+    public BigDecimal get(int index) {
+        return decimal(scaled[index]);
+    }
+
+    /**
+     * 获取指定档位的值，null档位返回null（JDBC/JSON边界使用）
+     */
+    public BigDecimal getOrNull(int index) {
+        return isNull(index) ? null : decimal(scaled[index]);
+    }
+
+    /**
+     * 获取指定档位的缩放值（实际值 × 100），null档位为0
+     */
+    public long getScaled(int index) {
+        return scaled[index];
+    }
+
+    /**
+     * 指定档位是否为null
+     */
+    public boolean isNull(int index) {
+        return (nullMask & (1 << index)) != 0;
+    }
+
+    /**
+     * 是否至少有一个非null档位
+     */
+    public boolean hasAnyValue() {
+        return nullMask != EMPTY.nullMask;
+    }
+
+    /**
+     * 指定档位按HALF_UP取整后的值（编码表达式按整数投放量分组），null档位为0
+     */
+    public long roundedUnits(int index) {
+        long value = scaled[index];
+        long units = value / 100;
+        long remainder = Math.abs(value % 100);
+        return remainder >= 50 ? units + Long.signum(value) : units;
+    }
+
+    /**
+     * 转换为档位数组（JDBC参数、算法输入等边界使用），null档位还原为null
+     */
+    public BigDecimal[] toBigDecimalArray() {
+        BigDecimal[] grades = new BigDecimal[GRADE_COUNT];
+        for (int i = 0; i < GRADE_COUNT; i++) {
+            grades[i] = getOrNull(i);
+        }
+        return grades;
+    }
+
+    // ==================== 计算 ====================
+
+    /**
+     * 计算与另一向量的点积：∑（对方档位值 × 本向量对应档位值），全程在缩放值上完成
+     *
+     * @return 点积结果（四位小数）
+     * @throws ArithmeticException 当累加结果超出long范围时抛出异常
+     */
+    public BigDecimal dot(GradeVector other) {
+        long sum = 0;
+        for (int i = 0; i < GRADE_COUNT; i++) {
+            if (scaled[i] != 0 && other.scaled[i] != 0) {
+                sum = Math.addExact(sum, Math.multiplyExact(other.scaled[i], scaled[i]));
+            }
+        }
+        return BigDecimal.valueOf(sum, SCALE * 2);
+    }
+
+    /**
+     * 计算与BigDecimal档位数组的点积：∑（档位值 × 本向量对应档位值）
+     * 分配矩阵行直接参与计算，无需先构建GradeVector；不超过两位小数的档位值走无分配的定点路径，
+     * 超过两位小数的档位值（如手工编辑的表达式）按BigDecimal精确相乘，结果与逐档BigDecimal计算一致
+     *
+     * @param grades 档位数组（长度必须为30，null元素视为0）
+     * @return 点积结果（定点部分四位小数）
+     * @throws IllegalArgumentException 当数组长度不为30时抛出异常
+     * @throws ArithmeticException 当累加结果超出long范围时抛出异常
+     */
+    public BigDecimal dot(BigDecimal[] grades) {
+        if (grades == null || grades.length != GRADE_COUNT) {
+            throw new IllegalArgumentException("档位数组必须包含" + GRADE_COUNT + "个元素");
+        }
+        long sum = 0;
+        BigDecimal fineScaleSum = null;
+        for (int i = 0; i < GRADE_COUNT; i++) {
+            BigDecimal grade = grades[i];
+            if (scaled[i] == 0 || grade == null) {
+                continue;
+            }
+            if (grade.scale() > SCALE && grade.stripTrailingZeros().scale() > SCALE) {
+                BigDecimal product = grade.multiply(get(i));
+                fineScaleSum = fineScaleSum == null ? product : fineScaleSum.add(product);
+                continue;
+            }
+            sum = Math.addExact(sum, Math.multiplyExact(toScaled(grade), scaled[i]));
+        }
+        BigDecimal result = BigDecimal.valueOf(sum, SCALE * 2);
+        return fineScaleSum == null ? result : result.add(fineScaleSum);
+    }
+
+    // ==================== 辅助方法 ====================
+
+    private static BigDecimal decimal(long scaledValue) {
+        if (scaledValue >= 0 && scaledValue % 100 == 0 && scaledValue <= WHOLE_CACHE_MAX * 100L) {
+            return WHOLE_VALUES[(int) (scaledValue / 100)];
+        }
+        return BigDecimal.valueOf(scaledValue, SCALE);
+    }
+
+    /**
+     * 转换为缩放值；超过两位小数的有效精度直接拒绝，避免静默舍入改变投放量
+     */
+    static long toScaled(BigDecimal value) {
+        if (value == null) {
+            return 0L;
+        }
+        if (value.scale() == 0) {
+            return Math.multiplyExact(value.longValueExact(), 100L);
+        }
+        try {
+            return value.setScale(SCALE, RoundingMode.UNNECESSARY).unscaledValue().longValueExact();
+        } catch (ArithmeticException e) {
+            if (value.stripTrailingZeros().scale() > SCALE) {
+                throw new IllegalArgumentException("档位值超过" + SCALE + "位小数: " + value.toPlainString());
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 转换为decimal(18,2)列的缩放值：超过两位小数按HALF_UP舍入
+     */
+    private static long toColumnScaled(BigDecimal value) {
+        if (value.scale() == SCALE) {
+            return value.unscaledValue().longValueExact();
+        }
+        if (value.scale() == 0) {
+            return Math.multiplyExact(value.longValueExact(), 100L);
+        }
+        return value.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof GradeVector)) {
+            return false;
+        }
+        GradeVector other = (GradeVector) o;
+        return nullMask == other.nullMask && Arrays.equals(scaled, other.scaled);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(scaled) + nullMask;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("GradeVector[");
+        for (int i = 0; i < GRADE_COUNT; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(isNull(i) ? "null" : get(i).stripTrailingZeros().toPlainString());
+        }
+        return sb.append(']').toString();
+    }
+}
@@ -0,0 +1,105 @@
+package org.example.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+/**
+ * 区域客户数表替换（模拟计算用）
+ *
+ * 【核心功能】
+ * 模拟分配时允许用另一张结构相同的客户数表代替标准的region_clientNum_{主序号}_{子序号}表，
+ * 评估客户数变化（如重新划分区域、导入新一期客户数）对分配结果的影响，而不覆盖正式表
+ *
+ * 【使用方式】
+ * 与AllocationBudget相同，替换关系绑定到当前线程：begin()开始，end()结束。
+ * TableNameGeneratorUtil生成区域客户数表名时经resolve()替换，策略、实际投放量计算和分配记忆化均随之使用替换表；
+ * 区域列表和客户数矩阵的缓存键通过cacheKey()带上替换关系，替换表与正式表的缓存互不干扰
+ *
+ * @author Robin
+ * @version 1.0
+ * @since 2025-10-20
+ */
+public final class RegionClientTableOverride {
+
+    /**
+     * 可被替换的标准区域客户数表名
+     */
+    private static final Pattern STANDARD_TABLE = Pattern.compile("region_clientNum_[0-4]_[12]");
+
+    private static final ThreadLocal<Map<String, String>> CURRENT = new ThreadLocal<>();
+
+    private RegionClientTableOverride() {
+    }
+
+    /**
+     * 开始替换
+     *
+     * @param replacements 标准表名 -> 替换表名；为空时不做替换
+     * @throws IllegalArgumentException 标准表名不合法或替换表名不安全时抛出
+     */
+    public static void begin(Map<String, String> replacements) {
+        if (replacements == null || replacements.isEmpty()) {
+            CURRENT.remove();
+            return;
+        }
+        Map<String, String> validated = new TreeMap<>();
+        for (Map.Entry<String, String> entry : replacements.entrySet()) {
+            if (entry.getKey() == null || !STANDARD_TABLE.matcher(entry.getKey()).matches()) {
+                throw new IllegalArgumentException("只能替换标准区域客户数表（region_clientNum_{0-4}_{1|2}）: " + entry.getKey());
+            }
+            CigaretteDistributionSqlBuilder.validateSqlComponents(entry.getValue(), null);
+            validated.put(entry.getKey(), entry.getValue());
+        }
+        CURRENT.set(Collections.unmodifiableMap(validated));
+    }
+
+    /**
+     * 结束替换并解除线程绑定
+     */
+    public static void end() {
+        CURRENT.remove();
+    }
+
+    /**
+     * 解析实际使用的区域客户数表名
+     *
+     * @param tableName 标准表名
+     * @return 替换表名；未替换时返回原表名
+     */
+    public static String resolve(String tableName) {
+        Map<String, String> replacements = CURRENT.get();
+        if (replacements == null) {
+            return tableName;
+        }
+        String replacement = replacements.get(tableName);
+        return replacement != null ? replacement : tableName;
+    }
+
+    /**
+     * 当前线程的替换关系（只读）
+     */
+    public static Map<String, String> current() {
+        Map<String, String> replacements = CURRENT.get();
+        return replacements != null ? replacements : Collections.emptyMap();
+    }
+
+    /**
+     * 构建带替换关系的缓存键（供@Cacheable的key表达式使用）
+     *
+     * @param parts 方法参数
+     * @return 未替换时仅包含方法参数，否则追加替换关系
+     */
+    public static List<Object> cacheKey(Object... parts) {
+        List<Object> key = new ArrayList<>(Arrays.asList(parts));
+        Map<String, String> replacements = CURRENT.get();
+        if (replacements != null) {
+            key.add(replacements);
+        }
+        return key;
+    }
+}
@@ -0,0 +1,145 @@
+package org.example.util;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.service.DistributionInputHashService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 区域客户数表内容版本
+ *
+ * 【核心功能】
+ * 以区域客户数表（region_clientNum_*）的内容摘要（DistributionInputHashService.computeClientTableHash）作为版本，
+ * 输入摘要（增量生成）、分配记忆化的矩阵版本，以及区域列表、客户数矩阵、区域客户数行的Spring缓存键都取自这里，
+ * 同一张表在三处使用同一个版本：
+ * - 缓存键带版本，表内容变化后旧条目不再命中（无论是否经Excel导入修改）
+ * - 缓存条目总是在取得版本之后读表构建，保存的输入摘要不会对应比计算所用数据更新的表内容
+ *
+ * 【版本检查】
+ * 每张表的版本在 version-check-interval-ms 内复用，超过间隔后重新读表计算摘要；
+ * 单卷烟重新计算等高频调用不必每次读表。一键生成开始时调用 invalidateAll() 使本次运行重新检查各表，
+ * Excel导入区域客户数表后调用 invalidateAfterCommit() 立即失效
+ *
+ * 【配置】
+ * distribution.region-client.version-check-interval-ms：版本复用间隔（默认5000，0表示每次都重新计算）
+ *
+ * @author Robin
+ * @version 1.0
+ * @since 2025-10-20
+ */
+@Slf4j
+@Component
+public class RegionClientTableVersions {
+
+    @Autowired
+    private DistributionInputHashService distributionInputHashService;
+
+    @Value("${distribution.region-client.version-check-interval-ms:5000}")
+    private long checkIntervalMs = 5000L;
+
+    private final Map<String, CheckedVersion> versions = new ConcurrentHashMap<>();
+
+    /**
+     * 获取表的内容版本（间隔内复用上次的结果）
+     *
+     * @param tableName 区域客户数表名（已按RegionClientTableOverride解析）
+     * @return 内容摘要；表不存在或读取失败时为固定的缺失标记
+     */
+    public String version(String tableName) {
+        long now = System.nanoTime();
+        CheckedVersion checked = versions.get(tableName);
+        if (checked != null && now - checked.checkedAtNanos < checkIntervalMs * 1_000_000L) {
+            return checked.version;
+        }
+        String version = distributionInputHashService.computeClientTableHash(tableName);
+        versions.put(tableName, new CheckedVersion(version, now));
+        if (checked != null && !checked.version.equals(version)) {
+            log.info("区域客户数表 {} 内容已变化，相关缓存按新版本重新加载", tableName);
+        }
+        return version;
+    }
+
+    /**
+     * 使表的版本立即失效（下次使用时重新读表）
+     */
+    public void invalidate(String tableName) {
+        versions.remove(tableName);
+    }
+
+    /**
+     * 使表的版本失效；在事务中调用时提交后再失效一次，避免提交前的并发读取把旧内容的版本保留到下次检查
+     */
+    public void invalidateAfterCommit(String tableName) {
+        invalidate(tableName);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    invalidate(tableName);
+                }
+            });
+        }
+    }
+
+    /**
+     * 使全部表的版本立即失效
+     */
+    public void invalidateAll() {
+        versions.clear();
+    }
+
+    // ==================== 缓存键（供@Cacheable的key表达式使用） ====================
+
+    /**
+     * 按投放类型缓存的键：投放类型、替换关系和对应客户数表（非双周上浮）的版本
+     *
+     * @param deliveryMethod 投放方法
+     * @param deliveryEtype 扩展投放类型
+     */
+    public List<Object> typeCacheKey(String deliveryMethod, String deliveryEtype) {
+        List<Object> key = RegionClientTableOverride.cacheKey(deliveryMethod, deliveryEtype);
+        try {
+            String tableName = TableNameGeneratorUtil.generateRegionClientTableName(deliveryMethod, deliveryEtype, false);
+            key.add(tableName);
+            key.add(version(tableName));
+        } catch (IllegalArgumentException e) {
+            // 不支持的投放类型组合：方法本身返回空结果，不会写入缓存
+        }
+        return key;
+    }
+
+    /**
+     * 按表缓存的键：表名、其他参数和表的版本
+     *
+     * @param tableName 区域客户数表名
+     * @param parts 其他方法参数
+     */
+    public List<Object> tableCacheKey(String tableName, Object... parts) {
+        List<Object> key = RegionClientTableOverride.cacheKey(parts);
+        key.add(tableName);
+        key.add(version(tableName));
+        return key;
+    }
+
+    public void setCheckIntervalMs(long checkIntervalMs) {
+        this.checkIntervalMs = checkIntervalMs;
+    }
+
+    private static final class CheckedVersion {
+
+        private final String version;
+        private final long checkedAtNanos;
+
+        private CheckedVersion(String version, long checkedAtNanos) {
+            this.version = version;
+            this.checkedAtNanos = checkedAtNanos;
+        }
+    }
+}
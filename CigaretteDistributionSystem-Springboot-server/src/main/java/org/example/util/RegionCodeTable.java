@@ -0,0 +1,282 @@
+package org.example.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 区域编码表（一种扩展投放类型）
+ *
+ * 【核心功能】
+ * 将"区域名称 -> 单字符区域编码"编译为不可变的数组查找结构，供编码表达式的编码、解码和解析使用：
+ * - 区域按编码字典序编号（区域下标），区域集合用位掩码表示（第i位对应第i个区域）
+ * - 编码字符 -> 区域下标：以最小编码为基准的数组直接下标访问
+ * - 区域下标 -> 编码字符/区域名称：数组访问
+ * - 区域数不超过10个时预先生成每个掩码对应的"+"连接编码串（如 1+3+4）
+ *
+ * 【数据来源】
+ * 编码表由区域编码字典表（region_code_dict）加载，见RegionCodeService；
+ * defaults()为字典表为空时写入的默认编码（十堰市）
+ *
+ * 【不可变性】
+ * 实例不可变，可在线程间共享；按内容比较，用于判断字典表重新加载后是否有变化
+ *
+ * @author Robin
+ * @version 1.0
+ * @since 2025-10-20
+ */
+public final class RegionCodeTable {
+
+    /**
+     * 单个编码表的最大区域数（区域集合以long位掩码表示）
+     */
+    public static final int MAX_REGIONS = Long.SIZE;
+
+    /**
+     * 预生成编码串的最大区域数（2^10个掩码）
+     */
+    private static final int MAX_PRECOMPUTED_REGIONS = 10;
+
+    /**
+     * 编码字符跨度超过该值时不建直接下标数组，改为二分查找
+     */
+    private static final int MAX_DIRECT_INDEX_SPAN = 4096;
+
+    /**
+     * 默认区域编码（扩展投放类型, 区域名称, 区域编码）
+     */
+    private static final String[][] DEFAULT_CODES = {
+            {"档位+区县", "城区", "1"}, {"档位+区县", "丹江", "2"}, {"档位+区县", "房县", "3"},
+            {"档位+区县", "郧西", "4"}, {"档位+区县", "郧阳", "5"}, {"档位+区县", "竹山", "6"},
+            {"档位+区县", "竹溪", "7"},
+            {"档位+市场类型", "城网", "C"}, {"档位+市场类型", "农网", "N"},
+            {"档位+城乡分类代码", "主城区", "①"}, {"档位+城乡分类代码", "城乡结合区", "②"},
+            {"档位+城乡分类代码", "镇中心区", "③"}, {"档位+城乡分类代码", "镇乡接合区", "④"},
+            {"档位+城乡分类代码", "特殊区域", "⑤"}, {"档位+城乡分类代码", "乡中心区", "⑥"},
+            {"档位+城乡分类代码", "村庄", "⑦"},
+            {"档位+业态", "便利店", "a"}, {"档位+业态", "超市", "b"}, {"档位+业态", "商场", "c"},
+            {"档位+业态", "烟草专业店", "d"}, {"档位+业态", "娱乐服务类", "e"}, {"档位+业态", "其他", "f"}
+    };
+
+    private static final Map<String, RegionCodeTable> DEFAULTS = compile(Arrays.asList(DEFAULT_CODES));
+
+    private final String deliveryEtype;
+    private final char[] codes;
+    private final String[] regionNames;
+    private final Map<String, Integer> indexByName;
+    private final char minCode;
+    private final byte[] indexByCode;
+    private final String[] codesByMask;
+
+    private RegionCodeTable(String deliveryEtype, char[] codes, String[] regionNames) {
+        this.deliveryEtype = deliveryEtype;
+        this.codes = codes;
+        this.regionNames = regionNames;
+
+        Map<String, Integer> names = new HashMap<>();
+        for (int i = 0; i < regionNames.length; i++) {
+            names.put(regionNames[i], i);
+        }
+        this.indexByName = Collections.unmodifiableMap(names);
+
+        this.minCode = codes.length > 0 ? codes[0] : 0;
+        int span = codes.length > 0 ? codes[codes.length - 1] - minCode + 1 : 0;
+        if (span <= MAX_DIRECT_INDEX_SPAN) {
+            this.indexByCode = new byte[span];
+            Arrays.fill(indexByCode, (byte) -1);
+            for (int i = 0; i < codes.length; i++) {
+                indexByCode[codes[i] - minCode] = (byte) i;
+            }
+        } else {
+            this.indexByCode = null;
+        }
+
+        if (codes.length <= MAX_PRECOMPUTED_REGIONS) {
+            this.codesByMask = new String[1 << codes.length];
+            for (int mask = 0; mask < codesByMask.length; mask++) {
+                codesByMask[mask] = joinCodes(mask);
+            }
+        } else {
+            this.codesByMask = null;
+        }
+    }
+
+    // ==================== 构建 ====================
+
+    /**
+     * 构建一种扩展投放类型的编码表
+     *
+     * @param deliveryEtype 扩展投放类型
+     * @param codeByName 区域名称 -> 区域编码（单个字符）
+     * @throws IllegalArgumentException 编码不是单个字符、编码重复或区域数超过MAX_REGIONS时抛出
+     */
+    public static RegionCodeTable of(String deliveryEtype, Map<String, String> codeByName) {
+        if (codeByName.size() > MAX_REGIONS) {
+            throw new IllegalArgumentException(String.format("扩展投放类型[%s]的区域数超过%d个", deliveryEtype, MAX_REGIONS));
+        }
+        List<Map.Entry<String, String>> entries = new ArrayList<>(codeByName.entrySet());
+        for (Map.Entry<String, String> entry : entries) {
+            String code = entry.getValue();
+            if (entry.getKey() == null || entry.getKey().trim().isEmpty() || code == null || code.length() != 1) {
+                throw new IllegalArgumentException(String.format("扩展投放类型[%s]的区域[%s]编码无效: %s",
+                        deliveryEtype, entry.getKey(), code));
+            }
+        }
+        entries.sort(Map.Entry.comparingByValue());
+
+        char[] codes = new char[entries.size()];
+        String[] regionNames = new String[entries.size()];
+        for (int i = 0; i < entries.size(); i++) {
+            codes[i] = entries.get(i).getValue().charAt(0);
+            regionNames[i] = entries.get(i).getKey();
+            if (i > 0 && codes[i] == codes[i - 1]) {
+                throw new IllegalArgumentException(String.format("扩展投放类型[%s]的区域[%s]与[%s]编码重复: %s",
+                        deliveryEtype, regionNames[i - 1], regionNames[i], codes[i]));
+            }
+        }
+        return new RegionCodeTable(deliveryEtype, codes, regionNames);
+    }
+
+    /**
+     * 按扩展投放类型分组构建编码表
+     *
+     * @param rows 每行依次为扩展投放类型、区域名称、区域编码
+     * @return 扩展投放类型 -> 编码表（不可修改，保持扩展投放类型的首次出现顺序）
+     * @throws IllegalArgumentException 任一编码表无效或同一类型下区域名称重复时抛出
+     */
+    public static Map<String, RegionCodeTable> compile(List<String[]> rows) {
+        Map<String, Map<String, String>> grouped = new LinkedHashMap<>();
+        for (String[] row : rows) {
+            Map<String, String> codeByName = grouped.computeIfAbsent(row[0], k -> new LinkedHashMap<>());
+            if (codeByName.put(row[1], row[2]) != null) {
+                throw new IllegalArgumentException(String.format("扩展投放类型[%s]的区域重复: %s", row[0], row[1]));
+            }
+        }
+        Map<String, RegionCodeTable> tables = new LinkedHashMap<>();
+        for (Map.Entry<String, Map<String, String>> entry : grouped.entrySet()) {
+            tables.put(entry.getKey(), of(entry.getKey(), entry.getValue()));
+        }
+        return Collections.unmodifiableMap(tables);
+    }
+
+    /**
+     * 默认区域编码表（十堰市：区县、市场类型、城乡分类代码、业态）
+     */
+    public static Map<String, RegionCodeTable> defaults() {
+        return DEFAULTS;
+    }
+
+    /**
+     * 默认区域编码（扩展投放类型, 区域名称, 区域编码），用于初始化字典表
+     */
+    public static List<String[]> defaultRows() {
+        List<String[]> rows = new ArrayList<>(DEFAULT_CODES.length);
+        for (String[] row : DEFAULT_CODES) {
+            rows.add(row.clone());
+        }
+        return rows;
+    }
+
+    // ==================== 查找 ====================
+
+    public String getDeliveryEtype() {
+        return deliveryEtype;
+    }
+
+    /**
+     * 区域数
+     */
+    public int size() {
+        return codes.length;
+    }
+
+    /**
+     * 编码字符对应的区域下标，不在编码表中时返回-1
+     */
+    public int indexOf(char code) {
+        if (indexByCode == null) {
+            int index = Arrays.binarySearch(codes, code);
+            return index >= 0 ? index : -1;
+        }
+        int offset = code - minCode;
+        return offset >= 0 && offset < indexByCode.length ? indexByCode[offset] : -1;
+    }
+
+    /**
+     * 区域名称对应的区域下标，不在编码表中时返回-1
+     */
+    public int indexOfName(String regionName) {
+        Integer index = regionName != null ? indexByName.get(regionName) : null;
+        return index != null ? index : -1;
+    }
+
+    /**
+     * 区域名称对应的掩码位，不在编码表中时返回0
+     */
+    public long bitOf(String regionName) {
+        int index = indexOfName(regionName);
+        return index >= 0 ? 1L << index : 0L;
+    }
+
+    public char codeAt(int index) {
+        return codes[index];
+    }
+
+    public String nameAt(int index) {
+        return regionNames[index];
+    }
+
+    /**
+     * 区域集合的编码串：按编码顺序以"+"连接
+     *
+     * @param mask 区域位掩码
+     *
+     * @example
+     * 区县编码表 encode(0b1101) -> "1+3+4"
+     */
+    public String encode(long mask) {
+        return codesByMask != null ? codesByMask[(int) mask] : joinCodes(mask);
+    }
+
+    private String joinCodes(long mask) {
+        StringBuilder joined = new StringBuilder();
+        for (long remaining = mask; remaining != 0; remaining &= remaining - 1) {
+            if (joined.length() > 0) {
+                joined.append('+');
+            }
+            joined.append(codes[Long.numberOfTrailingZeros(remaining)]);
+        }
+        return joined.toString();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof RegionCodeTable)) {
+            return false;
+        }
+        RegionCodeTable other = (RegionCodeTable) o;
+        return deliveryEtype.equals(other.deliveryEtype) && Arrays.equals(codes, other.codes)
+                && Arrays.equals(regionNames, other.regionNames);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * deliveryEtype.hashCode() + Arrays.hashCode(codes)) + Arrays.hashCode(regionNames);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(deliveryEtype).append('{');
+        for (int i = 0; i < codes.length; i++) {
+            sb.append(i > 0 ? ", " : "").append(codes[i]).append('=').append(regionNames[i]);
+        }
+        return sb.append('}').toString();
+    }
+}
@@ -0,0 +1,152 @@
+package org.example.util;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 数据库表目录缓存
+ *
+ * 【核心功能】
+ * 按周动态生成的表（预测表、投放基本信息表、区域客户数表等）在每次访问前都要判断是否存在，
+ * 原先每次判断都查询一次information_schema（按卷烟、按查询行重复执行）。
+ * 本组件首次使用时一次性加载当前数据库的表名集合，之后的存在性判断直接在内存中完成：
+ * - 建表/删表的代码路径调用 markCreated / markDropped 同步更新目录
+ * - 定时重新加载，纠正其他实例建表/删表造成的差异
+ * - 目录中没有的表会查询一次数据库确认（其他实例可能刚建表），确认存在后加入目录；
+ *   确认不存在的表记入不存在集合，直到下次重新加载或 markCreated 前不再重复查询
+ *
+ * 【配置】
+ * distribution.schema-catalog.refresh-interval-ms：重新加载间隔（默认300000）
+ *
+ * @author Robin
+ * @version 1.0
+ * @since 2025-10-20
+ */
+@Slf4j
+@Component
+public class SchemaCatalog {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private volatile Set<String> tables;
+
+    /**
+     * 已查询确认不存在的表（重新加载时清空）
+     */
+    private volatile Set<String> missing = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 判断表（或视图）是否存在
+     *
+     * @param tableName 表名
+     * @return 存在返回true
+     */
+    public boolean tableExists(String tableName) {
+        Set<String> current = tables;
+        if (current == null) {
+            current = reload();
+        }
+        if (current.contains(tableName)) {
+            return true;
+        }
+        Set<String> knownMissing = missing;
+        if (knownMissing.contains(tableName)) {
+            return false;
+        }
+        Integer count = jdbcTemplate.queryForObject(CigaretteDistributionSqlBuilder.buildCheckTableExistsSql(), Integer.class, tableName);
+        if (count != null && count > 0) {
+            current.add(tableName);
+            return true;
+        }
+        knownMissing.add(tableName);
+        return false;
+    }
+
+    /**
+     * 忽略不存在缓存，重新查询数据库判断表是否存在（建表失败后确认是否已由其他任务或实例创建时调用）
+     *
+     * @param tableName 表名
+     * @return 存在返回true
+     */
+    public boolean recheckTableExists(String tableName) {
+        missing.remove(tableName);
+        return tableExists(tableName);
+    }
+
+    /**
+     * 当前目录中全部表名的快照（用于按命名规则枚举动态表）
+     *
+     * @return 不可修改的表名集合
+     */
+    public Set<String> tableNames() {
+        Set<String> current = tables;
+        if (current == null) {
+            current = reload();
+        }
+        return Collections.unmodifiableSet(new HashSet<>(current));
+    }
+
+    /**
+     * 记录已创建的表（建表语句执行成功后调用）
+     */
+    public void markCreated(String tableName) {
+        missing.remove(tableName);
+        Set<String> current = tables;
+        if (current != null) {
+            current.add(tableName);
+        }
+    }
+
+    /**
+     * 记录已删除的表（删表语句执行成功后调用）
+     */
+    public void markDropped(String tableName) {
+        Set<String> current = tables;
+        if (current != null) {
+            current.remove(tableName);
+        }
+        missing.add(tableName);
+    }
+
+    /**
+     * 定时重新加载表目录（尚未使用过时不加载）
+     */
+    @Scheduled(initialDelayString = "${distribution.schema-catalog.refresh-interval-ms:300000}",
+            fixedDelayString = "${distribution.schema-catalog.refresh-interval-ms:300000}")
+    public void refresh() {
+        if (tables == null) {
+            return;
+        }
+        try {
+            reload();
+        } catch (DataAccessException e) {
+            log.warn("表目录重新加载失败，保留当前目录: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 从information_schema重新加载当前数据库的表名集合
+     *
+     * @return 新的表名集合
+     */
+    public synchronized Set<String> reload() {
+        List<String> names = jdbcTemplate.queryForList(CigaretteDistributionSqlBuilder.buildListTablesSql(), String.class);
+        Set<String> loaded = ConcurrentHashMap.newKeySet(Math.max(16, names.size() * 2));
+        loaded.addAll(names);
+        tables = loaded;
+        missing = ConcurrentHashMap.newKeySet();
+        log.debug("表目录已加载，共{}张表", loaded.size());
+        return loaded;
+    }
+}
@@ -8,7 +8,7 @@ import lombok.extern.slf4j.Slf4j;
  * 根据导入表命名规则文档设计，提供三个核心表名生成功能：
  * 1. 卷烟预测输出表名生成
  * 2. 卷烟投放基本信息表名生成  
- * 3. 区域客户数表名生成
+ * 3. 区域客户数表名生成（模拟计算时按RegionClientTableOverride替换为指定的表）
  * 
  * @author System
  * @version 1.0
@@ -55,6 +55,58 @@ public class TableNameGeneratorUtil {
         return tableName;
     }
 
+    /**
+     * 统一预测表名（分区存储布局，见PredictionStorageService）
+     * 
+     * 各周数据存放在该表按（年, 月, 周序号）划分的分区中，周表名为该周分区上的视图
+     * 
+     * @example
+     * getPartitionedPredictionTableName() -> "cigarette_distribution_prediction"
+     */
+    public static String getPartitionedPredictionTableName() {
+        return PREDICTION_TABLE_PREFIX;
+    }
+
+    /**
+     * 生成统一预测表中某周的分区名
+     * 
+     * @example
+     * generateWeekPartitionName(2025, 10, 1) -> "p2025_10_1"
+     */
+    public static String generateWeekPartitionName(Integer year, Integer month, Integer weekSeq) {
+        validateTimeParameters(year, month, weekSeq);
+        return String.format("p%d_%d_%d", year, month, weekSeq);
+    }
+
+    /**
+     * 解析卷烟预测输出表名，提取年、月、周序号
+     * 
+     * @param tableName 表名 (格式: cigarette_distribution_prediction_{year}_{month}_{weekSeq})
+     * @return [年, 月, 周序号]，格式不正确或超出有效范围时返回null
+     * 
+     * @example
+     * parsePredictionTableName("cigarette_distribution_prediction_2025_10_1") -> [2025, 10, 1]
+     * parsePredictionTableName("cigarette_distribution_prediction_2025_10_1_bak") -> null
+     */
+    public static int[] parsePredictionTableName(String tableName) {
+        if (tableName == null || !tableName.toLowerCase().startsWith(PREDICTION_TABLE_PREFIX + "_")) {
+            return null;
+        }
+        String[] parts = tableName.substring(PREDICTION_TABLE_PREFIX.length() + 1).split("_");
+        if (parts.length != 3) {
+            return null;
+        }
+        try {
+            int year = Integer.parseInt(parts[0]);
+            int month = Integer.parseInt(parts[1]);
+            int weekSeq = Integer.parseInt(parts[2]);
+            validateTimeParameters(year, month, weekSeq);
+            return new int[]{year, month, weekSeq};
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
     /**
      * 生成卷烟投放基本信息表名
      * 
@@ -105,7 +157,7 @@ public class TableNameGeneratorUtil {
         
         log.debug("Generated region client table name: {} (deliveryMethod: {}, deliveryEtype: {}, isBiWeeklyFloat: {})", 
                 tableName, deliveryMethod, deliveryEtype, isBiWeeklyFloat);
-        return tableName;
+        return RegionClientTableOverride.resolve(tableName);
     }
 
     /**
@@ -128,7 +180,7 @@ public class TableNameGeneratorUtil {
         
         log.debug("Generated region client table name: {} (deliveryMethod: {}, deliveryEtype: {}, remark: {}, isBiWeeklyFloat: {})", 
                 tableName, deliveryMethod, deliveryEtype, remark, isBiWeeklyFloat);
-        return tableName;
+        return RegionClientTableOverride.resolve(tableName);
     }
 
     /**
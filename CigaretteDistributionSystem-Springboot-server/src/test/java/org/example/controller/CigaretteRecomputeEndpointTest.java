@@ -0,0 +1,110 @@
+package org.example.controller;
+
+import org.example.loadtest.LoadTestDataGenerator;
+import org.example.util.TableNameGeneratorUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+/**
+ * 单卷烟重新计算接口测试（loadtest配置，H2内嵌数据库）
+ *
+ * 验证只重写指定卷烟的分配记录，并更新其输入摘要使随后的增量生成不再重复计算；卷烟不存在时返回400
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("loadtest")
+public class CigaretteRecomputeEndpointTest {
+
+    private static final int YEAR = 2098;
+    private static final int MONTH = 3;
+    private static final int WEEK_SEQ = 1;
+    private static final int CIGARETTE_COUNT = 10;
+    private static final String CIG_CODE = "50000001";
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private String infoTable;
+    private String predictionTable;
+
+    @BeforeEach
+    public void setUp() {
+        LoadTestDataGenerator generator = new LoadTestDataGenerator(jdbcTemplate, 20251020L);
+        generator.createRegionClientTables();
+        generator.createWeek(YEAR, MONTH, WEEK_SEQ, CIGARETTE_COUNT);
+        generator.createPredictionTable(YEAR, MONTH, WEEK_SEQ);
+        infoTable = TableNameGeneratorUtil.generateDistributionInfoTableName(YEAR, MONTH, WEEK_SEQ);
+        predictionTable = TableNameGeneratorUtil.generatePredictionTableName(YEAR, MONTH, WEEK_SEQ);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void rewritesOnlyTheRecomputedCigarette() {
+        assertEquals(Boolean.TRUE, generate(false).get("success"));
+        List<Integer> otherIds = rowIds("<>");
+        List<Integer> ownIds = rowIds("=");
+        jdbcTemplate.update("UPDATE `" + infoTable + "` SET ADV = ADV + 1000 WHERE CIG_CODE = ?", CIG_CODE);
+        String cigName = jdbcTemplate.queryForObject(
+                "SELECT CIG_NAME FROM `" + infoTable + "` WHERE CIG_CODE = ?", String.class, CIG_CODE);
+
+        ResponseEntity<Map<String, Object>> response = recalculate(CIG_CODE, cigName);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode(), String.valueOf(response.getBody().get("message")));
+        BigDecimal adv = jdbcTemplate.queryForObject(
+                "SELECT ADV FROM `" + infoTable + "` WHERE CIG_CODE = ?", BigDecimal.class, CIG_CODE);
+        assertEquals(0, adv.compareTo(new BigDecimal(response.getBody().get("adv").toString())), "应按修改后的预投放量计算");
+        assertEquals(otherIds, rowIds("<>"), "其他卷烟的分配记录不应改变");
+        assertNotEquals(ownIds, rowIds("="), "重新计算的卷烟应重新写回");
+
+        // 输入摘要已随单卷烟重新计算更新，增量生成时所有卷烟均未变更
+        Map<String, Object> allocationResult = (Map<String, Object>) generate(true).get("allocationResult");
+        assertEquals(CIGARETTE_COUNT, ((Number) allocationResult.get("unchangedCount")).intValue());
+    }
+
+    @Test
+    public void rejectsUnknownCigarette() {
+        assertEquals(HttpStatus.BAD_REQUEST, recalculate("59999999", "不存在的卷烟").getStatusCode());
+    }
+
+    // ==================== 辅助方法 ====================
+
+    private ResponseEntity<Map<String, Object>> recalculate(String cigCode, String cigName) {
+        String url = "/api/calculate/cigarette?year={year}&month={month}&weekSeq={weekSeq}&cigCode={code}&cigName={name}"
+                + "&urbanRatio=0.4&ruralRatio=0.6";
+        return restTemplate.exchange(url, HttpMethod.POST, null,
+                new ParameterizedTypeReference<Map<String, Object>>() {}, YEAR, MONTH, WEEK_SEQ, cigCode, cigName);
+    }
+
+    private Map<String, Object> generate(boolean incremental) {
+        String url = "/api/calculate/generate-distribution-plan?year=" + YEAR + "&month=" + MONTH + "&weekSeq=" + WEEK_SEQ
+                + "&urbanRatio=0.4&ruralRatio=0.6" + (incremental ? "&incremental=true" : "");
+        return restTemplate.exchange(url, HttpMethod.POST, null,
+                new ParameterizedTypeReference<Map<String, Object>>() {}).getBody();
+    }
+
+    /**
+     * 与重新计算的卷烟代码相等（=）或不等（<>）的分配记录主键
+     */
+    private List<Integer> rowIds(String operator) {
+        return jdbcTemplate.queryForList("SELECT id FROM `" + predictionTable + "` WHERE CIG_CODE " + operator + " ? ORDER BY id",
+                Integer.class, CIG_CODE);
+    }
+}
@@ -0,0 +1,104 @@
+package org.example.controller;
+
+import org.example.loadtest.LoadTestDataGenerator;
+import org.example.util.TableNameGeneratorUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpMethod;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+/**
+ * 增量生成分配方案接口测试（loadtest配置，H2内嵌数据库）
+ *
+ * 验证增量模式只重新计算输入发生变化的卷烟，输入未变化的卷烟保留原有分配记录
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("loadtest")
+public class IncrementalPlanEndpointTest {
+
+    private static final int YEAR = 2098;
+    private static final int MONTH = 2;
+    private static final int WEEK_SEQ = 1;
+    private static final int CIGARETTE_COUNT = 10;
+    private static final String CHANGED_CIG_CODE = "50000001";
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private String infoTable;
+    private String predictionTable;
+
+    @BeforeEach
+    public void setUp() {
+        LoadTestDataGenerator generator = new LoadTestDataGenerator(jdbcTemplate, 20251020L);
+        generator.createRegionClientTables();
+        generator.createWeek(YEAR, MONTH, WEEK_SEQ, CIGARETTE_COUNT);
+        generator.createPredictionTable(YEAR, MONTH, WEEK_SEQ);
+        infoTable = TableNameGeneratorUtil.generateDistributionInfoTableName(YEAR, MONTH, WEEK_SEQ);
+        predictionTable = TableNameGeneratorUtil.generatePredictionTableName(YEAR, MONTH, WEEK_SEQ);
+    }
+
+    @Test
+    public void recomputesOnlyCigarettesWhoseInputsChanged() {
+        assertEquals(Boolean.TRUE, generate(false).get("success"));
+        List<Integer> untouchedIds = rowIds("<>");
+        List<Integer> changedIds = rowIds("=");
+        jdbcTemplate.update("UPDATE `" + infoTable + "` SET ADV = ADV + 1 WHERE CIG_CODE = ?", CHANGED_CIG_CODE);
+
+        Map<String, Object> allocationResult = allocationResult(generate(true));
+
+        assertEquals(CIGARETTE_COUNT - 1, ((Number) allocationResult.get("unchangedCount")).intValue(),
+                "只有修改了预投放量的卷烟应重新计算");
+        assertEquals(CIGARETTE_COUNT, ((Number) allocationResult.get("successCount")).intValue());
+        assertEquals(untouchedIds, rowIds("<>"), "输入未变化的卷烟不应删除或重新插入");
+        assertNotEquals(changedIds, rowIds("="), "输入变化的卷烟应重新写回");
+    }
+
+    @Test
+    public void secondIncrementalRunSkipsEveryCigarette() {
+        assertEquals(Boolean.TRUE, generate(false).get("success"));
+        List<Integer> ids = rowIds("<>");
+
+        Map<String, Object> allocationResult = allocationResult(generate(true));
+
+        assertEquals(CIGARETTE_COUNT, ((Number) allocationResult.get("unchangedCount")).intValue());
+        assertEquals(ids, rowIds("<>"));
+    }
+
+    // ==================== 辅助方法 ====================
+
+    private Map<String, Object> generate(boolean incremental) {
+        String url = "/api/calculate/generate-distribution-plan?year=" + YEAR + "&month=" + MONTH + "&weekSeq=" + WEEK_SEQ
+                + "&urbanRatio=0.4&ruralRatio=0.6" + (incremental ? "&incremental=true" : "");
+        return restTemplate.exchange(url, HttpMethod.POST, null,
+                new ParameterizedTypeReference<Map<String, Object>>() {}).getBody();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> allocationResult(Map<String, Object> body) {
+        assertEquals(Boolean.TRUE, body.get("success"), "生成分配方案失败: " + body.get("message"));
+        return (Map<String, Object>) body.get("allocationResult");
+    }
+
+    /**
+     * 与修改的卷烟代码相等（=）或不等（<>）的分配记录主键
+     */
+    private List<Integer> rowIds(String operator) {
+        return jdbcTemplate.queryForList("SELECT id FROM `" + predictionTable + "` WHERE CIG_CODE " + operator + " ? ORDER BY id",
+                Integer.class, CHANGED_CIG_CODE);
+    }
+}
@@ -0,0 +1,166 @@
+package org.example.controller;
+
+import org.example.loadtest.LoadTestDataGenerator;
+import org.example.util.TableNameGeneratorUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 模拟分配接口测试（loadtest配置，H2内嵌数据库）
+ *
+ * 验证试算（含替换区县客户数表）不修改分配结果表和输入摘要表、比例扫描与同比例试算结果一致，以及上传卷烟的预投放量校验
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("loadtest")
+public class SimulationEndpointTest {
+
+    private static final int YEAR = 2098;
+    private static final int MONTH = 1;
+    private static final int WEEK_SEQ = 1;
+    private static final int CIGARETTE_COUNT = 10;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    public void setUp() {
+        LoadTestDataGenerator generator = new LoadTestDataGenerator(jdbcTemplate, 20251020L);
+        generator.createRegionClientTables();
+        generator.createDraftRegionClientTable("region_clientNum_1_1", "region_clientNum_1_1_draft");
+        generator.createWeek(YEAR, MONTH, WEEK_SEQ, CIGARETTE_COUNT);
+        generator.createPredictionTable(YEAR, MONTH, WEEK_SEQ);
+    }
+
+    @Test
+    public void simulationDoesNotWriteToDatabase() {
+        Map<String, Object> plan = post("/api/calculate/generate-distribution-plan?year=" + YEAR + "&month=" + MONTH
+                + "&weekSeq=" + WEEK_SEQ + "&urbanRatio=0.4&ruralRatio=0.6", null).getBody();
+        assertEquals(Boolean.TRUE, plan.get("success"), "生成分配方案失败: " + plan.get("message"));
+        String predictionTable = TableNameGeneratorUtil.generatePredictionTableName(YEAR, MONTH, WEEK_SEQ);
+        String before = fingerprint(predictionTable);
+
+        Map<String, Object> simulation = simulate(null);
+        Map<String, Object> draftSimulation = simulate(
+                Collections.singletonMap("region_clientNum_1_1", "region_clientNum_1_1_draft"));
+
+        assertEquals(Boolean.TRUE, simulation.get("success"), "模拟分配失败: " + simulation.get("message"));
+        assertEquals(CIGARETTE_COUNT, simulation.get("successCount"));
+        assertEquals(Boolean.TRUE, draftSimulation.get("success"), "替换表模拟失败: " + draftSimulation.get("message"));
+        assertNotEquals(countyAllocations(simulation), countyAllocations(draftSimulation), "替换区县客户数表未生效");
+        assertEquals(before, fingerprint(predictionTable), "模拟分配修改了数据库");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void sweepMatchesSimulationAtSameRatio() {
+        Map<String, Object> simulation = simulate(null);
+        Map<String, Object> sweep = post("/api/calculate/market-ratio-sweep?year=" + YEAR + "&month=" + MONTH
+                + "&weekSeq=" + WEEK_SEQ, null).getBody();
+
+        assertEquals(Boolean.TRUE, sweep.get("success"), "比例扫描失败: " + sweep.get("message"));
+        List<Map<String, Object>> points = (List<Map<String, Object>>) sweep.get("points");
+        assertEquals(21, points.size());
+        // 0.40比例点的总误差应与按0.4/0.6模拟的档位+市场类型卷烟误差之和一致
+        assertEquals(0, new BigDecimal(points.get(8).get("totalError").toString()).compareTo(marketError(simulation)),
+                "比例扫描与模拟结果不一致");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void rejectsUploadedItemsWithoutValidAdv() {
+        for (Object adv : new Object[]{null, -1}) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("cigCode", "42010001");
+            item.put("cigName", "模拟烟");
+            item.put("adv", adv);
+            item.put("deliveryMethod", LoadTestDataGenerator.METHOD_UNIFIED);
+            item.put("deliveryArea", "全市");
+            Map<String, Object> request = new LinkedHashMap<>();
+            request.put("items", Collections.singletonList(item));
+
+            ResponseEntity<Map<String, Object>> response = post("/api/calculate/simulate", request);
+
+            assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode(), "预投放量为" + adv + "时应拒绝请求");
+            Map<String, Object> errors = (Map<String, Object>) response.getBody().get("errors");
+            assertTrue(errors.containsKey("items[0].adv"), "校验错误应指向预投放量: " + errors);
+        }
+    }
+
+    // ==================== 辅助方法 ====================
+
+    private Map<String, Object> simulate(Map<String, String> regionClientTables) {
+        Map<String, Object> request = new LinkedHashMap<>();
+        request.put("year", YEAR);
+        request.put("month", MONTH);
+        request.put("weekSeq", WEEK_SEQ);
+        request.put("urbanRatio", 0.4);
+        request.put("ruralRatio", 0.6);
+        request.put("regionClientTables", regionClientTables);
+        return post("/api/calculate/simulate", request).getBody();
+    }
+
+    private ResponseEntity<Map<String, Object>> post(String url, Object body) {
+        return restTemplate.exchange(url, HttpMethod.POST, body != null ? new HttpEntity<>(body) : null,
+                new ParameterizedTypeReference<Map<String, Object>>() {});
+    }
+
+    /**
+     * 模拟结果中档位+市场类型卷烟的误差之和
+     */
+    @SuppressWarnings("unchecked")
+    private static BigDecimal marketError(Map<String, Object> simulation) {
+        BigDecimal total = BigDecimal.ZERO;
+        for (Map<String, Object> result : (List<Map<String, Object>>) simulation.get("results")) {
+            if ("档位+市场类型".equals(result.get("deliveryEtype"))) {
+                total = total.add(new BigDecimal(result.get("error").toString()));
+            }
+        }
+        return total;
+    }
+
+    /**
+     * 模拟结果中档位+区县卷烟的分配矩阵
+     */
+    @SuppressWarnings("unchecked")
+    private static List<Object> countyAllocations(Map<String, Object> simulation) {
+        List<Object> allocations = new ArrayList<>();
+        for (Map<String, Object> result : (List<Map<String, Object>>) simulation.get("results")) {
+            if ("档位+区县".equals(result.get("deliveryEtype"))) {
+                allocations.add(result.get("allocations"));
+            }
+        }
+        return allocations;
+    }
+
+    /**
+     * 预测表和输入摘要表的行数及最大主键（任何删除或重新插入都会改变）
+     */
+    private String fingerprint(String predictionTable) {
+        return jdbcTemplate.queryForMap("SELECT COUNT(*) AS ROWS_, MAX(id) AS MAX_ID FROM `" + predictionTable + "`")
+                + " " + jdbcTemplate.queryForMap("SELECT COUNT(*) AS ROWS_, MAX(UPDATED_AT) AS LAST_AT FROM distribution_input_hash");
+    }
+}
@@ -0,0 +1,131 @@
+package org.example.loadtest;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.CigaretteDistributionApplication;
+import org.example.service.DistributionCalculateService;
+import org.example.util.TableNameGeneratorUtil;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 分布式一键生成端到端测试（两个应用实例共享一个数据库）
+ *
+ * 【核心功能】
+ * 以loadtest配置、distributed执行模式启动两个应用实例（测试上下文为实例A，测试中再启动实例B），
+ * 两者连接同一个H2内存库（代替共享的MySQL），通过实例A的 /api/calculate/generate-distribution-plan 创建任务：
+ * - 两个实例都领取并处理了任务项，每个任务项只被领取一次且全部完成
+ * - 分布式生成的预测表内容与本实例串行生成完全一致
+ *
+ * 【运行方式】
+ * 默认不执行，需显式开启：
+ * mvn test -Dtest=DistributedJobLoadTest -Dloadtest=true [-Dloadtest.distributed.cigarettes=60]
+ *
+ * @author Robin
+ * @version 1.0
+ * @since 2025-10-20
+ */
+@Slf4j
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        DistributedJobLoadTest.DATASOURCE_URL,
+        "distribution.execution.mode=distributed",
+        "distribution.job.batch-size=2",
+        "distribution.job.poll-interval-ms=50",
+        "distribution.job.worker-id=instance-a"})
+@ActiveProfiles("loadtest")
+@EnabledIfSystemProperty(named = "loadtest", matches = "true")
+public class DistributedJobLoadTest {
+
+    /**
+     * 独立的H2内存库（与DistributionPlanLoadTest的数据互不影响），两个实例使用相同URL即共享同一个库
+     * SpringBootTest注解的properties按properties文件格式解析（反斜杠需再转义一次），命令行参数按原样使用
+     */
+    static final String DATASOURCE_URL = "spring.datasource.url=jdbc:h2:mem:marketing_jobs;MODE=MySQL;DATABASE_TO_LOWER=TRUE;"
+            + "CASE_INSENSITIVE_IDENTIFIERS=TRUE;NON_KEYWORDS=YEAR,MONTH,VALUE;DB_CLOSE_DELAY=-1;"
+            + "INIT=CREATE SCHEMA IF NOT EXISTS marketing_jobs\\\\;SET SCHEMA marketing_jobs";
+
+    private static final int YEAR = 2098;
+    private static final int MONTH = 1;
+    private static final int WEEK_SEQ = 1;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DistributionCalculateService distributionService;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void twoInstancesShareOneWeek() {
+        int cigaretteCount = Integer.parseInt(System.getProperty("loadtest.distributed.cigarettes", "60"));
+        LoadTestDataGenerator generator = new LoadTestDataGenerator(jdbcTemplate, 20251020L);
+        generator.createRegionClientTables();
+        generator.createWeek(YEAR, MONTH, WEEK_SEQ, cigaretteCount);
+        generator.createPredictionTable(YEAR, MONTH, WEEK_SEQ);
+
+        // 基准：本实例串行生成（直接调用服务，不经过分布式任务）
+        Map<String, Object> sequential = distributionService.getAndwriteBackAllocationMatrix(YEAR, MONTH, WEEK_SEQ);
+        assertEquals(Boolean.TRUE, sequential.get("success"), "串行生成失败: " + sequential.get("message"));
+        String predictionTable = TableNameGeneratorUtil.generatePredictionTableName(YEAR, MONTH, WEEK_SEQ);
+        List<Map<String, Object>> expected = snapshot(predictionTable);
+
+        ConfigurableApplicationContext instanceB = new SpringApplicationBuilder(CigaretteDistributionApplication.class)
+                .profiles("loadtest")
+                .run("--" + DATASOURCE_URL.replace("\\\\", "\\"), "--server.port=0",
+                        "--distribution.execution.mode=distributed",
+                        "--distribution.job.batch-size=2",
+                        "--distribution.job.poll-interval-ms=50",
+                        "--distribution.job.worker-id=instance-b");
+        try {
+            long start = System.nanoTime();
+            ResponseEntity<Map<String, Object>> response = restTemplate.exchange(
+                    "/api/calculate/generate-distribution-plan?year=" + YEAR + "&month=" + MONTH + "&weekSeq=" + WEEK_SEQ,
+                    HttpMethod.POST, null, new ParameterizedTypeReference<Map<String, Object>>() {});
+            long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+            Map<String, Object> body = response.getBody() != null ? response.getBody() : Collections.emptyMap();
+
+            assertEquals(Boolean.TRUE, body.get("success"), "分布式生成失败: " + body.get("message"));
+            assertEquals(cigaretteCount, ((Number) body.get("totalCigarettes")).intValue());
+            Map<String, Object> allocationResult = (Map<String, Object>) body.get("allocationResult");
+            Map<String, Object> workers = (Map<String, Object>) allocationResult.get("workers");
+            long jobId = ((Number) allocationResult.get("jobId")).longValue();
+
+            assertTrue(workers.containsKey("instance-a") && workers.containsKey("instance-b"), "两个实例都应处理任务项: " + workers);
+            Integer unfinishedOrRepeated = jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM `distribution_job_item` WHERE JOB_ID = ? AND (STATUS <> 'DONE' OR ATTEMPTS <> 1)",
+                    Integer.class, jobId);
+            assertEquals(0, unfinishedOrRepeated, "任务项应全部完成且只被领取一次");
+            assertEquals(expected, snapshot(predictionTable), "分布式生成结果应与串行生成一致");
+
+            log.info("\n===== distributed generate-distribution-plan (2 instances, H2) =====\n"
+                    + "cigarettes: {}, elapsedMs: {}, workers: {}, claimMode: {}",
+                    cigaretteCount, elapsedMs, workers, ((Map<String, Object>) allocationResult.get("execution")).get("claimMode"));
+        } finally {
+            instanceB.close();
+        }
+    }
+
+    private List<Map<String, Object>> snapshot(String predictionTable) {
+        return jdbcTemplate.queryForList("SELECT CIG_CODE, CIG_NAME, DELIVERY_AREA, D30, D25, D20, D15, D10, D5, D1, "
+                + "ACTUAL_DELIVERY, DEPLOYINFO_CODE FROM `" + predictionTable + "` ORDER BY CIG_CODE, CIG_NAME, DELIVERY_AREA");
+    }
+}
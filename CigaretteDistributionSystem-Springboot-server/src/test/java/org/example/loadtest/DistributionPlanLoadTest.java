@@ -0,0 +1,237 @@
+package org.example.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.example.util.TableNameGeneratorUtil;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 一键生成分配方案端到端压测
+ *
+ * 【核心功能】
+ * 以loadtest配置启动完整应用（H2内嵌数据库，MySQL兼容模式），按不同规模生成一周的卷烟投放数据，
+ * 通过HTTP调用 /api/calculate/generate-distribution-plan，统计端到端延迟和吞吐量
+ *
+ * 【运行方式】
+ * 默认不执行，需显式开启：
+ * mvn test -Dtest=DistributionPlanLoadTest -Dloadtest=true [-Dloadtest.scales=50,200,500] [-Dloadtest.runs=3]
+ *
+ * 【输出】
+ * - 控制台打印各规模的延迟（最小/中位/最大）、吞吐量（卷烟/秒）及运行报告中的阶段耗时
+ * - 修改一种卷烟的预投放量后以增量模式重新生成一次，记录增量延迟和重新计算的卷烟数
+ * - 对每种投放类型的一种卷烟反复调用 /api/calculate/cigarette，记录单卷烟重新计算的中位和p99延迟
+ * - 调用 /api/calculate/simulate 试算整周，记录试算耗时
+ * - 调用 /api/calculate/market-ratio-sweep 扫描21个城网比例，记录扫描耗时
+ * - 结果同时写入 target/loadtest/distribution-plan-load.json，便于不同版本间对比
+ *
+ * @author Robin
+ * @version 1.0
+ * @since 2025-10-20
+ */
+@Slf4j
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("loadtest")
+@EnabledIfSystemProperty(named = "loadtest", matches = "true")
+public class DistributionPlanLoadTest {
+
+    private static final int YEAR = 2099;
+    private static final int WEEK_SEQ = 1;
+    private static final int SINGLE_CIGARETTE_ROUNDS = 20;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    public void generateDistributionPlanAtSeveralScales() throws Exception {
+        List<Integer> scales = Arrays.stream(System.getProperty("loadtest.scales", "50,200,500").split(","))
+                .map(String::trim).map(Integer::valueOf).collect(Collectors.toList());
+        int runs = Integer.parseInt(System.getProperty("loadtest.runs", "3"));
+
+        LoadTestDataGenerator generator = new LoadTestDataGenerator(jdbcTemplate, 20251020L);
+        generator.createRegionClientTables();
+
+        List<Map<String, Object>> summaries = new ArrayList<>();
+        for (int i = 0; i < scales.size(); i++) {
+            int cigaretteCount = scales.get(i);
+            int month = i + 1;
+            generator.createWeek(YEAR, month, WEEK_SEQ, cigaretteCount);
+            generator.createPredictionTable(YEAR, month, WEEK_SEQ);
+
+            // 预热一次（首次运行包含建表和缓存加载），不计入统计
+            Map<String, Object> warmup = generate(month);
+            assertEquals(Boolean.TRUE, warmup.get("success"), "预热运行失败: " + warmup.get("message"));
+
+            List<Long> latencies = new ArrayList<>();
+            Map<String, Object> lastReport = Collections.emptyMap();
+            for (int run = 0; run < runs; run++) {
+                long start = System.nanoTime();
+                Map<String, Object> body = generate(month);
+                latencies.add((System.nanoTime() - start) / 1_000_000);
+
+                assertEquals(Boolean.TRUE, body.get("success"), "第" + (run + 1) + "次运行失败: " + body.get("message"));
+                assertEquals(cigaretteCount, ((Number) body.get("totalCigarettes")).intValue());
+                lastReport = castMap(body.get("runReport"));
+            }
+
+            Map<String, Object> summary = summarize(cigaretteCount, latencies, lastReport);
+
+            // 增量重新生成：只修改一种卷烟的预投放量（只重新计算变化卷烟的校验见IncrementalPlanEndpointTest）
+            String infoTable = TableNameGeneratorUtil.generateDistributionInfoTableName(YEAR, month, WEEK_SEQ);
+            jdbcTemplate.update("UPDATE `" + infoTable + "` SET ADV = ADV + 1 WHERE CIG_CODE = ?", "50000001");
+            long incrementalStart = System.nanoTime();
+            Map<String, Object> incremental = generate(month, true);
+            summary.put("incrementalMs", (System.nanoTime() - incrementalStart) / 1_000_000);
+            assertEquals(Boolean.TRUE, incremental.get("success"), "增量运行失败: " + incremental.get("message"));
+            Map<String, Object> incrementalResult = castMap(incremental.get("allocationResult"));
+            summary.put("incrementalRecomputed", cigaretteCount - ((Number) incrementalResult.get("unchangedCount")).intValue());
+
+            // 单卷烟重新计算（缓存已预热；只重写该卷烟的校验见CigaretteRecomputeEndpointTest）
+            List<Long> singleLatencies = new ArrayList<>();
+            for (int round = 0; round < SINGLE_CIGARETTE_ROUNDS; round++) {
+                for (int k = 0; k < Math.min(5, cigaretteCount); k++) {
+                    String code = String.format("%08d", 50000000 + k);
+                    String name = jdbcTemplate.queryForObject(
+                            "SELECT CIG_NAME FROM `" + infoTable + "` WHERE CIG_CODE = ?", String.class, code);
+                    long singleStart = System.nanoTime();
+                    Map<String, Object> single = recalculate(month, code, name);
+                    singleLatencies.add((System.nanoTime() - singleStart) / 1_000);
+                    assertEquals(Boolean.TRUE, single.get("success"), "单卷烟重新计算失败: " + single.get("message"));
+                }
+            }
+            Collections.sort(singleLatencies);
+            summary.put("singleMedianMs", singleLatencies.get(singleLatencies.size() / 2) / 1000.0);
+            summary.put("singleP99Ms", singleLatencies.get((int) Math.ceil(singleLatencies.size() * 0.99) - 1) / 1000.0);
+
+            // 模拟分配：整周试算（不写库的校验见SimulationEndpointTest）
+            long simulateStart = System.nanoTime();
+            Map<String, Object> simulation = simulate(month);
+            summary.put("simulateMs", (System.nanoTime() - simulateStart) / 1_000_000);
+            assertEquals(Boolean.TRUE, simulation.get("success"), "模拟分配失败: " + simulation.get("message"));
+
+            // 比例扫描（与模拟结果一致的校验见SimulationEndpointTest）
+            long sweepStart = System.nanoTime();
+            Map<String, Object> sweep = sweep(month);
+            summary.put("sweepMs", (System.nanoTime() - sweepStart) / 1_000_000);
+            assertEquals(Boolean.TRUE, sweep.get("success"), "比例扫描失败: " + sweep.get("message"));
+            summaries.add(summary);
+            log.info("压测结果: {}", summary);
+        }
+
+        logSummaries(summaries);
+        File output = new File("target/loadtest/distribution-plan-load.json");
+        assertTrue(output.getParentFile().exists() || output.getParentFile().mkdirs());
+        objectMapper.writerWithDefaultPrettyPrinter().writeValue(output, summaries);
+    }
+
+    private Map<String, Object> generate(int month) {
+        return generate(month, false);
+    }
+
+    private Map<String, Object> recalculate(int month, String cigCode, String cigName) {
+        String url = "/api/calculate/cigarette?year={year}&month={month}&weekSeq={weekSeq}&cigCode={code}&cigName={name}"
+                + "&urbanRatio=0.4&ruralRatio=0.6";
+        ResponseEntity<Map<String, Object>> response = restTemplate.exchange(url, HttpMethod.POST, null,
+                new ParameterizedTypeReference<Map<String, Object>>() {}, YEAR, month, WEEK_SEQ, cigCode, cigName);
+        return response.getBody() != null ? response.getBody() : Collections.emptyMap();
+    }
+
+    private Map<String, Object> sweep(int month) {
+        String url = "/api/calculate/market-ratio-sweep?year=" + YEAR + "&month=" + month + "&weekSeq=" + WEEK_SEQ;
+        ResponseEntity<Map<String, Object>> response = restTemplate.exchange(url, HttpMethod.POST, null,
+                new ParameterizedTypeReference<Map<String, Object>>() {});
+        return response.getBody() != null ? response.getBody() : Collections.emptyMap();
+    }
+
+    private Map<String, Object> simulate(int month) {
+        Map<String, Object> request = new LinkedHashMap<>();
+        request.put("year", YEAR);
+        request.put("month", month);
+        request.put("weekSeq", WEEK_SEQ);
+        request.put("urbanRatio", 0.4);
+        request.put("ruralRatio", 0.6);
+        ResponseEntity<Map<String, Object>> response = restTemplate.exchange("/api/calculate/simulate", HttpMethod.POST,
+                new HttpEntity<>(request), new ParameterizedTypeReference<Map<String, Object>>() {});
+        return response.getBody() != null ? response.getBody() : Collections.emptyMap();
+    }
+
+    private Map<String, Object> generate(int month, boolean incremental) {
+        String url = "/api/calculate/generate-distribution-plan?year=" + YEAR + "&month=" + month + "&weekSeq=" + WEEK_SEQ
+                + "&urbanRatio=0.4&ruralRatio=0.6&slowestN=3" + (incremental ? "&incremental=true" : "");
+        ResponseEntity<Map<String, Object>> response = restTemplate.exchange(url, HttpMethod.POST, null,
+                new ParameterizedTypeReference<Map<String, Object>>() {});
+        return response.getBody() != null ? response.getBody() : Collections.emptyMap();
+    }
+
+    private Map<String, Object> summarize(int cigaretteCount, List<Long> latencies, Map<String, Object> report) {
+        List<Long> sorted = new ArrayList<>(latencies);
+        Collections.sort(sorted);
+        long median = sorted.get(sorted.size() / 2);
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("cigaretteCount", cigaretteCount);
+        summary.put("runs", latencies.size());
+        summary.put("latenciesMs", latencies);
+        summary.put("minMs", sorted.get(0));
+        summary.put("medianMs", median);
+        summary.put("maxMs", sorted.get(sorted.size() - 1));
+        summary.put("cigarettesPerSecond", median == 0 ? 0 : Math.round(cigaretteCount * 1000.0 / median * 10) / 10.0);
+        summary.put("deleteMs", report.get("deleteMs"));
+        summary.put("computeMs", report.get("computeMs"));
+        summary.put("writeBackMs", report.get("writeBackMs"));
+        summary.put("encodeMs", report.get("encodeMs"));
+        summary.put("dbRoundTrips", report.get("dbRoundTrips"));
+        summary.put("execution", report.get("execution"));
+        return summary;
+    }
+
+    private void logSummaries(List<Map<String, Object>> summaries) {
+        StringBuilder table = new StringBuilder("\n===== generate-distribution-plan load test (H2, MySQL mode) =====\n");
+        table.append(String.format("%10s %8s %8s %8s %12s %10s %12s %10s %10s %14s %12s %10s %10s %11s %8s%n",
+                "cigarettes", "minMs", "medianMs", "maxMs", "cigs/sec", "computeMs", "writeBackMs", "encodeMs", "dbTrips",
+                "incrementalMs", "recomputed", "singleP50", "singleP99", "simulateMs", "sweepMs"));
+        for (Map<String, Object> s : summaries) {
+            table.append(String.format("%10s %8s %8s %8s %12s %10s %12s %10s %10s %14s %12s %10s %10s %11s %8s%n",
+                    s.get("cigaretteCount"), s.get("minMs"), s.get("medianMs"), s.get("maxMs"), s.get("cigarettesPerSecond"),
+                    s.get("computeMs"), s.get("writeBackMs"), s.get("encodeMs"), s.get("dbRoundTrips"),
+                    s.get("incrementalMs"), s.get("incrementalRecomputed"), s.get("singleMedianMs"), s.get("singleP99Ms"),
+                    s.get("simulateMs"), s.get("sweepMs")));
+        }
+        if (!summaries.isEmpty()) {
+            table.append("execution: ").append(summaries.get(summaries.size() - 1).get("execution")).append('\n');
+        }
+        log.info("{}", table);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> castMap(Object value) {
+        return value instanceof Map ? (Map<String, Object>) value : Collections.emptyMap();
+    }
+}
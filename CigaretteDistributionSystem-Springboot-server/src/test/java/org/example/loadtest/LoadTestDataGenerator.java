@@ -0,0 +1,250 @@
+package org.example.loadtest;
+
+import org.example.util.CigaretteDistributionSqlBuilder;
+import org.example.util.TableNameGeneratorUtil;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 端到端压测数据生成器
+ *
+ * 【核心功能】
+ * 在内嵌数据库中创建区域客户数表和卷烟投放基本信息表，并按 test_sql 目录下各 02-generate-test-data.sql 的规则
+ * 生成一周N种卷烟的投放数据，五种投放类型轮流出现
+ *
+ * 【生成规则（与测试SQL脚本一致）】
+ * - 预投放量：按1000为区间从1000递增到200000，区间内随机偏移，超过200000后重新开始
+ * - 区域数：投放量越大区域越多（<5000：2-3个，<20000：3-4个，<50000：4-5个，<100000：5-6个，其余：6-7个）
+ * - 档位+市场类型：随机为 仅城网 / 仅农网 / 城网+农网
+ * - 档位+业态：投放量≥5000时投放区域必须包含便利店
+ *
+ * @author Robin
+ * @version 1.0
+ * @since 2025-10-20
+ */
+public class LoadTestDataGenerator {
+
+    public static final String METHOD_UNIFIED = "按档位统一投放";
+    public static final String METHOD_EXTENDED = "按档位扩展投放";
+
+    static final List<String> COUNTIES = Arrays.asList("城区", "丹江", "房县", "郧西", "郧阳", "竹山", "竹溪");
+    static final List<String> MARKETS = Arrays.asList("城网", "农网");
+    static final List<String> URBAN_RURAL_AREAS = Arrays.asList(
+            "主城区", "乡中心区", "城乡结合区", "村庄", "特殊区域", "镇中心区", "镇乡结合区");
+    static final List<String> BUSINESS_FORMATS = Arrays.asList(
+            "便利店", "超市", "商场", "烟草专业店", "娱乐服务类", "其他");
+
+    private static final String CONVENIENCE_STORE = "便利店";
+    private static final int GRADE_COUNT = 30;
+    private static final int MAX_ADV = 200000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Random random;
+
+    public LoadTestDataGenerator(JdbcTemplate jdbcTemplate, long seed) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.random = new Random(seed);
+    }
+
+    // ==================== 区域客户数表 ====================
+
+    /**
+     * 创建并填充五种投放类型的区域客户数表（非双周上浮，region_clientNum_{0-4}_1）
+     */
+    public void createRegionClientTables() {
+        createRegionClientTable("region_clientNum_0_1", Collections.singletonList("全市"), 15000, 25000);
+        createRegionClientTable("region_clientNum_1_1", COUNTIES, 1500, 4500);
+        createRegionClientTable("region_clientNum_2_1", MARKETS, 6000, 14000);
+        createRegionClientTable("region_clientNum_3_1", URBAN_RURAL_AREAS, 300, 5000);
+        createRegionClientTable("region_clientNum_4_1", BUSINESS_FORMATS, 200, 8000);
+    }
+
+    private void createRegionClientTable(String tableName, List<String> regions, int minCustomers, int maxCustomers) {
+        StringBuilder ddl = new StringBuilder("CREATE TABLE IF NOT EXISTS `").append(tableName).append("` (")
+                .append("`id` int NOT NULL AUTO_INCREMENT, `region` varchar(100) NOT NULL, ");
+        StringBuilder columns = new StringBuilder("region");
+        StringBuilder placeholders = new StringBuilder("?");
+        for (int grade = GRADE_COUNT; grade >= 1; grade--) {
+            ddl.append("`D").append(grade).append("` decimal(18,2) DEFAULT NULL, ");
+            columns.append(", D").append(grade);
+            placeholders.append(", ?");
+        }
+        ddl.append("`TOTAL` decimal(18,2) DEFAULT NULL, PRIMARY KEY (`id`))");
+        columns.append(", TOTAL");
+        placeholders.append(", ?");
+
+        jdbcTemplate.execute(ddl.toString());
+        jdbcTemplate.update("DELETE FROM " + tableName);
+
+        String insertSql = "INSERT INTO " + tableName + " (" + columns + ") VALUES (" + placeholders + ")";
+        for (String region : regions) {
+            Object[] params = new Object[GRADE_COUNT + 2];
+            params[0] = region;
+            long[] counts = randomCustomerCounts(minCustomers + random.nextInt(maxCustomers - minCustomers));
+            long total = 0;
+            for (int i = 0; i < GRADE_COUNT; i++) {
+                params[i + 1] = BigDecimal.valueOf(counts[i]);
+                total += counts[i];
+            }
+            params[GRADE_COUNT + 1] = BigDecimal.valueOf(total);
+            jdbcTemplate.update(insertSql, params);
+        }
+    }
+
+    /**
+     * 复制区域客户数表作为模拟用的替换表，并调整中间档位的客户数
+     */
+    public void createDraftRegionClientTable(String sourceTable, String draftTable) {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS `" + draftTable + "`");
+        jdbcTemplate.execute("CREATE TABLE `" + draftTable + "` AS SELECT * FROM `" + sourceTable + "`");
+        jdbcTemplate.update("UPDATE `" + draftTable + "` SET D15 = D15 * 3 + 10, D16 = D16 * 2 + 10");
+    }
+
+    /**
+     * 生成钟形分布的档位客户数（D30-D1），峰值在中间档位，约5%的档位无客户
+     */
+    private long[] randomCustomerCounts(int total) {
+        double[] weights = new double[GRADE_COUNT];
+        double weightSum = 0;
+        for (int i = 0; i < GRADE_COUNT; i++) {
+            double distance = (i - 14.5) / 7.0;
+            weights[i] = random.nextInt(20) == 0 ? 0 : Math.exp(-distance * distance / 2) * (0.7 + 0.6 * random.nextDouble());
+            weightSum += weights[i];
+        }
+        long[] counts = new long[GRADE_COUNT];
+        for (int i = 0; i < GRADE_COUNT; i++) {
+            counts[i] = weightSum == 0 ? 0 : Math.round(total * weights[i] / weightSum);
+        }
+        return counts;
+    }
+
+    // ==================== 卷烟投放基本信息表 ====================
+
+    /**
+     * 创建指定周的卷烟投放基本信息表并生成N种卷烟
+     *
+     * @return 生成的卷烟数量
+     */
+    public int createWeek(int year, int month, int weekSeq, int cigaretteCount) {
+        String tableName = TableNameGeneratorUtil.generateDistributionInfoTableName(year, month, weekSeq);
+        jdbcTemplate.execute("DROP TABLE IF EXISTS `" + tableName + "`");
+        jdbcTemplate.execute("CREATE TABLE `" + tableName + "` (" +
+                "`id` int NOT NULL AUTO_INCREMENT, " +
+                "`CIG_CODE` varchar(32) DEFAULT NULL, " +
+                "`CIG_NAME` varchar(100) DEFAULT NULL, " +
+                "`YEAR` year DEFAULT NULL, " +
+                "`MONTH` tinyint DEFAULT NULL, " +
+                "`WEEK_SEQ` tinyint DEFAULT NULL, " +
+                "`URS` decimal(18,2) DEFAULT NULL, " +
+                "`ADV` decimal(18,2) DEFAULT NULL, " +
+                "`DELIVERY_METHOD` varchar(50) DEFAULT NULL, " +
+                "`DELIVERY_ETYPE` varchar(50) DEFAULT NULL, " +
+                "`DELIVERY_AREA` varchar(500) DEFAULT NULL, " +
+                "`bz` varchar(255) DEFAULT NULL, " +
+                "PRIMARY KEY (`id`))");
+
+        String insertSql = "INSERT INTO " + tableName +
+                " (CIG_CODE, CIG_NAME, YEAR, MONTH, WEEK_SEQ, ADV, DELIVERY_METHOD, DELIVERY_ETYPE, DELIVERY_AREA, bz)" +
+                " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        List<Object[]> rows = new ArrayList<>(cigaretteCount);
+        int rangeStart = 1000;
+        for (int i = 0; i < cigaretteCount; i++) {
+            int adv = Math.min(rangeStart + random.nextInt(1000) + 1, MAX_ADV);
+            rangeStart = rangeStart + 1000 >= MAX_ADV ? 1000 : rangeStart + 1000;
+
+            String code = String.format("%08d", 50000000 + i);
+            String name = "压测烟-" + i + "-" + adv + "条";
+            String method = METHOD_EXTENDED;
+            String etype;
+            String areas;
+            switch (i % 5) {
+                case 0:
+                    method = METHOD_UNIFIED;
+                    etype = null;
+                    areas = "全市";
+                    break;
+                case 1:
+                    etype = "档位+区县";
+                    areas = pickAreas(COUNTIES, regionCountFor(adv, COUNTIES.size()), null);
+                    break;
+                case 2:
+                    etype = "档位+市场类型";
+                    int scenario = random.nextInt(3);
+                    areas = scenario == 0 ? "城网" : scenario == 1 ? "农网" : "城网,农网";
+                    break;
+                case 3:
+                    etype = "档位+城乡分类代码";
+                    areas = pickAreas(URBAN_RURAL_AREAS, regionCountFor(adv, URBAN_RURAL_AREAS.size()), null);
+                    break;
+                default:
+                    etype = "档位+业态";
+                    areas = pickAreas(BUSINESS_FORMATS, regionCountFor(adv, BUSINESS_FORMATS.size()),
+                            adv >= 5000 ? CONVENIENCE_STORE : null);
+                    break;
+            }
+            rows.add(new Object[]{code, name, year, month, weekSeq, BigDecimal.valueOf(adv), method, etype, areas, "压测数据"});
+        }
+        jdbcTemplate.batchUpdate(insertSql, rows);
+        return rows.size();
+    }
+
+    /**
+     * 预先创建指定周的分配结果表
+     *
+     * 表结构与应用建表语句一致。H2中约束名和索引名在模式内全局唯一（MySQL为表内唯一），
+     * 因此为唯一约束名和二级索引名追加表名后缀，避免第二周建表时名称冲突。
+     */
+    public void createPredictionTable(int year, int month, int weekSeq) {
+        String tableName = TableNameGeneratorUtil.generatePredictionTableName(year, month, weekSeq);
+        jdbcTemplate.execute("DROP TABLE IF EXISTS `" + tableName + "`");
+        jdbcTemplate.execute(CigaretteDistributionSqlBuilder.buildCreatePredictionTableSql(tableName)
+                .replace("`unique_cigarette_area`", "`unique_cigarette_area_" + tableName + "`")
+                .replace("`idx_delivery_etype`", "`idx_delivery_etype_" + tableName + "`"));
+    }
+
+    /**
+     * 按投放量决定区域数（与测试SQL脚本规则一致）
+     */
+    private int regionCountFor(int adv, int maxRegions) {
+        int count;
+        if (adv < 5000) {
+            count = 2 + random.nextInt(2);
+        } else if (adv < 20000) {
+            count = 3 + random.nextInt(2);
+        } else if (adv < 50000) {
+            count = 4 + random.nextInt(2);
+        } else if (adv < 100000) {
+            count = 5 + random.nextInt(2);
+        } else {
+            count = 6 + random.nextInt(2);
+        }
+        return Math.min(count, maxRegions);
+    }
+
+    /**
+     * 随机选取指定数量的区域，按原始顺序以逗号拼接
+     *
+     * @param required 必须包含的区域（可为null）
+     */
+    private String pickAreas(List<String> candidates, int count, String required) {
+        List<String> shuffled = new ArrayList<>(candidates);
+        Collections.shuffle(shuffled, random);
+        List<String> selected = new ArrayList<>(shuffled.subList(0, count));
+        if (required != null && !selected.contains(required)) {
+            selected.set(0, required);
+        }
+        List<String> ordered = new ArrayList<>();
+        for (String candidate : candidates) {
+            if (selected.contains(candidate)) {
+                ordered.add(candidate);
+            }
+        }
+        return String.join(",", ordered);
+    }
+}
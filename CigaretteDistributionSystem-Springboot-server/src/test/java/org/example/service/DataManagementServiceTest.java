@@ -0,0 +1,224 @@
+package org.example.service;
+
+import org.example.dto.DeleteAreasRequestDto;
+import org.example.dto.UpdateCigaretteRequestDto;
+import org.example.service.impl.DataManagementServiceImpl;
+import org.example.service.impl.EncodeDecodeServiceImpl;
+import org.example.util.SchemaCatalog;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 编码表达式批量更新与区域删除测试（H2内存库，MySQL模式）
+ *
+ * 验证增量更新、投放类型变更和区域删除的批量写入结果、任一区域计算失败时整体失败，编辑后整支卷烟编码表达的刷新，以及表目录缓存的存在性判断
+ */
+public class DataManagementServiceTest {
+
+    private static final String PREDICTION_TABLE = "cigarette_distribution_prediction_2025_9_3";
+    private static final String INFO_TABLE = "cigarette_distribution_info_2025_9_3";
+
+    private JdbcTemplate jdbcTemplate;
+    private DataManagementService service;
+    private SchemaCatalog schemaCatalog;
+
+    @BeforeEach
+    public void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:data_manage;MODE=MySQL;DATABASE_TO_LOWER=TRUE;CASE_INSENSITIVE_IDENTIFIERS=TRUE;"
+                        + "NON_KEYWORDS=YEAR,MONTH,VALUE;DB_CLOSE_DELAY=-1;"
+                        + "INIT=CREATE SCHEMA IF NOT EXISTS data_manage\\;SET SCHEMA data_manage", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("DROP TABLE IF EXISTS `" + PREDICTION_TABLE + "`");
+        jdbcTemplate.execute("DROP TABLE IF EXISTS `" + INFO_TABLE + "`");
+
+        StringBuilder ddl = new StringBuilder("CREATE TABLE `").append(PREDICTION_TABLE).append("` (")
+                .append("id INT AUTO_INCREMENT PRIMARY KEY, CIG_CODE VARCHAR(32), CIG_NAME VARCHAR(100), ")
+                .append("YEAR INT, MONTH INT, WEEK_SEQ INT, DELIVERY_AREA VARCHAR(100), ")
+                .append("DELIVERY_METHOD VARCHAR(50), DELIVERY_ETYPE VARCHAR(50), ");
+        for (int i = 30; i >= 1; i--) {
+            ddl.append("D").append(i).append(" DECIMAL(18,2), ");
+        }
+        ddl.append("BZ VARCHAR(255), ACTUAL_DELIVERY DECIMAL(18,2), DEPLOYINFO_CODE TEXT, ")
+                .append("UNIQUE KEY unique_cigarette_area (CIG_CODE, CIG_NAME, DELIVERY_AREA, YEAR, MONTH, WEEK_SEQ))");
+        jdbcTemplate.execute(ddl.toString());
+        jdbcTemplate.execute("CREATE TABLE `" + INFO_TABLE + "` (CIG_CODE VARCHAR(32), CIG_NAME VARCHAR(100), "
+                + "DELIVERY_METHOD VARCHAR(50), DELIVERY_ETYPE VARCHAR(50))");
+        jdbcTemplate.update("INSERT INTO `" + INFO_TABLE + "` VALUES ('42010101', '测试卷烟', '按档位扩展投放', '档位+区县')");
+        insertArea("城区");
+        insertArea("丹江");
+        insertArea("郧西");
+
+        DistributionCalculateService calculateService = mock(DistributionCalculateService.class);
+        when(calculateService.calculateActualDeliveryForRegion(anyString(), any(), any(), any(), any()))
+                .thenReturn(BigDecimal.TEN);
+        service = new DataManagementServiceImpl();
+        ReflectionTestUtils.setField(service, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(service, "distributionCalculateService", calculateService);
+        schemaCatalog = new SchemaCatalog();
+        ReflectionTestUtils.setField(schemaCatalog, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(service, "schemaCatalog", schemaCatalog);
+        ReflectionTestUtils.setField(service, "encodeDecodeService", new EncodeDecodeServiceImpl());
+    }
+
+    @Test
+    public void appliesIncrementalUpdateAsBatches() {
+        Map<String, Object> result = service.batchUpdateFromEncodedExpressions("42010101", "测试卷烟", 2025, 9, 3,
+                Arrays.asList("B1（1+3）（2×5+28×0）", "B1（5）（1×2+29×0）"), "编辑");
+
+        assertEquals(true, result.get("success"), String.valueOf(result.get("message")));
+        assertEquals(2, result.get("newAreas"));
+        assertEquals(1, result.get("updatedAreas"));
+        assertEquals(2, result.get("deletedAreas"));
+        assertEquals(Arrays.asList("城区", "房县", "郧阳"), areas());
+
+        Map<String, Object> updated = jdbcTemplate.queryForMap("SELECT D30, D29, D28, BZ, ACTUAL_DELIVERY, DEPLOYINFO_CODE FROM `"
+                + PREDICTION_TABLE + "` WHERE DELIVERY_AREA = '城区'");
+        assertEquals(0, new BigDecimal("5").compareTo((BigDecimal) updated.get("D30")));
+        assertEquals(0, new BigDecimal("5").compareTo((BigDecimal) updated.get("D29")));
+        assertEquals(0, BigDecimal.ZERO.compareTo((BigDecimal) updated.get("D28")));
+        assertEquals("编辑", updated.get("BZ"));
+        assertEquals(0, BigDecimal.TEN.compareTo((BigDecimal) updated.get("ACTUAL_DELIVERY")));
+        assertEquals("B1（1+3）（2×5+28×0）", updated.get("DEPLOYINFO_CODE"));
+        assertEquals("B1（5）（1×2+29×0）", deployinfoCode("郧阳"));
+    }
+
+    @Test
+    public void failsWholeUpdateWhenOneAreaCannotBeComputed() {
+        DistributionCalculateService calculateService = mock(DistributionCalculateService.class);
+        when(calculateService.calculateActualDeliveryForRegion(anyString(), any(), any(), any(), any()))
+                .thenReturn(BigDecimal.TEN);
+        when(calculateService.calculateActualDeliveryForRegion(eq("郧阳"), any(), any(), any(), any()))
+                .thenThrow(new IllegalStateException("客户数表缺失"));
+        ReflectionTestUtils.setField(service, "distributionCalculateService", calculateService);
+
+        Map<String, Object> result = service.batchUpdateFromEncodedExpressions("42010101", "测试卷烟", 2025, 9, 3,
+                Arrays.asList("B1（1+3）（2×5+28×0）", "B1（5）（1×2+29×0）"), "编辑");
+
+        assertEquals(false, result.get("success"));
+        assertEquals(Arrays.asList("丹江", "城区", "郧西"), areas());
+        assertEquals(0, BigDecimal.ONE.compareTo(jdbcTemplate.queryForObject("SELECT D30 FROM `" + PREDICTION_TABLE
+                + "` WHERE DELIVERY_AREA = '城区'", BigDecimal.class)), "失败时不应更新任何区域");
+    }
+
+    @Test
+    public void reencodesSiblingAreasAfterSingleAreaEdit() {
+        jdbcTemplate.update("UPDATE `" + PREDICTION_TABLE + "` SET DEPLOYINFO_CODE = 'B1（1+2+4）（1×1+29×0）'");
+        UpdateCigaretteRequestDto request = new UpdateCigaretteRequestDto();
+        request.setCigCode("42010101");
+        request.setCigName("测试卷烟");
+        request.setYear(2025);
+        request.setMonth(9);
+        request.setWeekSeq(3);
+        request.setDeliveryMethod("按档位扩展投放");
+        request.setDeliveryEtype("档位+区县");
+        request.setDeliveryArea("郧西");
+        BigDecimal[] distribution = new BigDecimal[30];
+        Arrays.fill(distribution, BigDecimal.ZERO);
+        distribution[0] = new BigDecimal("2");
+        request.setDistribution(Arrays.asList(distribution));
+
+        Map<String, Object> result = service.updateCigaretteInfo(request);
+
+        assertEquals(true, result.get("success"), String.valueOf(result.get("message")));
+        assertEquals(3, result.get("refreshedCodes"));
+        assertEquals("B1（1+2）（1×1+29×0）", deployinfoCode("城区"));
+        assertEquals("B1（1+2）（1×1+29×0）", deployinfoCode("丹江"));
+        assertEquals("B1（4）（1×2+29×0）", deployinfoCode("郧西"));
+    }
+
+    @Test
+    public void rebuildsRecordsWhenDeliveryTypeChanges() {
+        Map<String, Object> result = service.batchUpdateFromEncodedExpressions("42010101", "测试卷烟", 2025, 9, 3,
+                Collections.singletonList("B2（C+N）（30×1）"), null);
+
+        assertEquals(true, result.get("success"), String.valueOf(result.get("message")));
+        assertEquals(3, result.get("deletedRecords"));
+        assertEquals(2, result.get("createdRecords"));
+        assertEquals(Arrays.asList("农网", "城网"), areas());
+    }
+
+    @Test
+    public void deletesAreasWithSingleStatement() {
+        DeleteAreasRequestDto request = new DeleteAreasRequestDto();
+        request.setCigCode("42010101");
+        request.setCigName("测试卷烟");
+        request.setYear(2025);
+        request.setMonth(9);
+        request.setWeekSeq(3);
+        request.setAreasToDelete(Arrays.asList("丹江", "郧西", "丹江", "竹山"));
+
+        Map<String, Object> result = service.deleteDeliveryAreas(request);
+
+        assertEquals(true, result.get("success"));
+        assertEquals(2, result.get("deletedCount"));
+        assertEquals(1, result.get("refreshedCodes"));
+        assertEquals(Collections.singletonList("城区"), areas());
+        assertEquals("B1（1）（1×1+29×0）", deployinfoCode("城区"));
+    }
+
+    @Test
+    public void answersTableExistenceFromCatalog() {
+        assertTrue(schemaCatalog.tableExists(PREDICTION_TABLE));
+        assertFalse(schemaCatalog.tableExists("cigarette_distribution_prediction_2025_9_4"));
+
+        // 其他实例建表：已确认不存在的表在重新加载前不再查询数据库
+        jdbcTemplate.execute("CREATE TABLE `cigarette_distribution_prediction_2025_9_4` (id INT)");
+        assertFalse(schemaCatalog.tableExists("cigarette_distribution_prediction_2025_9_4"));
+        assertTrue(schemaCatalog.recheckTableExists("cigarette_distribution_prediction_2025_9_4"));
+        jdbcTemplate.execute("DROP TABLE `cigarette_distribution_prediction_2025_9_4`");
+        schemaCatalog.markDropped("cigarette_distribution_prediction_2025_9_4");
+        assertFalse(schemaCatalog.tableExists("cigarette_distribution_prediction_2025_9_4"));
+
+        jdbcTemplate.execute("CREATE TABLE `cigarette_distribution_prediction_2025_9_4` (id INT)");
+        schemaCatalog.refresh();
+        assertTrue(schemaCatalog.tableExists("cigarette_distribution_prediction_2025_9_4"));
+        jdbcTemplate.execute("DROP TABLE `cigarette_distribution_prediction_2025_9_4`");
+        schemaCatalog.markDropped("cigarette_distribution_prediction_2025_9_4");
+    }
+
+    @Test
+    public void markCreatedClearsCachedMissingTable() {
+        String table = "cigarette_distribution_prediction_2025_9_5";
+        assertFalse(schemaCatalog.tableExists(table));
+
+        jdbcTemplate.execute("CREATE TABLE `" + table + "` (id INT)");
+        schemaCatalog.markCreated(table);
+        assertTrue(schemaCatalog.tableExists(table));
+        jdbcTemplate.execute("DROP TABLE `" + table + "`");
+        schemaCatalog.markDropped(table);
+        assertFalse(schemaCatalog.tableExists(table));
+    }
+
+    private void insertArea(String area) {
+        jdbcTemplate.update("INSERT INTO `" + PREDICTION_TABLE + "` (CIG_CODE, CIG_NAME, YEAR, MONTH, WEEK_SEQ, DELIVERY_AREA, "
+                + "DELIVERY_METHOD, DELIVERY_ETYPE, D30) VALUES ('42010101', '测试卷烟', 2025, 9, 3, ?, '按档位扩展投放', '档位+区县', 1)", area);
+    }
+
+    private String deployinfoCode(String area) {
+        return jdbcTemplate.queryForObject("SELECT DEPLOYINFO_CODE FROM `" + PREDICTION_TABLE + "` WHERE DELIVERY_AREA = ?",
+                String.class, area);
+    }
+
+    private List<String> areas() {
+        return jdbcTemplate.queryForList("SELECT DELIVERY_AREA FROM `" + PREDICTION_TABLE + "` ORDER BY DELIVERY_AREA", String.class);
+    }
+}
@@ -0,0 +1,145 @@
+package org.example.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.service.impl.DistributionJobServiceImpl;
+import org.example.util.CigaretteDistributionSqlBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntPredicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 分布式分配任务服务测试（H2内存库，MySQL兼容模式）
+ *
+ * 验证轮询实例将超时任务标记为失败、每种卷烟写回前续租，以及租约被其他实例重新领取后本实例不再写回。
+ * H2不支持 FOR UPDATE SKIP LOCKED，这里走按状态条件更新的领取路径；SKIP LOCKED路径见DistributionJobSkipLockedMySqlTest
+ */
+public class DistributionJobServiceTest {
+
+    private static final String H2_URL = "jdbc:h2:mem:distribution_job_test;MODE=MySQL;DATABASE_TO_LOWER=TRUE;"
+            + "CASE_INSENSITIVE_IDENTIFIERS=TRUE;NON_KEYWORDS=YEAR,MONTH,VALUE;DB_CLOSE_DELAY=-1";
+
+    private JdbcTemplate jdbcTemplate;
+    private DistributionCalculateService calculateService;
+
+    @BeforeEach
+    public void setUp() {
+        DataSource dataSource = new DriverManagerDataSource(H2_URL, "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute(CigaretteDistributionSqlBuilder.buildCreateJobTableSql());
+        jdbcTemplate.execute(CigaretteDistributionSqlBuilder.buildCreateJobItemTableSql());
+        jdbcTemplate.execute("DELETE FROM `distribution_job_item`");
+        jdbcTemplate.execute("DELETE FROM `distribution_job`");
+        calculateService = mock(DistributionCalculateService.class);
+    }
+
+    @Test
+    public void pollingMarksTimedOutJobsFailed() {
+        long expiredJob = insertJob(jdbcTemplate, System.currentTimeMillis() - 60_000, 2);
+        long runningJob = insertJob(jdbcTemplate, System.currentTimeMillis(), 0);
+        DistributionJobServiceImpl service = newService(jdbcTemplate, calculateService, "worker-a", 30_000);
+
+        assertEquals(0, service.workOnRunningJobs());
+
+        assertEquals("FAILED", jobStatus(jdbcTemplate, expiredJob));
+        assertEquals("RUNNING", jobStatus(jdbcTemplate, runningJob));
+        verify(calculateService, never()).allocateCigarettes(anyInt(), anyInt(), anyInt(), anyList(), any(), any(IntPredicate.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void skipsCigarettesWhoseLeaseWasTakenOver() {
+        long jobId = insertJob(jdbcTemplate, System.currentTimeMillis(), 2);
+        DistributionJobServiceImpl service = newService(jdbcTemplate, calculateService, "worker-a", 30_000);
+        List<Integer> written = new ArrayList<>();
+        when(calculateService.allocateCigarettes(anyInt(), anyInt(), anyInt(), anyList(), any(), any(IntPredicate.class)))
+                .thenAnswer(invocation -> {
+                    List<String[]> cigarettes = invocation.getArgument(3);
+                    IntPredicate beforeCigarette = invocation.getArgument(5);
+                    // 第一种卷烟处理期间，另一实例在租约过期后重新领取了第二种卷烟
+                    jdbcTemplate.update("UPDATE `distribution_job_item` SET WORKER_ID = 'worker-b' WHERE JOB_ID = ? AND CIG_CODE = 'C1'", jobId);
+                    List<Map<String, Object>> results = new ArrayList<>();
+                    for (int i = 0; i < cigarettes.size(); i++) {
+                        if (beforeCigarette.test(i)) {
+                            written.add(i);
+                        }
+                        results.add(cigResult(cigarettes.get(i)));
+                    }
+                    return results;
+                });
+
+        assertEquals(2, service.workOnRunningJobs());
+
+        assertEquals(1, written.size(), "租约已被重新领取的卷烟不应写回");
+        assertEquals("DONE", itemStatus(jdbcTemplate, jobId, "C0"));
+        assertEquals("CLAIMED", itemStatus(jdbcTemplate, jobId, "C1"), "其他实例领取的任务项应保持由其完成");
+    }
+
+    // ==================== 辅助方法（DistributionJobSkipLockedMySqlTest共用） ====================
+
+    static DistributionJobServiceImpl newService(JdbcTemplate jdbcTemplate, DistributionCalculateService calculateService,
+                                                 String workerId, long timeoutMs) {
+        DistributionJobServiceImpl service = new DistributionJobServiceImpl();
+        ReflectionTestUtils.setField(service, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(service, "transactionTemplate",
+                new TransactionTemplate(new DataSourceTransactionManager(jdbcTemplate.getDataSource())));
+        ReflectionTestUtils.setField(service, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(service, "distributionService", calculateService);
+        ReflectionTestUtils.setField(service, "batchSize", 2);
+        ReflectionTestUtils.setField(service, "leaseMs", 300_000L);
+        ReflectionTestUtils.setField(service, "timeoutMs", timeoutMs);
+        ReflectionTestUtils.setField(service, "workerId", workerId);
+        return service;
+    }
+
+    /**
+     * 创建进行中的任务及itemCount个待领取任务项（卷烟代码依次为C0、C1...）
+     */
+    static long insertJob(JdbcTemplate jdbcTemplate, long createdAt, int itemCount) {
+        jdbcTemplate.update(CigaretteDistributionSqlBuilder.buildInsertJobSql(),
+                2099, 1, 1, null, null, "RUNNING", "coordinator", itemCount, createdAt);
+        long jobId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM `distribution_job`", Long.class);
+        for (int i = 0; i < itemCount; i++) {
+            jdbcTemplate.update(CigaretteDistributionSqlBuilder.buildInsertJobItemSql(), jobId, "C" + i, "卷烟" + i);
+        }
+        return jobId;
+    }
+
+    static Map<String, Object> cigResult(String[] cigarette) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("cigCode", cigarette[0]);
+        result.put("cigName", cigarette[1]);
+        result.put("writeBackStatus", "成功");
+        result.put("actualDelivery", BigDecimal.TEN);
+        return result;
+    }
+
+    private static String jobStatus(JdbcTemplate jdbcTemplate, long jobId) {
+        return jdbcTemplate.queryForObject("SELECT STATUS FROM `distribution_job` WHERE id = ?", String.class, jobId);
+    }
+
+    private static String itemStatus(JdbcTemplate jdbcTemplate, long jobId, String cigCode) {
+        return jdbcTemplate.queryForObject("SELECT STATUS FROM `distribution_job_item` WHERE JOB_ID = ? AND CIG_CODE = ?",
+                String.class, jobId, cigCode);
+    }
+}
@@ -0,0 +1,92 @@
+package org.example.service;
+
+import org.example.service.impl.DistributionJobServiceImpl;
+import org.example.util.CigaretteDistributionSqlBuilder;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntPredicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 分布式任务项 FOR UPDATE SKIP LOCKED 领取测试（需要MySQL 8）
+ *
+ * 【核心功能】
+ * 两个服务实例并发领取同一任务的任务项，验证领取走SKIP LOCKED路径、每个任务项只被领取一次且全部完成。
+ * H2不支持SKIP LOCKED（DistributionJobServiceTest覆盖按状态条件更新的回退路径），因此该测试连接真实MySQL
+ *
+ * 【运行方式】
+ * 默认不执行，需指定一个可建表的MySQL 8库：
+ * mvn test -Dtest=DistributionJobSkipLockedMySqlTest -Dmysql.test.url=jdbc:mysql://localhost:3306/marketing_test
+ *     -Dmysql.test.username=root -Dmysql.test.password=...
+ *
+ * @author Robin
+ * @version 1.0
+ * @since 2025-10-20
+ */
+@EnabledIfSystemProperty(named = "mysql.test.url", matches = ".+")
+public class DistributionJobSkipLockedMySqlTest {
+
+    private static final int ITEM_COUNT = 40;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void twoInstancesClaimDisjointItemsWithSkipLocked() throws Exception {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(System.getProperty("mysql.test.url"),
+                System.getProperty("mysql.test.username", "root"), System.getProperty("mysql.test.password", "")));
+        jdbcTemplate.execute(CigaretteDistributionSqlBuilder.buildCreateJobTableSql());
+        jdbcTemplate.execute(CigaretteDistributionSqlBuilder.buildCreateJobItemTableSql());
+        long jobId = DistributionJobServiceTest.insertJob(jdbcTemplate, System.currentTimeMillis(), ITEM_COUNT);
+
+        DistributionCalculateService calculateService = mock(DistributionCalculateService.class);
+        when(calculateService.allocateCigarettes(anyInt(), anyInt(), anyInt(), anyList(), any(), any(IntPredicate.class)))
+                .thenAnswer(invocation -> {
+                    List<String[]> cigarettes = invocation.getArgument(3);
+                    IntPredicate beforeCigarette = invocation.getArgument(5);
+                    List<Map<String, Object>> results = new ArrayList<>();
+                    for (int i = 0; i < cigarettes.size(); i++) {
+                        beforeCigarette.test(i);
+                        Thread.sleep(5);
+                        results.add(DistributionJobServiceTest.cigResult(cigarettes.get(i)));
+                    }
+                    return results;
+                });
+        DistributionJobServiceImpl instanceA = DistributionJobServiceTest.newService(jdbcTemplate, calculateService, "instance-a", 600_000);
+        DistributionJobServiceImpl instanceB = DistributionJobServiceTest.newService(jdbcTemplate, calculateService, "instance-b", 600_000);
+
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<Integer> a = pool.submit((Callable<Integer>) instanceA::workOnRunningJobs);
+            Future<Integer> b = pool.submit((Callable<Integer>) instanceB::workOnRunningJobs);
+            assertEquals(ITEM_COUNT, a.get() + b.get(), "两个实例处理的任务项总数应等于任务项数");
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(Boolean.TRUE, ReflectionTestUtils.getField(instanceA, "skipLockedSupported"), "MySQL 8应走SKIP LOCKED领取路径");
+        assertEquals(Boolean.TRUE, ReflectionTestUtils.getField(instanceB, "skipLockedSupported"), "MySQL 8应走SKIP LOCKED领取路径");
+        Integer unfinishedOrRepeated = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM `distribution_job_item` WHERE JOB_ID = ? AND (STATUS <> 'DONE' OR ATTEMPTS <> 1)",
+                Integer.class, jobId);
+        assertEquals(0, unfinishedOrRepeated, "任务项应全部完成且只被领取一次");
+
+        jdbcTemplate.update("DELETE FROM `distribution_job_item` WHERE JOB_ID = ?", jobId);
+        jdbcTemplate.update("DELETE FROM `distribution_job` WHERE id = ?", jobId);
+    }
+}
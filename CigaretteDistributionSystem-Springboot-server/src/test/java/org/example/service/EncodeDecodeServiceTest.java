@@ -0,0 +1,228 @@
+package org.example.service;
+
+import org.example.entity.CigaretteDistributionPredictionData;
+import org.example.service.impl.EncodeDecodeServiceImpl;
+import org.example.util.EncodedExpressionCache;
+import org.example.util.GradeMatrixUtils;
+import org.example.util.RegionCodeTable;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 编码表达式编码、解码与结构化解析测试
+ *
+ * 验证分组编码结果及顺序、解码文本、解析出的投放类型/区域/档位以及格式错误信息
+ */
+public class EncodeDecodeServiceTest {
+
+    private final EncodeDecodeService service = new EncodeDecodeServiceImpl();
+
+    @Test
+    public void encodesGroupsOrderedByRegionCode() {
+        List<CigaretteDistributionPredictionData> records = Arrays.asList(
+                record("房县", "2"),
+                record("郧西", "5", "5", "3"),
+                record("城区", "5.0", "5", "3.2"),
+                record("未知区域", "1"));
+
+        List<String> expressions = service.encode("42010101", "测试卷烟", "按档位扩展投放", "档位+区县", records);
+
+        assertEquals(Arrays.asList("B1（1+4）（2×5+1×3+27×0）", "B1（3）（1×2+29×0）", "B1（1×1+29×0）"), expressions);
+        assertEquals("B1（1+4）（2×5+1×3+27×0）", service.encodeForSpecificArea(
+                "42010101", "测试卷烟", "按档位扩展投放", "档位+区县", "郧西", records));
+        assertEquals("", service.encodeForSpecificArea(
+                "42010101", "测试卷烟", "按档位扩展投放", "档位+区县", "竹山", records));
+        Map<String, String> byArea = service.encodeByArea("42010101", "测试卷烟", "按档位扩展投放", "档位+区县", records);
+        assertEquals(Arrays.asList("房县", "郧西", "城区", "未知区域"), new ArrayList<>(byArea.keySet()));
+        for (CigaretteDistributionPredictionData record : records) {
+            assertEquals(service.encodeForSpecificArea("42010101", "测试卷烟", "按档位扩展投放", "档位+区县",
+                    record.getDeliveryArea(), records), byArea.get(record.getDeliveryArea()));
+        }
+        assertEquals(Collections.singletonList("A（30×3）"),
+                service.encode("42010101", "测试卷烟", "按档位统一投放", null,
+                        Collections.singletonList(record("全市", "3", "3", "3", "3", "3", "3", "3", "3", "3", "3",
+                                "3", "3", "3", "3", "3", "3", "3", "3", "3", "3",
+                                "3", "3", "3", "3", "3", "3", "3", "3", "3", "3"))));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void cachesGradeSequencesParsedAndDecodedExpressions() {
+        EncodeDecodeServiceImpl cached = new EncodeDecodeServiceImpl();
+        ReflectionTestUtils.setField(cached, "expressionCache", new EncodedExpressionCache());
+
+        List<String> first = cached.encode("42010101", "卷烟A", "按档位扩展投放", "档位+区县",
+                Arrays.asList(record("房县", "5", "5"), record("郧西", "3")));
+        List<String> second = cached.encode("42010102", "卷烟B", "按档位扩展投放", "档位+区县",
+                Collections.singletonList(record("竹山", "5", "5")));
+        assertEquals("B1（3）（2×5+28×0）", first.get(0));
+        assertEquals("B1（6）（2×5+28×0）", second.get(0));
+
+        EncodeDecodeService.ParsedExpressionData parsed = cached.parseEncodedExpression(first.get(0));
+        parsed.getGradeAllocations()[0] = BigDecimal.TEN; // 调用方修改不影响缓存
+        EncodeDecodeService.ParsedExpressionData again = cached.parseEncodedExpression(first.get(0));
+        assertNotSame(parsed.getGradeAllocations(), again.getGradeAllocations());
+        assertEquals(0, new BigDecimal("5").compareTo(again.getGradeAllocations()[0]));
+
+        String decoded = cached.decode(first.get(0));
+        assertSame(decoded, cached.decode(first.get(0)));
+
+        Map<String, Object> stats = cached.getCacheStats();
+        assertEquals(1L, ((Map<String, Object>) stats.get("gradeSequences")).get("hits"));
+        assertEquals(2L, ((Map<String, Object>) stats.get("gradeSequences")).get("misses"));
+        assertEquals(2L, ((Map<String, Object>) stats.get("parsed")).get("hits")); // 第二次解析及解码时的解析
+        assertEquals(1L, ((Map<String, Object>) stats.get("decoded")).get("hits"));
+    }
+
+    @Test
+    public void usesRegionCodesFromDictionary() {
+        List<String[]> rows = RegionCodeTable.defaultRows();
+        rows.add(new String[]{"档位+区县", "茅箭", "8"});
+        RegionCodeService regionCodeService = mock(RegionCodeService.class);
+        when(regionCodeService.getRegionCodeTables()).thenReturn(RegionCodeTable.compile(rows));
+        EncodeDecodeServiceImpl dictionaryBacked = new EncodeDecodeServiceImpl();
+        ReflectionTestUtils.setField(dictionaryBacked, "regionCodeService", regionCodeService);
+
+        assertEquals(Collections.singletonList("B1（3+8）（30×2）"), dictionaryBacked.encode("42010101", "测试卷烟",
+                "按档位扩展投放", "档位+区县", Arrays.asList(record("茅箭", grades30("2")), record("房县", grades30("2")))));
+        assertEquals(Arrays.asList("房县", "茅箭"),
+                dictionaryBacked.parseEncodedExpression("B1（3+8）（30×2）").getDeliveryAreas());
+        assertEquals("按档位扩展投放、档位+区县、房县茅箭、（30×2）", dictionaryBacked.decode("B1（3+8）（30×2）"));
+        assertParseError("B1（3+8）（30×2）", "无法解码区域编码: 8"); // 默认编码中没有8
+    }
+
+    @Test
+    public void parsesExtendedExpression() {
+        EncodeDecodeService.ParsedExpressionData parsed = service.parseEncodedExpression(" B1（3+4）（2×5+1×3+27×0） ");
+
+        assertEquals("按档位扩展投放", parsed.getDeliveryMethod());
+        assertEquals("档位+区县", parsed.getDeliveryEtype());
+        assertEquals(Arrays.asList("房县", "郧西"), parsed.getDeliveryAreas());
+        assertArrayEquals(grades("5", "5", "3"), parsed.getGradeAllocations());
+    }
+
+    @Test
+    public void parsesUniformAndDecimalExpressions() {
+        EncodeDecodeService.ParsedExpressionData uniform = service.parseEncodedExpression("A（2×12.5+28×0）");
+        assertEquals("NULL", uniform.getDeliveryEtype());
+        assertEquals(Collections.singletonList("全市"), uniform.getDeliveryAreas());
+        assertArrayEquals(grades("12.5", "12.5"), uniform.getGradeAllocations());
+
+        EncodeDecodeService.ParsedExpressionData market = service.parseEncodedExpression("B2（C+N）（1×7+29×0）");
+        assertEquals(Arrays.asList("城网", "农网"), market.getDeliveryAreas());
+        assertEquals(0, new BigDecimal("7").compareTo(market.getGradeAllocations()[0]));
+
+        EncodeDecodeService.ParsedExpressionData urbanRural = service.parseEncodedExpression("B4（①+⑦）（30×1）");
+        assertEquals(Arrays.asList("主城区", "村庄"), urbanRural.getDeliveryAreas());
+    }
+
+    @Test
+    public void decodesExpressions() {
+        assertEquals("按档位扩展投放、档位+区县、房县郧西、（2×5+1×3+27×0）", service.decode("B1（3+4）（2×5+1×3+27×0）"));
+        assertEquals("按档位扩展投放、档位+区县、房县9、（30×1）", service.decode("B1（3+9）（30×1）"));
+        assertEquals("按档位扩展投放、档位+区县+市场类型、X+Y、（30×1）", service.decode("B3（X+Y）（30×1）"));
+        assertEquals("按档位投放、2×5+28×0", service.decode("A（2×5+28×0）"));
+        assertEquals("解码失败：未知的投放方法代码", service.decode("Z（1）"));
+        assertEquals("解码失败：未知的扩展投放类型代码", service.decode("B9（1）（30×1）"));
+        assertEquals("", service.decode("  "));
+    }
+
+    @Test
+    public void reportsMalformedExpressions() {
+        assertParseError("B1（3+9）（30×1）", "无法解码区域编码: 9");
+        assertParseError("B1（3+4", "缺少区域编码结束括号");
+        assertParseError("B1（3+4）", "找不到档位分配信息");
+        assertParseError("B1（3）（2×5+28）", "档位分配编码格式错误: 28");
+        assertParseError("B1（3）（2×x+28×0）", "档位分配编码数值格式错误: 2×x");
+        assertParseError("Z（1）", "无法解析投放方法代码: Z");
+        assertParseError("B9（1）（30×1）", "无法解析扩展投放类型代码: 9");
+    }
+
+    private void assertParseError(String expression, String expectedMessage) {
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class,
+                () -> service.parseEncodedExpression(expression));
+        assertTrue(error.getMessage().contains(expectedMessage), error.getMessage());
+    }
+
+    @Test
+    public void validatesStoredCodesAgainstRecords() {
+        String code = "B1（1+4）（2×5+1×3+27×0）";
+        CigaretteDistributionPredictionData record = stored(record("郧西", "5", "5", "3"), code);
+        List<CigaretteDistributionPredictionData> cigarette = Arrays.asList(record,
+                stored(record("城区", "5", "5", "3"), code), stored(record("房县", "2"), "B1（3）（1×2+29×0）"));
+        assertTrue(service.isStoredCodeCurrent(record, cigarette));
+
+        assertFalse(service.isStoredCodeCurrent(stored(record("郧西", "5", "5", "3"), null), cigarette));
+        assertFalse(service.isStoredCodeCurrent(stored(record("郧西", "2"), code), cigarette));
+        assertFalse(service.isStoredCodeCurrent(stored(record("房县", "5", "5", "3"), code), cigarette));
+        assertFalse(service.isStoredCodeCurrent(stored(record("郧西", "5", "5", "3"), "B1（1+4"), cigarette));
+        assertFalse(service.isStoredCodeCurrent(stored(record("郧西", "5", "5", "3"), code + "; B1（3）（1×2+29×0）"), cigarette));
+        CigaretteDistributionPredictionData otherType = stored(record("郧西", "5", "5", "3"), code);
+        otherType.setDeliveryEtype("档位+市场类型");
+        assertFalse(service.isStoredCodeCurrent(otherType, cigarette));
+
+        CigaretteDistributionPredictionData uniform = record("全市", grades30("3"));
+        uniform.setDeliveryMethod("按档位统一投放");
+        uniform.setDeployinfoCode("A（30×3）");
+        assertTrue(service.isStoredCodeCurrent(uniform, Collections.singletonList(uniform)));
+    }
+
+    @Test
+    public void rejectsStoredCodesWhoseRegionGroupIsStale() {
+        // 旧版单区域编码：城区与郧西档位相同，但只编码了郧西
+        CigaretteDistributionPredictionData singleArea = stored(record("郧西", "5", "5", "3"), "B1（4）（2×5+1×3+27×0）");
+        assertFalse(service.isStoredCodeCurrent(singleArea,
+                Arrays.asList(singleArea, stored(record("城区", "5", "5", "3"), "B1（1）（2×5+1×3+27×0）"))));
+
+        // 早先编辑遗留的同组列表：城区档位已改，郧西仍存储包含城区的编码
+        CigaretteDistributionPredictionData staleSibling = stored(record("郧西", "5", "5", "3"), "B1（1+4）（2×5+1×3+27×0）");
+        assertFalse(service.isStoredCodeCurrent(staleSibling,
+                Arrays.asList(staleSibling, stored(record("城区", "2"), "B1（1）（1×2+29×0）"))));
+    }
+
+    private static CigaretteDistributionPredictionData stored(CigaretteDistributionPredictionData record, String code) {
+        record.setDeliveryMethod("按档位扩展投放");
+        record.setDeliveryEtype("档位+区县");
+        record.setDeployinfoCode(code);
+        return record;
+    }
+
+    private static CigaretteDistributionPredictionData record(String area, String... leadingGrades) {
+        CigaretteDistributionPredictionData record = new CigaretteDistributionPredictionData();
+        record.setDeliveryArea(area);
+        GradeMatrixUtils.setGradesToEntity(record, grades(leadingGrades));
+        return record;
+    }
+
+    private static String[] grades30(String value) {
+        String[] grades = new String[30];
+        Arrays.fill(grades, value);
+        return grades;
+    }
+
+    private static BigDecimal[] grades(String... leading) {
+        BigDecimal[] grades = new BigDecimal[30];
+        Arrays.fill(grades, BigDecimal.ZERO);
+        for (int i = 0; i < leading.length; i++) {
+            grades[i] = new BigDecimal(leading[i]);
+        }
+        return grades;
+    }
+}
@@ -0,0 +1,186 @@
+package org.example.service;
+
+import org.example.entity.RegionClientNumData;
+import org.example.service.algorithm.MarketProportionalCigaretteDistributionAlgorithm;
+import org.example.service.impl.MarketRatioSweepServiceImpl;
+import org.example.service.strategy.AllocationPolicyProperties;
+import org.example.service.strategy.DistributionStrategy;
+import org.example.service.strategy.DistributionStrategyManager;
+import org.example.service.strategy.MarketDistributionStrategy;
+import org.example.util.KmpMatcher;
+import org.example.util.SchemaCatalog;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 市场类型比例扫描测试
+ *
+ * 使用真实的市场类型策略和算法（客户数由模拟的CommonService提供），验证：
+ * - 比例端点（城网比例0和1）下同时投放城网和农网的卷烟不会使整个扫描失败
+ * - 某个比例点计算失败时只标记该点，不参与最优点选择
+ * - 目标区域和预投放量相同的卷烟合并为一个问题，每个比例点只计算一次
+ */
+public class MarketRatioSweepServiceTest {
+
+    private static final String CLIENT_TABLE = "region_clientNum_2_1";
+    private static final List<String> MARKETS = Arrays.asList("城网", "农网");
+
+    private JdbcTemplate jdbcTemplate;
+    private DistributionStrategy strategy;
+    private MarketRatioSweepServiceImpl service;
+
+    @BeforeEach
+    public void setUp() {
+        CommonService commonService = mock(CommonService.class);
+        when(commonService.getAllRegionList("按档位扩展投放", "档位+市场类型")).thenReturn(MARKETS);
+        List<BigDecimal[]> rows = new ArrayList<>();
+        rows.add(counts(40));
+        rows.add(counts(60));
+        when(commonService.buildRegionCustomerMatrix("按档位扩展投放", "档位+市场类型"))
+                .thenReturn(new CommonService.RegionCustomerMatrix(MARKETS, rows));
+        MarketDistributionStrategy marketStrategy = new MarketDistributionStrategy();
+        ReflectionTestUtils.setField(marketStrategy, "commonService", commonService);
+        ReflectionTestUtils.setField(marketStrategy, "distributionAlgorithm", new MarketProportionalCigaretteDistributionAlgorithm());
+        ReflectionTestUtils.setField(marketStrategy, "kmpMatcher", new KmpMatcher());
+        strategy = spy(marketStrategy);
+
+        DistributionStrategyManager strategyManager = mock(DistributionStrategyManager.class);
+        when(strategyManager.getStrategy("按档位扩展投放", "档位+市场类型")).thenReturn(strategy);
+        RegionClientNumDataService regionClientNumDataService = mock(RegionClientNumDataService.class);
+        when(regionClientNumDataService.findByTableNameAndRegion(CLIENT_TABLE, "城网")).thenReturn(clientRows(40));
+        when(regionClientNumDataService.findByTableNameAndRegion(CLIENT_TABLE, "农网")).thenReturn(clientRows(60));
+        SchemaCatalog schemaCatalog = mock(SchemaCatalog.class);
+        when(schemaCatalog.tableExists(anyString())).thenReturn(true);
+        jdbcTemplate = mock(JdbcTemplate.class);
+
+        service = new MarketRatioSweepServiceImpl();
+        ReflectionTestUtils.setField(service, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(service, "strategyManager", strategyManager);
+        ReflectionTestUtils.setField(service, "regionClientNumDataService", regionClientNumDataService);
+        ReflectionTestUtils.setField(service, "allocationPolicyProperties", new AllocationPolicyProperties());
+        ReflectionTestUtils.setField(service, "schemaCatalog", schemaCatalog);
+        ReflectionTestUtils.setField(service, "parallelism", 2);
+        service.init();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void endpointsDoNotFailMixedUrbanRuralSweep() {
+        when(jdbcTemplate.queryForList(anyString())).thenReturn(Arrays.asList(
+                advRow("C1", "城网+农网", "3000"),
+                advRow("C2", "城网", "1000")));
+
+        Map<String, Object> result = service.sweepMarketRatios(2099, 1, 1, BigDecimal.ZERO, BigDecimal.ONE, new BigDecimal("0.5"));
+
+        assertEquals(Boolean.TRUE, result.get("success"), "端点比例不应使扫描失败: " + result.get("message"));
+        List<Map<String, Object>> points = (List<Map<String, Object>>) result.get("points");
+        assertEquals(3, points.size());
+        // 城网比例为0时C1全部投放到农网，城网投放量只来自仅投城网的C2
+        Map<String, Object> allRural = points.get(0);
+        assertEquals(0, BigDecimal.ZERO.compareTo((BigDecimal) allRural.get("urbanRatio")));
+        assertTrue(((BigDecimal) allRural.get("urbanActualDelivery")).compareTo(new BigDecimal("1000")) <= 0);
+        assertTrue(((BigDecimal) allRural.get("ruralActualDelivery")).signum() > 0);
+        Map<String, Object> allUrban = points.get(2);
+        assertEquals(0, BigDecimal.ZERO.compareTo((BigDecimal) allUrban.get("ruralActualDelivery")));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void failedEndpointIsReportedWithoutFailingSweep() {
+        when(jdbcTemplate.queryForList(anyString())).thenReturn(Collections.singletonList(advRow("C1", "城网+农网", "3000")));
+        doThrow(new RuntimeException("城网目标为0")).when(strategy)
+                .calculateMatrix(MARKETS, new BigDecimal("3000"), ratioParams("0"));
+
+        Map<String, Object> result = service.sweepMarketRatios(2099, 1, 1, BigDecimal.ZERO, BigDecimal.ONE, new BigDecimal("0.5"));
+
+        assertEquals(Boolean.TRUE, result.get("success"), String.valueOf(result.get("message")));
+        assertEquals(1, result.get("failedPoints"));
+        List<Map<String, Object>> points = (List<Map<String, Object>>) result.get("points");
+        assertEquals(3, points.size());
+        assertTrue(String.valueOf(points.get(0).get("error")).contains("城网目标为0"));
+        assertNull(points.get(1).get("error"));
+        Map<String, Object> bestPoint = (Map<String, Object>) result.get("bestPoint");
+        assertNotEquals(0, BigDecimal.ZERO.compareTo((BigDecimal) bestPoint.get("urbanRatio")), "失败的比例点不应被选为最优点");
+    }
+
+    @Test
+    public void groupsCigarettesByTargetsAndAdv() {
+        when(jdbcTemplate.queryForList(anyString())).thenReturn(Arrays.asList(
+                advRow("C1", "城网+农网", "3000"),
+                advRow("C2", "城网+农网", "3000.00"),
+                advRow("C3", "城网+农网", "2000"),
+                advRow("C4", "城网", "3000")));
+
+        Map<String, Object> result = service.sweepMarketRatios(2099, 1, 1, new BigDecimal("0.2"), new BigDecimal("0.6"), new BigDecimal("0.2"));
+
+        assertEquals(Boolean.TRUE, result.get("success"), String.valueOf(result.get("message")));
+        assertEquals(4, result.get("cigaretteCount"));
+        assertEquals(3, result.get("ratioSensitiveCount"));
+        assertEquals(3, result.get("uniqueProblems"), "C1与C2的目标区域和预投放量相同，应合并为一个问题");
+        // 两个随比例变化的问题 × 3个比例点，加上仅投城网的问题计算一次
+        verify(strategy, times(7)).calculateMatrix(anyList(), any(BigDecimal.class), any());
+        verify(strategy, atLeastOnce()).calculateMatrix(MARKETS, new BigDecimal("2000"), ratioParams("0.4"));
+    }
+
+    // ==================== 辅助方法 ====================
+
+    private static Map<String, Object> advRow(String cigCode, String deliveryArea, String adv) {
+        Map<String, Object> row = new HashMap<>();
+        row.put("cig_code", cigCode);
+        row.put("cig_name", "卷烟" + cigCode);
+        row.put("delivery_etype", "档位+市场类型");
+        row.put("delivery_area", deliveryArea);
+        row.put("adv", new BigDecimal(adv));
+        return row;
+    }
+
+    private static Map<String, Object> ratioParams(String urbanRatio) {
+        Map<String, Object> params = new HashMap<>();
+        params.put("urbanRatio", new BigDecimal(urbanRatio));
+        params.put("ruralRatio", BigDecimal.ONE.subtract(new BigDecimal(urbanRatio)));
+        return params;
+    }
+
+    private static BigDecimal[] counts(int value) {
+        BigDecimal[] counts = new BigDecimal[30];
+        Arrays.fill(counts, BigDecimal.valueOf(value));
+        return counts;
+    }
+
+    private static List<RegionClientNumData> clientRows(int value) {
+        RegionClientNumData data = new RegionClientNumData();
+        data.setGradeArray(counts(value));
+        return Collections.singletonList(data);
+    }
+}
@@ -0,0 +1,96 @@
+package org.example.service;
+
+import org.example.service.impl.PredictionStorageServiceImpl;
+import org.example.util.SchemaCatalog;
+import org.example.util.TableNameGeneratorUtil;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 预测数据存储布局测试
+ *
+ * 验证周表名解析，以及统一分区表布局下建周分区/视图、删除周分区的语句顺序（先删分区，失败时保留周视图）（分区语句仅MySQL支持，使用模拟JdbcTemplate）
+ */
+public class PredictionStorageServiceTest {
+
+    private static final String BASE_TABLE = "cigarette_distribution_prediction";
+
+    @Test
+    public void parsesWeeklyPredictionTableNames() {
+        assertArrayEquals(new int[]{2025, 9, 3},
+                TableNameGeneratorUtil.parsePredictionTableName("cigarette_distribution_prediction_2025_9_3"));
+        assertNull(TableNameGeneratorUtil.parsePredictionTableName("cigarette_distribution_prediction_2025_9_3_bak"));
+        assertNull(TableNameGeneratorUtil.parsePredictionTableName("cigarette_distribution_prediction_2025_13_3"));
+        assertNull(TableNameGeneratorUtil.parsePredictionTableName("cigarette_distribution_info_2025_9_3"));
+    }
+
+    @Test
+    public void createsPartitionAndWeekViewInPartitionedLayout() {
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        when(jdbcTemplate.queryForObject(anyString(), eq(Integer.class), eq(BASE_TABLE), eq("p2025_9_3"))).thenReturn(0);
+        PredictionStorageService service = service(jdbcTemplate, "partitioned");
+
+        service.createWeekStorage(2025, 9, 3);
+
+        InOrder order = inOrder(jdbcTemplate);
+        order.verify(jdbcTemplate).execute(contains("PARTITION BY LIST COLUMNS"));
+        order.verify(jdbcTemplate).execute("ALTER TABLE `" + BASE_TABLE + "` ADD PARTITION (PARTITION `p2025_9_3` VALUES IN ((2025, 9, 3)))");
+        order.verify(jdbcTemplate).execute(startsWith("CREATE VIEW `cigarette_distribution_prediction_2025_9_3` AS SELECT * FROM `"
+                + BASE_TABLE + "` WHERE `YEAR` = 2025 AND `MONTH` = 9 AND `WEEK_SEQ` = 3"));
+    }
+
+    @Test
+    public void dropsWeekPartitionOnlyWhenPartitioned() {
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        when(jdbcTemplate.queryForObject(anyString(), eq(Integer.class), eq(BASE_TABLE), eq("p2025_9_3"))).thenReturn(1);
+
+        assertFalse(service(jdbcTemplate, "weekly").dropWeekPartition(2025, 9, 3));
+        verify(jdbcTemplate, never()).execute(anyString());
+
+        assertTrue(service(jdbcTemplate, "partitioned").dropWeekPartition(2025, 9, 3));
+        InOrder order = inOrder(jdbcTemplate);
+        order.verify(jdbcTemplate).execute("ALTER TABLE `" + BASE_TABLE + "` DROP PARTITION `p2025_9_3`");
+        order.verify(jdbcTemplate).execute("DROP VIEW IF EXISTS `cigarette_distribution_prediction_2025_9_3`");
+    }
+
+    @Test
+    public void keepsWeekViewWhenPartitionDropFails() {
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        when(jdbcTemplate.queryForObject(anyString(), eq(Integer.class), eq(BASE_TABLE), eq("p2025_9_3"))).thenReturn(1);
+        doThrow(new DataAccessResourceFailureException("lock wait timeout"))
+                .when(jdbcTemplate).execute("ALTER TABLE `" + BASE_TABLE + "` DROP PARTITION `p2025_9_3`");
+
+        assertThrows(DataAccessResourceFailureException.class,
+                () -> service(jdbcTemplate, "partitioned").dropWeekPartition(2025, 9, 3));
+        verify(jdbcTemplate, never()).execute(startsWith("DROP VIEW"));
+    }
+
+    private static PredictionStorageService service(JdbcTemplate jdbcTemplate, String layout) {
+        PredictionStorageServiceImpl service = new PredictionStorageServiceImpl();
+        ReflectionTestUtils.setField(service, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(service, "layout", layout);
+        SchemaCatalog schemaCatalog = new SchemaCatalog();
+        ReflectionTestUtils.setField(schemaCatalog, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(service, "schemaCatalog", schemaCatalog);
+        return service;
+    }
+}
@@ -0,0 +1,83 @@
+package org.example.service;
+
+import org.example.service.impl.TableIndexServiceImpl;
+import org.example.util.CigaretteDistributionSqlBuilder;
+import org.example.util.DynamicTableIndexes;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 动态表二级索引测试
+ *
+ * 验证建表语句中的索引子句（跳过唯一键已覆盖的索引），以及存量表补建索引的语句和报告
+ */
+public class TableIndexServiceTest {
+
+    private static final String INFO_TABLE = "cigarette_distribution_info_2025_9_3";
+    private static final String PREDICTION_TABLE = "cigarette_distribution_prediction_2025_9_3";
+
+    @Test
+    public void addsFamilyIndexesToCreateStatements() {
+        String predictionDdl = CigaretteDistributionSqlBuilder.buildCreatePredictionTableSql(PREDICTION_TABLE);
+        assertTrue(predictionDdl.contains("KEY `idx_delivery_etype` (`DELIVERY_ETYPE`)"), predictionDdl);
+        assertFalse(predictionDdl.contains("idx_cig"), predictionDdl); // 由unique_cigarette_area覆盖
+
+        assertEquals(", KEY `idx_cig` (`CIG_CODE`, `CIG_NAME`)", DynamicTableIndexes.buildIndexClauses(INFO_TABLE, "id"));
+        assertEquals("", DynamicTableIndexes.buildIndexClauses("region_clientNum_1_1", "id", "region"));
+        assertEquals("", DynamicTableIndexes.buildIndexClauses(PREDICTION_TABLE + "_bak", "id"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void retrofitsMissingIndexesAndReportsChanges() {
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        when(jdbcTemplate.queryForList(CigaretteDistributionSqlBuilder.buildBaseTablesQuerySql(), String.class))
+                .thenReturn(Arrays.asList(INFO_TABLE, PREDICTION_TABLE, "region_code_dict"));
+        when(jdbcTemplate.queryForList(anyString(), eq(INFO_TABLE)))
+                .thenReturn(Collections.singletonList(indexColumn("PRIMARY", "id")));
+        when(jdbcTemplate.queryForList(anyString(), eq(PREDICTION_TABLE))).thenReturn(Arrays.asList(
+                indexColumn("PRIMARY", "id"),
+                indexColumn("unique_cigarette_area", "CIG_CODE"),
+                indexColumn("unique_cigarette_area", "CIG_NAME"),
+                indexColumn("unique_cigarette_area", "DELIVERY_AREA"),
+                indexColumn("idx_delivery_etype", "DELIVERY_ETYPE")));
+        TableIndexServiceImpl service = new TableIndexServiceImpl();
+        ReflectionTestUtils.setField(service, "jdbcTemplate", jdbcTemplate);
+
+        Map<String, Object> report = service.retrofitIndexes();
+
+        verify(jdbcTemplate).execute("ALTER TABLE `" + INFO_TABLE + "` ADD INDEX `idx_cig` (`CIG_CODE`, `CIG_NAME`)");
+        verify(jdbcTemplate, never()).execute("ALTER TABLE `" + PREDICTION_TABLE + "` ADD INDEX `idx_cig` (`CIG_CODE`, `CIG_NAME`)");
+        assertEquals(true, report.get("success"));
+        assertEquals(2, report.get("scannedTables"));
+        assertEquals(1, report.get("createdIndexes"));
+        List<Map<String, Object>> changes = (List<Map<String, Object>>) report.get("changes");
+        assertEquals(1, changes.size());
+        assertEquals(INFO_TABLE, changes.get(0).get("table"));
+        assertEquals(report, service.getLastReport());
+    }
+
+    private static Map<String, Object> indexColumn(String indexName, String columnName) {
+        Map<String, Object> row = new HashMap<>();
+        row.put("index_name", indexName);
+        row.put("column_name", columnName);
+        return row;
+    }
+}
@@ -0,0 +1,158 @@
+package org.example.service.algorithm;
+
+import org.example.util.AllocationBudget;
+import org.example.util.AllocationPolicy;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 分配策略（截止时间/误差预算）测试
+ *
+ * 验证误差预算下和截止时间已到达时逐轮迭代实现与分配前沿求解仍输出一致、超过截止时间时返回满足约束的当前最优结果，
+ * 以及未配置限制时结果与不跟踪时相同
+ */
+public class AllocationBudgetTest {
+
+    private static final int GRADE_COUNT = 30;
+    private static final int CASES = 100;
+
+    @Test
+    public void errorBudgetKeepsFrontierAndLegacyInStep() {
+        countyCigaretteDistributionAlgorithm legacy = new countyCigaretteDistributionAlgorithm();
+        countyCigaretteDistributionAlgorithm frontier = new countyCigaretteDistributionAlgorithm();
+        ReflectionTestUtils.setField(frontier, "frontierCache", new AllocationFrontierCache());
+        AllocationPolicy policy = new AllocationPolicy("档位+区县", 0L, new BigDecimal("500"));
+        Random random = new Random(20251020L);
+
+        for (int c = 0; c < CASES; c++) {
+            int regions = 1 + random.nextInt(5);
+            BigDecimal[][] customers = randomCustomers(random, regions);
+            BigDecimal target = BigDecimal.valueOf(1000 + random.nextInt(200000));
+            List<String> names = regionNames(regions);
+
+            AllocationBudget.begin(policy);
+            BigDecimal[][] legacyMatrix = legacy.calculateDistribution(names, customers, target);
+            Map<String, Object> legacyOutcome = AllocationBudget.end();
+            AllocationBudget.begin(policy);
+            BigDecimal[][] frontierMatrix = frontier.calculateDistribution(names, customers, target);
+            Map<String, Object> frontierOutcome = AllocationBudget.end();
+
+            for (int i = 0; i < regions; i++) {
+                assertArrayEquals(legacyMatrix[i], frontierMatrix[i], "用例 " + c + " 第 " + i + " 行不一致");
+            }
+            assertEquals(legacyOutcome.get("stopReason"), frontierOutcome.get("stopReason"), "用例 " + c);
+            assertEquals(0, ((BigDecimal) legacyOutcome.get("achievedError"))
+                    .compareTo((BigDecimal) frontierOutcome.get("achievedError")), "用例 " + c);
+            if (AllocationBudget.STOP_ERROR_BUDGET.equals(legacyOutcome.get("stopReason"))) {
+                assertTrue(((BigDecimal) legacyOutcome.get("achievedError")).compareTo(new BigDecimal("500")) <= 0);
+            }
+        }
+    }
+
+    @Test
+    public void expiredDeadlineReturnsBestSoFar() throws InterruptedException {
+        BussinessFormatDistributionAlgorithm algorithm = new BussinessFormatDistributionAlgorithm();
+        Random random = new Random(7L);
+        BigDecimal[][] customers = randomCustomers(random, 4);
+        BigDecimal target = new BigDecimal("500000");
+
+        AllocationBudget.begin(new AllocationPolicy("档位+业态", 1L, null));
+        Thread.sleep(5);
+        BigDecimal[][] matrix = algorithm.calculateDistribution(regionNames(4), customers, target);
+        Map<String, Object> outcome = AllocationBudget.end();
+
+        assertEquals(AllocationBudget.STOP_DEADLINE, outcome.get("stopReason"));
+        BigDecimal total = BigDecimal.ZERO;
+        for (int i = 0; i < matrix.length; i++) {
+            for (int j = 0; j < GRADE_COUNT; j++) {
+                total = total.add(matrix[i][j].multiply(customers[i][j]));
+                if (j > 0) {
+                    assertTrue(matrix[i][j].compareTo(matrix[i][j - 1]) <= 0, "非递增约束被破坏");
+                }
+            }
+        }
+        assertTrue(total.compareTo(target) <= 0);
+        assertEquals(0, target.subtract(total).compareTo((BigDecimal) outcome.get("achievedError")));
+    }
+
+    @Test
+    public void expiredDeadlineKeepsFrontierAndLegacyInStep() throws InterruptedException {
+        countyCigaretteDistributionAlgorithm legacy = new countyCigaretteDistributionAlgorithm();
+        countyCigaretteDistributionAlgorithm frontier = new countyCigaretteDistributionAlgorithm();
+        ReflectionTestUtils.setField(frontier, "frontierCache", new AllocationFrontierCache());
+        AllocationPolicy policy = new AllocationPolicy("档位+区县", 1L, null);
+        Random random = new Random(11L);
+
+        for (int c = 0; c < CASES; c++) {
+            int regions = 1 + random.nextInt(5);
+            BigDecimal[][] customers = randomCustomers(random, regions);
+            BigDecimal target = BigDecimal.valueOf(1000 + random.nextInt(200000));
+            List<String> names = regionNames(regions);
+
+            AllocationBudget.begin(policy);
+            Thread.sleep(2);
+            BigDecimal[][] legacyMatrix = legacy.calculateDistribution(names, customers, target);
+            Map<String, Object> legacyOutcome = AllocationBudget.end();
+            AllocationBudget.begin(policy);
+            Thread.sleep(2);
+            BigDecimal[][] frontierMatrix = frontier.calculateDistribution(names, customers, target);
+            Map<String, Object> frontierOutcome = AllocationBudget.end();
+
+            for (int i = 0; i < regions; i++) {
+                assertArrayEquals(legacyMatrix[i], frontierMatrix[i], "用例 " + c + " 第 " + i + " 行不一致");
+            }
+            assertEquals(AllocationBudget.STOP_DEADLINE, frontierOutcome.get("stopReason"), "用例 " + c);
+            assertEquals(legacyOutcome.get("stopPhase"), frontierOutcome.get("stopPhase"), "用例 " + c);
+        }
+    }
+
+    @Test
+    public void unlimitedPolicyMatchesUntrackedRun() {
+        CityCigaretteDistributionAlgorithm algorithm = new CityCigaretteDistributionAlgorithm();
+        Random random = new Random(42L);
+        BigDecimal[][] customers = randomCustomers(random, 1);
+        BigDecimal target = new BigDecimal("123457");
+
+        BigDecimal[][] untracked = algorithm.calculateDistribution(regionNames(1), customers, target);
+        AllocationBudget.begin(AllocationPolicy.UNLIMITED);
+        BigDecimal[][] tracked = algorithm.calculateDistribution(regionNames(1), customers, target);
+        Map<String, Object> outcome = AllocationBudget.end();
+
+        assertArrayEquals(untracked[0], tracked[0]);
+        assertEquals(AllocationBudget.STOP_COMPLETED, outcome.get("stopReason"));
+        assertNull(AllocationBudget.end(), "结束后不应残留线程绑定");
+    }
+
+    // ==================== 辅助方法 ====================
+
+    private static List<String> regionNames(int regions) {
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < regions; i++) {
+            names.add("区域" + i);
+        }
+        return names;
+    }
+
+    private static BigDecimal[][] randomCustomers(Random random, int regions) {
+        BigDecimal[][] matrix = new BigDecimal[regions][GRADE_COUNT];
+        for (int i = 0; i < regions; i++) {
+            int scale = 20 + random.nextInt(300);
+            for (int j = 0; j < GRADE_COUNT; j++) {
+                double distance = (j - 14.5) / 7.0;
+                matrix[i][j] = BigDecimal.valueOf(Math.round(scale * Math.exp(-distance * distance / 2) * (0.5 + random.nextDouble())));
+            }
+        }
+        return matrix;
+    }
+}
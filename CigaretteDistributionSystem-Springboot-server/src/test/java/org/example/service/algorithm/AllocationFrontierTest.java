@@ -0,0 +1,158 @@
+package org.example.service.algorithm;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * 分配前沿一致性测试
+ *
+ * 在随机客户数矩阵和预投放量上，分别以逐轮迭代实现（未注入缓存）和分配前沿求解计算分配矩阵，
+ * 验证两者输出完全一致
+ */
+public class AllocationFrontierTest {
+
+    private static final int GRADE_COUNT = 30;
+    private static final int CASES = 200;
+
+    @Test
+    public void cellwiseMatchesCountyAlgorithm() {
+        countyCigaretteDistributionAlgorithm legacy = new countyCigaretteDistributionAlgorithm();
+        countyCigaretteDistributionAlgorithm frontier = new countyCigaretteDistributionAlgorithm();
+        AllocationFrontierCache cache = new AllocationFrontierCache();
+        ReflectionTestUtils.setField(frontier, "frontierCache", cache);
+        Random random = new Random(20251020L);
+
+        for (int c = 0; c < CASES; c++) {
+            int regions = 1 + random.nextInt(7);
+            BigDecimal[][] customers = randomCustomers(random, regions);
+            BigDecimal target = randomTarget(random, customers);
+            List<String> names = regionNames(regions);
+
+            assertSameMatrix(legacy.calculateDistribution(names, customers, target),
+                    frontier.calculateDistribution(names, customers, target), c);
+        }
+        // 确认走的是前沿求解而非回退路径
+        assertEquals(CASES, ((Number) cache.getStats().get("size")).intValue());
+    }
+
+    @Test
+    public void cellwiseMatchesCityAlgorithm() {
+        CityCigaretteDistributionAlgorithm legacy = new CityCigaretteDistributionAlgorithm();
+        CityCigaretteDistributionAlgorithm frontier = withFrontier(new CityCigaretteDistributionAlgorithm());
+        Random random = new Random(42L);
+
+        for (int c = 0; c < CASES; c++) {
+            BigDecimal[][] customers = randomCustomers(random, 1);
+            BigDecimal target = randomTarget(random, customers);
+            List<String> names = regionNames(1);
+
+            assertSameMatrix(legacy.calculateDistribution(names, customers, target),
+                    frontier.calculateDistribution(names, customers, target), c);
+        }
+    }
+
+    @Test
+    public void columnwiseMatchesBusinessFormatAndUrbanRuralAlgorithms() {
+        BussinessFormatDistributionAlgorithm legacyBusiness = new BussinessFormatDistributionAlgorithm();
+        BussinessFormatDistributionAlgorithm frontierBusiness = withFrontier(new BussinessFormatDistributionAlgorithm());
+        UrbanRuralClassificationCodeDistributionAlgorithm legacyUrbanRural = new UrbanRuralClassificationCodeDistributionAlgorithm();
+        UrbanRuralClassificationCodeDistributionAlgorithm frontierUrbanRural = withFrontier(new UrbanRuralClassificationCodeDistributionAlgorithm());
+        Random random = new Random(7L);
+
+        for (int c = 0; c < CASES; c++) {
+            int regions = 1 + random.nextInt(7);
+            BigDecimal[][] customers = randomCustomers(random, regions);
+            BigDecimal target = randomTarget(random, customers);
+            List<String> names = regionNames(regions);
+
+            assertSameMatrix(legacyBusiness.calculateDistribution(names, customers, target),
+                    frontierBusiness.calculateDistribution(names, customers, target), c);
+            assertSameMatrix(legacyUrbanRural.calculateDistribution(names, customers, target),
+                    frontierUrbanRural.calculateDistribution(names, customers, target), c);
+        }
+    }
+
+    @Test
+    public void unsupportedInputsFallBack() {
+        BigDecimal[][] withNull = randomCustomers(new Random(1L), 2);
+        withNull[1][5] = null;
+        assertNull(AllocationFrontier.build(withNull, 2));
+
+        BigDecimal[][] fractional = randomCustomers(new Random(2L), 2);
+        fractional[0][0] = new BigDecimal("1.005");
+        assertNull(AllocationFrontier.build(fractional, 2));
+
+        AllocationFrontier frontier = AllocationFrontier.build(randomCustomers(new Random(3L), 2), 2);
+        assertNotNull(frontier);
+        assertNull(frontier.solveCellwise(BigDecimal.ZERO, "test"));
+        assertNull(frontier.solveColumnwise(new BigDecimal("10.001"), "test"));
+    }
+
+    // ==================== 辅助方法 ====================
+
+    private static <T> T withFrontier(T algorithm) {
+        ReflectionTestUtils.setField(algorithm, "frontierCache", new AllocationFrontierCache());
+        return algorithm;
+    }
+
+    /**
+     * 随机客户数：钟形分布叠加约10%的0档位，偶尔出现整行很小的区域
+     */
+    private static BigDecimal[][] randomCustomers(Random random, int regions) {
+        BigDecimal[][] matrix = new BigDecimal[regions][GRADE_COUNT];
+        for (int i = 0; i < regions; i++) {
+            int scale = random.nextInt(10) == 0 ? 5 : 50 + random.nextInt(800);
+            for (int j = 0; j < GRADE_COUNT; j++) {
+                double distance = (j - 14.5) / 7.0;
+                int count = random.nextInt(10) == 0 ? 0
+                        : (int) Math.round(scale * Math.exp(-distance * distance / 2) * (0.5 + random.nextDouble()));
+                matrix[i][j] = BigDecimal.valueOf(count);
+            }
+        }
+        return matrix;
+    }
+
+    /**
+     * 随机预投放量：客户总数的0.05到6倍之间（覆盖不足一轮到多轮填充）
+     */
+    private static BigDecimal randomTarget(Random random, BigDecimal[][] customers) {
+        long total = 0;
+        for (BigDecimal[] row : customers) {
+            for (BigDecimal count : row) {
+                total += count.longValue();
+            }
+        }
+        return BigDecimal.valueOf(Math.max(1, Math.round(total * (0.05 + 5.95 * random.nextDouble()))));
+    }
+
+    private static List<String> regionNames(int regions) {
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < regions; i++) {
+            names.add("区域" + i);
+        }
+        return names;
+    }
+
+    private static void assertSameMatrix(BigDecimal[][] expected, BigDecimal[][] actual, int caseIndex) {
+        assertEquals(expected.length, actual.length, "行数不一致，用例 " + caseIndex);
+        for (int i = 0; i < expected.length; i++) {
+            int[] expectedRow = new int[GRADE_COUNT];
+            int[] actualRow = new int[GRADE_COUNT];
+            for (int j = 0; j < GRADE_COUNT; j++) {
+                expectedRow[j] = expected[i][j].intValueExact();
+                actualRow[j] = actual[i][j].intValueExact();
+            }
+            assertArrayEquals(expectedRow, actualRow, "第" + i + "行不一致，用例 " + caseIndex);
+        }
+    }
+}
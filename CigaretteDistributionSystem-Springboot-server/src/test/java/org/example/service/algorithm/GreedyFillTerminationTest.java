@@ -0,0 +1,62 @@
+package org.example.service.algorithm;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 全市/区县逐轮迭代实现的贪心填充终止测试
+ *
+ * D30客户数为0时给D30加档不增加投放量；填充只在投放量实际增加时继续下一轮，否则会无限循环
+ */
+public class GreedyFillTerminationTest {
+
+    private static final int GRADE_COUNT = 30;
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+    private static final BigDecimal TARGET = new BigDecimal("5000");
+
+    @Test
+    public void cityFillStopsWhenD30HasNoCustomers() {
+        BigDecimal[][] customers = {zeroD30Customers(40)};
+        List<String> regions = Collections.singletonList("全市");
+
+        BigDecimal[][] matrix = assertTimeoutPreemptively(TIMEOUT,
+                () -> new CityCigaretteDistributionAlgorithm().calculateDistribution(regions, customers, TARGET));
+
+        assertNonIncreasing(matrix);
+    }
+
+    @Test
+    public void countyFillStopsWhenD30HasNoCustomers() {
+        BigDecimal[][] customers = {zeroD30Customers(20), zeroD30Customers(35), zeroD30Customers(50)};
+        List<String> regions = Arrays.asList("城区", "丹江", "房县");
+
+        BigDecimal[][] matrix = assertTimeoutPreemptively(TIMEOUT,
+                () -> new countyCigaretteDistributionAlgorithm().calculateDistribution(regions, customers, TARGET));
+
+        assertNonIncreasing(matrix);
+    }
+
+    private static BigDecimal[] zeroD30Customers(int perGrade) {
+        BigDecimal[] row = new BigDecimal[GRADE_COUNT];
+        Arrays.fill(row, BigDecimal.valueOf(perGrade));
+        row[0] = BigDecimal.ZERO;
+        return row;
+    }
+
+    private static void assertNonIncreasing(BigDecimal[][] matrix) {
+        assertTrue(matrix.length > 0, "应返回分配矩阵");
+        for (BigDecimal[] row : matrix) {
+            for (int j = 1; j < GRADE_COUNT; j++) {
+                assertTrue(row[j].compareTo(row[j - 1]) <= 0, "D" + (GRADE_COUNT - j) + " 不应高于 D" + (GRADE_COUNT - j + 1));
+            }
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package org.example.service.algorithm;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 热启动初始解测试
+ *
+ * 验证初始解的缩放与非递增投影，各算法以上周方案热启动后的结果满足约束且误差不劣于冷启动太多，
+ * 以及分配前沿可用时忽略初始解、直接返回前沿结果
+ */
+public class WarmStartSeedsTest {
+
+    private static final int GRADE_COUNT = 30;
+    private static final int CASES = 100;
+
+    @Test
+    public void seedIsScaledFlooredAndNonIncreasing() {
+        BigDecimal[][] customers = {row(10), row(5)};
+        BigDecimal[][] previous = {row(4), row(2)};
+        previous[0][3] = new BigDecimal("6"); // 违反非递增的上周手工修改
+        // 上周投放量 = 30×(4×10 + 2×5) + 2×10 = 1520
+        BigDecimal[][] seed = WarmStartSeeds.prepare(previous, customers, 2, new BigDecimal("760"), "test");
+
+        assertNotNull(seed);
+        assertEquals(0, new BigDecimal("2").compareTo(seed[0][0]));
+        assertEquals(0, new BigDecimal("2").compareTo(seed[0][3]), "投影后不应超过前一档位");
+        assertEquals(0, BigDecimal.ONE.compareTo(seed[1][29]));
+        assertTrue(total(seed, customers).compareTo(new BigDecimal("760")) <= 0);
+    }
+
+    @Test
+    public void unusableSeedsReturnNull() {
+        BigDecimal[][] customers = {row(10)};
+        assertNull(WarmStartSeeds.prepare(null, customers, 1, BigDecimal.TEN, "test"));
+        assertNull(WarmStartSeeds.prepare(new BigDecimal[][]{row(0)}, customers, 1, BigDecimal.TEN, "test"));
+        assertNull(WarmStartSeeds.prepare(new BigDecimal[][]{row(1), row(1)}, customers, 1, BigDecimal.TEN, "test"));
+    }
+
+    @Test
+    public void warmStartedAlgorithmsStayCloseToColdStart() {
+        countyCigaretteDistributionAlgorithm county = new countyCigaretteDistributionAlgorithm();
+        CityCigaretteDistributionAlgorithm city = new CityCigaretteDistributionAlgorithm();
+        Random random = new Random(20251020L);
+
+        for (int c = 0; c < CASES; c++) {
+            int regions = 1 + random.nextInt(5);
+            BigDecimal[][] customers = randomCustomers(random, regions);
+            List<String> names = new ArrayList<>();
+            for (int i = 0; i < regions; i++) {
+                names.add("区域" + i);
+            }
+            long customerTotal = total(fill(regions, 1), customers).longValue();
+            BigDecimal lastWeek = BigDecimal.valueOf(customerTotal * (1 + random.nextInt(4)));
+            // 本周预投放量在上周基础上浮动±10%
+            BigDecimal thisWeek = BigDecimal.valueOf(Math.round(lastWeek.doubleValue() * (0.9 + 0.2 * random.nextDouble())));
+
+            BigDecimal[][] countyPrevious = county.calculateDistribution(names, customers, lastWeek);
+            assertWarmNotWorse(county.calculateDistribution(names, customers, thisWeek),
+                    county.calculateDistribution(names, customers, thisWeek, countyPrevious), customers, thisWeek, c);
+
+            // 全市统一投放只有一个区域，以首个区域的客户数独立构造用例
+            List<String> cityNames = names.subList(0, 1);
+            BigDecimal[][] cityCustomers = {customers[0]};
+            BigDecimal cityLastWeek = BigDecimal.valueOf(total(fill(1, 1), cityCustomers).longValue() * (1 + random.nextInt(4)));
+            BigDecimal cityThisWeek = BigDecimal.valueOf(Math.round(cityLastWeek.doubleValue() * (0.9 + 0.2 * random.nextDouble())));
+            BigDecimal[][] cityPrevious = city.calculateDistribution(cityNames, cityCustomers, cityLastWeek);
+            assertWarmNotWorse(city.calculateDistribution(cityNames, cityCustomers, cityThisWeek),
+                    city.calculateDistribution(cityNames, cityCustomers, cityThisWeek, cityPrevious), cityCustomers, cityThisWeek, c);
+        }
+    }
+
+    @Test
+    public void frontierIgnoresSeedWhenAvailable() {
+        AllocationFrontierCache frontierCache = new AllocationFrontierCache();
+        countyCigaretteDistributionAlgorithm county = new countyCigaretteDistributionAlgorithm();
+        CityCigaretteDistributionAlgorithm city = new CityCigaretteDistributionAlgorithm();
+        ReflectionTestUtils.setField(county, "frontierCache", frontierCache);
+        ReflectionTestUtils.setField(city, "frontierCache", frontierCache);
+        Random random = new Random(20251021L);
+
+        for (int c = 0; c < 20; c++) {
+            int regions = 1 + random.nextInt(5);
+            BigDecimal[][] customers = randomCustomers(random, regions);
+            List<String> names = new ArrayList<>();
+            for (int i = 0; i < regions; i++) {
+                names.add("区域" + i);
+            }
+            BigDecimal target = BigDecimal.valueOf(total(fill(regions, 1 + random.nextInt(4)), customers).longValue());
+            BigDecimal[][] seed = fill(regions, 1);
+
+            assertArrayEquals(county.calculateDistribution(names, customers, target),
+                    county.calculateDistribution(names, customers, target, seed), "前沿可用时应忽略初始解，用例 " + c);
+            assertArrayEquals(city.calculateDistribution(names.subList(0, 1), new BigDecimal[][]{customers[0]}, target),
+                    city.calculateDistribution(names.subList(0, 1), new BigDecimal[][]{customers[0]}, target, fill(1, 1)),
+                    "前沿可用时应忽略初始解，用例 " + c);
+        }
+    }
+
+    // ==================== 辅助方法 ====================
+
+    /**
+     * 热启动结果满足非递增约束，误差不超过冷启动误差加上单个档位最大客户数
+     */
+    private static void assertWarmNotWorse(BigDecimal[][] cold, BigDecimal[][] warm, BigDecimal[][] customers,
+                                           BigDecimal target, int caseIndex) {
+        BigDecimal maxCell = BigDecimal.ZERO;
+        for (int i = 0; i < warm.length; i++) {
+            for (int j = 0; j < GRADE_COUNT; j++) {
+                maxCell = maxCell.max(customers[i][j]);
+                if (j > 0) {
+                    assertTrue(warm[i][j].compareTo(warm[i][j - 1]) <= 0, "非递增约束被破坏，用例 " + caseIndex);
+                }
+            }
+        }
+        BigDecimal coldError = target.subtract(total(cold, customers)).abs();
+        BigDecimal warmError = target.subtract(total(warm, customers)).abs();
+        assertTrue(warmError.compareTo(coldError.add(maxCell)) <= 0,
+                "热启动误差 " + warmError + " 远大于冷启动误差 " + coldError + "，用例 " + caseIndex);
+    }
+
+    private static BigDecimal[] row(int value) {
+        BigDecimal[] row = new BigDecimal[GRADE_COUNT];
+        for (int j = 0; j < GRADE_COUNT; j++) {
+            row[j] = BigDecimal.valueOf(value);
+        }
+        return row;
+    }
+
+    private static BigDecimal[][] fill(int regions, int value) {
+        BigDecimal[][] matrix = new BigDecimal[regions][];
+        for (int i = 0; i < regions; i++) {
+            matrix[i] = row(value);
+        }
+        return matrix;
+    }
+
+    private static BigDecimal[][] randomCustomers(Random random, int regions) {
+        BigDecimal[][] matrix = new BigDecimal[regions][GRADE_COUNT];
+        for (int i = 0; i < regions; i++) {
+            int scale = 20 + random.nextInt(300);
+            for (int j = 0; j < GRADE_COUNT; j++) {
+                double distance = (j - 14.5) / 7.0;
+                matrix[i][j] = BigDecimal.valueOf(Math.round(scale * Math.exp(-distance * distance / 2) * (0.5 + random.nextDouble())));
+            }
+        }
+        return matrix;
+    }
+
+    private static BigDecimal total(BigDecimal[][] allocation, BigDecimal[][] customers) {
+        BigDecimal total = BigDecimal.ZERO;
+        for (int i = 0; i < allocation.length; i++) {
+            for (int j = 0; j < GRADE_COUNT; j++) {
+                total = total.add(allocation[i][j].multiply(customers[i][j]));
+            }
+        }
+        return total;
+    }
+}
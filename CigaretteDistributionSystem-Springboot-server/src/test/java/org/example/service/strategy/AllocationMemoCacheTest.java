@@ -0,0 +1,121 @@
+package org.example.service.strategy;
+
+import org.example.service.DistributionInputHashService;
+import org.example.util.RegionClientTableVersions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 分配问题记忆化测试
+ *
+ * 验证相同问题在单次运行和跨运行时只计算一次，预投放量、比例或客户数矩阵变化时重新计算
+ */
+public class AllocationMemoCacheTest {
+
+    private static final List<String> TARGETS = Arrays.asList("丹江", "房县");
+
+    private DistributionInputHashService inputHashService;
+    private DistributionStrategy strategy;
+    private AllocationMemoCache cache;
+
+    @BeforeEach
+    public void setUp() {
+        inputHashService = mock(DistributionInputHashService.class);
+        strategy = mock(DistributionStrategy.class);
+        when(strategy.getDeliveryType()).thenReturn("档位+区县");
+        when(strategy.getAlgorithmName()).thenReturn("countyCigaretteDistributionAlgorithm");
+        when(strategy.calculateMatrix(anyList(), any(BigDecimal.class), any())).thenAnswer(
+                invocation -> new BigDecimal[][]{{invocation.getArgument(1)}, {BigDecimal.ONE}});
+        when(inputHashService.computeClientTableHash("region_clientNum_1_1")).thenReturn("v1");
+
+        RegionClientTableVersions versions = new RegionClientTableVersions();
+        ReflectionTestUtils.setField(versions, "distributionInputHashService", inputHashService);
+        versions.setCheckIntervalMs(0);
+        cache = new AllocationMemoCache();
+        ReflectionTestUtils.setField(cache, "regionClientTableVersions", versions);
+    }
+
+    @Test
+    public void identicalProblemsAreComputedOncePerRun() {
+        AllocationMemoCache.RunMemo memo = cache.beginRun();
+
+        BigDecimal[][] first = memo.calculate(strategy, TARGETS, new BigDecimal("100"), new HashMap<>());
+        assertEquals(AllocationMemoCache.SOURCE_COMPUTED, memo.getLastSource());
+        first[0][0] = BigDecimal.ZERO; // 调用方修改不影响缓存
+
+        BigDecimal[][] second = memo.calculate(strategy, TARGETS, new BigDecimal("100.00"), new HashMap<>());
+        assertEquals(AllocationMemoCache.SOURCE_RUN_MEMO, memo.getLastSource());
+        assertEquals(0, new BigDecimal("100").compareTo(second[0][0]));
+
+        memo.calculate(strategy, TARGETS, new BigDecimal("200"), new HashMap<>());
+        memo.calculate(strategy, TARGETS, new BigDecimal("200"), ratios("0.4", "0.6"));
+
+        verify(strategy, times(3)).calculateMatrix(anyList(), any(BigDecimal.class), anyMap());
+        verify(inputHashService, times(1)).computeClientTableHash(any());
+        assertEquals(3, memo.getStats().get("computed"));
+        assertEquals(1, memo.getStats().get("runHits"));
+    }
+
+    @Test
+    public void crossRunResultsAreReusedUntilCustomerMatrixChanges() {
+        cache.beginRun().calculate(strategy, TARGETS, new BigDecimal("100"), null);
+
+        AllocationMemoCache.RunMemo secondRun = cache.beginRun();
+        secondRun.calculate(strategy, TARGETS, new BigDecimal("100"), null);
+        assertEquals(AllocationMemoCache.SOURCE_CROSS_RUN, secondRun.getLastSource());
+        verify(strategy, times(1)).calculateMatrix(anyList(), any(BigDecimal.class), any());
+
+        // 客户数表重新导入后版本变化，旧结果不再命中
+        when(inputHashService.computeClientTableHash("region_clientNum_1_1")).thenReturn("v2");
+        AllocationMemoCache.RunMemo thirdRun = cache.beginRun();
+        thirdRun.calculate(strategy, TARGETS, new BigDecimal("100"), null);
+        assertEquals(AllocationMemoCache.SOURCE_COMPUTED, thirdRun.getLastSource());
+        verify(strategy, times(2)).calculateMatrix(anyList(), any(BigDecimal.class), any());
+    }
+
+    @Test
+    public void missingCustomerTableDisablesMemo() {
+        when(inputHashService.computeClientTableHash("region_clientNum_1_1")).thenReturn("missing");
+        AllocationMemoCache.RunMemo memo = cache.beginRun();
+        memo.calculate(strategy, TARGETS, new BigDecimal("100"), null);
+        memo.calculate(strategy, TARGETS, new BigDecimal("100"), null);
+
+        verify(strategy, times(2)).calculateMatrix(anyList(), any(BigDecimal.class), any());
+        verify(inputHashService, times(1)).computeClientTableHash(any());
+    }
+
+    @Test
+    public void disabledMemoAlwaysDelegatesToStrategy() {
+        cache.setEnabled(false);
+        AllocationMemoCache.RunMemo memo = cache.beginRun();
+        memo.calculate(strategy, TARGETS, new BigDecimal("100"), null);
+        memo.calculate(strategy, TARGETS, new BigDecimal("100"), null);
+
+        verify(strategy, times(2)).calculateMatrix(eq(TARGETS), any(BigDecimal.class), any());
+        verify(inputHashService, times(0)).computeClientTableHash(any());
+    }
+
+    private static Map<String, Object> ratios(String urban, String rural) {
+        Map<String, Object> params = new HashMap<>(Collections.singletonMap("urbanRatio", new BigDecimal(urban)));
+        params.put("ruralRatio", new BigDecimal(rural));
+        return params;
+    }
+}
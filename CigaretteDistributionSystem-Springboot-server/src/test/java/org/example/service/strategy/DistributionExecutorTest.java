@@ -0,0 +1,150 @@
+package org.example.service.strategy;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 卷烟分配执行器测试
+ *
+ * 验证并行模式下结果按提交顺序返回、任务异常原样抛出、调用线程处于事务中时按串行执行，以及数据库步骤的并发上限
+ */
+public class DistributionExecutorTest {
+
+    private static final int DB_PERMITS = 2;
+
+    private DistributionExecutor executor;
+
+    @BeforeEach
+    public void setUp() {
+        executor = new DistributionExecutor();
+        ReflectionTestUtils.setField(executor, "mode", DistributionExecutor.MODE_PARALLEL);
+        ReflectionTestUtils.setField(executor, "virtualThreadsEnabled", false);
+        ReflectionTestUtils.setField(executor, "cpuThreads", 2);
+        ReflectionTestUtils.setField(executor, "dbPermits", DB_PERMITS);
+        executor.init();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    public void returnsResultsInSubmissionOrder() {
+        Thread caller = Thread.currentThread();
+        List<Callable<Integer>> tasks = new ArrayList<>();
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            int index = i;
+            tasks.add(() -> {
+                // 靠前的任务耗时更长，完成顺序与提交顺序相反
+                Thread.sleep((8 - index) * 5L);
+                synchronized (workers) {
+                    workers.add(Thread.currentThread());
+                }
+                return index;
+            });
+        }
+
+        List<Integer> results = executor.invokeAll(tasks);
+
+        for (int i = 0; i < tasks.size(); i++) {
+            assertEquals(i, results.get(i).intValue());
+        }
+        workers.forEach(worker -> assertNotEquals(caller, worker, "并行模式下任务不应在调用线程上执行"));
+    }
+
+    @Test
+    public void propagatesTaskExceptionsFromAwait() {
+        List<Callable<Integer>> tasks = new ArrayList<>();
+        tasks.add(() -> 1);
+        tasks.add(() -> {
+            throw new IllegalArgumentException("卷烟数据无效");
+        });
+        IllegalArgumentException unchecked = assertThrows(IllegalArgumentException.class, () -> executor.invokeAll(tasks));
+        assertEquals("卷烟数据无效", unchecked.getMessage());
+
+        IOException checked = new IOException("读取失败");
+        IllegalStateException wrapped = assertThrows(IllegalStateException.class, () -> executor.compute(() -> {
+            throw checked;
+        }));
+        assertSame(checked, wrapped.getCause());
+
+        assertThrows(AssertionError.class, () -> executor.compute(() -> {
+            throw new AssertionError("算法断言失败");
+        }));
+    }
+
+    @Test
+    public void runsSeriallyWhenTransactionIsActive() {
+        Thread caller = Thread.currentThread();
+        List<Callable<Thread>> tasks = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            tasks.add(Thread::currentThread);
+        }
+
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        try {
+            executor.invokeAll(tasks).forEach(thread -> assertSame(caller, thread, "事务中的任务应在调用线程上执行"));
+            assertSame(caller, executor.compute(Thread::currentThread));
+            assertSame(caller, executor.withDatabase(Thread::currentThread));
+        } finally {
+            TransactionSynchronizationManager.setActualTransactionActive(false);
+        }
+    }
+
+    @Test
+    public void boundsConcurrentDatabaseSteps() throws Exception {
+        int callers = 8;
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(callers);
+        try {
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    return executor.withDatabase(() -> {
+                        peak.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                        Thread.sleep(20);
+                        inFlight.decrementAndGet();
+                        return 1;
+                    });
+                }));
+            }
+            start.countDown();
+            for (Future<Integer> future : futures) {
+                assertEquals(1, future.get(5, TimeUnit.SECONDS).intValue());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertTrue(peak.get() <= DB_PERMITS, "同时执行的数据库步骤不应超过许可数，实际: " + peak.get());
+        Object reportedPeak = executor.getStats().get("peakDbConcurrency");
+        assertInstanceOf(Integer.class, reportedPeak);
+        assertEquals(peak.get(), ((Integer) reportedPeak).intValue());
+    }
+}
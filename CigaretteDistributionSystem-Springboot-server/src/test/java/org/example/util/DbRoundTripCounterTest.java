@@ -0,0 +1,41 @@
+package org.example.util;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * 数据库往返计数测试
+ *
+ * 验证包装后的DataSource在语句执行处计数（批量执行计一次），未采集运行报告时不计数
+ */
+public class DbRoundTripCounterTest {
+
+    @Test
+    public void countsStatementExecutionsOnWrappedDataSource() {
+        DbRoundTripCounter counter = new DbRoundTripCounter();
+        DataSource dataSource = (DataSource) counter.postProcessAfterInitialization(
+                new DriverManagerDataSource("jdbc:h2:mem:round_trips;DB_CLOSE_DELAY=-1", "sa", ""), "dataSource");
+        assertSame(dataSource, counter.postProcessAfterInitialization(dataSource, "dataSource"));
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS counted (id INT)"); // 未采集，不计数
+
+        DistributionRunReport report = DistributionRunReport.begin(2025, 9, 3);
+        try {
+            jdbcTemplate.update("INSERT INTO counted VALUES (?)", 1);
+            jdbcTemplate.batchUpdate("INSERT INTO counted VALUES (?)",
+                    Arrays.asList(new Object[]{2}, new Object[]{3}, new Object[]{4}));
+            jdbcTemplate.queryForObject("SELECT COUNT(*) FROM counted", Integer.class);
+        } finally {
+            DistributionRunReport.end();
+        }
+
+        assertEquals(3, report.getDbRoundTrips());
+    }
+}
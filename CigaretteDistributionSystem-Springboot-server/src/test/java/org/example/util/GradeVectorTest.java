@@ -0,0 +1,184 @@
+package org.example.util;
+
+import org.example.entity.CigaretteDistributionPredictionData;
+import org.example.entity.RegionClientNumData;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 档位定点数向量测试
+ *
+ * 覆盖null档位、小数位校验（不做静默舍入）、列值舍入、溢出检测、点积与BigDecimal逐档计算的一致性，以及实体档位存储与列访问器的一致性
+ */
+public class GradeVectorTest {
+
+    @Test
+    public void treatsNullGradesAsZero() {
+        BigDecimal[] grades = new BigDecimal[GradeVector.GRADE_COUNT];
+        grades[0] = new BigDecimal("3");
+
+        GradeVector vector = GradeVector.of(grades);
+
+        assertEquals(300L, vector.getScaled(0));
+        assertEquals(0L, vector.getScaled(1));
+        assertEquals(new BigDecimal("3.00"), vector.get(0));
+    }
+
+    @Test
+    public void rejectsMoreThanTwoDecimalsInsteadOfRounding() {
+        BigDecimal[] grades = filled("1");
+        grades[5] = new BigDecimal("1.005");
+
+        assertThrows(IllegalArgumentException.class, () -> GradeVector.of(grades));
+    }
+
+    @Test
+    public void acceptsTrailingZerosBeyondScale() {
+        BigDecimal[] grades = filled("0");
+        grades[0] = new BigDecimal("12.5000");
+
+        assertEquals(1250L, GradeVector.of(grades).getScaled(0));
+    }
+
+    @Test
+    public void detectsOverflow() {
+        BigDecimal[] huge = filled("0");
+        huge[0] = BigDecimal.valueOf(Long.MAX_VALUE);
+        assertThrows(ArithmeticException.class, () -> GradeVector.of(huge));
+
+        BigDecimal[] large = filled("0");
+        large[0] = BigDecimal.valueOf(Long.MAX_VALUE / 100);
+        GradeVector vector = GradeVector.of(large);
+        assertThrows(ArithmeticException.class, () -> vector.dot(filled("2")));
+    }
+
+    @Test
+    public void dotMatchesBigDecimalComputation() {
+        BigDecimal[] counts = new BigDecimal[GradeVector.GRADE_COUNT];
+        BigDecimal[] allocation = new BigDecimal[GradeVector.GRADE_COUNT];
+        BigDecimal expected = BigDecimal.ZERO;
+        for (int i = 0; i < GradeVector.GRADE_COUNT; i++) {
+            counts[i] = new BigDecimal(i * 7 + 0.25).setScale(2, RoundingMode.UNNECESSARY);
+            allocation[i] = i % 3 == 0 ? null : BigDecimal.valueOf(30 - i);
+            if (allocation[i] != null) {
+                expected = expected.add(counts[i].multiply(allocation[i]));
+            }
+        }
+
+        assertEquals(0, expected.compareTo(GradeVector.of(counts).dot(allocation)));
+    }
+
+    @Test
+    public void dotKeepsAllocationValuesFinerThanScaleExact() {
+        BigDecimal[] counts = filled("3.25");
+        BigDecimal[] allocation = filled("1");
+        allocation[2] = new BigDecimal("1.005");
+        allocation[7] = new BigDecimal("0.333");
+        BigDecimal expected = BigDecimal.ZERO;
+        for (int i = 0; i < GradeVector.GRADE_COUNT; i++) {
+            expected = expected.add(counts[i].multiply(allocation[i]));
+        }
+
+        assertEquals(0, expected.compareTo(GradeVector.of(counts).dot(allocation)), "分配值超过两位小数时不应舍入或拒绝");
+    }
+
+    @Test
+    public void entityBuildsVectorOnce() {
+        RegionClientNumData data = new RegionClientNumData();
+        data.setGradeArray(filled("4"));
+
+        GradeVector vector = data.toGradeVector();
+
+        assertEquals(400L, vector.getScaled(29));
+        assertSame(vector, data.toGradeVector());
+    }
+
+    @Test
+    public void entityRejectsCustomerCountsFinerThanScale() {
+        RegionClientNumData data = new RegionClientNumData();
+        BigDecimal[] grades = filled("4");
+        grades[3] = new BigDecimal("2.125");
+
+        assertThrows(IllegalArgumentException.class, () -> data.setGradeArray(grades), "客户数超过两位小数时应拒绝而不是舍入");
+        assertThrows(IllegalArgumentException.class, () -> data.setD1(new BigDecimal("0.001")));
+    }
+
+    @Test
+    public void preservesNullGradesAtBoundary() {
+        BigDecimal[] grades = filled("2");
+        grades[4] = null;
+
+        GradeVector vector = GradeVector.of(grades);
+
+        assertTrue(vector.isNull(4));
+        assertNull(vector.getOrNull(4));
+        assertEquals(BigDecimal.ZERO.setScale(2), vector.get(4));
+        assertNull(vector.toBigDecimalArray()[4]);
+        assertFalse(GradeVector.EMPTY.hasAnyValue());
+        assertTrue(GradeVector.EMPTY.with(0, BigDecimal.ONE).hasAnyValue());
+    }
+
+    @Test
+    public void columnValuesRoundLikeDecimalColumn() {
+        BigDecimal[] grades = filled("0");
+        grades[0] = new BigDecimal("1.005");
+        grades[1] = new BigDecimal("-2.5");
+
+        GradeVector vector = GradeVector.ofColumnValues(grades);
+
+        assertEquals(101L, vector.getScaled(0));
+        assertEquals(1L, vector.roundedUnits(0));
+        assertEquals(-3L, vector.roundedUnits(1));
+        assertEquals(new BigDecimal("2.46"), vector.withColumnValue(2, new BigDecimal("2.455")).get(2));
+    }
+
+    @Test
+    public void vectorDotMatchesArrayDot() {
+        BigDecimal[] counts = filled("12.5");
+        BigDecimal[] allocation = filled("3");
+        allocation[10] = null;
+
+        GradeVector countVector = GradeVector.of(counts);
+
+        assertEquals(0, countVector.dot(allocation).compareTo(countVector.dot(GradeVector.of(allocation))));
+    }
+
+    @Test
+    public void columnAccessorsReadAndWriteTheSameVector() {
+        RegionClientNumData clientNum = new RegionClientNumData();
+        clientNum.setGradeArray(filled("4"));
+        clientNum.setD30(new BigDecimal("7"));
+
+        assertEquals(700L, clientNum.toGradeVector().getScaled(0), "逐列设置后向量应立即反映新值");
+        assertEquals(new BigDecimal("7.00"), clientNum.getGradeArray()[0]);
+
+        CigaretteDistributionPredictionData prediction = new CigaretteDistributionPredictionData();
+        prediction.setD15(new BigDecimal("3.456"));
+        prediction.setD1(BigDecimal.ONE);
+
+        assertEquals(new BigDecimal("3.46"), prediction.getD15());
+        assertNull(prediction.getD30());
+        assertEquals(2, CigaretteDistributionRowMapper.countNonNullGrades(prediction));
+        assertArrayEquals(prediction.getGrades().toBigDecimalArray(), GradeMatrixUtils.extractGradesFromEntity(prediction));
+
+        prediction.setGrades(null);
+        assertFalse(prediction.getGrades().hasAnyValue());
+    }
+
+    private static BigDecimal[] filled(String value) {
+        BigDecimal[] grades = new BigDecimal[GradeVector.GRADE_COUNT];
+        Arrays.fill(grades, new BigDecimal(value));
+        return grades;
+    }
+}
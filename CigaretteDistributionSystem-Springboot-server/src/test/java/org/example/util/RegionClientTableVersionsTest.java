@@ -0,0 +1,61 @@
+package org.example.util;
+
+import org.example.service.DistributionInputHashService;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 区域客户数表内容版本与有界缓存测试
+ *
+ * 验证版本在检查间隔内复用、失效后重新读表，表内容变化后缓存键随之变化，以及缓存按最近访问淘汰
+ */
+public class RegionClientTableVersionsTest {
+
+    private static final String TABLE = "region_clientNum_1_1";
+
+    @Test
+    public void reusesVersionWithinIntervalAndRereadsAfterInvalidate() {
+        DistributionInputHashService hashService = mock(DistributionInputHashService.class);
+        when(hashService.computeClientTableHash(TABLE)).thenReturn("v1", "v2");
+        RegionClientTableVersions versions = new RegionClientTableVersions();
+        ReflectionTestUtils.setField(versions, "distributionInputHashService", hashService);
+        versions.setCheckIntervalMs(60_000);
+
+        Object before = versions.typeCacheKey("按档位扩展投放", "档位+区县");
+        assertEquals(before, versions.typeCacheKey("按档位扩展投放", "档位+区县"));
+        verify(hashService, times(1)).computeClientTableHash(TABLE);
+
+        versions.invalidate(TABLE);
+        Object after = versions.typeCacheKey("按档位扩展投放", "档位+区县");
+        assertNotEquals(before, after, "表内容变化后缓存键应随版本变化");
+        assertEquals("v2", versions.version(TABLE));
+        verify(hashService, times(2)).computeClientTableHash(TABLE);
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedEntries() {
+        BoundedCacheManager cacheManager = new BoundedCacheManager();
+        ReflectionTestUtils.setField(cacheManager, "maxEntries", 2);
+        Cache cache = cacheManager.getCache("regionCustomerMatrixByType");
+        assertNotNull(cache);
+
+        cache.put("a", 1);
+        cache.put("b", 2);
+        cache.get("a");
+        cache.put("c", 3);
+
+        assertNotNull(cache.get("a"));
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("c"));
+    }
+}